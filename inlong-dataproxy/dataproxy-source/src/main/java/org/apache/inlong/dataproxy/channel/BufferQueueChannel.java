@@ -17,10 +17,12 @@
 
 package org.apache.inlong.dataproxy.channel;
 
-import org.apache.inlong.dataproxy.utils.BufferQueue;
+import org.apache.inlong.dataproxy.utils.ShardedBufferQueue;
 import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+import org.apache.inlong.sdk.commons.utils.MmapSpillQueue;
 
 import com.google.common.base.Preconditions;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.flume.ChannelException;
 import org.apache.flume.Context;
 import org.apache.flume.Event;
@@ -29,14 +31,27 @@ import org.apache.flume.channel.AbstractChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.Date;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * BufferQueueChannel
+ *
+ * The events are kept in a sharded lock-free queue, the put and take threads start
+ * from their own shards, and the capacity taken by the events of a transaction is
+ * released once per shard at commit.
+ *
+ * If the spill directory is configured, the events are spilled to the memory-mapped
+ * segment files when the queue is full, and the later events follow them until the
+ * spilled events are drained, so the events are replayed in order into the queue when
+ * the sinks catch up. When the spill size reaches the max, the committing threads wait
+ * for the spill capacity instead of the queue, so no event overtakes the spilled ones,
+ * only an event larger than a segment is kept in the queue. The read position of the spilled events is checkpointed
+ * periodically, so the unread ones survive a restart.
  */
 public class BufferQueueChannel extends AbstractChannel {
 
@@ -48,16 +63,30 @@ public class BufferQueueChannel extends AbstractChannel {
     public static final String KEY_MAX_BUFFERQUEUE_SIZE_KB = "maxBufferQueueSizeKb";
     public static final int DEFAULT_MAX_BUFFERQUEUE_SIZE_KB = 128 * 1024;
     public static final String KEY_RELOADINTERVAL = "reloadInterval";
+    public static final String KEY_SHARD_COUNT = "shardCount";
+    public static final int DEFAULT_SHARD_COUNT = Runtime.getRuntime().availableProcessors();
+    public static final String KEY_SPILL_DIRECTORY = "spillDirectory";
+    public static final String KEY_SPILL_SEGMENT_SIZE_MB = "spillSegmentSizeMb";
+    public static final int DEFAULT_SPILL_SEGMENT_SIZE_MB = 64;
+    public static final String KEY_SPILL_MAX_SIZE_MB = "spillMaxSizeMb";
+    public static final int DEFAULT_SPILL_MAX_SIZE_MB = 10 * 1024;
+    public static final String KEY_SPILL_CHECKPOINT_INTERVAL = "spillCheckpointInterval";
+    public static final long DEFAULT_SPILL_CHECKPOINT_INTERVAL = 1000L;
+    // max events moved from the spill queue in one replay
+    private static final int MAX_REPLAY_BATCH_COUNT = 1000;
 
     private Context context;
     private int maxBufferQueueCount;
-    private Semaphore countSemaphore;
     private int maxBufferQueueSizeKb;
-    private BufferQueue<ProxyEvent> bufferQueue;
+    private ShardedBufferQueue<ProxyEvent> bufferQueue;
     private ThreadLocal<ProxyTransaction> currentTransaction = new ThreadLocal<ProxyTransaction>();
     protected Timer channelTimer;
     private AtomicLong takeCounter = new AtomicLong(0);
     private AtomicLong putCounter = new AtomicLong(0);
+    private MmapSpillQueue spillQueue;
+    private final ReentrantLock replayLock = new ReentrantLock();
+    private AtomicLong spillCounter = new AtomicLong(0);
+    private AtomicLong replayCounter = new AtomicLong(0);
 
     /**
      * Constructor
@@ -75,13 +104,27 @@ public class BufferQueueChannel extends AbstractChannel {
     public void put(Event event) throws ChannelException {
         if (event instanceof ProxyEvent) {
             putCounter.incrementAndGet();
-            int eventSize = event.getBody().length;
-            this.countSemaphore.acquireUninterruptibly();
-            this.bufferQueue.acquire(eventSize);
             ProxyTransaction transaction = currentTransaction.get();
             Preconditions.checkState(transaction != null, "No transaction exists for this thread");
             ProxyEvent profile = (ProxyEvent) event;
-            transaction.doPut(profile);
+            int shard;
+            if (this.spillQueue != null) {
+                // follow the spilled events until they are drained
+                if (this.spillQueue.isEmpty()) {
+                    shard = this.bufferQueue.tryReserve(
+                            this.bufferQueue.getThreadShard(), event.getBody().length);
+                    if (shard >= 0) {
+                        transaction.doPut(shard, profile);
+                        return;
+                    }
+                }
+                spillCounter.incrementAndGet();
+                transaction.doSpill(profile);
+                return;
+            }
+            shard = this.bufferQueue.reserve(
+                    this.bufferQueue.getThreadShard(), event.getBody().length);
+            transaction.doPut(shard, profile);
         }
     }
 
@@ -93,16 +136,69 @@ public class BufferQueueChannel extends AbstractChannel {
      */
     @Override
     public Event take() throws ChannelException {
-        ProxyEvent event = this.bufferQueue.pollRecord();
-        if (event != null) {
-            ProxyTransaction transaction = currentTransaction.get();
-            Preconditions.checkState(transaction != null, "No transaction exists for this thread");
-            transaction.doTake(event);
-            takeCounter.incrementAndGet();
+        ProxyEvent event = pollEvent();
+        if (event == null && this.spillQueue != null && !this.spillQueue.isEmpty()) {
+            replaySpilledEvents();
+            event = pollEvent();
         }
         return event;
     }
 
+    private ProxyEvent pollEvent() {
+        ProxyEvent event;
+        int shard;
+        int startShard = this.bufferQueue.getThreadShard();
+        for (int i = 0; i < this.bufferQueue.getShardCount(); i++) {
+            shard = (startShard + i) % this.bufferQueue.getShardCount();
+            event = this.bufferQueue.poll(shard);
+            if (event != null) {
+                ProxyTransaction transaction = currentTransaction.get();
+                Preconditions.checkState(transaction != null, "No transaction exists for this thread");
+                transaction.doTake(shard, event);
+                takeCounter.incrementAndGet();
+                return event;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * move the spilled events into the queue in order while it has capacity
+     */
+    private void replaySpilledEvents() {
+        if (!replayLock.tryLock()) {
+            return;
+        }
+        try {
+            int shard;
+            byte[] payload;
+            ProxyEvent event;
+            for (int i = 0; i < MAX_REPLAY_BATCH_COUNT; i++) {
+                payload = this.spillQueue.peek();
+                if (payload == null) {
+                    break;
+                }
+                try {
+                    event = SpillEventCodec.decode(payload);
+                } catch (Throwable e) {
+                    LOG.error("Decode spilled event failure, drop it", e);
+                    this.spillQueue.remove();
+                    continue;
+                }
+                shard = this.bufferQueue.tryReserve(
+                        this.bufferQueue.getThreadShard(), event.getBody().length);
+                if (shard < 0) {
+                    break;
+                }
+                this.bufferQueue.offer(shard, event);
+                this.spillQueue.remove();
+                replayCounter.incrementAndGet();
+            }
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
     /**
      * getTransaction
      *
@@ -110,7 +206,7 @@ public class BufferQueueChannel extends AbstractChannel {
      */
     @Override
     public Transaction getTransaction() {
-        ProxyTransaction newTransaction = new ProxyTransaction(this.countSemaphore, this.bufferQueue);
+        ProxyTransaction newTransaction = new ProxyTransaction(this.bufferQueue, this.spillQueue);
         this.currentTransaction.set(newTransaction);
         return newTransaction;
     }
@@ -120,6 +216,7 @@ public class BufferQueueChannel extends AbstractChannel {
      */
     @Override
     public void start() {
+        this.openSpillQueue();
         super.start();
         try {
             this.setReloadTimer();
@@ -128,6 +225,43 @@ public class BufferQueueChannel extends AbstractChannel {
         }
     }
 
+    /**
+     * stop
+     */
+    @Override
+    public void stop() {
+        if (channelTimer != null) {
+            channelTimer.cancel();
+        }
+        if (spillQueue != null) {
+            spillQueue.close();
+        }
+        super.stop();
+    }
+
+    /**
+     * openSpillQueue
+     */
+    protected void openSpillQueue() {
+        String spillDirectory = context.getString(KEY_SPILL_DIRECTORY);
+        if (StringUtils.isBlank(spillDirectory)) {
+            return;
+        }
+        int segmentSizeMb = context.getInteger(KEY_SPILL_SEGMENT_SIZE_MB, DEFAULT_SPILL_SEGMENT_SIZE_MB);
+        if (segmentSizeMb < 1 || segmentSizeMb > MmapSpillQueue.MAX_SEGMENT_SIZE_MB) {
+            LOG.warn("Invalid {} {}, use {}", KEY_SPILL_SEGMENT_SIZE_MB, segmentSizeMb,
+                    DEFAULT_SPILL_SEGMENT_SIZE_MB);
+            segmentSizeMb = DEFAULT_SPILL_SEGMENT_SIZE_MB;
+        }
+        int maxSizeMb = context.getInteger(KEY_SPILL_MAX_SIZE_MB, DEFAULT_SPILL_MAX_SIZE_MB);
+        try {
+            this.spillQueue = new MmapSpillQueue(new File(spillDirectory.trim()),
+                    segmentSizeMb * 1024 * 1024, Math.max(1, maxSizeMb / segmentSizeMb));
+        } catch (Exception e) {
+            LOG.error("Open spill queue at {} failure, run without spill", spillDirectory, e);
+        }
+    }
+
     /**
      * setReloadTimer
      */
@@ -137,18 +271,38 @@ public class BufferQueueChannel extends AbstractChannel {
         TimerTask channelTask = new TimerTask() {
 
             public void run() {
-                LOG.info("queueSize:{},availablePermits:{},maxBufferQueueCount:{},availablePermits:{},put:{},take:{}",
+                LOG.info("queueSize:{},maxBufferQueueCount:{},usedSizeKb:{},maxBufferQueueSizeKb:{},put:{},take:{}",
                         bufferQueue.size(),
-                        bufferQueue.availablePermits(),
                         maxBufferQueueCount,
-                        countSemaphore.availablePermits(),
+                        bufferQueue.usedSize() / 1024,
+                        maxBufferQueueSizeKb,
                         putCounter.getAndSet(0),
                         takeCounter.getAndSet(0));
+                if (spillQueue != null) {
+                    LOG.info("spillUsedSizeKb:{},spill:{},replay:{}",
+                            spillQueue.usedSize() / 1024,
+                            spillCounter.getAndSet(0),
+                            replayCounter.getAndSet(0));
+                }
             }
         };
         channelTimer.schedule(channelTask,
                 new Date(System.currentTimeMillis() + reloadInterval),
                 reloadInterval);
+        if (spillQueue != null) {
+            long checkpointInterval =
+                    context.getLong(KEY_SPILL_CHECKPOINT_INTERVAL, DEFAULT_SPILL_CHECKPOINT_INTERVAL);
+            channelTimer.schedule(new TimerTask() {
+
+                public void run() {
+                    try {
+                        spillQueue.checkpoint();
+                    } catch (Throwable e) {
+                        LOG.error("Checkpoint spill queue failure", e);
+                    }
+                }
+            }, checkpointInterval, checkpointInterval);
+        }
     }
 
     /**
@@ -160,8 +314,8 @@ public class BufferQueueChannel extends AbstractChannel {
     public void configure(Context context) {
         this.context = context;
         this.maxBufferQueueCount = context.getInteger(KEY_MAX_BUFFERQUEUE_COUNT, DEFAULT_MAX_BUFFERQUEUE_COUNT);
-        this.countSemaphore = new Semaphore(maxBufferQueueCount, true);
         this.maxBufferQueueSizeKb = context.getInteger(KEY_MAX_BUFFERQUEUE_SIZE_KB, DEFAULT_MAX_BUFFERQUEUE_SIZE_KB);
-        this.bufferQueue = new BufferQueue<>(maxBufferQueueSizeKb);
+        int shardCount = context.getInteger(KEY_SHARD_COUNT, DEFAULT_SHARD_COUNT);
+        this.bufferQueue = new ShardedBufferQueue<>(shardCount, maxBufferQueueCount, maxBufferQueueSizeKb);
     }
 }
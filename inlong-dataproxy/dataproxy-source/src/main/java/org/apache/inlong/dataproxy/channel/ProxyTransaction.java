@@ -17,8 +17,9 @@
 
 package org.apache.inlong.dataproxy.channel;
 
-import org.apache.inlong.dataproxy.utils.BufferQueue;
+import org.apache.inlong.dataproxy.utils.ShardedBufferQueue;
 import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+import org.apache.inlong.sdk.commons.utils.MmapSpillQueue;
 
 import org.apache.flume.Transaction;
 import org.slf4j.Logger;
@@ -26,7 +27,6 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Semaphore;
 
 /**
  * ProfileTransaction
@@ -35,20 +35,37 @@ public class ProxyTransaction implements Transaction {
 
     public static final Logger LOG = LoggerFactory.getLogger(ProxyTransaction.class);
 
-    private Semaphore countSemaphore;
-    private BufferQueue<ProxyEvent> bufferQueue;
+    private ShardedBufferQueue<ProxyEvent> bufferQueue;
     private List<ProxyEvent> takeList = new ArrayList<>();
+    private List<Integer> takeShards = new ArrayList<>();
     private List<ProxyEvent> putList = new ArrayList<>();
+    private List<Integer> putShards = new ArrayList<>();
+    private MmapSpillQueue spillQueue;
+    private List<ProxyEvent> spillList = new ArrayList<>();
+    // the released count and size of each shard, released once per shard
+    private final int[] releaseCounts;
+    private final long[] releaseSizes;
 
     /**
      * Constructor
      *
-     * @param countSemaphore
      * @param bufferQueue
      */
-    public ProxyTransaction(Semaphore countSemaphore, BufferQueue<ProxyEvent> bufferQueue) {
-        this.countSemaphore = countSemaphore;
+    public ProxyTransaction(ShardedBufferQueue<ProxyEvent> bufferQueue) {
+        this(bufferQueue, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param bufferQueue
+     * @param spillQueue the spill queue, null if spill is disabled
+     */
+    public ProxyTransaction(ShardedBufferQueue<ProxyEvent> bufferQueue, MmapSpillQueue spillQueue) {
         this.bufferQueue = bufferQueue;
+        this.spillQueue = spillQueue;
+        this.releaseCounts = new int[bufferQueue.getShardCount()];
+        this.releaseSizes = new long[bufferQueue.getShardCount()];
     }
 
     /**
@@ -63,15 +80,16 @@ public class ProxyTransaction implements Transaction {
      */
     @Override
     public void commit() {
-        for (ProxyEvent event : takeList) {
-            countSemaphore.release();
-            bufferQueue.release(event.getBody().length);
-        }
-        this.takeList.clear();
-        for (ProxyEvent event : putList) {
-            this.bufferQueue.offer(event);
+        releaseCapacity(takeList, takeShards);
+        for (int i = 0; i < putList.size(); i++) {
+            this.bufferQueue.offer(putShards.get(i), putList.get(i));
         }
         this.putList.clear();
+        this.putShards.clear();
+        for (ProxyEvent event : spillList) {
+            spillEvent(event);
+        }
+        this.spillList.clear();
     }
 
     /**
@@ -79,15 +97,13 @@ public class ProxyTransaction implements Transaction {
      */
     @Override
     public void rollback() {
-        for (ProxyEvent event : takeList) {
-            this.bufferQueue.offer(event);
+        for (int i = 0; i < takeList.size(); i++) {
+            this.bufferQueue.offer(takeShards.get(i), takeList.get(i));
         }
         this.takeList.clear();
-        for (ProxyEvent event : putList) {
-            countSemaphore.release();
-            bufferQueue.release(event.getBody().length);
-        }
-        this.putList.clear();
+        this.takeShards.clear();
+        releaseCapacity(putList, putShards);
+        this.spillList.clear();
     }
 
     /**
@@ -100,18 +116,71 @@ public class ProxyTransaction implements Transaction {
     /**
      * doTake
      *
+     * @param shard the shard taken from
      * @param event
      */
-    public void doTake(ProxyEvent event) {
+    public void doTake(int shard, ProxyEvent event) {
         this.takeList.add(event);
+        this.takeShards.add(shard);
     }
 
     /**
      * doPut
      *
+     * @param shard the shard reserved for the event
      * @param event
      */
-    public void doPut(ProxyEvent event) {
+    public void doPut(int shard, ProxyEvent event) {
         this.putList.add(event);
+        this.putShards.add(shard);
+    }
+
+    /**
+     * doSpill
+     *
+     * @param event the event spilled to disk at commit
+     */
+    public void doSpill(ProxyEvent event) {
+        this.spillList.add(event);
+    }
+
+    private void spillEvent(ProxyEvent event) {
+        try {
+            // wait for the spill capacity, so the event does not overtake the spilled events
+            if (spillQueue.appendWait(SpillEventCodec.encode(event))) {
+                return;
+            }
+            LOG.warn("Event of {} bytes can not be spilled, keep it in memory out of order",
+                    event.getBody().length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted when waiting for the spill capacity, keep the event in memory out of order");
+        } catch (Throwable e) {
+            LOG.error("Spill event failure, keep it in memory out of order", e);
+        }
+        // the event is too large, the spill queue is closed or broken, wait for the memory capacity
+        int shard = bufferQueue.reserve(bufferQueue.getThreadShard(), event.getBody().length);
+        bufferQueue.offer(shard, event);
+    }
+
+    private void releaseCapacity(List<ProxyEvent> events, List<Integer> shards) {
+        if (events.isEmpty()) {
+            return;
+        }
+        int shard;
+        for (int i = 0; i < events.size(); i++) {
+            shard = shards.get(i);
+            releaseCounts[shard]++;
+            releaseSizes[shard] += events.get(i).getBody().length;
+        }
+        for (shard = 0; shard < releaseCounts.length; shard++) {
+            if (releaseCounts[shard] > 0) {
+                bufferQueue.release(shard, releaseCounts[shard], releaseSizes[shard]);
+                releaseCounts[shard] = 0;
+                releaseSizes[shard] = 0L;
+            }
+        }
+        events.clear();
+        shards.clear();
     }
 }
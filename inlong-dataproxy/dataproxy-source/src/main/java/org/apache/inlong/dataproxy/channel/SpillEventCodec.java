@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.channel;
+
+import org.apache.inlong.sdk.commons.protocol.EventConstants;
+import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SpillEventCodec
+ *
+ * Serialize the ProxyEvent spilled to disk: the headers, which carry all the event
+ * fields, and the body.
+ */
+public class SpillEventCodec {
+
+    /**
+     * encode
+     *
+     * @param  event
+     * @return the encoded bytes
+     * @throws IOException
+     */
+    public static byte[] encode(ProxyEvent event) throws IOException {
+        Map<String, String> headers = event.getHeaders();
+        byte[] body = event.getBody();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(headers.size());
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue() == null ? "" : entry.getValue());
+        }
+        out.writeInt(body.length);
+        out.write(body);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * decode
+     *
+     * @param  payload
+     * @return the rebuilt event
+     * @throws IOException
+     */
+    public static ProxyEvent decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int headerCount = in.readInt();
+        Map<String, String> headers = new HashMap<>(headerCount * 2);
+        for (int i = 0; i < headerCount; i++) {
+            headers.put(in.readUTF(), in.readUTF());
+        }
+        byte[] body = new byte[in.readInt()];
+        in.readFully(body);
+        ProxyEvent event = new ProxyEvent(headers.get(EventConstants.INLONG_GROUP_ID),
+                headers.get(EventConstants.INLONG_STREAM_ID),
+                headers.get(EventConstants.HEADER_KEY_MSG_TIME),
+                headers.get(EventConstants.HEADER_KEY_SOURCE_IP),
+                headers.get(EventConstants.HEADER_KEY_SOURCE_TIME), headers, body);
+        String topic = headers.get(EventConstants.TOPIC);
+        if (topic != null) {
+            event.setTopic(topic);
+        }
+        return event;
+    }
+}
@@ -22,15 +22,14 @@ import org.apache.inlong.dataproxy.config.pojo.IdTopicConfig;
 import org.apache.inlong.dataproxy.consts.ConfigConstants;
 import org.apache.inlong.dataproxy.sink.mq.BatchPackProfile;
 import org.apache.inlong.sdk.commons.protocol.EventConstants;
+import org.apache.inlong.sdk.commons.protocol.EventUtils;
 import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.INLONG_COMPRESSED_TYPE;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MapFieldEntry;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObj;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObjs;
-import org.apache.inlong.sdk.commons.utils.GzipUtils;
 
 import com.google.protobuf.ByteString;
-import org.xerial.snappy.Snappy;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -69,7 +68,9 @@ public class DefaultEventHandler implements EventHandler {
         // compress type of body data
         // INLONG_NO_COMPRESS = 0,
         // INLONG_GZ = 1,
-        // INLONG_SNAPPY = 2
+        // INLONG_SNAPPY = 2,
+        // INLONG_ZSTD = 3,
+        // INLONG_LZ4 = 4
         headers.put(EventConstants.HEADER_KEY_COMPRESS_TYPE,
                 String.valueOf(compressType.getNumber()));
         // messageKey string partition hash key, optional
@@ -97,20 +98,7 @@ public class DefaultEventHandler implements EventHandler {
         }
         byte[] srcBytes = objs.build().toByteArray();
         // compress
-        byte[] compressBytes = null;
-        switch (compressType) {
-            case INLONG_SNAPPY:
-                compressBytes = Snappy.compress(srcBytes);
-                break;
-            case INLONG_GZ:
-                compressBytes = GzipUtils.compress(srcBytes);
-                break;
-            case INLONG_NO_COMPRESS:
-            default:
-                compressBytes = srcBytes;
-                break;
-        }
-        return compressBytes;
+        return EventUtils.compress(compressType, srcBytes);
     }
 
 }
@@ -289,7 +289,7 @@ public class ServerMessageHandler extends ChannelInboundHandlerAdapter {
             return;
         }
         // build InLong event.
-        Event event = msgCodec.encEventPackage(source, channel);
+        Event event = msgCodec.encEventPackage(source, channel, cb);
         try {
             source.getCachedChProcessor().processEvent(event);
             source.fileMetricAddSuccStats(strBuff, msgCodec.getGroupId(), msgCodec.getStreamId(),
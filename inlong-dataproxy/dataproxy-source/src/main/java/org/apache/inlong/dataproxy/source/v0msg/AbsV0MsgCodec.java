@@ -81,7 +81,8 @@ public abstract class AbsV0MsgCodec {
 
     public abstract boolean validAndFillFields(BaseSource source, StringBuilder strBuff);
 
-    public abstract Event encEventPackage(BaseSource source, Channel channel);
+    // the received buffer is still readable when the event is built
+    public abstract Event encEventPackage(BaseSource source, Channel channel, ByteBuf cb);
 
     public DataProxyErrCode getErrCode() {
         return this.errCode;
@@ -19,7 +19,6 @@ package org.apache.inlong.dataproxy.source.v0msg;
 
 import org.apache.inlong.common.enums.DataProxyErrCode;
 import org.apache.inlong.common.msg.AttributeConstants;
-import org.apache.inlong.common.msg.InLongMsg;
 import org.apache.inlong.common.msg.MsgType;
 import org.apache.inlong.dataproxy.base.SinkRspEvent;
 import org.apache.inlong.dataproxy.config.ConfigManager;
@@ -31,7 +30,9 @@ import io.netty.channel.Channel;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.flume.Event;
 import org.apache.flume.event.EventBuilder;
+import org.xerial.snappy.Snappy;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
@@ -47,6 +48,7 @@ import static org.apache.inlong.dataproxy.source.v0msg.MsgFieldConsts.BIN_MSG_GR
 import static org.apache.inlong.dataproxy.source.v0msg.MsgFieldConsts.BIN_MSG_MAGIC;
 import static org.apache.inlong.dataproxy.source.v0msg.MsgFieldConsts.BIN_MSG_MAGIC_SIZE;
 import static org.apache.inlong.dataproxy.source.v0msg.MsgFieldConsts.BIN_MSG_MSGTYPE_OFFSET;
+import static org.apache.inlong.dataproxy.source.v0msg.MsgFieldConsts.BIN_MSG_SET_SNAPPY;
 import static org.apache.inlong.dataproxy.source.v0msg.MsgFieldConsts.BIN_MSG_STREAMIDNUM_OFFSET;
 import static org.apache.inlong.dataproxy.source.v0msg.MsgFieldConsts.BIN_MSG_TOTALLEN_OFFSET;
 import static org.apache.inlong.dataproxy.source.v0msg.MsgFieldConsts.BIN_MSG_TOTALLEN_SIZE;
@@ -54,6 +56,9 @@ import static org.apache.inlong.dataproxy.source.v0msg.MsgFieldConsts.BIN_MSG_UN
 
 public class CodecBinMsg extends AbsV0MsgCodec {
 
+    // the magic of the InLongMsg v4 package wrapping the bin message
+    private static final byte[] INLONG_MSG_V4_MAGIC = {(byte) 0xf, (byte) 0x4};
+
     private int groupIdNum;
     private int streamIdNum;
     private int extendField;
@@ -61,6 +66,9 @@ public class CodecBinMsg extends AbsV0MsgCodec {
     private boolean num2name = false;
     private boolean transNum2Name = false;
     private boolean needTraceMsg = false;
+    // the body is kept in the received buffer until the event is built
+    private int bodyPos;
+    private int bodyLen;
 
     public CodecBinMsg(int totalDataLen, int msgTypeValue,
             long msgRcvTime, String strRemoteIP) {
@@ -118,8 +126,8 @@ public class CodecBinMsg extends AbsV0MsgCodec {
                 msgHeadPos + BIN_MSG_BODY_OFFSET + bodyLen + BIN_MSG_ATTRLEN_SIZE)) {
             return false;
         }
-        this.bodyData = new byte[bodyLen];
-        cb.getBytes(msgHeadPos + BIN_MSG_BODY_OFFSET, this.bodyData, 0, bodyLen);
+        this.bodyPos = msgHeadPos + BIN_MSG_BODY_OFFSET;
+        this.bodyLen = bodyLen;
         // process extend field value
         if (((this.extendField & 0x8) == 0x8) || ((this.extendField & 0x10) == 0x10)) {
             this.indexMsg = true;
@@ -207,39 +215,63 @@ public class CodecBinMsg extends AbsV0MsgCodec {
         return true;
     }
 
-    public Event encEventPackage(BaseSource source, Channel channel) {
-        // fill bin msg package
-        int totalPkgLength = totalDataLen + BIN_MSG_TOTALLEN_SIZE;
-        ByteBuffer dataBuf = ByteBuffer.allocate(totalPkgLength);
-        dataBuf.putInt(BIN_MSG_TOTALLEN_OFFSET, totalDataLen);
-        dataBuf.put(BIN_MSG_MSGTYPE_OFFSET, msgType);
+    @Override
+    public int getBodyLength() {
+        return this.bodyLen;
+    }
+
+    public Event encEventPackage(BaseSource source, Channel channel, ByteBuf cb) {
+        // the body is copied from the received buffer into the InLongMsg
+        // package directly, or into a temporary array when compressed
+        byte[] compressedBody = null;
+        int pkgBodyLen = bodyLen;
+        byte pkgMsgType = msgType;
+        if (source.isCompressed() && (msgType & 0xE0) == 0) {
+            byte[] body = new byte[bodyLen];
+            cb.getBytes(bodyPos, body, 0, bodyLen);
+            try {
+                compressedBody = new byte[Snappy.maxCompressedLength(bodyLen)];
+                pkgBodyLen = Snappy.compress(body, 0, bodyLen, compressedBody, 0);
+                pkgMsgType = (byte) (msgType | BIN_MSG_SET_SNAPPY);
+            } catch (IOException e) {
+                compressedBody = null;
+                pkgBodyLen = bodyLen;
+            }
+        }
+        byte[] attrData = origAttr.getBytes(StandardCharsets.UTF_8);
+        int pkgLength = BIN_MSG_FORMAT_SIZE + pkgBodyLen + attrData.length;
+        // fill bin msg package between the InLongMsg magics
+        byte[] inlongMsgData = new byte[pkgLength + 2 * INLONG_MSG_V4_MAGIC.length];
+        ByteBuffer dataBuf = ByteBuffer.wrap(inlongMsgData,
+                INLONG_MSG_V4_MAGIC.length, pkgLength).slice();
+        dataBuf.putInt(BIN_MSG_TOTALLEN_OFFSET, pkgLength - BIN_MSG_TOTALLEN_SIZE);
+        dataBuf.put(BIN_MSG_MSGTYPE_OFFSET, pkgMsgType);
         dataBuf.putShort(BIN_MSG_GROUPIDNUM_OFFSET, (short) groupIdNum);
         dataBuf.putShort(BIN_MSG_STREAMIDNUM_OFFSET, (short) streamIdNum);
         dataBuf.putShort(BIN_MSG_EXTEND_OFFSET, (short) extendField);
         dataBuf.putInt(BIN_MSG_DT_OFFSET, (int) dataTimeSec);
         dataBuf.putShort(BIN_MSG_CNT_OFFSET, (short) msgCount);
         dataBuf.putInt(BIN_MSG_UNIQ_OFFSET, (int) uniq);
-        dataBuf.putInt(BIN_MSG_BODYLEN_OFFSET, bodyData.length);
-        if (bodyData.length > 0) {
-            System.arraycopy(bodyData, 0, dataBuf.array(), BIN_MSG_BODY_OFFSET, bodyData.length);
-        }
-        dataBuf.putShort(totalPkgLength
-                - BIN_MSG_ATTRLEN_SIZE - BIN_MSG_MAGIC_SIZE - origAttr.length(), (short) origAttr.length());
-        if (origAttr.length() > 0) {
-            System.arraycopy(origAttr.getBytes(StandardCharsets.UTF_8), 0, dataBuf.array(),
-                    totalPkgLength - BIN_MSG_MAGIC_SIZE - origAttr.length(), origAttr.length());
+        dataBuf.putInt(BIN_MSG_BODYLEN_OFFSET, pkgBodyLen);
+        int bodyOffset = INLONG_MSG_V4_MAGIC.length + BIN_MSG_BODY_OFFSET;
+        if (compressedBody == null) {
+            cb.getBytes(bodyPos, inlongMsgData, bodyOffset, bodyLen);
+        } else {
+            System.arraycopy(compressedBody, 0, inlongMsgData, bodyOffset, pkgBodyLen);
         }
-        dataBuf.putShort(totalPkgLength - BIN_MSG_MAGIC_SIZE, (short) BIN_MSG_MAGIC);
-        // build InLong message
-        InLongMsg inLongMsg = InLongMsg.newInLongMsg(source.isCompressed(), 4);
-        inLongMsg.addMsg(dataBuf.array());
-        byte[] inlongMsgData = inLongMsg.buildArray();
-        msgPkgTime = inLongMsg.getCreatetime();
+        dataBuf.putShort(BIN_MSG_BODY_OFFSET + pkgBodyLen, (short) attrData.length);
+        System.arraycopy(attrData, 0, inlongMsgData,
+                bodyOffset + pkgBodyLen + BIN_MSG_ATTRLEN_SIZE, attrData.length);
+        dataBuf.putShort(pkgLength - BIN_MSG_MAGIC_SIZE, (short) BIN_MSG_MAGIC);
+        System.arraycopy(INLONG_MSG_V4_MAGIC, 0, inlongMsgData, 0, INLONG_MSG_V4_MAGIC.length);
+        System.arraycopy(INLONG_MSG_V4_MAGIC, 0, inlongMsgData,
+                inlongMsgData.length - INLONG_MSG_V4_MAGIC.length, INLONG_MSG_V4_MAGIC.length);
+        msgPkgTime = System.currentTimeMillis();
+        // build InLong event
         Event event = EventBuilder.withBody(inlongMsgData, buildEventHeaders(source));
         if (isOrderOrProxy) {
             event = new SinkRspEvent(event, MsgType.MSG_BIN_MULTI_BODY, channel);
         }
-        inLongMsg.reset();
         return event;
     }
 
@@ -223,7 +223,7 @@ public class CodecTextMsg extends AbsV0MsgCodec {
         return true;
     }
 
-    public Event encEventPackage(BaseSource source, Channel channel) {
+    public Event encEventPackage(BaseSource source, Channel channel, ByteBuf cb) {
         // build InLongMsg object
         int inLongMsgVer = 1;
         if (MsgType.MSG_MULTI_BODY_ATTR.equals(MsgType.valueOf(msgType))) {
@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ShardedBufferQueue
+ *
+ * A bounded queue split into shards, each shard is a lock-free ring buffer with its own
+ * count and size accounting, so the producers and consumers working on different shards
+ * do not contend with each other. The capacity is reserved before the record is offered,
+ * and released after the taken records are committed, so an offer to a shard with the
+ * reserved capacity does not wait for the consumers. The records are ordered within a
+ * shard only.
+ */
+public class ShardedBufferQueue<A> {
+
+    private static final long RESERVE_PARK_NANOS = 100_000L;
+
+    private final int shardMask;
+    private final RingShard<A>[] shards;
+    private final int maxCountPerShard;
+    private final long maxSizePerShard;
+    private final AtomicInteger shardIndex = new AtomicInteger(0);
+    private final ThreadLocal<Integer> threadShard;
+
+    /**
+     * Constructor
+     *
+     * @param shardCount   the shard count, rounded up to a power of 2
+     * @param maxCount     the max record count of the queue
+     * @param maxSizeKb    the max record size of the queue in KB
+     */
+    @SuppressWarnings("unchecked")
+    public ShardedBufferQueue(int shardCount, int maxCount, int maxSizeKb) {
+        int tmpShardCount = roundUpPowerOf2(Math.max(shardCount, 1));
+        this.shardMask = tmpShardCount - 1;
+        this.threadShard = ThreadLocal.withInitial(
+                () -> this.shardIndex.getAndIncrement() & this.shardMask);
+        this.maxCountPerShard = Math.max(1, (maxCount + tmpShardCount - 1) / tmpShardCount);
+        this.maxSizePerShard =
+                Math.max(1L, (long) maxSizeKb * SizeSemaphore.ONEKB / tmpShardCount);
+        this.shards = new RingShard[tmpShardCount];
+        for (int i = 0; i < tmpShardCount; i++) {
+            this.shards[i] = new RingShard<>(roundUpPowerOf2(maxCountPerShard));
+        }
+    }
+
+    /**
+     * the shard count
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * the preferred shard of the current thread
+     */
+    public int getThreadShard() {
+        return threadShard.get();
+    }
+
+    /**
+     * try to reserve the capacity of a record, start from the preferred shard
+     *
+     * @param preferShard  the preferred shard
+     * @param sizeInByte   the record size
+     * @return  the reserved shard, -1 if all the shards are full
+     */
+    public int tryReserve(int preferShard, long sizeInByte) {
+        int shard;
+        for (int i = 0; i < shards.length; i++) {
+            shard = (preferShard + i) & shardMask;
+            if (shards[shard].tryReserve(sizeInByte, maxCountPerShard, maxSizePerShard)) {
+                return shard;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * reserve the capacity of a record, wait until a shard has the capacity
+     *
+     * @param preferShard  the preferred shard
+     * @param sizeInByte   the record size
+     * @return  the reserved shard
+     */
+    public int reserve(int preferShard, long sizeInByte) {
+        int shard = tryReserve(preferShard, sizeInByte);
+        while (shard < 0) {
+            LockSupport.parkNanos(RESERVE_PARK_NANOS);
+            shard = tryReserve(preferShard, sizeInByte);
+        }
+        return shard;
+    }
+
+    /**
+     * release the reserved capacity of the records in a shard
+     *
+     * @param shard        the shard
+     * @param count        the record count
+     * @param sizeInByte   the total record size
+     */
+    public void release(int shard, int count, long sizeInByte) {
+        shards[shard].release(count, sizeInByte);
+    }
+
+    /**
+     * offer a record to the shard with the reserved capacity
+     *
+     * @param shard   the reserved shard
+     * @param record  the record
+     */
+    public void offer(int shard, A record) {
+        // with the reserved capacity, the offer only fails while the slot
+        // is still being released by a consumer polling an earlier round
+        while (!shards[shard].offer(record)) {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * poll a record from a shard
+     *
+     * @param shard  the shard
+     * @return  the record, null if the shard is empty
+     */
+    public A poll(int shard) {
+        return shards[shard].poll();
+    }
+
+    /**
+     * the record count in the queue, including the reserved ones
+     */
+    public int size() {
+        int size = 0;
+        for (RingShard<A> shard : shards) {
+            size += shard.usedCount.get();
+        }
+        return size;
+    }
+
+    /**
+     * the record size in the queue, including the reserved ones
+     */
+    public long usedSize() {
+        long usedSize = 0L;
+        for (RingShard<A> shard : shards) {
+            usedSize += shard.usedSize.get();
+        }
+        return usedSize;
+    }
+
+    private static int roundUpPowerOf2(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Bounded multi-producer multi-consumer ring buffer, each slot carries a sequence
+     * telling whether it is ready to be written or read in the current round.
+     */
+    private static class RingShard<A> {
+
+        private final int mask;
+        private final AtomicReferenceArray<A> buffer;
+        private final AtomicLongArray sequences;
+        private final AtomicLong writePos = new AtomicLong(0);
+        private final AtomicLong readPos = new AtomicLong(0);
+        private final AtomicInteger usedCount = new AtomicInteger(0);
+        private final AtomicLong usedSize = new AtomicLong(0);
+
+        RingShard(int capacity) {
+            this.mask = capacity - 1;
+            this.buffer = new AtomicReferenceArray<>(capacity);
+            this.sequences = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                this.sequences.set(i, i);
+            }
+        }
+
+        boolean tryReserve(long sizeInByte, int maxCount, long maxSize) {
+            int curCount;
+            do {
+                curCount = usedCount.get();
+                if (curCount >= maxCount) {
+                    return false;
+                }
+            } while (!usedCount.compareAndSet(curCount, curCount + 1));
+            long curSize;
+            do {
+                curSize = usedSize.get();
+                // a record larger than the shard is accepted by an empty shard
+                if (curSize + sizeInByte > maxSize && curSize > 0) {
+                    usedCount.decrementAndGet();
+                    return false;
+                }
+            } while (!usedSize.compareAndSet(curSize, curSize + sizeInByte));
+            return true;
+        }
+
+        void release(int count, long sizeInByte) {
+            usedSize.addAndGet(-sizeInByte);
+            usedCount.addAndGet(-count);
+        }
+
+        boolean offer(A record) {
+            int index;
+            long pos = writePos.get();
+            while (true) {
+                index = (int) (pos & mask);
+                long dif = sequences.get(index) - pos;
+                if (dif == 0) {
+                    if (writePos.compareAndSet(pos, pos + 1)) {
+                        break;
+                    }
+                    pos = writePos.get();
+                } else if (dif < 0) {
+                    return false;
+                } else {
+                    pos = writePos.get();
+                }
+            }
+            buffer.lazySet(index, record);
+            sequences.set(index, pos + 1);
+            return true;
+        }
+
+        A poll() {
+            int index;
+            long pos = readPos.get();
+            while (true) {
+                index = (int) (pos & mask);
+                long dif = sequences.get(index) - (pos + 1);
+                if (dif == 0) {
+                    if (readPos.compareAndSet(pos, pos + 1)) {
+                        break;
+                    }
+                    pos = readPos.get();
+                } else if (dif < 0) {
+                    return null;
+                } else {
+                    pos = readPos.get();
+                }
+            }
+            A record = buffer.get(index);
+            buffer.lazySet(index, null);
+            sequences.set(index, pos + mask + 1);
+            return record;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.channel;
+
+import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.Transaction;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test for the spill and replay of BufferQueueChannel
+ */
+public class BufferQueueChannelTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("channel-spill").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testSpillAndReplayInOrder() {
+        BufferQueueChannel channel = createChannel();
+        putEvents(channel, 0, 10);
+        // the first 2 events are kept in memory, the others are replayed in order
+        Assert.assertEquals(bodies(0, 10), takeEvents(channel, 10));
+        Assert.assertTrue(takeEvents(channel, 1).isEmpty());
+        // the events follow the spilled ones until they are drained
+        putEvents(channel, 10, 15);
+        Assert.assertEquals(bodies(10, 15), takeEvents(channel, 5));
+        channel.stop();
+    }
+
+    @Test
+    public void testRecoverSpilledEvents() {
+        BufferQueueChannel channel = createChannel();
+        putEvents(channel, 0, 10);
+        channel.stop();
+        // the events in memory are lost, the spilled ones are recovered
+        BufferQueueChannel reopened = createChannel();
+        Assert.assertEquals(bodies(2, 10), takeEvents(reopened, 10));
+        reopened.stop();
+    }
+
+    private BufferQueueChannel createChannel() {
+        Context context = new Context();
+        context.put(BufferQueueChannel.KEY_MAX_BUFFERQUEUE_COUNT, "2");
+        context.put(BufferQueueChannel.KEY_SHARD_COUNT, "1");
+        context.put(BufferQueueChannel.KEY_SPILL_DIRECTORY, directory.getAbsolutePath());
+        context.put(BufferQueueChannel.KEY_SPILL_SEGMENT_SIZE_MB, "1");
+        context.put(BufferQueueChannel.KEY_SPILL_MAX_SIZE_MB, "4");
+        BufferQueueChannel channel = new BufferQueueChannel();
+        channel.setName("channel");
+        channel.configure(context);
+        channel.start();
+        return channel;
+    }
+
+    private static void putEvents(BufferQueueChannel channel, int start, int end) {
+        Transaction transaction = channel.getTransaction();
+        transaction.begin();
+        for (int i = start; i < end; i++) {
+            channel.put(new ProxyEvent("group", "stream",
+                    String.valueOf(i).getBytes(StandardCharsets.UTF_8), i, "127.0.0.1"));
+        }
+        transaction.commit();
+        transaction.close();
+    }
+
+    private static List<String> takeEvents(BufferQueueChannel channel, int maxCount) {
+        List<String> bodies = new ArrayList<>();
+        // the memory capacity is released at commit, so take one event per transaction
+        for (int i = 0; i < maxCount; i++) {
+            Transaction transaction = channel.getTransaction();
+            transaction.begin();
+            Event event = channel.take();
+            transaction.commit();
+            transaction.close();
+            if (event == null) {
+                break;
+            }
+            bodies.add(new String(event.getBody(), StandardCharsets.UTF_8));
+        }
+        return bodies;
+    }
+
+    private static List<String> bodies(int start, int end) {
+        List<String> bodies = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            bodies.add(String.valueOf(i));
+        }
+        return bodies;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.channel;
+
+import org.apache.inlong.sdk.commons.protocol.EventConstants;
+import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Test for SpillEventCodec
+ */
+public class SpillEventCodecTest {
+
+    @Test
+    public void testEncodeAndDecode() throws Exception {
+        ProxyEvent event = new ProxyEvent("group", "stream",
+                "body".getBytes(StandardCharsets.UTF_8), 1700000000000L, "127.0.0.1");
+        event.setTopic("topic");
+        event.getHeaders().put("key", "value");
+        event.getHeaders().put("emptyKey", null);
+
+        ProxyEvent decoded = SpillEventCodec.decode(SpillEventCodec.encode(event));
+        Assert.assertEquals("group", decoded.getInlongGroupId());
+        Assert.assertEquals("stream", decoded.getInlongStreamId());
+        Assert.assertEquals(event.getUid(), decoded.getUid());
+        Assert.assertEquals(1700000000000L, decoded.getMsgTime());
+        Assert.assertEquals("127.0.0.1", decoded.getSourceIp());
+        Assert.assertEquals(event.getSourceTime(), decoded.getSourceTime());
+        Assert.assertEquals("topic", decoded.getTopic());
+        Assert.assertEquals("value", decoded.getHeaders().get("key"));
+        // the null header values are kept as empty strings
+        Assert.assertEquals("", decoded.getHeaders().get("emptyKey"));
+        Assert.assertEquals("group", decoded.getHeaders().get(EventConstants.INLONG_GROUP_ID));
+        Assert.assertArrayEquals(event.getBody(), decoded.getBody());
+    }
+
+    @Test
+    public void testEmptyBody() throws Exception {
+        ProxyEvent event = new ProxyEvent("group", "stream", new byte[0], 1L, "127.0.0.1");
+        ProxyEvent decoded = SpillEventCodec.decode(SpillEventCodec.encode(event));
+        Assert.assertEquals(0, decoded.getBody().length);
+        Assert.assertNull(decoded.getTopic());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.source.v0msg;
+
+import org.apache.inlong.common.msg.InLongMsg;
+import org.apache.inlong.common.msg.MsgType;
+import org.apache.inlong.dataproxy.source.BaseSource;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.flume.Event;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Test for CodecBinMsg
+ */
+public class CodecBinMsgTest {
+
+    @Test
+    public void testEncEventPackage() throws Exception {
+        byte[] body = new byte[1024];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) (i % 16);
+        }
+        byte[] attr = "groupId=group_1&streamId=stream_1".getBytes(StandardCharsets.UTF_8);
+        byte[] binMsg = buildBinMsg(body, attr);
+        // the event body is the same as the InLongMsg built from the bin message
+        for (boolean compressed : new boolean[]{false, true}) {
+            BaseSource source = Mockito.mock(BaseSource.class);
+            Mockito.when(source.isCompressed()).thenReturn(compressed);
+            ByteBuf cb = Unpooled.wrappedBuffer(binMsg);
+            int totalDataLen = cb.readInt();
+            int msgTypeValue = cb.readByte();
+            CodecBinMsg codec = new CodecBinMsg(totalDataLen, msgTypeValue,
+                    System.currentTimeMillis(), "127.0.0.1");
+            Assert.assertTrue(codec.descMsg(source, cb));
+            Assert.assertEquals(body.length, codec.getBodyLength());
+            Event event = codec.encEventPackage(source, null, cb);
+            InLongMsg inLongMsg = InLongMsg.newInLongMsg(compressed, 4);
+            inLongMsg.addMsg(binMsg);
+            Assert.assertArrayEquals(inLongMsg.buildArray(), event.getBody());
+            cb.release();
+        }
+    }
+
+    private static byte[] buildBinMsg(byte[] body, byte[] attr) {
+        int totalPkgLength = MsgFieldConsts.BIN_MSG_FORMAT_SIZE + body.length + attr.length;
+        ByteBuf buf = Unpooled.buffer(totalPkgLength);
+        buf.writeInt(totalPkgLength - MsgFieldConsts.BIN_MSG_TOTALLEN_SIZE);
+        buf.writeByte(MsgType.MSG_BIN_MULTI_BODY.getValue());
+        buf.writeShort(0);
+        buf.writeShort(0);
+        // groupId and streamId are carried in the attributes
+        buf.writeShort(0x4);
+        buf.writeInt((int) (System.currentTimeMillis() / 1000));
+        buf.writeShort(1);
+        buf.writeInt(100);
+        buf.writeInt(body.length);
+        buf.writeBytes(body);
+        buf.writeShort(attr.length);
+        buf.writeBytes(attr);
+        buf.writeShort(MsgFieldConsts.BIN_MSG_MAGIC);
+        return buf.array();
+    }
+}
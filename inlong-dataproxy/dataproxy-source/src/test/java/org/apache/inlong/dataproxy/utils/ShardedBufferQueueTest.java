@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test for ShardedBufferQueue
+ */
+public class ShardedBufferQueueTest {
+
+    @Test
+    public void testCapacity() {
+        ShardedBufferQueue<String> queue = new ShardedBufferQueue<>(3, 8, 1);
+        Assert.assertEquals(4, queue.getShardCount());
+        // 2 records and 256 bytes per shard
+        int shard = queue.tryReserve(1, 100);
+        Assert.assertEquals(1, shard);
+        queue.offer(shard, "a");
+        Assert.assertEquals(1, queue.tryReserve(1, 100));
+        queue.offer(1, "b");
+        // the full shard is skipped
+        Assert.assertEquals(2, queue.tryReserve(1, 200));
+        queue.offer(2, "c");
+        Assert.assertEquals(3, queue.tryReserve(2, 200));
+        queue.offer(3, "d");
+        // a record larger than a shard is accepted by an empty shard
+        Assert.assertEquals(0, queue.tryReserve(2, 1000));
+        queue.offer(0, "e");
+        Assert.assertEquals(-1, queue.tryReserve(0, 100));
+        Assert.assertEquals(5, queue.size());
+        Assert.assertEquals(1600, queue.usedSize());
+        // the records are ordered in a shard
+        Assert.assertEquals("a", queue.poll(1));
+        Assert.assertEquals("b", queue.poll(1));
+        Assert.assertNull(queue.poll(1));
+        // the capacity is kept until released
+        Assert.assertEquals(-1, queue.tryReserve(1, 100));
+        queue.release(1, 2, 200);
+        Assert.assertEquals(1, queue.tryReserve(1, 100));
+        Assert.assertEquals(4, queue.size());
+    }
+
+    @Test
+    public void testConcurrentOfferAndPoll() throws Exception {
+        final int threadCnt = 4;
+        final int recordCnt = 20000;
+        final ShardedBufferQueue<Integer> queue = new ShardedBufferQueue<>(4, 64, 64);
+        final ConcurrentHashMap<Integer, Boolean> polled = new ConcurrentHashMap<>();
+        final AtomicInteger remaining = new AtomicInteger(threadCnt * recordCnt);
+        final CountDownLatch latch = new CountDownLatch(threadCnt * 2);
+        for (int t = 0; t < threadCnt; t++) {
+            final int base = t * recordCnt;
+            new Thread(() -> {
+                for (int i = 0; i < recordCnt; i++) {
+                    int shard = queue.reserve(queue.getThreadShard(), 10);
+                    queue.offer(shard, base + i);
+                }
+                latch.countDown();
+            }).start();
+            new Thread(() -> {
+                int startShard = queue.getThreadShard();
+                while (remaining.get() > 0) {
+                    for (int i = 0; i < queue.getShardCount(); i++) {
+                        int shard = (startShard + i) % queue.getShardCount();
+                        Integer record = queue.poll(shard);
+                        if (record != null) {
+                            Assert.assertNull(polled.put(record, true));
+                            queue.release(shard, 1, 10);
+                            remaining.decrementAndGet();
+                        }
+                    }
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        Assert.assertEquals(threadCnt * recordCnt, polled.size());
+        Assert.assertEquals(0, queue.size());
+        Assert.assertEquals(0, queue.usedSize());
+    }
+}
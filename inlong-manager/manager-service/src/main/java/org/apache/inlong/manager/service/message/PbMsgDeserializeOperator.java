@@ -22,6 +22,7 @@ import org.apache.inlong.common.msg.AttributeConstants;
 import org.apache.inlong.common.util.Utils;
 import org.apache.inlong.manager.pojo.consume.BriefMQMessage;
 import org.apache.inlong.manager.pojo.stream.InlongStreamInfo;
+import org.apache.inlong.sdk.commons.protocol.EventUtils;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.INLONG_COMPRESSED_TYPE;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MapFieldEntry;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObj;
@@ -59,6 +60,10 @@ public class PbMsgDeserializeOperator implements DeserializeOperator {
             case INLONG_COMPRESSED_TYPE.INLONG_SNAPPY_VALUE:
                 values = Utils.snappyDecompress(msgBytes, 0, msgBytes.length);
                 break;
+            case INLONG_COMPRESSED_TYPE.INLONG_ZSTD_VALUE:
+            case INLONG_COMPRESSED_TYPE.INLONG_LZ4_VALUE:
+                values = EventUtils.decompress(INLONG_COMPRESSED_TYPE.forNumber(compressType), msgBytes);
+                break;
             default:
                 throw new IllegalArgumentException("Unknown compress type:" + compressType);
         }
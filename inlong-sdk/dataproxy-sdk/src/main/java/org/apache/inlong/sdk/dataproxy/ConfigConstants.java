@@ -49,6 +49,17 @@ public class ConfigConstants {
 
     public static final int MAX_LINE_CNT = 30;
 
+    /* Configure the batch limits of the accumulated single messages. */
+    public static final int DEFAULT_BATCH_MAX_COUNT = 500;
+    public static final int DEFAULT_BATCH_MAX_SIZE = 512 * 1024;
+    public static final long DEFAULT_BATCH_LINGER_MS = 10L;
+
+    /* Configure the write ahead log of the async messages during proxy outages. */
+    public static final int DEFAULT_WAL_SEGMENT_SIZE_MB = 64;
+    public static final int DEFAULT_WAL_MAX_SIZE_MB = 1024;
+    public static final long DEFAULT_WAL_CHECKPOINT_INTERVAL_MS = 1000L;
+    public static final int DEFAULT_WAL_MAX_RETRIES = 60;
+
     /* Default connection,connect timeout in milliseconds. */
     public static final long DEFAULT_CONNECT_TIMEOUT_MILLIS =
             TimeUnit.MILLISECONDS.convert(40, TimeUnit.SECONDS);
@@ -27,6 +27,7 @@ import org.apache.inlong.sdk.dataproxy.network.ProxysdkException;
 import org.apache.inlong.sdk.dataproxy.network.Sender;
 import org.apache.inlong.sdk.dataproxy.network.SequentialID;
 import org.apache.inlong.sdk.dataproxy.network.Utils;
+import org.apache.inlong.sdk.dataproxy.threads.BatchAccumulatorThread;
 import org.apache.inlong.sdk.dataproxy.threads.IndexCollectThread;
 import org.apache.inlong.sdk.dataproxy.threads.ManagerFetcherThread;
 import org.apache.inlong.sdk.dataproxy.utils.ProxyUtils;
@@ -53,6 +54,7 @@ public class DefaultMessageSender implements MessageSender {
     private static final SequentialID idGenerator = new SequentialID(Utils.getLocalIp());
     private final Sender sender;
     private final IndexCollectThread indexCol;
+    private BatchAccumulatorThread batchAccumulator;
     /* Store index <groupId_streamId,cnt> */
     private final Map<String, Long> storeIndex = new ConcurrentHashMap<String, Long>();
     private String groupId;
@@ -73,6 +75,14 @@ public class DefaultMessageSender implements MessageSender {
         groupId = configure.getGroupId();
         indexCol = new IndexCollectThread(storeIndex);
         indexCol.start();
+        if (configure.isEnableBatchAccumulate()) {
+            batchAccumulator = new BatchAccumulatorThread(
+                    (bodyList, batchGroupId, streamId, dt, timeoutMs, callback) -> asyncSendMessage(callback,
+                            bodyList, batchGroupId, streamId, dt, idGenerator.getNextId(),
+                            timeoutMs, TimeUnit.MILLISECONDS),
+                    configure.getBatchMaxCount(), configure.getBatchMaxSize(), configure.getBatchLingerMs());
+            batchAccumulator.start();
+        }
 
         if (configure.isEnableSaveManagerVIps()
                 && configure.isLocalVisit()
@@ -448,7 +458,8 @@ public class DefaultMessageSender implements MessageSender {
      * @param msgUUID msg uuid
      * @param timeout
      * @param timeUnit
-     * @param isProxySend true: dataproxy doesn't return response message until data is sent to MQ
+     * @param isProxySend true: dataproxy doesn't return response message until data is sent to MQ,
+     *         otherwise the message is accumulated into a batch if the batch accumulate is enabled
      * @throws ProxysdkException
      */
     public void asyncSendMessage(SendMessageCallback callback, byte[] body, String groupId, String streamId, long dt,
@@ -457,6 +468,10 @@ public class DefaultMessageSender implements MessageSender {
         if (!ProxyUtils.isBodyValid(body) || !ProxyUtils.isDtValid(dt)) {
             throw new ProxysdkException(SendResult.INVALID_ATTRIBUTES.toString());
         }
+        if (batchAccumulator != null && !isProxySend) {
+            batchAccumulator.append(groupId, streamId, dt, body, callback, timeUnit.toMillis(timeout));
+            return;
+        }
         addIndexCnt(groupId, streamId, 1);
 
         String proxySend = "";
@@ -853,6 +868,9 @@ public class DefaultMessageSender implements MessageSender {
         if (sender.getClusterId() != -1) {
             CACHE_SENDER.remove(sender.getClusterId());
         }
+        if (batchAccumulator != null) {
+            batchAccumulator.close();
+        }
         sender.close();
         shutdownInternalThreads();
     }
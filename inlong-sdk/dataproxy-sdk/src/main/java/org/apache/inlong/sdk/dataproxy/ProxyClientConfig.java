@@ -100,6 +100,20 @@ public class ProxyClientConfig {
     private LoadBalance loadBalance;
 
     private int maxRetry;
+    // accumulate the async single messages into batches, the messages of a batch are sent
+    // with the dt of its first message, as the batches are keyed by the minute of dt
+    private boolean enableBatchAccumulate = false;
+    private int batchMaxCount = ConfigConstants.DEFAULT_BATCH_MAX_COUNT;
+    private int batchMaxSize = ConfigConstants.DEFAULT_BATCH_MAX_SIZE;
+    private long batchLingerMs = ConfigConstants.DEFAULT_BATCH_LINGER_MS;
+    // keep the async messages in the write ahead log when no proxy is available, blank means disabled,
+    // the async messages are also appended to the log while it is not empty, to be sent in order
+    private String walDirectory;
+    private int walSegmentSizeMb = ConfigConstants.DEFAULT_WAL_SEGMENT_SIZE_MB;
+    private int walMaxSizeMb = ConfigConstants.DEFAULT_WAL_MAX_SIZE_MB;
+    private long walCheckpointIntervalMs = ConfigConstants.DEFAULT_WAL_CHECKPOINT_INTERVAL_MS;
+    // the max send times of a log message rejected by the connected proxies before it is dropped
+    private int walMaxRetries = ConfigConstants.DEFAULT_WAL_MAX_RETRIES;
 
     /* pay attention to the last url parameter ip */
     public ProxyClientConfig(String localHost, boolean isLocalVisit, String managerIp,
@@ -499,4 +513,76 @@ public class ProxyClientConfig {
     public void setMaxRetry(int maxRetry) {
         this.maxRetry = maxRetry;
     }
+
+    public boolean isEnableBatchAccumulate() {
+        return enableBatchAccumulate;
+    }
+
+    public void setEnableBatchAccumulate(boolean enableBatchAccumulate) {
+        this.enableBatchAccumulate = enableBatchAccumulate;
+    }
+
+    public int getBatchMaxCount() {
+        return batchMaxCount;
+    }
+
+    public void setBatchMaxCount(int batchMaxCount) {
+        this.batchMaxCount = batchMaxCount;
+    }
+
+    public int getBatchMaxSize() {
+        return batchMaxSize;
+    }
+
+    public void setBatchMaxSize(int batchMaxSize) {
+        this.batchMaxSize = batchMaxSize;
+    }
+
+    public long getBatchLingerMs() {
+        return batchLingerMs;
+    }
+
+    public void setBatchLingerMs(long batchLingerMs) {
+        this.batchLingerMs = batchLingerMs;
+    }
+
+    public String getWalDirectory() {
+        return walDirectory;
+    }
+
+    public void setWalDirectory(String walDirectory) {
+        this.walDirectory = walDirectory;
+    }
+
+    public int getWalSegmentSizeMb() {
+        return walSegmentSizeMb;
+    }
+
+    public void setWalSegmentSizeMb(int walSegmentSizeMb) {
+        this.walSegmentSizeMb = walSegmentSizeMb;
+    }
+
+    public int getWalMaxSizeMb() {
+        return walMaxSizeMb;
+    }
+
+    public void setWalMaxSizeMb(int walMaxSizeMb) {
+        this.walMaxSizeMb = walMaxSizeMb;
+    }
+
+    public long getWalCheckpointIntervalMs() {
+        return walCheckpointIntervalMs;
+    }
+
+    public void setWalCheckpointIntervalMs(long walCheckpointIntervalMs) {
+        this.walCheckpointIntervalMs = walCheckpointIntervalMs;
+    }
+
+    public int getWalMaxRetries() {
+        return walMaxRetries;
+    }
+
+    public void setWalMaxRetries(int walMaxRetries) {
+        this.walMaxRetries = walMaxRetries;
+    }
 }
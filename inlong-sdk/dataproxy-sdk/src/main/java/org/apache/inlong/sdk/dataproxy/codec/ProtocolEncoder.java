@@ -30,40 +30,61 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xerial.snappy.Snappy;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.apache.inlong.sdk.dataproxy.ConfigConstants.FLAG_ALLOW_AUTH;
 import static org.apache.inlong.sdk.dataproxy.ConfigConstants.FLAG_ALLOW_COMPRESS;
 import static org.apache.inlong.sdk.dataproxy.ConfigConstants.FLAG_ALLOW_ENCRYPT;
 
+/**
+ * ProtocolEncoder
+ *
+ * The frames are written straight into the buffers of the channel allocator. The bodies
+ * are copied once into the frame, or compressed from a direct buffer into the frame, and
+ * only the encrypted bodies go through byte arrays. An encoder serves one channel, so the
+ * cached stream attributes and the nonce random are used by its event loop only.
+ */
 public class ProtocolEncoder extends MessageToMessageEncoder<EncodeObject> {
 
     private static final Logger logger = LoggerFactory
             .getLogger(ProtocolEncoder.class);
 
+    private static final byte ATTR_SPLITTER = '&';
+    private static final byte LINE_SPLITTER = '\n';
+    private static final byte[] MSG_UUID_KEY = "msgUUID=".getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_CACHED_STREAM_ATTRS = 10000;
+    // body formats
+    private static final int BODY_LENGTH_PREFIXED = 0;
+    private static final int BODY_LINE_SPLIT = 1;
+    private static final int BODY_LINE_SPLIT_LENGTH_PREFIXED = 2;
+
+    private final Map<String, Map<String, byte[]>> streamAttrCache = new HashMap<>();
+    private int cachedStreamAttrCnt = 0;
+    private final SecureRandom nonceRandom = new SecureRandom();
+
     protected void encode(ChannelHandlerContext ctx,
             EncodeObject message, List<Object> out) throws Exception {
         ByteBuf buf = null;
         try {
             EncodeObject object = message;
             if (object.getMsgtype() == 3) {
-                buf = writeToBuf3(object);
+                buf = writeToBuf3(ctx.alloc(), object);
             }
             if (object.getMsgtype() == 5) {
-                buf = writeToBuf5(object);
+                buf = writeToBuf5(ctx.alloc(), object);
             }
 
             if (object.getMsgtype() == 7) {
-                buf = writeToBuf7(object);
+                buf = writeToBuf7(ctx.alloc(), object);
             }
             if (object.getMsgtype() == 8) {
-                buf = writeToBuf8(object);
+                buf = writeToBuf8(ctx.alloc(), object);
             }
         } catch (Exception e) {
             logger.error("{}", e.getMessage());
@@ -76,7 +97,7 @@ public class ProtocolEncoder extends MessageToMessageEncoder<EncodeObject> {
         }
     }
 
-    private ByteBuf writeToBuf8(EncodeObject object) {
+    private ByteBuf writeToBuf8(ByteBufAllocator alloc, EncodeObject object) {
         ByteBuf buf = null;
         try {
             String endAttr = object.getCommonattr();
@@ -85,7 +106,7 @@ public class ProtocolEncoder extends MessageToMessageEncoder<EncodeObject> {
                     endAttr = endAttr + "&";
                 }
                 long timestamp = System.currentTimeMillis();
-                int nonce = new SecureRandom(String.valueOf(timestamp).getBytes()).nextInt(Integer.MAX_VALUE);
+                int nonce = nonceRandom.nextInt(Integer.MAX_VALUE);
                 endAttr = endAttr + "_userName=" + object.getUserName() + "&_clientIP=" + Utils.getLocalIp()
                         + "&_signature=" + Utils.generateSignature(object.getUserName(),
                                 timestamp, nonce, object.getSecretKey())
@@ -101,17 +122,16 @@ public class ProtocolEncoder extends MessageToMessageEncoder<EncodeObject> {
             if (object.isAuth()) {
                 msgType |= FLAG_ALLOW_AUTH;
             }
-            int totalLength = 1 + 4 + 1 + 4 + 2 + endAttr.getBytes("utf8").length + 2;
-            buf = ByteBufAllocator.DEFAULT.buffer(4 + totalLength);
+            byte[] attrBytes = endAttr.getBytes(StandardCharsets.UTF_8);
+            int totalLength = 1 + 4 + 1 + 4 + 2 + attrBytes.length + 2;
+            buf = alloc.buffer(4 + totalLength);
             buf.writeInt(totalLength);
             buf.writeByte(msgType);
             buf.writeInt((int) object.getDt());
             buf.writeByte(1);
             buf.writeInt(0);
-            buf.writeShort(endAttr.getBytes("utf8").length);
-            if (endAttr.getBytes("utf8").length > 0) {
-                buf.writeBytes(endAttr.getBytes("utf8"));
-            }
+            buf.writeShort(attrBytes.length);
+            buf.writeBytes(attrBytes);
             buf.writeShort(0xee01);
         } catch (Exception e) {
             logger.error(e.getMessage());
@@ -119,298 +139,314 @@ public class ProtocolEncoder extends MessageToMessageEncoder<EncodeObject> {
         return buf;
     }
 
-    private ByteBuf constructBody(byte[] body, EncodeObject object,
-            int totalLength, int cnt) throws UnsupportedEncodingException {
-        ByteBuf buf = null;
-        if (body != null) {
-            if (object.isCompress()) {
-                body = processCompress(body);
-            }
-            String endAttr = object.getCommonattr();
-            if (object.isEncrypt()) {
-                EncryptConfigEntry encryptEntry = object.getEncryptEntry();
-                if (encryptEntry != null) {
-                    if (Utils.isNotBlank(endAttr)) {
-                        endAttr = endAttr + "&";
-                    }
-                    EncryptInfo encryptInfo = encryptEntry.getRsaEncryptInfo();
-                    endAttr = endAttr + "_userName=" + object.getUserName()
-                            + "&_encyVersion=" + encryptInfo.getVersion()
-                            + "&_encyAesKey=" + encryptInfo.getRsaEncryptedKey();
-                    body = EncryptUtil.aesEncrypt(body, encryptInfo.getAesKey());
-                }
-            }
-            if (!object.isGroupIdTransfer()) {
-                if (Utils.isNotBlank(endAttr)) {
-                    endAttr = endAttr + "&";
-                }
-                endAttr = (endAttr + "groupId=" + object.getGroupId() + "&streamId=" + object.getStreamId());
-            }
-            if (Utils.isNotBlank(object.getMsgUUID())) {
-                if (Utils.isNotBlank(endAttr)) {
-                    endAttr = endAttr + "&";
-                }
-                endAttr = endAttr + "msgUUID=" + object.getMsgUUID();
-            }
+    private ByteBuf writeToBuf7(ByteBufAllocator alloc, EncodeObject object) throws IOException {
+        int bodyFormat = object.isSupportLF() ? BODY_LINE_SPLIT_LENGTH_PREFIXED : BODY_LENGTH_PREFIXED;
+        int rawLength = getRawBodyLength(object, bodyFormat);
+        if (rawLength < 0) {
+            return null;
+        }
+        int cnt = 1;
+        if (object.getBodylist() != null && object.getBodylist().size() != 0) {
+            cnt = object.getCnt() > 0 ? object.getCnt() : object.getBodylist().size();
+        }
+        byte[] commonAttr = getBytes(object.getCommonattr());
+        boolean hasAttr = Utils.isNotBlank(object.getCommonattr());
+        byte[] encryptBody = null;
+        byte[] encryptAttr = null;
+        EncryptConfigEntry encryptEntry = object.isEncrypt() ? object.getEncryptEntry() : null;
+        if (encryptEntry != null) {
+            EncryptInfo encryptInfo = encryptEntry.getRsaEncryptInfo();
+            encryptAttr = ("_userName=" + object.getUserName()
+                    + "&_encyVersion=" + encryptInfo.getVersion()
+                    + "&_encyAesKey=" + encryptInfo.getRsaEncryptedKey()).getBytes(StandardCharsets.UTF_8);
+            encryptBody = EncryptUtil.aesEncrypt(getBodyArray(object, bodyFormat, rawLength),
+                    encryptInfo.getAesKey());
+        }
+        byte[] streamAttr = object.isGroupIdTransfer() ? null : getStreamAttr(object);
+        byte[] uuidValue = Utils.isNotBlank(object.getMsgUUID()) ? getBytes(object.getMsgUUID()) : null;
+        int attrLength = commonAttr.length;
+        boolean attrSplit = hasAttr;
+        if (encryptAttr != null) {
+            attrLength += (attrSplit ? 1 : 0) + encryptAttr.length;
+            attrSplit = true;
+        }
+        if (streamAttr != null) {
+            attrLength += (attrSplit ? 1 : 0) + streamAttr.length;
+            attrSplit = true;
+        }
+        if (uuidValue != null) {
+            attrLength += (attrSplit ? 1 : 0) + MSG_UUID_KEY.length + uuidValue.length;
+        }
 
-            int msgType = 7;
-            if (object.isEncrypt()) {
-                msgType |= FLAG_ALLOW_ENCRYPT;
-            }
-            if (object.isCompress()) {
-                msgType |= FLAG_ALLOW_COMPRESS;
-            }
-            totalLength = totalLength + body.length + endAttr.getBytes("utf8").length;
-            buf = ByteBufAllocator.DEFAULT.buffer(4 + totalLength);
-            buf.writeInt(totalLength);
+        int msgType = 7;
+        if (object.isEncrypt()) {
+            msgType |= FLAG_ALLOW_ENCRYPT;
+        }
+        if (object.isCompress()) {
+            msgType |= FLAG_ALLOW_COMPRESS;
+        }
+        int headLength = 1 + 2 + 2 + 2 + 4 + 2 + 4 + 4;
+        int maxBodyLength = getMaxBodyLength(object, rawLength, encryptBody);
+        ByteBuf buf = allocFrame(alloc, object, encryptBody,
+                4 + headLength + maxBodyLength + 2 + attrLength + 2);
+        try {
+            buf.writeInt(0);
             buf.writeByte(msgType);
             buf.writeShort(object.getGroupIdNum());
             buf.writeShort(object.getStreamIdNum());
-            String bitStr = object.isSupportLF() ? "1" : "0";
-            bitStr += (object.getMessageKey().equals("minute")) ? "1" : "0";
-            bitStr += (object.getMessageKey().equals("file")) ? "1" : "0";
-            bitStr += !object.isGroupIdTransfer() ? "1" : "0";
-            bitStr += object.isReport() ? "1" : "0";
-            bitStr += "0";
-            buf.writeShort(Integer.parseInt(bitStr, 2));
+            int extendField = (object.isSupportLF() ? 0x20 : 0)
+                    | ("minute".equals(object.getMessageKey()) ? 0x10 : 0)
+                    | ("file".equals(object.getMessageKey()) ? 0x08 : 0)
+                    | (!object.isGroupIdTransfer() ? 0x04 : 0)
+                    | (object.isReport() ? 0x02 : 0);
+            buf.writeShort(extendField);
             buf.writeInt((int) object.getDt());
-
             buf.writeShort(cnt);
-            buf.writeInt(Integer.valueOf(object.getMessageId()));
-
-            buf.writeInt(body.length);
-            buf.writeBytes(body);
+            buf.writeInt(Integer.parseInt(object.getMessageId()));
+            int bodyLength = writeBody(alloc, buf, object, bodyFormat, rawLength, encryptBody);
 
-            buf.writeShort(endAttr.getBytes("utf8").length);
-            buf.writeBytes(endAttr.getBytes("utf8"));
+            buf.writeShort(attrLength);
+            buf.writeBytes(commonAttr);
+            attrSplit = hasAttr;
+            attrSplit = writeAttr(buf, attrSplit, encryptAttr);
+            attrSplit = writeAttr(buf, attrSplit, streamAttr);
+            if (uuidValue != null) {
+                if (attrSplit) {
+                    buf.writeByte(ATTR_SPLITTER);
+                }
+                buf.writeBytes(MSG_UUID_KEY);
+                buf.writeBytes(uuidValue);
+            }
             buf.writeShort(0xee01);
+            buf.setInt(0, headLength + bodyLength + 2 + attrLength + 2);
+            return buf;
+        } catch (Throwable e) {
+            buf.release();
+            throw e;
         }
-        return buf;
     }
 
-    private ByteBuf writeToBuf7(EncodeObject object) {
-        ByteBuf buf = null;
-        try {
-            int totalLength = 1 + 2 + 2 + 2 + 4 + 2 + 4 + 4 + 2 + 2;
-            byte[] body = null;
-            int cnt = 1;
-
-            if (object.getBodylist() != null && object.getBodylist().size() != 0) {
-                if (object.getCnt() > 0) {
-                    cnt = object.getCnt();
-                } else {
-                    cnt = object.getBodylist().size();
-                }
+    private ByteBuf writeToBuf5(ByteBufAllocator alloc, EncodeObject object) throws IOException {
+        return writeToBuf35(alloc, object, 5, BODY_LENGTH_PREFIXED);
+    }
 
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                Iterator<byte[]> iter = object.getBodylist().iterator();
+    private ByteBuf writeToBuf3(ByteBufAllocator alloc, EncodeObject object) throws IOException {
+        return writeToBuf35(alloc, object, 3, BODY_LINE_SPLIT);
+    }
 
-                if (object.isSupportLF()) {
-                    ByteArrayOutputStream data = new ByteArrayOutputStream();
-                    int len = object.getBodylist().size();
-                    for (int i = 0; i < len - 1; i++) {
-                        data.write(object.getBodylist().get(i));
-                        data.write("\n".getBytes("utf8"));
-                    }
-                    data.write(object.getBodylist().get(len - 1));
-                    ByteBuffer databuffer = ByteBuffer.allocate(4);
-                    databuffer.putInt(data.toByteArray().length);
-                    out.write(databuffer.array());
-                    out.write(data.toByteArray());
-                } else {
-                    while (iter.hasNext()) {
-                        byte[] entry = iter.next();
-                        ByteBuffer databuffer = ByteBuffer.allocate(4);
-                        databuffer.putInt(entry.length);
-                        out.write(databuffer.array());
-                        out.write(entry);
-                    }
-                }
-                body = out.toByteArray();
+    private ByteBuf writeToBuf35(ByteBufAllocator alloc, EncodeObject object,
+            int msgType, int bodyFormat) throws IOException {
+        int rawLength = getRawBodyLength(object, bodyFormat);
+        if (rawLength < 0) {
+            return null;
+        }
+        String msgAttrs = object.getAttributes();
+        byte[] encryptBody = null;
+        EncryptConfigEntry encryptEntry = object.isEncrypt() ? object.getEncryptEntry() : null;
+        if (encryptEntry != null) {
+            if (Utils.isNotBlank(msgAttrs)) {
+                msgAttrs = msgAttrs + "&";
             }
-            // send single message one time
-            if (object.getBodyBytes() != null && object.getBodyBytes().length != 0) {
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-
-                ByteBuffer databuffer = ByteBuffer.allocate(4);
-                databuffer.putInt(object.getBodyBytes().length);
-                out.write(databuffer.array());
-                out.write(object.getBodyBytes());
-                body = out.toByteArray();
+            EncryptInfo encryptInfo = encryptEntry.getRsaEncryptInfo();
+            msgAttrs = msgAttrs + "_userName=" + object.getUserName()
+                    + "&_encyVersion=" + encryptInfo.getVersion()
+                    + "&_encyAesKey=" + encryptInfo.getRsaEncryptedKey();
+            encryptBody = EncryptUtil.aesEncrypt(getBodyArray(object, bodyFormat, rawLength),
+                    encryptInfo.getAesKey());
+        }
+        if (Utils.isNotBlank(object.getMsgUUID())) {
+            if (Utils.isNotBlank(msgAttrs)) {
+                msgAttrs = msgAttrs + "&";
             }
-
-            buf = constructBody(body, object, totalLength, cnt);
-        } catch (Exception e) {
-            logger.error("writeToBuf7 has {}", e);
+            msgAttrs = msgAttrs + "msgUUID=" + object.getMsgUUID();
+        }
+        if (object.isEncrypt()) {
+            msgType |= FLAG_ALLOW_ENCRYPT;
+        }
+        byte[] attrBytes = msgAttrs.getBytes(StandardCharsets.UTF_8);
+        int maxBodyLength = getMaxBodyLength(object, rawLength, encryptBody);
+        ByteBuf buf = allocFrame(alloc, object, encryptBody,
+                4 + 1 + 4 + maxBodyLength + 4 + attrBytes.length);
+        try {
+            buf.writeInt(0);
+            buf.writeByte(msgType);
+            int bodyLength = writeBody(alloc, buf, object, bodyFormat, rawLength, encryptBody);
+            buf.writeInt(attrBytes.length);
+            buf.writeBytes(attrBytes);
+            buf.setInt(0, 1 + 4 + bodyLength + 4 + attrBytes.length);
+            return buf;
+        } catch (Throwable e) {
+            buf.release();
+            throw e;
         }
-        return buf;
     }
 
-    private ByteBuf writeToBuf5(EncodeObject object) {
-        ByteBuf buf = null;
-        try {
-            int totalLength = 1 + 4 + 4;
-            byte[] body = null;
+    /**
+     * get the body length before compression, -1 if there is no body
+     */
+    private int getRawBodyLength(EncodeObject object, int bodyFormat) {
+        byte[] bodyBytes = object.getBodyBytes();
+        if (bodyBytes != null && bodyBytes.length != 0) {
+            return bodyFormat == BODY_LINE_SPLIT ? bodyBytes.length : 4 + bodyBytes.length;
+        }
+        List<byte[]> bodyList = object.getBodylist();
+        if (bodyList == null || bodyList.isEmpty()) {
+            return -1;
+        }
+        int length = 0;
+        for (byte[] body : bodyList) {
+            length += body.length;
+        }
+        switch (bodyFormat) {
+            case BODY_LINE_SPLIT:
+                return length + bodyList.size();
+            case BODY_LINE_SPLIT_LENGTH_PREFIXED:
+                return 4 + length + bodyList.size() - 1;
+            default:
+                return length + 4 * bodyList.size();
+        }
+    }
 
-            // send multiple messages one time
-            if (object.getBodylist() != null && object.getBodylist().size() != 0) {
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                Iterator<byte[]> iter = object.getBodylist().iterator();
-                while (iter.hasNext()) {
-                    byte[] entry = iter.next();
-                    ByteBuffer byteBuffer = ByteBuffer.allocate(4);
-                    byteBuffer.putInt(entry.length);
-                    out.write(byteBuffer.array());
-                    out.write(entry);
-                }
-                body = out.toByteArray();
-            }
-            // send single message one time
-            if (object.getBodyBytes() != null && object.getBodyBytes().length != 0) {
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                ByteBuffer byteBuffer = ByteBuffer.allocate(4);
-                byteBuffer.putInt(object.getBodyBytes().length);
-                out.write(byteBuffer.array());
-                out.write(object.getBodyBytes());
-                body = out.toByteArray();
+    private void writeRawBody(ByteBuf buf, EncodeObject object, int bodyFormat, int rawLength) {
+        byte[] bodyBytes = object.getBodyBytes();
+        if (bodyBytes != null && bodyBytes.length != 0) {
+            if (bodyFormat != BODY_LINE_SPLIT) {
+                buf.writeInt(bodyBytes.length);
             }
-            if (body != null) {
-                String msgAttrs = object.getAttributes();
-                if (object.isCompress()) {
-                    body = processCompress(body);
+            buf.writeBytes(bodyBytes);
+            return;
+        }
+        List<byte[]> bodyList = object.getBodylist();
+        switch (bodyFormat) {
+            case BODY_LINE_SPLIT:
+                for (byte[] body : bodyList) {
+                    buf.writeBytes(body);
+                    buf.writeByte(LINE_SPLITTER);
                 }
-                if (object.isEncrypt()) {
-                    EncryptConfigEntry encryptEntry = object.getEncryptEntry();
-                    if (encryptEntry != null) {
-                        if (Utils.isNotBlank(msgAttrs)) {
-                            msgAttrs = msgAttrs + "&";
-                        }
-                        EncryptInfo encryptInfo = encryptEntry.getRsaEncryptInfo();
-                        msgAttrs = msgAttrs + "_userName=" + object.getUserName()
-                                + "&_encyVersion=" + encryptInfo.getVersion()
-                                + "&_encyAesKey=" + encryptInfo.getRsaEncryptedKey();
-                        body = EncryptUtil.aesEncrypt(body, encryptInfo.getAesKey());
+                break;
+            case BODY_LINE_SPLIT_LENGTH_PREFIXED:
+                buf.writeInt(rawLength - 4);
+                for (int i = 0; i < bodyList.size(); i++) {
+                    if (i > 0) {
+                        buf.writeByte(LINE_SPLITTER);
                     }
+                    buf.writeBytes(bodyList.get(i));
                 }
-                if (Utils.isNotBlank(object.getMsgUUID())) {
-                    if (Utils.isNotBlank(msgAttrs)) {
-                        msgAttrs = msgAttrs + "&";
-                    }
-                    msgAttrs = msgAttrs + "msgUUID=" + object.getMsgUUID();
+                break;
+            default:
+                for (byte[] body : bodyList) {
+                    buf.writeInt(body.length);
+                    buf.writeBytes(body);
                 }
+        }
+    }
 
-                int msgType = 5;
-                if (object.isEncrypt()) {
-                    msgType |= FLAG_ALLOW_ENCRYPT;
-                }
-                totalLength = totalLength + body.length + msgAttrs.getBytes("utf8").length;
-                buf = ByteBufAllocator.DEFAULT.buffer(4 + totalLength);
-                buf.writeInt(totalLength);
-                buf.writeByte(msgType);
-                buf.writeInt(body.length);
-                buf.writeBytes(body);
-                buf.writeInt(msgAttrs.getBytes("utf8").length);
-                buf.writeBytes(msgAttrs.getBytes("utf8"));
+    /**
+     * get the body as an array, compressed if required, used by the encryption only
+     */
+    private byte[] getBodyArray(EncodeObject object, int bodyFormat, int rawLength) throws IOException {
+        ByteBuf raw = ByteBufAllocator.DEFAULT.heapBuffer(rawLength);
+        try {
+            writeRawBody(raw, object, bodyFormat, rawLength);
+            byte[] body = new byte[rawLength];
+            raw.readBytes(body);
+            if (object.isCompress()) {
+                body = Snappy.compress(body);
             }
-        } catch (Exception e) {
-            logger.error("{}", e.getMessage());
-            e.printStackTrace();
+            return body;
+        } finally {
+            raw.release();
         }
-        return buf;
     }
 
-    /*
-     * private ChannelBuffer writeToBuf4(EncodeObject object) { ChannelBuffer buf = ChannelBuffers.dynamicBuffer(); try
-     * { int totalLength = 1 + 4 + 4; byte[] body = null;
-     * 
-     * //send single message one time if (object.getBodyBytes() != null && object.getBodyBytes().length != 0) { body =
-     * object.getBodyBytes(); } totalLength = totalLength + body.length +
-     * object.getAttributes().getBytes("utf8").length; buf.writeInt(totalLength); buf.writeByte(4);
-     * buf.writeInt(body.length); buf.writeBytes(body); buf.writeInt(object.getAttributes().getBytes().length);
-     * buf.writeBytes(object.getAttributes().getBytes()); } catch (Exception e) { logger.error(e.getMessage()); } return
-     * buf; }
-     */
+    private int getMaxBodyLength(EncodeObject object, int rawLength, byte[] encryptBody) {
+        if (encryptBody != null) {
+            return encryptBody.length;
+        }
+        return object.isCompress() ? Snappy.maxCompressedLength(rawLength) : rawLength;
+    }
 
-    private ByteBuf writeToBuf3(EncodeObject object) {
-        ByteBuf buf = null;
-        try {
-            int totalLength = 1 + 4 + 4;
-            byte[] body = null;
+    private ByteBuf allocFrame(ByteBufAllocator alloc, EncodeObject object, byte[] encryptBody, int capacity) {
+        // snappy compresses between direct buffers only
+        if (encryptBody == null && object.isCompress()) {
+            return alloc.directBuffer(capacity);
+        }
+        return alloc.buffer(capacity);
+    }
 
-            // send multiple messages one time
-            if (object.getBodylist() != null && object.getBodylist().size() != 0) {
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                Iterator<byte[]> iter = object.getBodylist().iterator();
-                while (iter.hasNext()) {
-                    byte[] entry = iter.next();
-                    out.write(entry);
-                    out.write("\n".getBytes("utf8"));
+    /**
+     * write the body with its length into the frame
+     *
+     * @return the body length
+     */
+    private int writeBody(ByteBufAllocator alloc, ByteBuf buf, EncodeObject object,
+            int bodyFormat, int rawLength, byte[] encryptBody) throws IOException {
+        if (encryptBody != null) {
+            buf.writeInt(encryptBody.length);
+            buf.writeBytes(encryptBody);
+            return encryptBody.length;
+        }
+        int lengthIndex = buf.writerIndex();
+        buf.writeInt(0);
+        int bodyLength;
+        if (!object.isCompress()) {
+            writeRawBody(buf, object, bodyFormat, rawLength);
+            bodyLength = rawLength;
+        } else {
+            ByteBuf raw = alloc.directBuffer(rawLength);
+            try {
+                writeRawBody(raw, object, bodyFormat, rawLength);
+                if (buf.nioBufferCount() == 1 && raw.nioBufferCount() == 1) {
+                    ByteBuffer dst = buf.nioBuffer(buf.writerIndex(), buf.writableBytes());
+                    bodyLength = Snappy.compress(raw.nioBuffer(raw.readerIndex(), rawLength), dst);
+                    buf.writerIndex(buf.writerIndex() + bodyLength);
+                } else {
+                    byte[] rawBytes = new byte[rawLength];
+                    raw.readBytes(rawBytes);
+                    byte[] body = Snappy.compress(rawBytes);
+                    buf.writeBytes(body);
+                    bodyLength = body.length;
                 }
-                body = out.toByteArray();
-            }
-            // send single message one time
-            if (object.getBodyBytes() != null && object.getBodyBytes().length != 0) {
-                body = object.getBodyBytes();
+            } finally {
+                raw.release();
             }
-            if (body != null) {
-                String msgAttrs = object.getAttributes();
-                if (object.isCompress()) {
-                    body = processCompress(body);
-                }
-                if (object.isEncrypt()) {
-                    EncryptConfigEntry encryptEntry = object.getEncryptEntry();
-                    if (encryptEntry != null) {
-                        if (Utils.isNotBlank(msgAttrs)) {
-                            msgAttrs = msgAttrs + "&";
-                        }
-                        EncryptInfo encryptInfo = encryptEntry.getRsaEncryptInfo();
-                        msgAttrs = msgAttrs + "_userName=" + object.getUserName()
-                                + "&_encyVersion=" + encryptInfo.getVersion()
-                                + "&_encyAesKey=" + encryptInfo.getRsaEncryptedKey();
-                        body = EncryptUtil.aesEncrypt(body, encryptInfo.getAesKey());
-                    }
-                }
-                if (Utils.isNotBlank(object.getMsgUUID())) {
-                    if (Utils.isNotBlank(msgAttrs)) {
-                        msgAttrs = msgAttrs + "&";
-                    }
-                    msgAttrs = msgAttrs + "msgUUID=" + object.getMsgUUID();
-                }
+        }
+        buf.setInt(lengthIndex, bodyLength);
+        return bodyLength;
+    }
 
-                int msgType = 3;
-                if (object.isEncrypt()) {
-                    msgType |= FLAG_ALLOW_ENCRYPT;
-                }
-                totalLength = totalLength + body.length + msgAttrs.getBytes("utf8").length;
-                buf = ByteBufAllocator.DEFAULT.buffer(4 + totalLength);
-                buf.writeInt(totalLength);
-                buf.writeByte(msgType);
-                buf.writeInt(body.length);
-                buf.writeBytes(body);
-                buf.writeInt(msgAttrs.getBytes("utf8").length);
-                buf.writeBytes(msgAttrs.getBytes("utf8"));
-            }
-        } catch (Exception e) {
-            logger.error("{}", e.getMessage());
-            e.printStackTrace();
+    private boolean writeAttr(ByteBuf buf, boolean attrSplit, byte[] attr) {
+        if (attr == null) {
+            return attrSplit;
         }
-        return buf;
+        if (attrSplit) {
+            buf.writeByte(ATTR_SPLITTER);
+        }
+        buf.writeBytes(attr);
+        return true;
     }
 
-    private byte[] processCompress(byte[] body) {
-        try {
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            out.write(body);
-            int guessLen = Snappy.maxCompressedLength(out.size());
-            byte[] tmpData = new byte[guessLen];
-            int len = Snappy.compress(out.toByteArray(), 0, out.size(),
-                    tmpData, 0);
-            body = new byte[len];
-            System.arraycopy(tmpData, 0, body, 0, len);
-        } catch (IOException e) {
-            logger.error("{}", e.getMessage());
-            e.printStackTrace();
+    /**
+     * get the cached groupId and streamId attributes of the stream
+     */
+    private byte[] getStreamAttr(EncodeObject object) {
+        Map<String, byte[]> streamAttrs = streamAttrCache.get(object.getGroupId());
+        byte[] streamAttr = streamAttrs == null ? null : streamAttrs.get(object.getStreamId());
+        if (streamAttr == null) {
+            streamAttr = ("groupId=" + object.getGroupId() + "&streamId=" + object.getStreamId())
+                    .getBytes(StandardCharsets.UTF_8);
+            if (cachedStreamAttrCnt >= MAX_CACHED_STREAM_ATTRS) {
+                streamAttrCache.clear();
+                cachedStreamAttrCnt = 0;
+            }
+            streamAttrCache.computeIfAbsent(object.getGroupId(), k -> new HashMap<>())
+                    .put(object.getStreamId(), streamAttr);
+            cachedStreamAttrCnt++;
         }
-        return body;
+        return streamAttr;
+    }
+
+    private static byte[] getBytes(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
     }
 }
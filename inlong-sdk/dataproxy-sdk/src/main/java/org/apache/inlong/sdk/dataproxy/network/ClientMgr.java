@@ -47,7 +47,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -67,8 +69,8 @@ public class ClientMgr {
     // clientMapData + clientMapHB = clientMap
     private final ConcurrentHashMap<HostInfo, NettyClient> clientMap = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<HostInfo, AtomicLong> lastBadHostMap = new ConcurrentHashMap<>();
-    // clientList is the valueSet of clientMapData
-    private final ArrayList<NettyClient> clientList = new ArrayList<>();
+    // clientList is the valueSet of clientMapData, it is read without lock by the least load selector
+    private final CopyOnWriteArrayList<NettyClient> clientList = new CopyOnWriteArrayList<>();
     private final Map<HostInfo, int[]> channelLoadMapData = new ConcurrentHashMap<>();
     private final Map<HostInfo, int[]> channelLoadMapHB = new ConcurrentHashMap<>();
     /**
@@ -416,7 +418,31 @@ public class ClientMgr {
         return client;
     }
 
-    // public synchronized NettyClient getClientByLeastConnections() {}
+    /**
+     * choose the active client with the least load, the load of a client is its in-flight
+     * async messages weighted by its ack latency, so the slow proxies take less messages.
+     * The ties are broken randomly.
+     */
+    public NettyClient getClientByLeastLoad() {
+        NettyClient client = null;
+        double minLoad = Double.MAX_VALUE;
+        int tieCnt = 0;
+        for (NettyClient tmpClient : clientList) {
+            if (tmpClient == null || !tmpClient.isActive()) {
+                continue;
+            }
+            double load = (sender.getInflightCount(tmpClient.getChannel()) + 1)
+                    * (tmpClient.getAvgAckLatency() + 1);
+            if (load < minLoad) {
+                client = tmpClient;
+                minLoad = load;
+                tieCnt = 1;
+            } else if (load == minLoad && ThreadLocalRandom.current().nextInt(++tieCnt) == 0) {
+                client = tmpClient;
+            }
+        }
+        return client;
+    }
 
     public synchronized NettyClient getClientByConsistencyHash(String messageId) {
         NettyClient client;
@@ -1017,6 +1043,9 @@ public class ClientMgr {
             case WEIGHT_RANDOM:
                 client = getClientByWeightRandom();
                 break;
+            case LEAST_LOAD:
+                client = getClientByLeastLoad();
+                break;
         }
         return client;
     }
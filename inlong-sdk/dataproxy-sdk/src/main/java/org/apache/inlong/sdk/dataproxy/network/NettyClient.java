@@ -37,6 +37,7 @@ import java.util.concurrent.locks.ReentrantLock;
 public class NettyClient {
 
     private static final Logger logger = LoggerFactory.getLogger(NettyClient.class);
+    private static final double ACK_LATENCY_EWMA_ALPHA = 0.2;
 
     private Channel channel = null;
     private final ReentrantLock stateLock = new ReentrantLock();
@@ -46,6 +47,8 @@ public class NettyClient {
     private Bootstrap bootstrap;
     private String serverIP;
     private int serverPort;
+    // EWMA of the ack latency in milliseconds, a lost concurrent update only delays the estimate
+    private volatile double avgAckLatency = 0;
 
     public String getServerIP() {
         return serverIP;
@@ -218,6 +221,22 @@ public class NettyClient {
         setState(ConnState.BUSY);
     }
 
+    /**
+     * update the EWMA of the ack latency
+     *
+     * @param latencyMs the latency of an ack, or the elapsed time of a timeout
+     */
+    public void updateAckLatency(long latencyMs) {
+        double avgLatency = avgAckLatency;
+        avgAckLatency = avgLatency == 0
+                ? latencyMs
+                : avgLatency + ACK_LATENCY_EWMA_ALPHA * (latencyMs - avgLatency);
+    }
+
+    public double getAvgAckLatency() {
+        return avgAckLatency;
+    }
+
     public double getWeight() {
         OperatingSystemMXBean operatingSystemMXBean =
                 (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
@@ -19,6 +19,8 @@ package org.apache.inlong.sdk.dataproxy.network;
 
 import org.apache.inlong.sdk.dataproxy.SendMessageCallback;
 
+import io.netty.channel.Channel;
+
 import java.util.concurrent.TimeUnit;
 
 public class QueueObject {
@@ -27,6 +29,10 @@ public class QueueObject {
     private final SendMessageCallback callback;
     private final long timeoutInMillis;
     private final int size;
+    private NettyClient client;
+    // the key in the callback maps, used by the timeout wheel
+    private Channel channel;
+    private String messageId;
 
     public QueueObject(long sendTimeInMillis,
             SendMessageCallback callback,
@@ -48,6 +54,14 @@ public class QueueObject {
         this.size = size;
     }
 
+    public QueueObject(long sendTimeInMillis,
+            SendMessageCallback callback, int size,
+            long timeout,
+            TimeUnit timeUnit, NettyClient client) {
+        this(sendTimeInMillis, callback, size, timeout, timeUnit);
+        this.client = client;
+    }
+
     public long getSendTimeInMillis() {
         return sendTimeInMillis;
     }
@@ -63,4 +77,25 @@ public class QueueObject {
     public int getSize() {
         return size;
     }
+
+    public NettyClient getClient() {
+        return client;
+    }
+
+    public void setCallbackKey(Channel channel, String messageId) {
+        this.channel = channel;
+        this.messageId = messageId;
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public long getDeadlineInMillis() {
+        return sendTimeInMillis + timeoutInMillis;
+    }
 }
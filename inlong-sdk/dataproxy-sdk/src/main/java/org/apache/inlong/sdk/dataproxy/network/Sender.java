@@ -25,6 +25,7 @@ import org.apache.inlong.sdk.dataproxy.codec.EncodeObject;
 import org.apache.inlong.sdk.dataproxy.config.ProxyConfigEntry;
 import org.apache.inlong.sdk.dataproxy.threads.MetricWorkerThread;
 import org.apache.inlong.sdk.dataproxy.threads.TimeoutScanThread;
+import org.apache.inlong.sdk.dataproxy.threads.WriteAheadLogThread;
 
 import io.netty.channel.Channel;
 import org.apache.commons.collections.MapUtils;
@@ -65,6 +66,7 @@ public class Sender {
     private final ProxyClientConfig configure;
     private final boolean isFile;
     private final MetricWorkerThread metricWorker;
+    private WriteAheadLogThread walThread;
     private int clusterId = -1;
 
     public Sender(ProxyClientConfig configure) throws Exception {
@@ -104,6 +106,10 @@ public class Sender {
 
         metricWorker = new MetricWorkerThread(configure, this);
         metricWorker.start();
+        if (StringUtils.isNotBlank(configure.getWalDirectory())) {
+            walThread = new WriteAheadLogThread(configure, this);
+            walThread.start();
+        }
         LOGGER.info("proxy sdk is starting!");
     }
 
@@ -127,6 +133,9 @@ public class Sender {
 
     public void close() {
         checkCallbackList();
+        if (walThread != null) {
+            walThread.close();
+        }
         scanThread.shutDown();
         clientMgr.shutDown();
         threadPool.shutdown();
@@ -167,6 +176,9 @@ public class Sender {
         if (callback == null) {
             return;
         }
+        if (callback.getClient() != null) {
+            callback.getClient().updateAckLatency(System.currentTimeMillis() - callback.getSendTimeInMillis());
+        }
         if (isFile) {
             String proxyip = channel.remoteAddress().toString();
             ((FileCallback) callback.getCallback()).onMessageAck(result.toString()
@@ -435,8 +447,10 @@ public class Sender {
         if (msgQueueMap == null) {
             msgQueueMap = tmpCallBackMap;
         }
-        msgQueueMap.put(encodeObject.getMessageId(), new QueueObject(System.currentTimeMillis(),
-                callback, size, timeout, timeUnit));
+        QueueObject indexQueueObject = new QueueObject(System.currentTimeMillis(),
+                callback, size, timeout, timeUnit);
+        msgQueueMap.put(encodeObject.getMessageId(), indexQueueObject);
+        scanThread.addTimeoutTask(client.getChannel(), encodeObject.getMessageId(), indexQueueObject);
         if (encodeObject.getMsgtype() == 7) {
             int groupIdnum = 0;
             int streamIdnum = 0;
@@ -516,11 +530,21 @@ public class Sender {
 
         // send message package time
 
+        // queue behind the messages waiting in the write ahead log, so they are sent in order
+        if (walThread != null && !walThread.isEmpty() && appendWriteAheadLog(encodeObject, callback)) {
+            return;
+        }
         NettyClient client = clientMgr.getClient(clientMgr.getLoadBalance(), encodeObject);
         if (client == null) {
+            if (appendWriteAheadLog(encodeObject, callback)) {
+                return;
+            }
             throw new ProxysdkException(SendResult.NO_CONNECTION.toString());
         }
         if (currentBufferSize.get() >= asyncCallbackMaxSize) {
+            if (appendWriteAheadLog(encodeObject, callback)) {
+                return;
+            }
             throw new ProxysdkException("ASYNC_CALLBACK_BUFFER_FULL");
         }
         if (isNotValidateAttr(encodeObject.getCommonattr(), encodeObject.getAttributes())) {
@@ -550,10 +574,13 @@ public class Sender {
         }
         ConcurrentHashMap<String, QueueObject> msgQueueMap =
                 callbacks.computeIfAbsent(client.getChannel(), (k) -> new ConcurrentHashMap<>());
-        QueueObject queueObject = msgQueueMap.putIfAbsent(encodeObject.getMessageId(),
-                new QueueObject(System.currentTimeMillis(), callback, size, timeout, timeUnit));
+        QueueObject newQueueObject =
+                new QueueObject(System.currentTimeMillis(), callback, size, timeout, timeUnit, client);
+        QueueObject queueObject = msgQueueMap.putIfAbsent(encodeObject.getMessageId(), newQueueObject);
         if (queueObject != null) {
             LOGGER.warn("message id {} has existed.", encodeObject.getMessageId());
+        } else {
+            scanThread.addTimeoutTask(client.getChannel(), encodeObject.getMessageId(), newQueueObject);
         }
         if (encodeObject.getMsgtype() == 7) {
             int groupIdnum = 0;
@@ -578,6 +605,22 @@ public class Sender {
         client.write(encodeObject);
     }
 
+    /**
+     * keep the message in the write ahead log, it is acked once appended
+     *
+     * if the log is full the message is sent directly, and may overtake the messages in the log
+     */
+    private boolean appendWriteAheadLog(EncodeObject encodeObject, SendMessageCallback callback) {
+        if (walThread == null || isNotValidateAttr(encodeObject.getCommonattr(), encodeObject.getAttributes())
+                || !walThread.append(encodeObject)) {
+            return false;
+        }
+        if (callback != null) {
+            callback.onMessageAck(SendResult.OK);
+        }
+        return true;
+    }
+
     /* Deal with feedback. */
     public void notifyFeedback(Channel channel, EncodeObject response) {
         String messageId = response.getMessageId();
@@ -684,6 +727,14 @@ public class Sender {
         }
     }
 
+    /**
+     * get the count of the async messages waiting for ack on the channel
+     */
+    public int getInflightCount(Channel channel) {
+        ConcurrentHashMap<String, QueueObject> msgQueueMap = callbacks.get(channel);
+        return msgQueueMap == null ? 0 : msgQueueMap.size();
+    }
+
     public void clearCallBack() {
         currentBufferSize.set(0);
         callbacks.clear();
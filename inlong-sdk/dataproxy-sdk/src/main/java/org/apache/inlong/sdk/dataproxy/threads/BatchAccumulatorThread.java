@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.threads;
+
+import org.apache.inlong.sdk.dataproxy.SendMessageCallback;
+import org.apache.inlong.sdk.dataproxy.SendResult;
+import org.apache.inlong.sdk.dataproxy.network.ProxysdkException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * batch accumulator
+ *
+ * The single messages are accumulated into batches keyed by groupId, streamId and the
+ * minute of dt. A batch is sent as one package when its message count or body size
+ * reaches the limit, or when it has lingered for the linger time, and the result of
+ * the package is passed to the callback of each message.
+ */
+public class BatchAccumulatorThread extends Thread implements Closeable {
+
+    private static final String KEY_SPLITTER = "#";
+    private static final long MINUTE_MS = 60 * 1000L;
+    private final Logger logger = LoggerFactory.getLogger(BatchAccumulatorThread.class);
+
+    private final ConcurrentHashMap<String, RecordBatch> batchMap = new ConcurrentHashMap<>();
+    private final BatchSender batchSender;
+    private final int maxBatchCount;
+    private final int maxBatchSize;
+    private final long lingerMs;
+    private volatile boolean bShutdown = false;
+
+    public BatchAccumulatorThread(BatchSender batchSender, int maxBatchCount, int maxBatchSize, long lingerMs) {
+        this.batchSender = batchSender;
+        this.maxBatchCount = Math.max(maxBatchCount, 1);
+        this.maxBatchSize = Math.max(maxBatchSize, 1);
+        this.lingerMs = Math.max(lingerMs, 1L);
+        this.setDaemon(true);
+        this.setName("BatchAccumulatorThread");
+    }
+
+    /**
+     * append a message to its batch, the full batch is sent by the caller thread
+     *
+     * @param groupId groupId
+     * @param streamId streamId
+     * @param dt data report timestamp
+     * @param body message data
+     * @param callback callback can be null
+     * @param timeoutMs send timeout of the batch
+     * @throws ProxysdkException the accumulator is closed
+     */
+    public void append(String groupId, String streamId, long dt, byte[] body,
+            SendMessageCallback callback, long timeoutMs) throws ProxysdkException {
+        if (bShutdown) {
+            throw new ProxysdkException("batch accumulator is closed");
+        }
+        String key = groupId + KEY_SPLITTER + streamId + KEY_SPLITTER + (dt / MINUTE_MS);
+        List<RecordBatch> fullBatches = new ArrayList<>(2);
+        batchMap.compute(key, (k, batch) -> {
+            if (batch != null && batch.bodySize + body.length > maxBatchSize) {
+                fullBatches.add(batch);
+                batch = null;
+            }
+            if (batch == null) {
+                batch = new RecordBatch(groupId, streamId, dt, timeoutMs);
+            }
+            batch.add(body, callback);
+            if (batch.bodyList.size() >= maxBatchCount || batch.bodySize >= maxBatchSize) {
+                fullBatches.add(batch);
+                return null;
+            }
+            return batch;
+        });
+        for (RecordBatch batch : fullBatches) {
+            sendBatch(batch);
+        }
+        // closed while appending, the final flush may have missed this message
+        if (bShutdown) {
+            flush(true);
+        }
+    }
+
+    /**
+     * send the batches which have lingered for the linger time
+     *
+     * @param force send all the batches
+     */
+    public void flush(boolean force) {
+        long expireTime = System.currentTimeMillis() - lingerMs;
+        List<RecordBatch> expiredBatches = new ArrayList<>();
+        for (String key : batchMap.keySet()) {
+            batchMap.computeIfPresent(key, (k, batch) -> {
+                if (force || batch.createTime <= expireTime) {
+                    expiredBatches.add(batch);
+                    return null;
+                }
+                return batch;
+            });
+        }
+        for (RecordBatch batch : expiredBatches) {
+            sendBatch(batch);
+        }
+    }
+
+    private void sendBatch(RecordBatch batch) {
+        BatchCallback batchCallback = new BatchCallback(batch.callbacks);
+        try {
+            batchSender.send(batch.bodyList, batch.groupId, batch.streamId,
+                    batch.dt, batch.timeoutMs, batchCallback);
+        } catch (Throwable e) {
+            logger.error("send batch of groupId {} streamId {} failure", batch.groupId, batch.streamId, e);
+            batchCallback.onException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        bShutdown = true;
+        this.interrupt();
+        flush(true);
+    }
+
+    @Override
+    public void run() {
+        logger.info("BatchAccumulatorThread Thread=" + Thread.currentThread().getId() + " started!");
+        long checkInterval = Math.max(lingerMs / 2, 1L);
+        while (!bShutdown) {
+            try {
+                flush(false);
+                TimeUnit.MILLISECONDS.sleep(checkInterval);
+            } catch (InterruptedException ex) {
+                // closed
+            } catch (Throwable ex) {
+                logger.error("flush batches failure", ex);
+            }
+        }
+    }
+
+    /**
+     * sender of the batches
+     */
+    public interface BatchSender {
+
+        void send(List<byte[]> bodyList, String groupId, String streamId, long dt,
+                long timeoutMs, SendMessageCallback callback) throws ProxysdkException;
+    }
+
+    private static class RecordBatch {
+
+        private final String groupId;
+        private final String streamId;
+        private final long dt;
+        private final long timeoutMs;
+        private final long createTime = System.currentTimeMillis();
+        private final List<byte[]> bodyList = new ArrayList<>();
+        private final List<SendMessageCallback> callbacks = new ArrayList<>();
+        private int bodySize = 0;
+
+        private RecordBatch(String groupId, String streamId, long dt, long timeoutMs) {
+            this.groupId = groupId;
+            this.streamId = streamId;
+            this.dt = dt;
+            this.timeoutMs = timeoutMs;
+        }
+
+        private void add(byte[] body, SendMessageCallback callback) {
+            bodyList.add(body);
+            callbacks.add(callback);
+            bodySize += body.length;
+        }
+    }
+
+    /**
+     * pass the result of a batch to the callback of each message
+     */
+    private static class BatchCallback implements SendMessageCallback {
+
+        private final List<SendMessageCallback> callbacks;
+
+        private BatchCallback(List<SendMessageCallback> callbacks) {
+            this.callbacks = callbacks;
+        }
+
+        @Override
+        public void onMessageAck(SendResult result) {
+            for (SendMessageCallback callback : callbacks) {
+                if (callback != null) {
+                    callback.onMessageAck(result);
+                }
+            }
+        }
+
+        @Override
+        public void onException(Throwable e) {
+            for (SendMessageCallback callback : callbacks) {
+                if (callback != null) {
+                    callback.onException(e);
+                }
+            }
+        }
+    }
+}
@@ -28,22 +28,34 @@ import io.netty.channel.Channel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Daemon threads to check timeout for asynchronous callback.
+ *
+ * The async messages are kept in a timing wheel by their deadlines, each tick only the
+ * messages of the due slot are checked, and the acked ones are skipped.
  */
 public class TimeoutScanThread extends Thread {
 
     private static final int MAX_CHANNEL_TIMEOUT = 5 * 60 * 1000;
+    private static final long CHANNEL_CHECK_INTERVAL_MS = 1000L;
+    private static final long WHEEL_TICK_MS = 100L;
+    private static final int WHEEL_SLOT_COUNT = 512;
     private final Logger logger = LoggerFactory.getLogger(TimeoutScanThread.class);
     private final ConcurrentHashMap<Channel, ConcurrentHashMap<String, QueueObject>> callbacks;
     private final AtomicInteger currentBufferSize;
     private final ProxyClientConfig config;
     private final ClientMgr clientMgr;
     private final ConcurrentHashMap<Channel, TimeScanObject> timeoutChannelStat = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<QueueObject>[] wheelSlots;
+    private volatile long processedTick;
+    private long lastChannelCheckTime = 0;
     private volatile boolean bShutDown = false;
     private long printCount = 0;
 
@@ -55,6 +67,11 @@ public class TimeoutScanThread extends Thread {
         this.currentBufferSize = currentBufferSize;
         this.config = config;
         this.clientMgr = clientMgr;
+        this.wheelSlots = new ConcurrentLinkedQueue[WHEEL_SLOT_COUNT];
+        for (int i = 0; i < WHEEL_SLOT_COUNT; i++) {
+            this.wheelSlots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.processedTick = System.currentTimeMillis() / WHEEL_TICK_MS;
         this.setDaemon(true);
         this.setName("TimeoutScanThread");
     }
@@ -126,32 +143,64 @@ public class TimeoutScanThread extends Thread {
     }
 
     /**
-     * check message id
+     * add an async message to the timeout wheel, it is expired in the slot of its deadline
+     * unless it is removed from the callback map by the ack before
      *
-     * @param channel
-     * @param messageIdCallbacks
+     * @param channel the channel of the message
+     * @param messageId the message id
+     * @param queueObject the callback of the message
+     */
+    public void addTimeoutTask(Channel channel, String messageId, QueueObject queueObject) {
+        queueObject.setCallbackKey(channel, messageId);
+        addToWheel(queueObject);
+    }
+
+    private void addToWheel(QueueObject queueObject) {
+        // the slots up to the processed tick are drained, so the overdue messages go to the next one
+        long tick = Math.max(queueObject.getDeadlineInMillis() / WHEEL_TICK_MS, processedTick + 1);
+        wheelSlots[(int) (tick % WHEEL_SLOT_COUNT)].offer(queueObject);
+    }
+
+    /**
+     * expire the messages in the slot of the tick, the ones with a later deadline are
+     * put back to the wheel
      */
-    private void checkMessageIdBasedCallbacks(Channel channel,
-            ConcurrentHashMap<String, QueueObject> messageIdCallbacks) {
-        for (String messageId : messageIdCallbacks.keySet()) {
-            QueueObject queueObject = messageId != null ? messageIdCallbacks.get(messageId) : null;
-            if (queueObject == null) {
+    private void expireWheelSlot(long tick, long curTime) {
+        ConcurrentLinkedQueue<QueueObject> slot = wheelSlots[(int) (tick % WHEEL_SLOT_COUNT)];
+        List<QueueObject> laterTasks = null;
+        QueueObject queueObject;
+        while ((queueObject = slot.poll()) != null) {
+            ConcurrentHashMap<String, QueueObject> messageIdCallbacks = callbacks.get(queueObject.getChannel());
+            if (messageIdCallbacks == null
+                    || messageIdCallbacks.get(queueObject.getMessageId()) != queueObject) {
+                // acked or the channel is cleared
                 continue;
             }
-            // if queueObject timeout
-            if (System.currentTimeMillis() - queueObject.getSendTimeInMillis() >= queueObject.getTimeoutInMillis()) {
-                // remove it before callback
-                QueueObject queueObject1 = messageIdCallbacks.remove(messageId);
-                if (queueObject1 != null) {
-                    if (config.isFile()) {
-                        ((FileCallback) queueObject1.getCallback()).onMessageAck(SendResult.TIMEOUT.toString());
-                        currentBufferSize.addAndGet(-queueObject1.getSize());
-                    } else {
-                        queueObject1.getCallback().onMessageAck(SendResult.TIMEOUT);
-                        currentBufferSize.decrementAndGet();
-                    }
+            if (queueObject.getDeadlineInMillis() > curTime) {
+                if (laterTasks == null) {
+                    laterTasks = new ArrayList<>();
                 }
-                addTimeoutChannel(channel);
+                laterTasks.add(queueObject);
+                continue;
+            }
+            // remove it before callback
+            if (messageIdCallbacks.remove(queueObject.getMessageId(), queueObject)) {
+                if (queueObject.getClient() != null) {
+                    queueObject.getClient().updateAckLatency(curTime - queueObject.getSendTimeInMillis());
+                }
+                if (config.isFile()) {
+                    ((FileCallback) queueObject.getCallback()).onMessageAck(SendResult.TIMEOUT.toString());
+                    currentBufferSize.addAndGet(-queueObject.getSize());
+                } else {
+                    queueObject.getCallback().onMessageAck(SendResult.TIMEOUT);
+                    currentBufferSize.decrementAndGet();
+                }
+                addTimeoutChannel(queueObject.getChannel());
+            }
+        }
+        if (laterTasks != null) {
+            for (QueueObject laterTask : laterTasks) {
+                addToWheel(laterTask);
             }
         }
     }
@@ -161,16 +210,19 @@ public class TimeoutScanThread extends Thread {
         logger.info("TimeoutScanThread Thread=" + Thread.currentThread().getId() + " started !");
         while (!bShutDown) {
             try {
-                for (Channel channel : callbacks.keySet()) {
-                    ConcurrentHashMap<String, QueueObject> msgQueueMap =
-                            channel != null ? callbacks.get(channel) : null;
-                    if (msgQueueMap == null) {
-                        continue;
-                    }
-                    checkMessageIdBasedCallbacks(channel, msgQueueMap);
+                long curTime = System.currentTimeMillis();
+                long curTick = curTime / WHEEL_TICK_MS;
+                // a slot is visited once per round even if the thread falls behind
+                long tick = Math.max(processedTick + 1, curTick - WHEEL_SLOT_COUNT + 1);
+                for (; tick <= curTick; tick++) {
+                    processedTick = tick;
+                    expireWheelSlot(tick, curTime);
+                }
+                if (curTime - lastChannelCheckTime >= CHANNEL_CHECK_INTERVAL_MS) {
+                    checkTimeoutChannel();
+                    lastChannelCheckTime = curTime;
                 }
-                checkTimeoutChannel();
-                TimeUnit.SECONDS.sleep(1);
+                TimeUnit.MILLISECONDS.sleep(WHEEL_TICK_MS);
             } catch (Throwable e) {
                 if (!bShutDown) {
                     logger.error("TimeoutScanThread exception {}", e.getMessage());
@@ -178,7 +230,7 @@ public class TimeoutScanThread extends Thread {
                     logger.warn("TimeoutScanThread exception {}", e.getMessage());
                 }
             }
-            if (printCount++ % 20 == 0) {
+            if (printCount++ % 200 == 0) {
                 logger.info("TimeoutScanThread thread=" + Thread.currentThread().getId()
                         + "'s currentBufferSize = " + currentBufferSize.get());
             }
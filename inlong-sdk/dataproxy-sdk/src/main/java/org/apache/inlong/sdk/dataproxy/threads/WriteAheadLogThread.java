@@ -0,0 +1,335 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.threads;
+
+import org.apache.inlong.common.msg.AttributeConstants;
+import org.apache.inlong.sdk.commons.utils.MmapSpillQueue;
+import org.apache.inlong.sdk.dataproxy.ProxyClientConfig;
+import org.apache.inlong.sdk.dataproxy.SendResult;
+import org.apache.inlong.sdk.dataproxy.codec.EncodeObject;
+import org.apache.inlong.sdk.dataproxy.network.Sender;
+import org.apache.inlong.sdk.dataproxy.network.SequentialID;
+import org.apache.inlong.sdk.dataproxy.network.Utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * write ahead log
+ *
+ * The async messages which can not be sent because no proxy is connected or the callback
+ * buffer is full are appended to the memory-mapped segment files, and sent in order by this
+ * thread when the proxies are reachable again. The disk size of the log is capped, and the
+ * read position is checkpointed periodically, so the unsent messages survive a restart.
+ * A record which is still rejected by connected proxies after the max retries is dropped,
+ * so it can not block the records behind it.
+ */
+public class WriteAheadLogThread extends Thread implements Closeable {
+
+    private static final byte RECORD_VERSION = 1;
+    private static final String MESSAGE_ID_ATTR = "&messageId=";
+    private static final String RPT_TIME_ATTR = AttributeConstants.MSG_RPT_TIME + "=";
+    private static final long IDLE_WAIT_MS = 100L;
+    private static final long RETRY_WAIT_MS = 1000L;
+    private final Logger logger = LoggerFactory.getLogger(WriteAheadLogThread.class);
+
+    private final SequentialID idGenerator = new SequentialID(Utils.getLocalIp());
+    private final MmapSpillQueue logQueue;
+    private final Sender sender;
+    private final long sendTimeoutMs;
+    private final long checkpointIntervalMs;
+    private final int maxRetries;
+    // failed sends of the first record while a proxy is connected
+    private int firstRecordRetries = 0;
+    private long lastCheckpointTime = System.currentTimeMillis();
+    private volatile boolean bShutdown = false;
+
+    public WriteAheadLogThread(ProxyClientConfig configure, Sender sender) throws IOException {
+        int segmentSizeMb = Math.min(Math.max(configure.getWalSegmentSizeMb(), 1),
+                MmapSpillQueue.MAX_SEGMENT_SIZE_MB);
+        this.logQueue = new MmapSpillQueue(new File(configure.getWalDirectory().trim()),
+                segmentSizeMb * 1024 * 1024, Math.max(1, configure.getWalMaxSizeMb() / segmentSizeMb));
+        this.sender = sender;
+        this.sendTimeoutMs = configure.getRequestTimeoutMillis();
+        this.checkpointIntervalMs = configure.getWalCheckpointIntervalMs();
+        this.maxRetries = Math.max(configure.getWalMaxRetries(), 1);
+        this.setDaemon(true);
+        this.setName("WriteAheadLogThread");
+    }
+
+    /**
+     * append a message to the log
+     *
+     * @param encodeObject the message
+     * @return false if the message is not supported or the log is full
+     */
+    public boolean append(EncodeObject encodeObject) {
+        if (bShutdown) {
+            return false;
+        }
+        byte[] record;
+        try {
+            record = encode(encodeObject);
+        } catch (IOException e) {
+            logger.error("encode message {} failure", encodeObject.getMessageId(), e);
+            return false;
+        }
+        return record != null && logQueue.append(record);
+    }
+
+    public boolean isEmpty() {
+        return logQueue.isEmpty();
+    }
+
+    @Override
+    public void close() {
+        bShutdown = true;
+        this.interrupt();
+        try {
+            this.join(sendTimeoutMs + RETRY_WAIT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!logQueue.isEmpty()) {
+            logger.warn("write ahead log is not empty when closing, used size {}", logQueue.usedSize());
+        }
+        logQueue.close();
+    }
+
+    @Override
+    public void run() {
+        logger.info("WriteAheadLogThread Thread=" + Thread.currentThread().getId() + " started!");
+        while (!bShutdown) {
+            try {
+                if (!sendFirstRecord()) {
+                    TimeUnit.MILLISECONDS.sleep(logQueue.isEmpty() ? IDLE_WAIT_MS : RETRY_WAIT_MS);
+                }
+                if (System.currentTimeMillis() - lastCheckpointTime >= checkpointIntervalMs) {
+                    logQueue.checkpoint();
+                    lastCheckpointTime = System.currentTimeMillis();
+                }
+            } catch (InterruptedException ex) {
+                // closed
+            } catch (Throwable ex) {
+                logger.error("drain write ahead log failure", ex);
+            }
+        }
+    }
+
+    /**
+     * send the first record of the log
+     *
+     * @return false if the log is empty or the record should be retried
+     */
+    private boolean sendFirstRecord() {
+        byte[] record = logQueue.peek();
+        if (record == null) {
+            return false;
+        }
+        EncodeObject encodeObject;
+        try {
+            encodeObject = decode(record);
+        } catch (Throwable e) {
+            logger.error("decode write ahead log record failure, drop it", e);
+            removeFirstRecord();
+            return true;
+        }
+        SendResult result = sender.syncSendMessage(encodeObject,
+                idGenerator.getNextId(), sendTimeoutMs, TimeUnit.MILLISECONDS);
+        switch (result) {
+            case OK:
+                removeFirstRecord();
+                return true;
+            case INVALID_ATTRIBUTES:
+            case INVALID_DATA:
+            case BODY_EXCEED_MAX_LEN:
+            case UNCONFIGURED_GROUPID_OR_STREAMID:
+            case TOPIC_IS_BLANK:
+                // the message will never be accepted
+                logger.error("drop write ahead log message of groupId {} streamId {}, result {}",
+                        encodeObject.getGroupId(), encodeObject.getStreamId(), result);
+                removeFirstRecord();
+                return true;
+            case NO_CONNECTION:
+                // wait for the proxies without limit
+                return false;
+            default:
+                if (++firstRecordRetries < maxRetries) {
+                    return false;
+                }
+                logger.error("drop write ahead log message of groupId {} streamId {} after {} retries, result {}",
+                        encodeObject.getGroupId(), encodeObject.getStreamId(), firstRecordRetries, result);
+                removeFirstRecord();
+                return true;
+        }
+    }
+
+    private void removeFirstRecord() {
+        logQueue.remove();
+        firstRecordRetries = 0;
+    }
+
+    /**
+     * encode the message to a log record, the report time of msgtype 7/8 and the message id
+     * and report time of msgtype 3/5 are stripped, as they are added again when decoded
+     *
+     * @param encodeObject the message
+     * @return the record, or null if the message is not supported
+     */
+    public byte[] encode(EncodeObject encodeObject) throws IOException {
+        int msgtype = encodeObject.getMsgtype();
+        String attributes;
+        if (msgtype == 7 || msgtype == 8) {
+            attributes = stripReportTime(encodeObject.getCommonattr());
+        } else if (msgtype == 3 || msgtype == 5) {
+            attributes = encodeObject.getAttributes();
+            int idPos = attributes == null ? -1 : attributes.lastIndexOf(MESSAGE_ID_ATTR);
+            if (idPos < 0) {
+                return null;
+            }
+            attributes = attributes.substring(0, idPos);
+        } else {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(RECORD_VERSION);
+        out.writeInt(msgtype);
+        out.writeBoolean(encodeObject.isCompress());
+        out.writeBoolean(encodeObject.isReport());
+        out.writeBoolean(encodeObject.isGroupIdTransfer());
+        out.writeBoolean(encodeObject.isSupportLF());
+        out.writeLong(encodeObject.getDt());
+        writeString(out, encodeObject.getGroupId());
+        writeString(out, encodeObject.getStreamId());
+        writeString(out, attributes);
+        if (encodeObject.getBodyBytes() != null) {
+            out.writeInt(-1);
+            writeBytes(out, encodeObject.getBodyBytes());
+        } else {
+            out.writeInt(encodeObject.getBodylist().size());
+            for (byte[] body : encodeObject.getBodylist()) {
+                writeBytes(out, body);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * decode a log record to a message with new message id
+     *
+     * @param record the record
+     * @return the message
+     */
+    public EncodeObject decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte version = in.readByte();
+        if (version != RECORD_VERSION) {
+            throw new IOException("unknown record version " + version);
+        }
+        int msgtype = in.readInt();
+        boolean isCompress = in.readBoolean();
+        boolean isReport = in.readBoolean();
+        boolean isGroupIdTransfer = in.readBoolean();
+        boolean isSupportLF = in.readBoolean();
+        long dt = in.readLong();
+        String groupId = readString(in);
+        String streamId = readString(in);
+        String attributes = readString(in);
+        int bodyCnt = in.readInt();
+        byte[] bodyBytes = null;
+        List<byte[]> bodyList = null;
+        if (bodyCnt < 0) {
+            bodyBytes = readBytes(in);
+        } else {
+            bodyList = new ArrayList<>(bodyCnt);
+            for (int i = 0; i < bodyCnt; i++) {
+                bodyList.add(readBytes(in));
+            }
+        }
+        EncodeObject encodeObject;
+        if (msgtype == 7 || msgtype == 8) {
+            encodeObject = bodyBytes != null
+                    ? new EncodeObject(bodyBytes, msgtype, isCompress, isReport, isGroupIdTransfer,
+                            dt, idGenerator.getNextInt(), groupId, streamId, attributes)
+                    : new EncodeObject(bodyList, msgtype, isCompress, isReport, isGroupIdTransfer,
+                            dt, idGenerator.getNextInt(), groupId, streamId, attributes);
+            encodeObject.setSupportLF(isSupportLF);
+        } else {
+            encodeObject = bodyBytes != null
+                    ? new EncodeObject(bodyBytes, attributes, idGenerator.getNextId(), msgtype, isCompress, groupId)
+                    : new EncodeObject(bodyList, attributes, idGenerator.getNextId(), msgtype, isCompress, groupId);
+        }
+        return encodeObject;
+    }
+
+    /**
+     * strip the last report time pair, it is always appended at the end of the attributes
+     */
+    private static String stripReportTime(String attributes) {
+        if (attributes == null) {
+            return null;
+        }
+        int rtmsPos = attributes.lastIndexOf("&" + RPT_TIME_ATTR);
+        if (rtmsPos >= 0) {
+            return attributes.substring(0, rtmsPos);
+        }
+        return attributes.startsWith(RPT_TIME_ATTR) ? "" : attributes;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] value = readBytes(in);
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        in.readFully(value);
+        return value;
+    }
+}
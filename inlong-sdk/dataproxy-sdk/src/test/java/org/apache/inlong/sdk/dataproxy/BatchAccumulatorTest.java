@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy;
+
+import org.apache.inlong.sdk.dataproxy.threads.BatchAccumulatorThread;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchAccumulatorTest {
+
+    @Test
+    public void testBatchLimitsAndCallbacks() throws Exception {
+        final List<List<byte[]>> sentBatches = new ArrayList<>();
+        BatchAccumulatorThread accumulator = new BatchAccumulatorThread(
+                (bodyList, groupId, streamId, dt, timeoutMs, callback) -> {
+                    sentBatches.add(bodyList);
+                    callback.onMessageAck(SendResult.OK);
+                }, 3, 100, 60000L);
+        final AtomicInteger ackCnt = new AtomicInteger(0);
+        SendMessageCallback callback = new SendMessageCallback() {
+
+            @Override
+            public void onMessageAck(SendResult result) {
+                ackCnt.incrementAndGet();
+            }
+
+            @Override
+            public void onException(Throwable e) {
+            }
+        };
+        long dt = 1700000000000L - 1700000000000L % 60000L;
+        // the batch is sent when the count reaches the limit
+        for (int i = 0; i < 3; i++) {
+            accumulator.append("group", "stream", dt + i, new byte[10], callback, 1000L);
+        }
+        Assert.assertEquals(1, sentBatches.size());
+        Assert.assertEquals(3, sentBatches.get(0).size());
+        Assert.assertEquals(3, ackCnt.get());
+        // another minute and another stream go to their own batches
+        accumulator.append("group", "stream", dt + 60000L, new byte[10], callback, 1000L);
+        accumulator.append("group", "stream2", dt, new byte[10], callback, 1000L);
+        // the batch is sent before it exceeds the size limit
+        accumulator.append("group", "stream", dt, new byte[60], callback, 1000L);
+        accumulator.append("group", "stream", dt, new byte[60], callback, 1000L);
+        Assert.assertEquals(2, sentBatches.size());
+        Assert.assertEquals(1, sentBatches.get(1).size());
+        accumulator.flush(false);
+        Assert.assertEquals(2, sentBatches.size());
+        accumulator.close();
+        Assert.assertEquals(5, sentBatches.size());
+        Assert.assertEquals(7, ackCnt.get());
+    }
+
+    @Test
+    public void testConcurrentAppendAndClose() throws Exception {
+        final AtomicInteger sentCnt = new AtomicInteger(0);
+        BatchAccumulatorThread accumulator = new BatchAccumulatorThread(
+                (bodyList, groupId, streamId, dt, timeoutMs, callback) -> sentCnt.addAndGet(bodyList.size()),
+                1000, 1024 * 1024, 60000L);
+        final AtomicInteger acceptedCnt = new AtomicInteger(0);
+        List<Thread> appenders = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final String streamId = "stream" + i;
+            Thread appender = new Thread(() -> {
+                long dt = System.currentTimeMillis();
+                while (true) {
+                    try {
+                        accumulator.append("group", streamId, dt++, new byte[10], null, 1000L);
+                    } catch (Exception e) {
+                        return;
+                    }
+                    acceptedCnt.incrementAndGet();
+                }
+            });
+            appender.start();
+            appenders.add(appender);
+        }
+        Thread.sleep(50);
+        accumulator.close();
+        for (Thread appender : appenders) {
+            appender.join();
+        }
+        // every accepted message is sent, none is left in the closed accumulator
+        Assert.assertEquals(acceptedCnt.get(), sentCnt.get());
+    }
+}
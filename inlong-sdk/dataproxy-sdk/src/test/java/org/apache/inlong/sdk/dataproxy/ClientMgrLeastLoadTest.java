@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy;
+
+import org.apache.inlong.sdk.dataproxy.network.ClientMgr;
+import org.apache.inlong.sdk.dataproxy.network.NettyClient;
+import org.apache.inlong.sdk.dataproxy.network.Sender;
+
+import io.netty.channel.Channel;
+import org.junit.Assert;
+import org.junit.Test;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.reflect.Whitebox;
+
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Test for the least load selector of ClientMgr
+ */
+public class ClientMgrLeastLoadTest {
+
+    private final Sender sender = PowerMockito.mock(Sender.class);
+
+    @Test
+    public void testLeastInflight() {
+        NettyClient client1 = mockClient(true, 5, 0);
+        NettyClient client2 = mockClient(true, 1, 0);
+        NettyClient client3 = mockClient(true, 3, 0);
+        ClientMgr clientMgr = newClientMgr(client1, client2, client3);
+        Assert.assertSame(client2, clientMgr.getClientByLeastLoad());
+    }
+
+    @Test
+    public void testLatencyWeighting() {
+        // (1 + 1) * (100 + 1) > (3 + 1) * (10 + 1)
+        NettyClient slowClient = mockClient(true, 1, 100);
+        NettyClient fastClient = mockClient(true, 3, 10);
+        ClientMgr clientMgr = newClientMgr(slowClient, fastClient);
+        Assert.assertSame(fastClient, clientMgr.getClientByLeastLoad());
+    }
+
+    @Test
+    public void testRandomTieBreaking() {
+        NettyClient client1 = mockClient(true, 2, 10);
+        NettyClient client2 = mockClient(true, 2, 10);
+        NettyClient client3 = mockClient(true, 4, 10);
+        ClientMgr clientMgr = newClientMgr(client1, client2, client3);
+        int client1Cnt = 0;
+        int client2Cnt = 0;
+        for (int i = 0; i < 1000; i++) {
+            NettyClient client = clientMgr.getClientByLeastLoad();
+            if (client == client1) {
+                client1Cnt++;
+            } else if (client == client2) {
+                client2Cnt++;
+            } else {
+                Assert.fail("the client with more load is selected");
+            }
+        }
+        Assert.assertTrue(client1Cnt > 300);
+        Assert.assertTrue(client2Cnt > 300);
+    }
+
+    @Test
+    public void testSkipInactiveClients() {
+        NettyClient inactiveClient = mockClient(false, 0, 0);
+        NettyClient activeClient = mockClient(true, 10, 100);
+        ClientMgr clientMgr = newClientMgr(inactiveClient, null, activeClient);
+        Assert.assertSame(activeClient, clientMgr.getClientByLeastLoad());
+        Assert.assertNull(newClientMgr(inactiveClient).getClientByLeastLoad());
+        Assert.assertNull(newClientMgr().getClientByLeastLoad());
+    }
+
+    @Test
+    public void testAckLatencyEwma() {
+        NettyClient client = new NettyClient(null, "127.0.0.1", 46801, null);
+        Assert.assertEquals(0, client.getAvgAckLatency(), 0.001);
+        // the first latency is taken as it is
+        client.updateAckLatency(100);
+        Assert.assertEquals(100, client.getAvgAckLatency(), 0.001);
+        client.updateAckLatency(200);
+        Assert.assertEquals(120, client.getAvgAckLatency(), 0.001);
+        client.updateAckLatency(20);
+        Assert.assertEquals(100, client.getAvgAckLatency(), 0.001);
+    }
+
+    private NettyClient mockClient(boolean active, int inflightCnt, double avgAckLatency) {
+        Channel channel = PowerMockito.mock(Channel.class);
+        NettyClient client = PowerMockito.mock(NettyClient.class);
+        PowerMockito.when(client.isActive()).thenReturn(active);
+        PowerMockito.when(client.getChannel()).thenReturn(channel);
+        PowerMockito.when(client.getAvgAckLatency()).thenReturn(avgAckLatency);
+        PowerMockito.when(sender.getInflightCount(channel)).thenReturn(inflightCnt);
+        return client;
+    }
+
+    /**
+     * create a ClientMgr without connecting to the manager and the proxies
+     */
+    private ClientMgr newClientMgr(NettyClient... clients) {
+        ClientMgr clientMgr = Whitebox.newInstance(ClientMgr.class);
+        Whitebox.setInternalState(clientMgr, "clientList", new CopyOnWriteArrayList<>(Arrays.asList(clients)));
+        Whitebox.setInternalState(clientMgr, "sender", sender);
+        return clientMgr;
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy;
+
+import org.apache.inlong.sdk.dataproxy.codec.EncodeObject;
+import org.apache.inlong.sdk.dataproxy.codec.ProtocolEncoder;
+import org.apache.inlong.sdk.dataproxy.config.EncryptConfigEntry;
+import org.apache.inlong.sdk.dataproxy.config.EncryptInfo;
+import org.apache.inlong.sdk.dataproxy.network.Utils;
+
+import com.google.common.base.Splitter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xerial.snappy.Snappy;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The frames are compared with the golden frames generated by the previous encoder,
+ * with the report time of the attributes set to {@link #RPT_TIME}.
+ */
+public class ProtocolEncoderTest {
+
+    private static final byte[] BODY = "message".getBytes(StandardCharsets.UTF_8);
+    private static final List<byte[]> BODY_LIST = Arrays.asList("message-1".getBytes(StandardCharsets.UTF_8),
+            "message-2".getBytes(StandardCharsets.UTF_8), "message-3".getBytes(StandardCharsets.UTF_8));
+    private static final String STREAM_ATTR = "groupId=group&streamId=stream";
+    private static final String[] AUTH_ATTR_KEYS = {"_signature", "_timeStamp", "_nonce"};
+    private static final byte[] RPT_TIME_KEY = "rtms=".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RPT_TIME = "1700000000000".getBytes(StandardCharsets.UTF_8);
+    // a fixed aes key, so the encrypted frames are repeatable
+    private static final EncryptConfigEntry ENCRYPT_ENTRY = new EncryptConfigEntry("user", "1", "") {
+
+        @Override
+        public EncryptInfo getRsaEncryptInfo() {
+            return new EncryptInfo("1", "rsaEncryptedKey",
+                    "0123456789abcdef".getBytes(StandardCharsets.UTF_8));
+        }
+    };
+
+    @Test
+    public void testCompressedBodyList() throws Exception {
+        List<byte[]> bodyList = Arrays.asList("message-1".getBytes(StandardCharsets.UTF_8),
+                "message-2".getBytes(StandardCharsets.UTF_8));
+        EncodeObject object = new EncodeObject(bodyList, 7, true, false, false,
+                1700000000L, 123, "group", "stream", "a=1");
+        object.setMsgUUID("uuid");
+        ByteBuf buf = encode(object);
+        try {
+            Assert.assertEquals(buf.readableBytes() - 4, buf.readInt());
+            Assert.assertEquals(7 | ConfigConstants.FLAG_ALLOW_COMPRESS, buf.readByte());
+            Assert.assertEquals(0, buf.readShort());
+            Assert.assertEquals(0, buf.readShort());
+            Assert.assertEquals(0x04, buf.readShort());
+            Assert.assertEquals(1700000000, buf.readInt());
+            Assert.assertEquals(2, buf.readShort());
+            Assert.assertEquals(123, buf.readInt());
+            byte[] body = new byte[buf.readInt()];
+            buf.readBytes(body);
+            ByteBuffer rawBody = ByteBuffer.wrap(Snappy.uncompress(body));
+            for (byte[] expected : bodyList) {
+                byte[] message = new byte[rawBody.getInt()];
+                rawBody.get(message);
+                Assert.assertArrayEquals(expected, message);
+            }
+            Assert.assertFalse(rawBody.hasRemaining());
+            byte[] attr = new byte[buf.readShort()];
+            buf.readBytes(attr);
+            // the common attributes carry the report time
+            String attrStr = new String(attr, StandardCharsets.UTF_8);
+            Assert.assertTrue(attrStr.startsWith("a=1&rtms="));
+            Assert.assertTrue(attrStr.endsWith("&groupId=group&streamId=stream&msgUUID=uuid"));
+            Assert.assertEquals(0xee01, buf.readUnsignedShort());
+            Assert.assertFalse(buf.isReadable());
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testSingleBody() {
+        byte[] body = "message".getBytes(StandardCharsets.UTF_8);
+        EncodeObject object = new EncodeObject(body, STREAM_ATTR, "100", 5, false, "group");
+        ByteBuf buf = encode(object);
+        try {
+            Assert.assertEquals(buf.readableBytes() - 4, buf.readInt());
+            Assert.assertEquals(5, buf.readByte());
+            Assert.assertEquals(4 + body.length, buf.readInt());
+            Assert.assertEquals(body.length, buf.readInt());
+            byte[] message = new byte[body.length];
+            buf.readBytes(message);
+            Assert.assertArrayEquals(body, message);
+            byte[] attr = new byte[buf.readInt()];
+            buf.readBytes(attr);
+            Assert.assertTrue(new String(attr, StandardCharsets.UTF_8)
+                    .startsWith("groupId=group&streamId=stream&messageId=100&rtms="));
+            Assert.assertFalse(buf.isReadable());
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testFrameMsgType3() {
+        assertFrame("0000004e03000000076d6573736167650000003e67726f757049643d67726f75702673747265616d49643d73"
+                + "747265616d266d65737361676549643d3130302672746d733d31373030303030303030303030",
+                new EncodeObject(BODY, STREAM_ATTR, "100", 3, false, "group"));
+        // the line split body list
+        assertFrame("00000072030000001e6d6573736167652d310a6d6573736167652d320a6d6573736167652d330a0000004b67"
+                + "726f757049643d67726f75702673747265616d49643d73747265616d266d65737361676549643d3130312672"
+                + "746d733d31373030303030303030303030266d7367555549443d75756964",
+                setExtras(new EncodeObject(BODY_LIST, STREAM_ATTR, "101", 3, false, "group"), false, "uuid"));
+        assertFrame("000000ae4300000020e559c92e70a11f7071a0767a870fa1cf05263c4060d4f10550cf93d319d217d3000000"
+                + "8567726f757049643d67726f75702673747265616d49643d73747265616d266d65737361676549643d313031"
+                + "2672746d733d31373030303030303030303030265f757365724e616d653d75736572265f656e637956657273"
+                + "696f6e3d31265f656e63794165734b65793d727361456e637279707465644b6579266d7367555549443d7575"
+                + "6964",
+                setExtras(new EncodeObject(BODY_LIST, STREAM_ATTR, "101", 3, true, "group"), true, "uuid"));
+    }
+
+    @Test
+    public void testFrameMsgType5() {
+        assertFrame("00000054050000000d0b28000000076d6573736167650000003e67726f757049643d67726f75702673747265"
+                + "616d49643d73747265616d266d65737361676549643d3130302672746d733d31373030303030303030303030",
+                new EncodeObject(BODY, STREAM_ATTR, "100", 5, true, "group"));
+        assertFrame("000000be4500000030153b92179e6133c217e08a59d7efa68a8c662d9f889d4a634303ebf4e8f363aa4a43e9"
+                + "17cb6ab644ddc0a565796b46e70000008567726f757049643d67726f75702673747265616d49643d73747265"
+                + "616d266d65737361676549643d3130312672746d733d31373030303030303030303030265f757365724e616d"
+                + "653d75736572265f656e637956657273696f6e3d31265f656e63794165734b65793d727361456e6372797074"
+                + "65644b6579266d7367555549443d75756964",
+                setExtras(new EncodeObject(BODY_LIST, STREAM_ATTR, "101", 5, false, "group"), true, "uuid"));
+        assertFrame("000000b14500000030fb1ffbe8bab1dedb7b7184a8af54e247bb8659b9c45a7d632672c42e819f4484c310c4"
+                + "fb8a9ff2c15da8de25d5c8ca6d0000007867726f757049643d67726f75702673747265616d49643d73747265"
+                + "616d266d65737361676549643d3130312672746d733d31373030303030303030303030265f757365724e616d"
+                + "653d75736572265f656e637956657273696f6e3d31265f656e63794165734b65793d727361456e6372797074"
+                + "65644b6579",
+                setExtras(new EncodeObject(BODY_LIST, STREAM_ATTR, "101", 5, true, "group"), true, null));
+    }
+
+    @Test
+    public void testFrameMsgType7() {
+        assertFrame("00000070070000000000066553f10000030000007b00000027000000096d6573736167652d31000000096d65"
+                + "73736167652d32000000096d6573736167652d33003072746d733d313730303030303030303030302667726f"
+                + "757049643d67726f75702673747265616d49643d73747265616dee01",
+                new EncodeObject(BODY_LIST, 7, false, true, false, 1700000000L, 123, "group", "stream", ""));
+        EncodeObject object = new EncodeObject(BODY_LIST, 7, true, true, false,
+                1700000000L, 123, "group", "stream", "a=1");
+        object.setSupportLF(true);
+        assertFrame("00000078270000000000266553f10000030000007b0000001e21340000001d6d6573736167652d310a110a28"
+                + "320a6d6573736167652d330041613d312672746d733d313730303030303030303030302667726f757049643d"
+                + "67726f75702673747265616d49643d73747265616d266d7367555549443d75756964ee01",
+                setExtras(object, false, "uuid"));
+        object = new EncodeObject(BODY_LIST, 7, false, true, true,
+                1700000000L, 123, "group", "stream", "");
+        object.setSupportLF(true);
+        assertFrame("000000a2470000000000226553f10000030000007b00000030cd6bdce1f361f4bf3e5e8a57a993f3f9c73394"
+                + "b4ebba640c80d5e68602509d09c310c4fb8a9ff2c15da8de25d5c8ca6d005972746d733d3137303030303030"
+                + "3030303030265f757365724e616d653d75736572265f656e637956657273696f6e3d31265f656e6379416573"
+                + "4b65793d727361456e637279707465644b6579266d7367555549443d75756964ee01",
+                setExtras(object, true, "uuid"));
+        // the single body
+        assertFrame("00000058070000000000046553f10000010000007c0000000b000000076d6573736167650034613d31267274"
+                + "6d733d313730303030303030303030302667726f757049643d67726f75702673747265616d49643d73747265"
+                + "616dee01",
+                new EncodeObject(BODY, 7, false, false, false, 1700000000L, 124, "group", "stream", "a=1"));
+        assertFrame("00000079670000000000006553f10000010000007c000000107185e93d7c6ccbbe9950e10a5835bc36005061"
+                + "3d312672746d733d31373030303030303030303030265f757365724e616d653d75736572265f656e63795665"
+                + "7273696f6e3d31265f656e63794165734b65793d727361456e637279707465644b6579ee01",
+                setExtras(new EncodeObject(BODY, 7, true, false, true,
+                        1700000000L, 124, "group", "stream", "a=1"), true, null));
+        // the file agent messages with the message key and the count
+        assertFrame("0000006e270000000000166553f100000a0000007d000000212730000000096d6573736167652d312e0d0034"
+                + "32000000096d6573736167652d330034613d312672746d733d313730303030303030303030302667726f7570"
+                + "49643d67726f75702673747265616d49643d73747265616dee01",
+                buildFileAgentObject("minute"));
+        assertFrame("0000006e2700000000000e6553f100000a0000007d000000212730000000096d6573736167652d312e0d0034"
+                + "32000000096d6573736167652d330034613d312672746d733d313730303030303030303030302667726f7570"
+                + "49643d67726f75702673747265616d49643d73747265616dee01",
+                buildFileAgentObject("file"));
+    }
+
+    @Test
+    public void testFrameMsgType8() {
+        assertFrame("00000020086553f1000100000000001272746d733d31373030303030303030303030ee01",
+                new EncodeObject(BODY, 8, false, false, false, 1700000000L, 126, "group", "stream", ""));
+        assertFrame("00000031086553f10001000000000023613d312672746d733d31373030303030303030303030266d73675555"
+                + "49443d75756964ee01",
+                setExtras(new EncodeObject(BODY, 8, false, false, false,
+                        1700000000L, 126, "group", "stream", "a=1"), false, "uuid"));
+    }
+
+    @Test
+    public void testFrameMsgType8WithAuth() {
+        EncodeObject object = new EncodeObject(BODY, 8, false, false, false,
+                1700000000L, 127, "group", "stream", "a=1");
+        object.setAuth(true, "user", "secret");
+        object.setMsgUUID("uuid");
+        ByteBuf buf = encode(object);
+        try {
+            // the msgtype, dt, flag and the reserved field
+            Assert.assertEquals("886553f1000100000000", ByteBufUtil.hexDump(buf, 4, 10));
+            // the signature carries a random nonce and the current time
+            Map<String, String> attrs = readAuthAttrs(buf);
+            for (String key : AUTH_ATTR_KEYS) {
+                Assert.assertNotNull(attrs.remove(key));
+            }
+            Assert.assertNotNull(attrs.remove("rtms"));
+            Map<String, String> expectedAttrs = new HashMap<>();
+            expectedAttrs.put("a", "1");
+            expectedAttrs.put("_userName", "user");
+            expectedAttrs.put("_clientIP", Utils.getLocalIp());
+            expectedAttrs.put("msgUUID", "uuid");
+            Assert.assertEquals(expectedAttrs, attrs);
+        } finally {
+            buf.release();
+        }
+    }
+
+    private static EncodeObject buildFileAgentObject(String messageKey) {
+        EncodeObject object = new EncodeObject(BODY_LIST, 7, true, true, false,
+                1700000000L, 125, "group", "stream", "a=1", messageKey, "127.0.0.1");
+        object.setCnt(10);
+        return object;
+    }
+
+    private static EncodeObject setExtras(EncodeObject object, boolean encrypt, String uuid) {
+        if (encrypt) {
+            object.setEncryptEntry(true, "user", ENCRYPT_ENTRY);
+        }
+        if (uuid != null) {
+            object.setMsgUUID(uuid);
+        }
+        return object;
+    }
+
+    /**
+     * compare the frame with the golden frame, after the report time is set
+     */
+    private static void assertFrame(String expectedHex, EncodeObject object) {
+        ByteBuf buf = encode(object);
+        try {
+            byte[] frame = ByteBufUtil.getBytes(buf);
+            int index = indexOf(frame, RPT_TIME_KEY);
+            Assert.assertTrue(index >= 0);
+            System.arraycopy(RPT_TIME, 0, frame, index + RPT_TIME_KEY.length, RPT_TIME.length);
+            Assert.assertEquals(expectedHex, ByteBufUtil.hexDump(frame));
+        } finally {
+            buf.release();
+        }
+    }
+
+    private static int indexOf(byte[] frame, byte[] key) {
+        for (int i = 0; i <= frame.length - key.length; i++) {
+            int j = 0;
+            while (j < key.length && frame[i + j] == key[j]) {
+                j++;
+            }
+            if (j == key.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static ByteBuf encode(EncodeObject object) {
+        EmbeddedChannel channel = new EmbeddedChannel(new ProtocolEncoder());
+        Assert.assertTrue(channel.writeOutbound(object));
+        return channel.readOutbound();
+    }
+
+    private static Map<String, String> readAuthAttrs(ByteBuf buf) {
+        // length, msgtype, dt, flag and the reserved field
+        int attrIndex = 4 + 1 + 4 + 1 + 4;
+        byte[] attr = new byte[buf.getUnsignedShort(attrIndex)];
+        buf.getBytes(attrIndex + 2, attr);
+        Assert.assertEquals(0xee01, buf.getUnsignedShort(attrIndex + 2 + attr.length));
+        Assert.assertEquals(buf.readableBytes() - 4, buf.getInt(0));
+        return new HashMap<>(Splitter.on('&').withKeyValueSeparator('=')
+                .split(new String(attr, StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy;
+
+import org.apache.inlong.sdk.dataproxy.network.QueueObject;
+import org.apache.inlong.sdk.dataproxy.threads.TimeoutScanThread;
+
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test for the timeout wheel of TimeoutScanThread
+ */
+public class TimeoutScanThreadTest {
+
+    @Test
+    public void testExpireUnackedMessages() throws Exception {
+        ConcurrentHashMap<Channel, ConcurrentHashMap<String, QueueObject>> callbacks = new ConcurrentHashMap<>();
+        AtomicInteger currentBufferSize = new AtomicInteger(0);
+        ProxyClientConfig config = new ProxyClientConfig("127.0.0.1", true, "127.0.0.1", 8080,
+                "group", "all", "id", "key");
+        TimeoutScanThread scanThread = new TimeoutScanThread(callbacks, currentBufferSize, config, null);
+        final AtomicInteger timeoutCnt = new AtomicInteger(0);
+        SendMessageCallback callback = new SendMessageCallback() {
+
+            @Override
+            public void onMessageAck(SendResult result) {
+                Assert.assertEquals(SendResult.TIMEOUT, result);
+                timeoutCnt.incrementAndGet();
+            }
+
+            @Override
+            public void onException(Throwable e) {
+            }
+        };
+        Channel channel = new EmbeddedChannel();
+        ConcurrentHashMap<String, QueueObject> msgQueueMap = new ConcurrentHashMap<>();
+        callbacks.put(channel, msgQueueMap);
+        long sendTime = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            QueueObject queueObject = new QueueObject(sendTime, callback, 1, 200L, TimeUnit.MILLISECONDS);
+            msgQueueMap.put(String.valueOf(i), queueObject);
+            scanThread.addTimeoutTask(channel, String.valueOf(i), queueObject);
+            currentBufferSize.incrementAndGet();
+        }
+        // the acked message is skipped by the wheel
+        msgQueueMap.remove("1");
+        currentBufferSize.decrementAndGet();
+        scanThread.start();
+        try {
+            long deadline = System.currentTimeMillis() + 5000L;
+            while (timeoutCnt.get() < 2 && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(50);
+            }
+            TimeUnit.MILLISECONDS.sleep(300);
+            Assert.assertEquals(2, timeoutCnt.get());
+            Assert.assertTrue(msgQueueMap.isEmpty());
+            Assert.assertEquals(0, currentBufferSize.get());
+            Assert.assertTrue(System.currentTimeMillis() - sendTime >= 200L);
+        } finally {
+            scanThread.shutDown();
+        }
+    }
+}
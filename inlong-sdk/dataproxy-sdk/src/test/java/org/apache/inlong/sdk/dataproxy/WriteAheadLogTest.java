@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy;
+
+import org.apache.inlong.sdk.dataproxy.codec.EncodeObject;
+import org.apache.inlong.sdk.dataproxy.codec.ProtocolEncoder;
+import org.apache.inlong.sdk.dataproxy.threads.WriteAheadLogThread;
+
+import com.google.common.base.Splitter;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Test for the record codec of WriteAheadLogThread
+ */
+public class WriteAheadLogTest {
+
+    private static final Splitter.MapSplitter MAP_SPLITTER =
+            Splitter.on('&').trimResults().withKeyValueSeparator('=');
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplayAttributes() throws Exception {
+        ProxyClientConfig config = new ProxyClientConfig("127.0.0.1", true, "127.0.0.1", 8080,
+                "group", "all", "id", "key");
+        config.setWalDirectory(folder.getRoot().getAbsolutePath());
+        config.setWalSegmentSizeMb(1);
+        config.setWalMaxSizeMb(2);
+        WriteAheadLogThread wal = new WriteAheadLogThread(config, null);
+        try {
+            byte[] body = "message".getBytes(StandardCharsets.UTF_8);
+            Map<String, String> attrs = replay(wal, new EncodeObject(body,
+                    "groupId=group&streamId=stream", "100", 3, false, "group"));
+            Assert.assertEquals("group", attrs.get("groupId"));
+            Assert.assertEquals("stream", attrs.get("streamId"));
+            Assert.assertNotEquals("100", attrs.get("messageId"));
+            Assert.assertTrue(attrs.containsKey("rtms"));
+
+            attrs = replay(wal, new EncodeObject(Arrays.asList(body, body),
+                    "groupId=group&streamId=stream", "101", 5, false, "group"));
+            Assert.assertEquals("stream", attrs.get("streamId"));
+            Assert.assertTrue(attrs.containsKey("rtms"));
+
+            attrs = replay(wal, new EncodeObject(Arrays.asList(body, body), 7, false, false, false,
+                    1700000000L, 123, "group", "stream", "a=1"));
+            Assert.assertEquals("1", attrs.get("a"));
+            Assert.assertEquals("group", attrs.get("groupId"));
+            Assert.assertTrue(attrs.containsKey("rtms"));
+
+            // the common attributes with only the report time
+            attrs = replay(wal, new EncodeObject(body, 7, false, false, false,
+                    1700000000L, 124, "group", "stream", ""));
+            Assert.assertTrue(attrs.containsKey("rtms"));
+            Assert.assertFalse(attrs.containsKey("a"));
+        } finally {
+            wal.close();
+        }
+    }
+
+    @Test
+    public void testCloseAndRecover() throws Exception {
+        ProxyClientConfig config = new ProxyClientConfig("127.0.0.1", true, "127.0.0.1", 8080,
+                "group", "all", "id", "key");
+        config.setWalDirectory(folder.getRoot().getAbsolutePath());
+        config.setWalSegmentSizeMb(1);
+        config.setWalMaxSizeMb(2);
+        byte[] body = "message".getBytes(StandardCharsets.UTF_8);
+        WriteAheadLogThread wal = new WriteAheadLogThread(config, null);
+        Assert.assertTrue(wal.isEmpty());
+        Assert.assertTrue(wal.append(new EncodeObject(body,
+                "groupId=group&streamId=stream&messageId=100", "100", 3, false, "group")));
+        wal.close();
+        // the closed log releases its segments and rejects the messages
+        Assert.assertFalse(wal.append(new EncodeObject(body,
+                "groupId=group&streamId=stream&messageId=101", "101", 3, false, "group")));
+        WriteAheadLogThread reopened = new WriteAheadLogThread(config, null);
+        try {
+            Assert.assertFalse(reopened.isEmpty());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    /**
+     * encode and decode a message by the log, then split the attributes of its frame
+     * the same way as the DataProxy, which rejects the duplicate keys
+     */
+    private Map<String, String> replay(WriteAheadLogThread wal, EncodeObject object) throws Exception {
+        EncodeObject replayed = wal.decode(wal.encode(object));
+        Assert.assertEquals(object.getMsgtype(), replayed.getMsgtype());
+        EmbeddedChannel channel = new EmbeddedChannel(new ProtocolEncoder());
+        Assert.assertTrue(channel.writeOutbound(replayed));
+        ByteBuf buf = channel.readOutbound();
+        try {
+            Assert.assertEquals(buf.readableBytes() - 4, buf.readInt());
+            int msgType = buf.readByte() & 0x1f;
+            byte[] attr;
+            if (msgType == 7) {
+                buf.skipBytes(2 + 2 + 2 + 4 + 2 + 4);
+                buf.skipBytes(buf.readInt());
+                attr = new byte[buf.readShort()];
+                buf.readBytes(attr);
+                Assert.assertEquals(0xee01, buf.readUnsignedShort());
+            } else {
+                buf.skipBytes(buf.readInt());
+                attr = new byte[buf.readInt()];
+                buf.readBytes(attr);
+            }
+            Assert.assertFalse(buf.isReadable());
+            return MAP_SPLITTER.split(new String(attr, StandardCharsets.UTF_8));
+        } finally {
+            buf.release();
+        }
+    }
+}
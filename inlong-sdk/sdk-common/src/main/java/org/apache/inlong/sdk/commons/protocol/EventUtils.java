@@ -24,6 +24,8 @@ import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObjs;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessagePack;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessagePackHeader;
 import org.apache.inlong.sdk.commons.utils.GzipUtils;
+import org.apache.inlong.sdk.commons.utils.Lz4Utils;
+import org.apache.inlong.sdk.commons.utils.ZstdUtils;
 
 import com.google.protobuf.ByteString;
 import org.xerial.snappy.Snappy;
@@ -37,6 +39,9 @@ import java.util.List;
  */
 public class EventUtils {
 
+    // the max length of the decompressed messages, the compressed data is not trusted
+    public static final int MAX_SRC_LENGTH = 64 * 1024 * 1024;
+
     /**
      * encode
      * 
@@ -60,19 +65,7 @@ public class EventUtils {
         }
         MessageObjs objs = objsBuilder.build();
         byte[] srcBytes = objs.toByteArray();
-        byte[] compressedBytes = null;
-        switch (compressedType) {
-            case INLONG_SNAPPY:
-                compressedBytes = Snappy.compress(srcBytes);
-                break;
-            case INLONG_GZ:
-                compressedBytes = GzipUtils.compress(srcBytes);
-                break;
-            case INLONG_NO_COMPRESS:
-            default:
-                compressedBytes = srcBytes;
-                break;
-        }
+        byte[] compressedBytes = compress(compressedType, srcBytes);
         // MessagePack
         MessagePack.Builder packBuilder = MessagePack.newBuilder();
         packBuilder.setCompressBytes(ByteString.copyFrom(compressedBytes));
@@ -110,19 +103,7 @@ public class EventUtils {
         MessagePackHeader header = packObject.getHeader();
         // decompress
         byte[] compressBytes = packObject.getCompressBytes().toByteArray();
-        byte[] srcBytes = null;
-        switch (header.getCompressType()) {
-            case INLONG_SNAPPY:
-                srcBytes = Snappy.uncompress(compressBytes);
-                break;
-            case INLONG_GZ:
-                srcBytes = GzipUtils.decompress(compressBytes);
-                break;
-            case INLONG_NO_COMPRESS:
-            default:
-                srcBytes = compressBytes;
-                break;
-        }
+        byte[] srcBytes = decompress(header.getCompressType(), compressBytes);
         // decode
         MessageObjs msgObjs = MessageObjs.parseFrom(srcBytes);
         List<ProxyEvent> events = new ArrayList<>(msgObjs.getMsgsList().size());
@@ -159,20 +140,7 @@ public class EventUtils {
         }
         byte[] srcBytes = objs.build().toByteArray();
         // compress
-        byte[] compressBytes = null;
-        switch (compressedType) {
-            case INLONG_SNAPPY:
-                compressBytes = Snappy.compress(srcBytes);
-                break;
-            case INLONG_GZ:
-                compressBytes = GzipUtils.compress(srcBytes);
-                break;
-            case INLONG_NO_COMPRESS:
-            default:
-                compressBytes = srcBytes;
-                break;
-        }
-        return compressBytes;
+        return compress(compressedType, srcBytes);
     }
 
     /**
@@ -188,19 +156,7 @@ public class EventUtils {
     public static List<SortEvent> decodeCacheMessageBody(String inlongGroupId, String inlongStreamId,
             INLONG_COMPRESSED_TYPE compressedType, byte[] msgBody) throws IOException {
         // uncompress
-        byte[] srcBytes = null;
-        switch (compressedType) {
-            case INLONG_SNAPPY:
-                srcBytes = Snappy.uncompress(msgBody);
-                break;
-            case INLONG_GZ:
-                srcBytes = GzipUtils.decompress(msgBody);
-                break;
-            case INLONG_NO_COMPRESS:
-            default:
-                srcBytes = msgBody;
-                break;
-        }
+        byte[] srcBytes = decompress(compressedType, msgBody);
         // decode
         MessageObjs msgObjs = MessageObjs.parseFrom(srcBytes);
         List<SortEvent> events = new ArrayList<>(msgObjs.getMsgsList().size());
@@ -210,4 +166,54 @@ public class EventUtils {
         }
         return events;
     }
+
+    /**
+     * compress
+     *
+     * @param  compressedType
+     * @param  srcBytes
+     * @return byte array
+     * @throws IOException
+     */
+    public static byte[] compress(INLONG_COMPRESSED_TYPE compressedType, byte[] srcBytes)
+            throws IOException {
+        switch (compressedType) {
+            case INLONG_SNAPPY:
+                return Snappy.compress(srcBytes);
+            case INLONG_GZ:
+                return GzipUtils.compress(srcBytes);
+            case INLONG_ZSTD:
+                return ZstdUtils.compress(srcBytes);
+            case INLONG_LZ4:
+                return Lz4Utils.compress(srcBytes);
+            case INLONG_NO_COMPRESS:
+            default:
+                return srcBytes;
+        }
+    }
+
+    /**
+     * decompress
+     *
+     * @param  compressedType
+     * @param  compressBytes
+     * @return byte array
+     * @throws IOException
+     */
+    public static byte[] decompress(INLONG_COMPRESSED_TYPE compressedType, byte[] compressBytes)
+            throws IOException {
+        switch (compressedType) {
+            case INLONG_SNAPPY:
+                return Snappy.uncompress(compressBytes);
+            case INLONG_GZ:
+                return GzipUtils.decompress(compressBytes);
+            case INLONG_ZSTD:
+                return ZstdUtils.decompress(compressBytes, MAX_SRC_LENGTH);
+            case INLONG_LZ4:
+                return Lz4Utils.decompress(compressBytes, MAX_SRC_LENGTH);
+            case INLONG_NO_COMPRESS:
+            default:
+                return compressBytes;
+        }
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.commons.utils;
+
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Lz4Utils
+ *
+ * The compressed data is the source length of 4 bytes followed by the lz4 block.
+ */
+public class Lz4Utils {
+
+    private static final int SRC_LENGTH_SIZE = 4;
+    private static final LZ4Factory factory = LZ4Factory.fastestInstance();
+
+    /**
+     * compress
+     *
+     * @param  data
+     * @return      byte array
+     */
+    public static byte[] compress(byte[] data) {
+        int maxLength = factory.fastCompressor().maxCompressedLength(data.length);
+        byte[] compressed = new byte[SRC_LENGTH_SIZE + maxLength];
+        ByteBuffer.wrap(compressed).putInt(data.length);
+        int compressedLength = factory.fastCompressor().compress(data, 0, data.length,
+                compressed, SRC_LENGTH_SIZE, maxLength);
+        byte[] result = new byte[SRC_LENGTH_SIZE + compressedLength];
+        System.arraycopy(compressed, 0, result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * decompress
+     *
+     * @param  data
+     * @param  maxLength  the max decompressed length
+     * @return            byte array
+     * @throws IOException
+     */
+    public static byte[] decompress(byte[] data, int maxLength) throws IOException {
+        if (data.length < SRC_LENGTH_SIZE) {
+            throw new IOException("Malformed lz4 data, length " + data.length);
+        }
+        int srcLength = ByteBuffer.wrap(data).getInt();
+        if (srcLength < 0 || srcLength > maxLength) {
+            throw new IOException("Malformed lz4 data, source length " + srcLength
+                    + ", max length " + maxLength);
+        }
+        byte[] result = new byte[srcLength];
+        try {
+            int length = factory.safeDecompressor().decompress(data, SRC_LENGTH_SIZE,
+                    data.length - SRC_LENGTH_SIZE, result, 0);
+            if (length != srcLength) {
+                throw new IOException("Malformed lz4 data, decompressed length " + length
+                        + " != source length " + srcLength);
+            }
+        } catch (LZ4Exception e) {
+            throw new IOException("Decompress lz4 data failure", e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,447 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.commons.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * MmapSpillQueue
+ *
+ * A bounded FIFO queue of byte records kept in memory-mapped segment files. The records
+ * are appended to the last segment and read from the first one, a segment is deleted after
+ * all its records are read. The read position is saved in a checkpoint file, so the unread
+ * records are recovered after a restart, and a torn record at the tail is detected by
+ * its checksum and dropped. Only the read and the write segments are mapped, the other
+ * segments are unmapped before they are deleted, so their disk space is released at once.
+ * The unmapping goes through Unsafe.invokeCleaner on Java 9+ and the buffer cleaner on
+ * Java 8, where neither is available the space is released when the buffer is collected.
+ *
+ * Record format: [int payload length][int payload crc32][payload]
+ */
+public class MmapSpillQueue {
+
+    // the max segment size, a mapped buffer can not exceed 2GB
+    public static final int MAX_SEGMENT_SIZE_MB = 1024;
+
+    private static final Logger LOG = LoggerFactory.getLogger(MmapSpillQueue.class);
+    // null if the mapped buffers can not be unmapped explicitly
+    private static final Unmapper UNMAPPER = createUnmapper();
+
+    private static final String SEGMENT_SUFFIX = ".spill";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int RECORD_HEAD_SIZE = 8;
+    private static final int ROLL_MARK = -1;
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegmentCount;
+    private final TreeMap<Long, File> segmentFiles = new TreeMap<>();
+    private final MappedByteBuffer checkpointBuffer;
+    private MappedByteBuffer writeBuffer;
+    private long writeSegmentId;
+    private int writePos;
+    private MappedByteBuffer readBuffer;
+    private long readSegmentId;
+    private int readPos;
+    private int peekSize = 0;
+    private volatile boolean empty;
+    private boolean closed = false;
+
+    /**
+     * Constructor, recover the unread records in the directory
+     *
+     * @param directory        the segment directory
+     * @param segmentSize      the segment size in bytes
+     * @param maxSegmentCount  the max segment count
+     * @throws IOException     the segment files can not be opened
+     */
+    public MmapSpillQueue(File directory, int segmentSize, int maxSegmentCount) throws IOException {
+        if (segmentSize <= RECORD_HEAD_SIZE || segmentSize > MAX_SEGMENT_SIZE_MB * 1024 * 1024) {
+            throw new IllegalArgumentException("Invalid spill segment size " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegmentCount = Math.max(maxSegmentCount, 1);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Create spill directory failure: " + directory);
+        }
+        this.checkpointBuffer = mapFile(new File(directory, CHECKPOINT_FILE), 16);
+        long ckSegmentId = checkpointBuffer.getLong(0);
+        int ckReadPos = checkpointBuffer.getInt(8);
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                try {
+                    segmentFiles.put(Long.parseLong(
+                            name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    LOG.warn("Ignore unknown spill file {}", file);
+                }
+            }
+        }
+        // the segments before the checkpoint are all read
+        while (!segmentFiles.isEmpty() && segmentFiles.firstKey() < ckSegmentId) {
+            deleteFile(segmentFiles.pollFirstEntry().getValue());
+        }
+        if (segmentFiles.isEmpty()) {
+            this.readSegmentId = ckSegmentId;
+            this.readPos = 0;
+            this.writeSegmentId = ckSegmentId;
+            this.writeBuffer = createSegment(ckSegmentId);
+            this.writePos = 0;
+        } else {
+            if (segmentFiles.firstKey() == ckSegmentId) {
+                this.readSegmentId = ckSegmentId;
+                this.readPos = ckReadPos;
+            } else {
+                this.readSegmentId = segmentFiles.firstKey();
+                this.readPos = 0;
+            }
+            this.writeSegmentId = segmentFiles.lastKey();
+            this.writeBuffer = mapFile(segmentFiles.get(writeSegmentId), segmentSize);
+            this.writePos = recoverWritePos(
+                    writeSegmentId == readSegmentId ? readPos : 0);
+        }
+        this.readBuffer = readSegmentId == writeSegmentId
+                ? writeBuffer
+                : mapFile(segmentFiles.get(readSegmentId), segmentSize);
+        updateEmpty();
+        LOG.info("Spill queue opened at {}, segments {}, read {}:{}, write {}:{}", directory,
+                segmentFiles.size(), readSegmentId, readPos, writeSegmentId, writePos);
+    }
+
+    /**
+     * append a record
+     *
+     * @param payload  the record
+     * @return  false if the record is too large or the segment count reaches the max
+     */
+    public synchronized boolean append(byte[] payload) {
+        int recordSize = RECORD_HEAD_SIZE + payload.length;
+        if (closed || recordSize > segmentSize) {
+            return false;
+        }
+        if (writePos + recordSize > segmentSize) {
+            if (segmentFiles.size() >= maxSegmentCount) {
+                return false;
+            }
+            if (!rollWriteSegment()) {
+                return false;
+            }
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload);
+        ByteBuffer buffer = writeBuffer.duplicate();
+        buffer.position(writePos + RECORD_HEAD_SIZE);
+        buffer.put(payload);
+        writeBuffer.putInt(writePos + 4, (int) crc32.getValue());
+        writeBuffer.putInt(writePos, payload.length);
+        writePos += recordSize;
+        empty = false;
+        return true;
+    }
+
+    /**
+     * append a record, wait until a segment is released if the segment count reaches the max
+     *
+     * @param payload  the record
+     * @return  false if the record is too large, the queue is closed or a new segment can not be created
+     * @throws InterruptedException  interrupted while waiting
+     */
+    public synchronized boolean appendWait(byte[] payload) throws InterruptedException {
+        while (!append(payload)) {
+            if (closed || RECORD_HEAD_SIZE + payload.length > segmentSize
+                    || segmentFiles.size() < maxSegmentCount) {
+                return false;
+            }
+            this.wait();
+        }
+        return true;
+    }
+
+    /**
+     * get the first unread record without removing it
+     *
+     * @return  the record, null if the queue is empty
+     */
+    public synchronized byte[] peek() {
+        int length;
+        while (true) {
+            if (closed) {
+                return null;
+            }
+            if (readSegmentId == writeSegmentId && readPos >= writePos) {
+                return null;
+            }
+            if (readSegmentId < writeSegmentId
+                    && (segmentSize - readPos < RECORD_HEAD_SIZE
+                            || readBuffer.getInt(readPos) <= 0)) {
+                nextReadSegment();
+                continue;
+            }
+            length = readBuffer.getInt(readPos);
+            if (length > 0 && readPos + RECORD_HEAD_SIZE + length <= segmentSize) {
+                byte[] payload = new byte[length];
+                ByteBuffer buffer = readBuffer.duplicate();
+                buffer.position(readPos + RECORD_HEAD_SIZE);
+                buffer.get(payload);
+                CRC32 crc32 = new CRC32();
+                crc32.update(payload);
+                if ((int) crc32.getValue() == readBuffer.getInt(readPos + 4)) {
+                    peekSize = RECORD_HEAD_SIZE + length;
+                    return payload;
+                }
+            }
+            // skip the broken records of the segment
+            LOG.error("Skip broken spill records in segment {} from {}", readSegmentId, readPos);
+            if (readSegmentId < writeSegmentId) {
+                nextReadSegment();
+            } else {
+                readPos = writePos;
+                updateEmpty();
+            }
+        }
+    }
+
+    /**
+     * remove the record returned by the last peek
+     */
+    public synchronized void remove() {
+        if (closed) {
+            return;
+        }
+        readPos += peekSize;
+        peekSize = 0;
+        updateEmpty();
+    }
+
+    /**
+     * whether the queue is empty
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * the disk size used by the unread records
+     */
+    public synchronized long usedSize() {
+        return (writeSegmentId - readSegmentId) * segmentSize + writePos - readPos;
+    }
+
+    /**
+     * flush the appended records and save the read position
+     */
+    public synchronized void checkpoint() {
+        if (closed) {
+            return;
+        }
+        writeBuffer.force();
+        checkpointBuffer.putLong(0, readSegmentId);
+        checkpointBuffer.putInt(8, readPos);
+        checkpointBuffer.force();
+    }
+
+    /**
+     * save the read position and unmap the segments, the queue can not be used after closed
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        checkpoint();
+        closed = true;
+        if (readBuffer != null && readBuffer != writeBuffer) {
+            unmap(readBuffer);
+        }
+        unmap(writeBuffer);
+        unmap(checkpointBuffer);
+        readBuffer = null;
+        writeBuffer = null;
+        this.notifyAll();
+        LOG.info("Spill queue closed at {}, read {}:{}, write {}:{}", directory,
+                readSegmentId, readPos, writeSegmentId, writePos);
+    }
+
+    private boolean rollWriteSegment() {
+        if (segmentSize - writePos >= 4) {
+            writeBuffer.putInt(writePos, ROLL_MARK);
+        }
+        MappedByteBuffer newBuffer;
+        try {
+            newBuffer = createSegment(writeSegmentId + 1);
+        } catch (IOException e) {
+            LOG.error("Create spill segment {} failure", writeSegmentId + 1, e);
+            return false;
+        }
+        // the full segment is mapped again when it is read
+        writeBuffer.force();
+        if (writeBuffer != readBuffer) {
+            unmap(writeBuffer);
+        }
+        writeSegmentId++;
+        writeBuffer = newBuffer;
+        writePos = 0;
+        return true;
+    }
+
+    private void nextReadSegment() {
+        File file = segmentFiles.remove(readSegmentId);
+        MappedByteBuffer oldBuffer = readBuffer;
+        readSegmentId++;
+        readPos = 0;
+        if (readSegmentId == writeSegmentId) {
+            readBuffer = writeBuffer;
+        } else {
+            try {
+                readBuffer = mapFile(segmentFiles.get(readSegmentId), segmentSize);
+            } catch (IOException e) {
+                // the segment is lost, go on with the next one
+                LOG.error("Open spill segment {} failure", readSegmentId, e);
+                readBuffer = null;
+                readPos = segmentSize;
+            }
+        }
+        // unmap before deleting, or the disk space is held until the buffer is collected
+        if (oldBuffer != null && oldBuffer != writeBuffer) {
+            unmap(oldBuffer);
+        }
+        if (file != null) {
+            deleteFile(file);
+        }
+        updateEmpty();
+        this.notifyAll();
+    }
+
+    private int recoverWritePos(int startPos) {
+        int length;
+        int pos = startPos;
+        CRC32 crc32 = new CRC32();
+        ByteBuffer buffer = writeBuffer.duplicate();
+        while (pos + RECORD_HEAD_SIZE <= segmentSize) {
+            length = writeBuffer.getInt(pos);
+            if (length <= 0 || pos + RECORD_HEAD_SIZE + length > segmentSize) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.position(pos + RECORD_HEAD_SIZE);
+            buffer.get(payload);
+            crc32.reset();
+            crc32.update(payload);
+            if ((int) crc32.getValue() != writeBuffer.getInt(pos + 4)) {
+                break;
+            }
+            pos += RECORD_HEAD_SIZE + length;
+        }
+        // clear the torn tail, so it is not read after the records appended later
+        if (pos + 4 <= segmentSize && writeBuffer.getInt(pos) != 0) {
+            LOG.warn("Drop the torn spill tail in segment {} from {}", writeSegmentId, pos);
+            for (int i = pos; i < segmentSize; i++) {
+                writeBuffer.put(i, (byte) 0);
+            }
+        }
+        return pos;
+    }
+
+    private MappedByteBuffer createSegment(long segmentId) throws IOException {
+        File file = new File(directory, String.format("%020d%s", segmentId, SEGMENT_SUFFIX));
+        MappedByteBuffer buffer = mapFile(file, segmentSize);
+        segmentFiles.put(segmentId, file);
+        return buffer;
+    }
+
+    private void updateEmpty() {
+        empty = (readSegmentId == writeSegmentId && readPos >= writePos);
+    }
+
+    private static MappedByteBuffer mapFile(File file, int size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < size) {
+                raf.setLength(size);
+            }
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null || UNMAPPER == null) {
+            return;
+        }
+        try {
+            UNMAPPER.unmap(buffer);
+        } catch (Throwable e) {
+            // the mapping will be released by GC if it cannot be unmapped directly
+            LOG.warn("Unmap spill segment failure, left it to GC", e);
+        }
+    }
+
+    /**
+     * find the unmapping method of the running JDK by reflection, so no internal
+     * class is referenced at compile time
+     */
+    private static Unmapper createUnmapper() {
+        try {
+            // Java 9+
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+            Object unsafe = unsafeField.get(null);
+            return buffer -> invokeCleaner.invoke(unsafe, buffer);
+        } catch (Throwable e) {
+            // try the Java 8 cleaner
+        }
+        try {
+            Method cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleanMethod.invoke(cleaner);
+                }
+            };
+        } catch (Throwable e) {
+            LOG.warn("The mapped buffers can not be unmapped explicitly, left them to GC", e);
+            return null;
+        }
+    }
+
+    private interface Unmapper {
+
+        void unmap(ByteBuffer buffer) throws Throwable;
+    }
+
+    private static void deleteFile(File file) {
+        if (!file.delete()) {
+            LOG.warn("Delete spill file {} failure", file);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.commons.utils;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdException;
+
+import java.io.IOException;
+
+/**
+ * ZstdUtils
+ *
+ * The decompressed size is read from the frame header, which is written by the compressor,
+ * and is 0 for an empty source. The frames are compressed without a dictionary, trained
+ * per-stream dictionaries are not supported, as the MQ consumers have no way to fetch them.
+ */
+public class ZstdUtils {
+
+    public static final int DEFAULT_COMPRESS_LEVEL = 3;
+
+    /**
+     * compress
+     *
+     * @param  data
+     * @return       byte array
+     * @throws IOException
+     */
+    public static byte[] compress(byte[] data) throws IOException {
+        try {
+            return Zstd.compress(data, DEFAULT_COMPRESS_LEVEL);
+        } catch (ZstdException e) {
+            throw new IOException("Compress zstd data failure", e);
+        }
+    }
+
+    /**
+     * decompress
+     *
+     * @param  data
+     * @param  maxLength  the max decompressed length
+     * @return            byte array
+     * @throws IOException
+     */
+    public static byte[] decompress(byte[] data, int maxLength) throws IOException {
+        long srcLength = Zstd.decompressedSize(data);
+        if (srcLength < 0 || srcLength > maxLength) {
+            throw new IOException("Invalid zstd decompressed size " + srcLength
+                    + ", max length " + maxLength);
+        }
+        try {
+            return Zstd.decompress(data, (int) srcLength);
+        } catch (ZstdException e) {
+            throw new IOException("Decompress zstd data failure", e);
+        }
+    }
+}
@@ -19,14 +19,20 @@ package org.apache.inlong.sdk.commons.protocol;
 
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.INLONG_COMPRESSED_TYPE;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessagePack;
+import org.apache.inlong.sdk.commons.utils.Lz4Utils;
+import org.apache.inlong.sdk.commons.utils.ZstdUtils;
 
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 /**
  * 
@@ -104,4 +110,60 @@ public class TestEventUtils {
             e.printStackTrace();
         }
     }
+
+    @Test
+    public void testCompressTypes() throws Exception {
+        List<ProxyEvent> eventList = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            eventList.add(new ProxyEvent(INLONG_GROUP_ID, INLONG_STREAM_ID, (BODY + i).getBytes(),
+                    System.currentTimeMillis(), SOURCE_IP));
+        }
+        for (INLONG_COMPRESSED_TYPE compressedType : INLONG_COMPRESSED_TYPE.values()) {
+            byte[] bodyBytes = EventUtils.encodeCacheMessageBody(compressedType, eventList);
+            List<SortEvent> sortEventList = EventUtils.decodeCacheMessageBody(INLONG_GROUP_ID, INLONG_STREAM_ID,
+                    compressedType, bodyBytes);
+            assertEquals(eventList.size(), sortEventList.size());
+            assertArrayEquals(eventList.get(99).getBody(), sortEventList.get(99).getBody());
+        }
+    }
+
+    @Test
+    public void testEmptyCacheMessageBody() throws Exception {
+        for (INLONG_COMPRESSED_TYPE compressedType : new INLONG_COMPRESSED_TYPE[]{
+                INLONG_COMPRESSED_TYPE.INLONG_ZSTD, INLONG_COMPRESSED_TYPE.INLONG_LZ4}) {
+            byte[] bodyBytes = EventUtils.encodeCacheMessageBody(compressedType, new ArrayList<>());
+            List<SortEvent> sortEventList = EventUtils.decodeCacheMessageBody(INLONG_GROUP_ID, INLONG_STREAM_ID,
+                    compressedType, bodyBytes);
+            assertEquals(0, sortEventList.size());
+        }
+    }
+
+    @Test
+    public void testDecompressMaxLength() throws Exception {
+        byte[] srcBytes = new byte[4096];
+        byte[] zstdBytes = ZstdUtils.compress(srcBytes);
+        assertArrayEquals(srcBytes, ZstdUtils.decompress(zstdBytes, srcBytes.length));
+        try {
+            ZstdUtils.decompress(zstdBytes, srcBytes.length - 1);
+            fail("the zstd frame content size exceeds the max length");
+        } catch (IOException e) {
+            // expected
+        }
+        byte[] lz4Bytes = Lz4Utils.compress(srcBytes);
+        assertArrayEquals(srcBytes, Lz4Utils.decompress(lz4Bytes, srcBytes.length));
+        try {
+            Lz4Utils.decompress(lz4Bytes, srcBytes.length - 1);
+            fail("the lz4 source length exceeds the max length");
+        } catch (IOException e) {
+            // expected
+        }
+        // a forged source length is rejected before the allocation
+        ByteBuffer.wrap(lz4Bytes).putInt(Integer.MAX_VALUE);
+        try {
+            EventUtils.decompress(INLONG_COMPRESSED_TYPE.INLONG_LZ4, lz4Bytes);
+            fail("the lz4 source length exceeds the max length");
+        } catch (IOException e) {
+            // expected
+        }
+    }
 }
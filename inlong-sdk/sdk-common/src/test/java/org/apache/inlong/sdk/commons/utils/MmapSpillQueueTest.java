@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.commons.utils;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Test for MmapSpillQueue
+ */
+public class MmapSpillQueueTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("spill").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testAppendAndRoll() throws Exception {
+        // 4 records of 16 bytes per segment, at most 2 segments
+        MmapSpillQueue queue = new MmapSpillQueue(directory, 64, 2);
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.peek());
+        for (int i = 0; i < 8; i++) {
+            Assert.assertTrue(queue.append(record(i)));
+        }
+        Assert.assertFalse(queue.isEmpty());
+        Assert.assertEquals(128, queue.usedSize());
+        // the disk size is bounded
+        Assert.assertFalse(queue.append(record(8)));
+        Assert.assertFalse(queue.append(new byte[64]));
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(i, value(queue.peek()));
+            // peek again without remove returns the same record
+            Assert.assertEquals(i, value(queue.peek()));
+            queue.remove();
+        }
+        // the read segment is released after rolling to the next one
+        Assert.assertEquals(4, value(queue.peek()));
+        Assert.assertTrue(queue.append(record(8)));
+        for (int i = 4; i < 9; i++) {
+            Assert.assertEquals(i, value(queue.peek()));
+            queue.remove();
+        }
+        Assert.assertNull(queue.peek());
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(0, queue.usedSize());
+    }
+
+    @Test
+    public void testRecover() throws Exception {
+        MmapSpillQueue queue = new MmapSpillQueue(directory, 64, 4);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(queue.append(record(i)));
+        }
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(i, value(queue.peek()));
+            queue.remove();
+        }
+        queue.checkpoint();
+        // the records read after the checkpoint are replayed
+        queue.peek();
+        queue.remove();
+        MmapSpillQueue reopened = new MmapSpillQueue(directory, 64, 4);
+        Assert.assertFalse(reopened.isEmpty());
+        Assert.assertTrue(reopened.append(record(10)));
+        for (int i = 5; i < 11; i++) {
+            Assert.assertEquals(i, value(reopened.peek()));
+            reopened.remove();
+        }
+        Assert.assertTrue(reopened.isEmpty());
+    }
+
+    @Test
+    public void testDeleteAndClose() throws Exception {
+        MmapSpillQueue queue = new MmapSpillQueue(directory, 64, 4);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(queue.append(record(i)));
+        }
+        Assert.assertEquals(3, spillFileCount());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(i, value(queue.peek()));
+            queue.remove();
+        }
+        // the first segment is deleted once the second one is read
+        Assert.assertEquals(2, spillFileCount());
+        queue.close();
+        // the closed queue is not usable
+        Assert.assertFalse(queue.append(record(10)));
+        Assert.assertNull(queue.peek());
+        queue.close();
+        MmapSpillQueue reopened = new MmapSpillQueue(directory, 64, 4);
+        for (int i = 5; i < 10; i++) {
+            Assert.assertEquals(i, value(reopened.peek()));
+            reopened.remove();
+        }
+        Assert.assertTrue(reopened.isEmpty());
+        reopened.close();
+    }
+
+    @Test
+    public void testAppendWait() throws Exception {
+        MmapSpillQueue queue = new MmapSpillQueue(directory, 64, 2);
+        for (int i = 0; i < 8; i++) {
+            Assert.assertTrue(queue.append(record(i)));
+        }
+        // too large records are rejected without waiting
+        Assert.assertFalse(queue.appendWait(new byte[64]));
+        final AtomicBoolean appended = new AtomicBoolean(false);
+        Thread appender = new Thread(() -> {
+            try {
+                appended.set(queue.appendWait(record(8)));
+            } catch (InterruptedException e) {
+                // failed
+            }
+        });
+        appender.start();
+        appender.join(200);
+        Assert.assertTrue(appender.isAlive());
+        // release the first segment
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(i, value(queue.peek()));
+            queue.remove();
+        }
+        appender.join(5000);
+        Assert.assertTrue(appended.get());
+        for (int i = 5; i < 9; i++) {
+            Assert.assertEquals(i, value(queue.peek()));
+            queue.remove();
+        }
+        Assert.assertTrue(queue.isEmpty());
+        // the waiting appenders return after closed
+        for (int i = 9; i < 16; i++) {
+            Assert.assertTrue(queue.append(record(i)));
+        }
+        Thread closedAppender = new Thread(() -> {
+            try {
+                appended.set(queue.appendWait(record(16)));
+            } catch (InterruptedException e) {
+                // failed
+            }
+        });
+        closedAppender.start();
+        closedAppender.join(200);
+        Assert.assertTrue(closedAppender.isAlive());
+        queue.close();
+        closedAppender.join(5000);
+        Assert.assertFalse(closedAppender.isAlive());
+        Assert.assertFalse(appended.get());
+    }
+
+    private int spillFileCount() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".spill"));
+        return files == null ? 0 : files.length;
+    }
+
+    private static byte[] record(int value) {
+        return String.format("%08d", value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int value(byte[] record) {
+        return Integer.parseInt(new String(record, StandardCharsets.UTF_8));
+    }
+}
@@ -20,8 +20,9 @@ package org.apache.inlong.sdk.sort.impl.decode;
 import org.apache.inlong.common.enums.DataProxyMsgEncType;
 import org.apache.inlong.common.msg.InLongMsg;
 import org.apache.inlong.common.util.StringUtil;
-import org.apache.inlong.common.util.Utils;
 import org.apache.inlong.sdk.commons.protocol.EventConstants;
+import org.apache.inlong.sdk.commons.protocol.EventUtils;
+import org.apache.inlong.sdk.commons.protocol.ProxySdk.INLONG_COMPRESSED_TYPE;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MapFieldEntry;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObj;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObjs;
@@ -42,9 +43,6 @@ import java.util.Optional;
 
 public class MessageDeserializer implements Deserializer {
 
-    private static final int COMPRESS_TYPE_NONE = 0;
-    private static final int COMPRESS_TYPE_GZIP = 1;
-    private static final int COMPRESS_TYPE_SNAPPY = 2;
     private static final String COMPRESS_TYPE_KEY = "compressType";
     private static final String MSG_TIME_KEY = "msgTime";
     private static final String SOURCE_IP_KEY = "sourceIp";
@@ -113,24 +111,13 @@ public class MessageDeserializer implements Deserializer {
         int compressType = Integer.parseInt(headers.getOrDefault(COMPRESS_TYPE_KEY, "0"));
         String inlongGroupId = headers.getOrDefault(INLONG_GROUPID_KEY, "");
         String inlongStreamId = headers.getOrDefault(INLONG_STREAMID_KEY, "");
-        switch (compressType) {
-            case COMPRESS_TYPE_NONE: {
-                return transformMessageObjs(context, inLongTopic, MessageObjs.parseFrom(msgBytes), inlongGroupId,
-                        inlongStreamId);
-            }
-            case COMPRESS_TYPE_SNAPPY: {
-                byte[] values = Utils.snappyDecompress(msgBytes, 0, msgBytes.length);
-                return transformMessageObjs(context, inLongTopic, MessageObjs.parseFrom(values), inlongGroupId,
-                        inlongStreamId);
-            }
-            case COMPRESS_TYPE_GZIP: {
-                byte[] values = Utils.gzipDecompress(msgBytes, 0, msgBytes.length);
-                return transformMessageObjs(context, inLongTopic, MessageObjs.parseFrom(values), inlongGroupId,
-                        inlongStreamId);
-            }
-            default:
-                throw new IllegalArgumentException("Unknown compress type:" + compressType);
+        INLONG_COMPRESSED_TYPE inlongCompressType = INLONG_COMPRESSED_TYPE.forNumber(compressType);
+        if (inlongCompressType == null) {
+            throw new IllegalArgumentException("Unknown compress type:" + compressType);
         }
+        byte[] values = EventUtils.decompress(inlongCompressType, msgBytes);
+        return transformMessageObjs(context, inLongTopic, MessageObjs.parseFrom(values), inlongGroupId,
+                inlongStreamId);
     }
 
     /**
@@ -19,6 +19,8 @@ package org.apache.inlong.sdk.sort.impl.decode;
 
 import org.apache.inlong.common.msg.InLongMsg;
 import org.apache.inlong.common.util.Utils;
+import org.apache.inlong.sdk.commons.protocol.EventUtils;
+import org.apache.inlong.sdk.commons.protocol.ProxySdk.INLONG_COMPRESSED_TYPE;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MapFieldEntry;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObj;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObjs;
@@ -181,6 +183,32 @@ public class MessageDeserializerTest {
         }
     }
 
+    @Test
+    public void testDeserializeVersion1ZstdAndLz4() throws Exception {
+        setUp();
+        for (INLONG_COMPRESSED_TYPE compressType : new INLONG_COMPRESSED_TYPE[]{
+                INLONG_COMPRESSED_TYPE.INLONG_ZSTD, INLONG_COMPRESSED_TYPE.INLONG_LZ4}) {
+            prepareTestMessageObjs();
+            headers.put("compressType", String.valueOf(compressType.getNumber()));
+
+            byte[] testDataByteArray = EventUtils.compress(compressType, messageObjs.toByteArray());
+
+            List<InLongMessage> deserialize = messageDeserializer
+                    .deserialize(context, inLongTopic, headers, testDataByteArray);
+            Assert.assertEquals(2, deserialize.size());
+            Assert.assertEquals(testData, new String(deserialize.get(0).getBody()));
+            Assert.assertEquals("ip2", deserialize.get(1).getSourceIp());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeserializeVersion1UnknownCompressType() throws Exception {
+        setUp();
+        prepareTestMessageObjs();
+        headers.put("compressType", "100");
+        messageDeserializer.deserialize(context, inLongTopic, headers, messageObjs.toByteArray());
+    }
+
     private void prepareTestMessageObjs() {
         headers.put("version", "1");
         testData = "test data";
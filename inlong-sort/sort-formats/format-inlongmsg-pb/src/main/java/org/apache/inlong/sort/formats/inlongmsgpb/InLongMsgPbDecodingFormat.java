@@ -17,8 +17,11 @@
 
 package org.apache.inlong.sort.formats.inlongmsgpb;
 
+import org.apache.inlong.sdk.commons.protocol.EventUtils;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk;
 import org.apache.inlong.sdk.commons.utils.GzipUtils;
+import org.apache.inlong.sdk.commons.utils.Lz4Utils;
+import org.apache.inlong.sdk.commons.utils.ZstdUtils;
 import org.apache.inlong.sort.formats.inlongmsgpb.InLongMsgPbDeserializationSchema.InLongPbMsgDecompressor;
 import org.apache.inlong.sort.formats.inlongmsgpb.InLongMsgPbDeserializationSchema.MetadataConverter;
 
@@ -167,13 +170,17 @@ public class InLongMsgPbDecodingFormat implements DecodingFormat<Deserialization
         return innerDecodingFormat.getChangelogMode();
     }
 
-    /** only support gzip and snappy for now */
+    /** support gzip, snappy, zstd and lz4 */
     private InLongPbMsgDecompressor getDecompressor(String decompressType) {
         switch (decompressType.toLowerCase(Locale.ROOT)) {
             case "gzip":
                 return GzipUtils::decompress;
             case "snappy":
                 return Snappy::uncompress;
+            case "zstd":
+                return message -> ZstdUtils.decompress(message, EventUtils.MAX_SRC_LENGTH);
+            case "lz4":
+                return message -> Lz4Utils.decompress(message, EventUtils.MAX_SRC_LENGTH);
             case "no-compress":
             default:
                 return unDecompress -> unDecompress;
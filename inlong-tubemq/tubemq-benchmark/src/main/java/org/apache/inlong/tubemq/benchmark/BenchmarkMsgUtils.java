@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Builders of the stored message entries used by the storage benchmarks.
+ */
+public class BenchmarkMsgUtils {
+
+    /**
+     * Build a stored data entry.
+     *
+     * @param partitionId    the partition id
+     * @param keyCode        the filter item hash code
+     * @param msgId          the message id
+     * @param payLoadLen     the payload length
+     * @return               the data entry, ready to read
+     */
+    public static ByteBuffer buildDataEntry(int partitionId,
+            int keyCode, long msgId, int payLoadLen) {
+        byte[] payLoad = new byte[payLoadLen];
+        Arrays.fill(payLoad, (byte) 'a');
+        ByteBuffer dataEntry =
+                ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + payLoadLen);
+        dataEntry.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + payLoadLen);
+        dataEntry.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        dataEntry.putInt(0);
+        dataEntry.putInt(partitionId);
+        dataEntry.putLong(-1L);
+        dataEntry.putLong(System.currentTimeMillis());
+        dataEntry.putInt(0);
+        dataEntry.putInt(keyCode);
+        dataEntry.putLong(msgId);
+        dataEntry.putInt(0);
+        dataEntry.put(payLoad);
+        dataEntry.flip();
+        return dataEntry;
+    }
+
+    /**
+     * Build a stored index entry.
+     *
+     * @param partitionId    the partition id
+     * @param keyCode        the filter item hash code
+     * @param dataOffset     the data offset of the message
+     * @param dataSize       the data entry size of the message
+     * @param timeRecv       the received timestamp
+     * @return               the index entry, ready to read
+     */
+    public static ByteBuffer buildIndexEntry(int partitionId, int keyCode,
+            long dataOffset, int dataSize, long timeRecv) {
+        ByteBuffer indexEntry =
+                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        indexEntry.putInt(partitionId);
+        indexEntry.putLong(dataOffset);
+        indexEntry.putInt(dataSize);
+        indexEntry.putInt(keyCode);
+        indexEntry.putLong(timeRecv);
+        indexEntry.flip();
+        return indexEntry;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.FileSegment;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.MmapFileSegment;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.Segment;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.SegmentType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Data segment read benchmark.
+ *
+ * Reads one record at a random position of a sealed data segment, through the
+ * file channel or the mapped buffer, with and without taking a view reference
+ * as the file store does for every segment it slices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileSegmentBenchmark {
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    @Param({"256", "4096"})
+    private int recordSize;
+
+    @Param({"false", "true"})
+    private boolean mmapRead;
+
+    private File segmentFile;
+    private Segment segment;
+    private int recordCount;
+
+    @State(Scope.Thread)
+    public static class ReadBuffer {
+
+        private ByteBuffer buffer;
+
+        @Setup(Level.Trial)
+        public void setup(FileSegmentBenchmark benchmark) {
+            buffer = ByteBuffer.allocate(benchmark.recordSize);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        segmentFile = File.createTempFile("tubemq-bench", ".tube");
+        recordCount = SEGMENT_SIZE / recordSize;
+        FileSegment writeSegment = new FileSegment(0L, segmentFile, SegmentType.DATA);
+        ByteBuffer dataEntry = BenchmarkMsgUtils.buildDataEntry(0, 11, 1L,
+                recordSize - BenchmarkMsgUtils.buildDataEntry(0, 11, 1L, 0).limit());
+        for (int i = 0; i < recordCount; i++) {
+            writeSegment.append(dataEntry.duplicate(), 0L, 0L);
+        }
+        writeSegment.flush(true);
+        writeSegment.setMutable(false);
+        writeSegment.close();
+        if (mmapRead) {
+            segment = new MmapFileSegment(0L, segmentFile, SegmentType.DATA);
+        } else {
+            segment = new FileSegment(0L, segmentFile, false, SegmentType.DATA);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        segment.close();
+        segmentFile.delete();
+    }
+
+    @Benchmark
+    public ByteBuffer readRecord(ReadBuffer readBuffer) throws IOException {
+        ByteBuffer buffer = readBuffer.buffer;
+        buffer.clear();
+        segment.read(buffer, randomRecordOffset());
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer sliceAndReadRecord(ReadBuffer readBuffer) throws IOException {
+        ByteBuffer buffer = readBuffer.buffer;
+        buffer.clear();
+        if (segment.acquireViewRef()) {
+            try {
+                segment.read(buffer, randomRecordOffset());
+            } finally {
+                segment.relViewRef();
+            }
+        }
+        return buffer;
+    }
+
+    private long randomRecordOffset() {
+        return (long) ThreadLocalRandom.current().nextInt(recordCount) * recordSize;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.corebase.policies.FlowCtrlItem;
+import org.apache.inlong.tubemq.corebase.policies.FlowCtrlResult;
+import org.apache.inlong.tubemq.corebase.policies.FlowCtrlRuleHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FlowCtrlRuleHandler benchmark, the rule parsing and the evaluations made
+ * for every fetch request. The data limit rules cover the whole day, so that
+ * the evaluation always walks the rule list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlowCtrlRuleBenchmark {
+
+    // 0: current limit, 1: frequency limit, 2: SSD transfer 3: request frequency control
+    private static final String FLOW_CTRL_INFO =
+            "[{\"type\":0,\"rule\":[{\"start\":\"00:00\",\"end\":\"11:59\",\"dltInM\":1024,"
+                    + "\"limitInM\":20,\"freqInMs\":1000},{\"start\":\"12:00\",\"end\":\"23:59\","
+                    + "\"dltInM\":1024,\"limitInM\":20,\"freqInMs\":5000}]},{\"type\":2,\"rule\""
+                    + ":[{\"start\":\"12:00\",\"end\":\"23:59\",\"dltStInM\":20480,\"dltEdInM\":2048}]}"
+                    + ",{\"type\":1,\"rule\":[{\"zeroCnt\":3,\"freqInMs\":300},{\"zeroCnt\":8,\"freqInMs\""
+                    + ":1000}]},{\"type\":3,\"rule\":[{\"normFreqInMs\":0,\"filterFreqInMs\":100,"
+                    + "\"minDataFilterFreqInMs\":400}]}]";
+
+    private FlowCtrlRuleHandler ruleHandler;
+    private int zeroCnt = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ruleHandler = new FlowCtrlRuleHandler(true);
+        ruleHandler.updateFlowCtrlInfo(2, 10, FLOW_CTRL_INFO, new StringBuilder(512));
+    }
+
+    @Benchmark
+    public Map<Integer, List<FlowCtrlItem>> parseFlowCtrlInfo() throws Exception {
+        return ruleHandler.parseFlowCtrlInfo(FLOW_CTRL_INFO);
+    }
+
+    @Benchmark
+    public FlowCtrlResult getCurDataLimit() {
+        return ruleHandler.getCurDataLimit(2048L * 1024 * 1024);
+    }
+
+    @Benchmark
+    public int getCurFreqLimitTime() {
+        zeroCnt = (zeroCnt + 1) % 10;
+        return ruleHandler.getCurFreqLimitTime(zeroCnt, 0);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.metadata.BrokerDefMetadata;
+import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgFileStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStore;
+import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MsgFileStore getMessages benchmark.
+ *
+ * The file store is filled through a memory store the same way the broker
+ * flushes it, then each invocation reads one index window of messages from it.
+ * The segment sizes are kept small so most segments are sealed during setup,
+ * which lets the mmapRead parameter switch the reads to mapped segments.
+ * The file store belongs to a message store without memory cache, whose own
+ * file store is kept in a separate directory and left empty.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MsgFileStoreBenchmark {
+
+    private static final int STORE_DATA_SIZE = 64 * 1024 * 1024;
+    private static final int FLUSH_CACHE_SIZE = 4 * 1024 * 1024;
+    private static final int DATA_SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final int INDEX_SEGMENT_SIZE = 10000 * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+    private static final int WINDOW_RECORDS = 1000;
+    private static final int MAX_TRANSFER_SIZE = 1024 * 1024;
+
+    @Param({"256", "4096"})
+    private int payLoadLen;
+
+    @Param({"false", "true"})
+    private boolean zeroCopyRead;
+
+    @Param({"false", "true"})
+    private boolean mmapRead;
+
+    private File storeDir;
+    private MessageStore messageStore;
+    private MsgFileStore msgFileStore;
+    private ByteBuffer storedIndex;
+    private int recordCount;
+    private int windowStart = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        storeDir = Files.createTempDirectory("tubemq-bench").toFile();
+        BrokerConfig brokerConfig = new BenchBrokerConfig(zeroCopyRead, mmapRead,
+                new File(storeDir, "store").getAbsolutePath());
+        TopicMetadata topicMetadata = new TopicMetadata(new BrokerDefMetadata(), "bench", 1, 1);
+        // flushed once after the messages are appended
+        topicMetadata.setUnflushThreshold(Integer.MAX_VALUE);
+        topicMetadata.setUnflushInterval(Integer.MAX_VALUE);
+        messageStore = new MessageStore(null, topicMetadata, 0, brokerConfig, MAX_TRANSFER_SIZE);
+        msgFileStore = new MsgFileStore(messageStore, brokerConfig,
+                new File(storeDir, "bench").getAbsolutePath(), 0L);
+        // fill the file store, and keep the index records for the reads
+        ByteBuffer dataEntry = BenchmarkMsgUtils.buildDataEntry(0, 11, 1L, payLoadLen);
+        recordCount = STORE_DATA_SIZE / dataEntry.limit();
+        storedIndex = ByteBuffer.allocate(recordCount * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        MsgStoreStatsHolder statsHolder = new MsgStoreStatsHolder();
+        AppendResult appendResult = new AppendResult();
+        StringBuilder strBuffer = new StringBuilder(512);
+        MsgMemStore msgMemStore = new MsgMemStore(FLUSH_CACHE_SIZE,
+                FLUSH_CACHE_SIZE / DataStoreUtils.STORE_DATA_HEADER_LEN, 0L, 0L);
+        for (int i = 0; i < recordCount; i++) {
+            ByteBuffer indexEntry = BenchmarkMsgUtils.buildIndexEntry(0, 11,
+                    -1L, dataEntry.limit(), System.currentTimeMillis());
+            if (!msgMemStore.appendMsg(statsHolder, 0, 11, System.currentTimeMillis(),
+                    indexEntry, dataEntry.limit(), dataEntry, appendResult)) {
+                msgMemStore.batchFlush(msgFileStore, strBuffer);
+                msgMemStore.resetMemStoreStatus(msgFileStore.getDataMaxOffset(),
+                        msgFileStore.getIndexMaxOffset());
+                msgMemStore.appendMsg(statsHolder, 0, 11, System.currentTimeMillis(),
+                        indexEntry, dataEntry.limit(), dataEntry, appendResult);
+            }
+            storedIndex.put(indexEntry.array());
+        }
+        msgMemStore.batchFlush(msgFileStore, strBuffer);
+        msgFileStore.flushDiskFile();
+        storedIndex.flip();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        msgFileStore.close();
+        messageStore.close();
+        FileUtil.fullyDelete(storeDir);
+    }
+
+    @Benchmark
+    public GetMessageResult getMessages() {
+        if (windowStart + WINDOW_RECORDS > recordCount) {
+            windowStart = 0;
+        }
+        ByteBuffer indexBuffer = storedIndex.duplicate();
+        indexBuffer.position(windowStart * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        indexBuffer.limit((windowStart + WINDOW_RECORDS) * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        GetMessageResult result = msgFileStore.getMessages(0, 0L,
+                (long) windowStart * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                indexBuffer.slice(), false, null, "bench", MAX_TRANSFER_SIZE, 0L);
+        windowStart += Math.max(1, result.lastReadOffset / DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        return result;
+    }
+
+    /**
+     * The broker configure with the benchmark read modes and small segments.
+     */
+    private static class BenchBrokerConfig extends BrokerConfig {
+
+        private final boolean zeroCopyRead;
+        private final boolean mmapRead;
+        private final String primaryPath;
+
+        BenchBrokerConfig(boolean zeroCopyRead, boolean mmapRead, String primaryPath) {
+            this.zeroCopyRead = zeroCopyRead;
+            this.mmapRead = mmapRead;
+            this.primaryPath = primaryPath;
+        }
+
+        @Override
+        public boolean isEnableZeroCopyRead() {
+            return zeroCopyRead;
+        }
+
+        @Override
+        public boolean isEnableMmapRead() {
+            return mmapRead;
+        }
+
+        @Override
+        public boolean isEnableMemStore() {
+            return false;
+        }
+
+        @Override
+        public int getMaxSegmentSize() {
+            return DATA_SEGMENT_SIZE;
+        }
+
+        @Override
+        public int getMaxIndexSegmentSize() {
+            return INDEX_SEGMENT_SIZE;
+        }
+
+        @Override
+        public String getPrimaryPath() {
+            return primaryPath;
+        }
+    }
+}
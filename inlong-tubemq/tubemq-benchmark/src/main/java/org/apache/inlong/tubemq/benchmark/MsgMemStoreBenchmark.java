@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.GetCacheMsgResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStore;
+import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MsgMemStore append and read benchmark.
+ *
+ * Each benchmark thread appends to its own memory store, which is reset
+ * once it is full, the same as the store is swapped out after flushing.
+ * The stores are not closed, as the cleaner of their direct buffers is not
+ * accessible on the newer JDKs, they are left to the garbage collector.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MsgMemStoreBenchmark {
+
+    private static final int MAX_CACHE_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_MSG_COUNT = 100000;
+    private static final int PARTITION_COUNT = 10;
+
+    @Param({"256", "4096"})
+    private int payLoadLen;
+
+    private final MsgStoreStatsHolder statsHolder = new MsgStoreStatsHolder();
+    private final AppendResult appendResult = new AppendResult();
+    private MsgMemStore appendStore;
+    private MsgMemStore readStore;
+    private ByteBuffer dataEntry;
+    private ByteBuffer indexEntry;
+    private int readPartitionId = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dataEntry = BenchmarkMsgUtils.buildDataEntry(0, 11, 1L, payLoadLen);
+        indexEntry = BenchmarkMsgUtils.buildIndexEntry(0, 11,
+                -1L, dataEntry.limit(), System.currentTimeMillis());
+        appendStore = new MsgMemStore(MAX_CACHE_SIZE, MAX_MSG_COUNT, 0L, 0L);
+        readStore = new MsgMemStore(MAX_CACHE_SIZE, MAX_MSG_COUNT, 0L, 0L);
+        // fill the read store with the messages of all partitions
+        int msgCount = Math.min(MAX_MSG_COUNT, MAX_CACHE_SIZE / dataEntry.limit());
+        for (int i = 0; i < msgCount; i++) {
+            int partitionId = i % PARTITION_COUNT;
+            ByteBuffer tmpDataEntry =
+                    BenchmarkMsgUtils.buildDataEntry(partitionId, i, i, payLoadLen);
+            ByteBuffer tmpIndexEntry = BenchmarkMsgUtils.buildIndexEntry(partitionId,
+                    i, -1L, tmpDataEntry.limit(), System.currentTimeMillis());
+            readStore.appendMsg(statsHolder, partitionId, i, System.currentTimeMillis(),
+                    tmpIndexEntry, tmpDataEntry.limit(), tmpDataEntry, appendResult);
+        }
+    }
+
+    @Benchmark
+    public boolean appendMsg() {
+        if (!appendStore.appendMsg(statsHolder, 0, 11, System.currentTimeMillis(),
+                indexEntry, dataEntry.limit(), dataEntry, appendResult)) {
+            appendStore.resetMemStoreStatus(0L, 0L);
+            return false;
+        }
+        return true;
+    }
+
+    @Benchmark
+    public GetCacheMsgResult getMessages() {
+        readPartitionId = (readPartitionId + 1) % PARTITION_COUNT;
+        return readStore.getMessages(0L, 0L, 1024 * 1024, 1000,
+                readPartitionId, false, false, null, 0L);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientMaster;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+import org.apache.inlong.tubemq.corerpc.codec.PbEnDecoder;
+import org.apache.inlong.tubemq.corerpc.netty.NettyProtocolDecoder;
+import org.apache.inlong.tubemq.corerpc.netty.NettyProtocolEncoder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RPC codec benchmark, the protobuf encoding of a request and
+ * the netty frame codec round trip of a data pack.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RpcCodecBenchmark {
+
+    @Param({"1024", "65536"})
+    private int packDataSize;
+
+    private ClientMaster.RegisterRequestP2M request;
+    private byte[] requestBytes;
+    private List<ByteBuffer> packDataList;
+    private EmbeddedChannel encodeChannel;
+    private EmbeddedChannel decodeChannel;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ClientMaster.RegisterRequestP2M.Builder builder =
+                ClientMaster.RegisterRequestP2M.newBuilder();
+        builder.setClientId("10.0.0.1-12345-1700000000000-1-Java-3.9.0");
+        builder.setBrokerCheckSum(99);
+        builder.setHostName("tube-bench");
+        for (int i = 0; i < 20; i++) {
+            builder.addTopicList("bench_topic_" + i);
+        }
+        request = builder.build();
+        requestBytes = PbEnDecoder.pbEncode(request);
+        // a pack of the request head and the message body
+        packDataList = new ArrayList<>();
+        packDataList.add(ByteBuffer.wrap(requestBytes));
+        packDataList.add(ByteBuffer.wrap(new byte[packDataSize]));
+        encodeChannel = new EmbeddedChannel(new NettyProtocolEncoder());
+        decodeChannel = new EmbeddedChannel(new NettyProtocolDecoder());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        encodeChannel.finishAndReleaseAll();
+        decodeChannel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public byte[] pbEncode() throws Exception {
+        return PbEnDecoder.pbEncode(request);
+    }
+
+    @Benchmark
+    public Object pbDecode() throws Exception {
+        return PbEnDecoder.pbDecode(true,
+                RpcConstants.RPC_MSG_MASTER_PRODUCER_REGISTER, requestBytes);
+    }
+
+    @Benchmark
+    public RpcDataPack nettyCodecRoundTrip() {
+        encodeChannel.writeOutbound(new RpcDataPack(1, packDataList));
+        ByteBuf frame = encodeChannel.readOutbound();
+        decodeChannel.writeInbound(frame);
+        return decodeChannel.readInbound();
+    }
+}
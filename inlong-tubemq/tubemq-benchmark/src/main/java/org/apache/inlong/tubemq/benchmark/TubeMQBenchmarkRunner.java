@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Run the TubeMQ benchmarks, and check the results against a given baseline.
+ *
+ * Usage: java -jar tubemq-benchmarks.jar [-result file] [-baseline file]
+ *        [-threshold percent] [benchmark regexp ...]
+ *
+ * The results are written to target/tubemq-benchmark-result.json by default, in
+ * the JMH json format, so the result file of a released version can be kept as
+ * the baseline of the next upgrade. No baseline is kept in the source tree, as
+ * the scores are only comparable on the same host, so the regression check only
+ * runs when a baseline file is given by -baseline, see the README of the module
+ * for how it is generated and stored. Every benchmark which is slower than its
+ * baseline score by more than the threshold is reported, and the runner exits with 1.
+ */
+public class TubeMQBenchmarkRunner {
+
+    private static final String DEF_RESULT_FILE = "target/tubemq-benchmark-result.json";
+    private static final double DEF_THRESHOLD_PERCENT = 10.0;
+
+    public static void main(String[] args) throws Exception {
+        String resultFile = DEF_RESULT_FILE;
+        String baselineFile = null;
+        double thresholdPercent = DEF_THRESHOLD_PERCENT;
+        ChainedOptionsBuilder optionsBuilder = new OptionsBuilder();
+        boolean hasInclude = false;
+        for (int i = 0; i < args.length; i++) {
+            if ("-result".equals(args[i]) && i + 1 < args.length) {
+                resultFile = args[++i];
+            } else if ("-baseline".equals(args[i]) && i + 1 < args.length) {
+                baselineFile = args[++i];
+            } else if ("-threshold".equals(args[i]) && i + 1 < args.length) {
+                thresholdPercent = Double.parseDouble(args[++i]);
+            } else {
+                optionsBuilder.include(args[i]);
+                hasInclude = true;
+            }
+        }
+        if (!hasInclude) {
+            optionsBuilder.include(TubeMQBenchmarkRunner.class.getPackage().getName() + ".*");
+        }
+        if (baselineFile != null && !Files.isRegularFile(Paths.get(baselineFile))) {
+            System.out.println("[Benchmark] Baseline file " + baselineFile + " not found");
+            System.exit(1);
+        }
+        Path resultDir = Paths.get(resultFile).toAbsolutePath().getParent();
+        if (resultDir != null) {
+            Files.createDirectories(resultDir);
+        }
+        optionsBuilder.resultFormat(ResultFormatType.JSON).result(resultFile);
+        Collection<RunResult> runResults = new Runner(optionsBuilder.build()).run();
+        if (baselineFile == null) {
+            System.out.println("[Benchmark] No baseline given by -baseline, the regression"
+                    + " check is skipped, keep " + resultFile + " to check the later runs");
+            return;
+        }
+        int regressionCnt = checkBaseline(runResults,
+                loadBaseline(baselineFile), thresholdPercent);
+        if (regressionCnt > 0) {
+            System.out.println("[Benchmark] " + regressionCnt
+                    + " benchmark(s) regressed over the baseline " + baselineFile);
+            System.exit(1);
+        }
+        System.out.println("[Benchmark] No regression over the baseline " + baselineFile);
+    }
+
+    /**
+     * Load the baseline scores from a JMH json result file.
+     *
+     * @param baselineFile    the baseline file
+     * @return                the baseline scores of each benchmark and its parameters
+     * @throws Exception      the exception while reading the file
+     */
+    private static Map<String, Double> loadBaseline(String baselineFile) throws Exception {
+        Map<String, Double> baselineScores = new HashMap<>();
+        try (Reader reader = Files.newBufferedReader(
+                Paths.get(baselineFile), StandardCharsets.UTF_8)) {
+            for (JsonElement element : JsonParser.parseReader(reader).getAsJsonArray()) {
+                JsonObject result = element.getAsJsonObject();
+                Map<String, String> params = new TreeMap<>();
+                if (result.has("params")) {
+                    for (Map.Entry<String, JsonElement> entry : result
+                            .getAsJsonObject("params").entrySet()) {
+                        params.put(entry.getKey(), entry.getValue().getAsString());
+                    }
+                }
+                baselineScores.put(getResultKey(result.get("benchmark").getAsString(),
+                        result.get("mode").getAsString(), params),
+                        result.getAsJsonObject("primaryMetric").get("score").getAsDouble());
+            }
+        }
+        return baselineScores;
+    }
+
+    private static int checkBaseline(Collection<RunResult> runResults,
+            Map<String, Double> baselineScores, double thresholdPercent) {
+        int regressionCnt = 0;
+        for (RunResult runResult : runResults) {
+            Map<String, String> params = new TreeMap<>();
+            for (String paramKey : runResult.getParams().getParamsKeys()) {
+                params.put(paramKey, runResult.getParams().getParam(paramKey));
+            }
+            String mode = runResult.getParams().getMode().shortLabel();
+            String resultKey =
+                    getResultKey(runResult.getParams().getBenchmark(), mode, params);
+            Double baseScore = baselineScores.get(resultKey);
+            if (baseScore == null || baseScore <= 0) {
+                System.out.println("[Benchmark] No baseline of " + resultKey);
+                continue;
+            }
+            double curScore = runResult.getPrimaryResult().getScore();
+            // the throughput modes are better when higher, the time modes when lower
+            double changePercent = "thrpt".equals(mode)
+                    ? (baseScore - curScore) * 100 / baseScore
+                    : (curScore - baseScore) * 100 / baseScore;
+            if (changePercent > thresholdPercent) {
+                regressionCnt++;
+                System.out.println(String.format(
+                        "[Benchmark] REGRESSION %s : baseline %.3f, current %.3f, worse by %.1f%%",
+                        resultKey, baseScore, curScore, changePercent));
+            }
+        }
+        return regressionCnt;
+    }
+
+    private static String getResultKey(String benchmark,
+            String mode, Map<String, String> params) {
+        return benchmark + "(" + mode + ")" + params;
+    }
+}
@@ -33,10 +33,19 @@ public class TClientConstants {
     public static final long CFG_DEFAULT_HEARTBEAT_PERIOD_AFTER_RETRY_FAIL = 60000;
     public static final int CFG_DEFAULT_CLIENT_PUSH_FETCH_THREAD_CNT =
             Runtime.getRuntime().availableProcessors();
+    // 0: call the message listeners in the fetch threads
+    public static final int CFG_DEFAULT_CLIENT_PUSH_LISTENER_THREAD_CNT = 0;
+    public static final int CFG_DEFAULT_PUSH_PREFETCH_BATCH_CNT =
+            2 * Runtime.getRuntime().availableProcessors();
 
     public static final int MAX_CONNECTION_FAILURE_LOG_TIMES = 10;
     public static final int MAX_SUBSCRIBE_REPORT_INTERVAL_TIMES = 6;
 
     public static final long CFG_DEFAULT_META_QUERY_WAIT_PERIOD_MS = 10000L;
     public static final long CFG_MIN_META_QUERY_WAIT_PERIOD_MS = 5000L;
+
+    public static final long CFG_DEFAULT_PRODUCE_BATCH_LINGER_MS = 0L;
+    public static final long CFG_MAX_PRODUCE_BATCH_LINGER_MS = 1000L;
+    public static final int CFG_DEFAULT_PRODUCE_BATCH_MAX_BYTES = 65536;
+    public static final int CFG_MIN_PRODUCE_BATCH_MAX_BYTES = 1024;
 }
@@ -50,6 +50,11 @@ public class ConsumerConfig extends TubeClientConfig {
             TClientConstants.CFG_DEFAULT_META_QUERY_WAIT_PERIOD_MS;
     private int pushFetchThreadCnt =
             TClientConstants.CFG_DEFAULT_CLIENT_PUSH_FETCH_THREAD_CNT;
+    // 0: call the listeners in the fetch threads
+    private int pushListenerThreadCnt =
+            TClientConstants.CFG_DEFAULT_CLIENT_PUSH_LISTENER_THREAD_CNT;
+    private int pushPrefetchBatchCnt =
+            TClientConstants.CFG_DEFAULT_PUSH_PREFETCH_BATCH_CNT;
     private boolean pushListenerWaitTimeoutRollBack = true;
     private boolean pushListenerThrowedRollBack = false;
     private long pushListenerWaitPeriodMs =
@@ -183,6 +188,38 @@ public class ConsumerConfig extends TubeClientConfig {
         }
     }
 
+    public int getPushListenerThreadCnt() {
+        return pushListenerThreadCnt;
+    }
+
+    /**
+     * Set the count of the threads calling the message listeners,
+     * 0 means calling the listeners in the fetch threads
+     *
+     * @param pushListenerThreadCnt  the listener thread count
+     */
+    public void setPushListenerThreadCnt(int pushListenerThreadCnt) {
+        this.pushListenerThreadCnt = Math.max(pushListenerThreadCnt, 0);
+    }
+
+    public int getPushPrefetchBatchCnt() {
+        return pushPrefetchBatchCnt;
+    }
+
+    /**
+     * Set the max count of the fetched batches waiting for or being
+     * consumed by the listener threads
+     *
+     * @param pushPrefetchBatchCnt  the max prefetch batch count
+     */
+    public void setPushPrefetchBatchCnt(int pushPrefetchBatchCnt) {
+        if (pushPrefetchBatchCnt <= 0) {
+            this.pushPrefetchBatchCnt = TClientConstants.CFG_DEFAULT_PUSH_PREFETCH_BATCH_CNT;
+        } else {
+            this.pushPrefetchBatchCnt = pushPrefetchBatchCnt;
+        }
+    }
+
     public boolean isPushListenerWaitTimeoutRollBack() {
         return pushListenerWaitTimeoutRollBack;
     }
@@ -275,6 +312,8 @@ public class ConsumerConfig extends TubeClientConfig {
                 .append(",\"msgNotFoundWaitPeriodMs\":").append(this.msgNotFoundWaitPeriodMs)
                 .append(",\"shutDownRebalanceWaitPeriodMs\":").append(this.shutDownRebalanceWaitPeriodMs)
                 .append(",\"pushFetchThreadCnt\":").append(this.pushFetchThreadCnt)
+                .append(",\"pushListenerThreadCnt\":").append(this.pushListenerThreadCnt)
+                .append(",\"pushPrefetchBatchCnt\":").append(this.pushPrefetchBatchCnt)
                 .append(",\"pushListenerWaitTimeoutRollBack\":").append(this.pushListenerWaitTimeoutRollBack)
                 .append(",\"pushListenerThrowedRollBack\":").append(this.pushListenerThrowedRollBack)
                 .append(",\"pushListenerWaitPeriodMs\":").append(this.pushListenerWaitPeriodMs)
@@ -94,6 +94,11 @@ public class TubeClientConfig {
     private String usrName = "";
     // User password.
     private String usrPassWord = "";
+    // The linger time of the async sent messages in the partition batch,
+    // 0 means the messages are sent one by one.
+    private long produceBatchLingerMs = TClientConstants.CFG_DEFAULT_PRODUCE_BATCH_LINGER_MS;
+    // The max payload bytes of a partition batch.
+    private int produceBatchMaxBytes = TClientConstants.CFG_DEFAULT_PRODUCE_BATCH_MAX_BYTES;
     // TLS configuration.
     private TLSConfig tlsConfig = new TLSConfig();
 
@@ -369,6 +374,38 @@ public class TubeClientConfig {
         this.sessionMaxAllowedDelayedMsgCount = sessionMaxAllowedDelayedMsgCount;
     }
 
+    public long getProduceBatchLingerMs() {
+        return produceBatchLingerMs;
+    }
+
+    /**
+     * Set the linger time of the async sent messages, the messages sent to the same
+     * partition within the linger time are sent to the broker in one request.
+     * The brokers not supporting the batch request, such as the older ones,
+     * receive the messages one by one.
+     *
+     * @param produceBatchLingerMs   the linger time, 0 to disable the batching
+     */
+    public void setProduceBatchLingerMs(long produceBatchLingerMs) {
+        if (produceBatchLingerMs < 0
+                || produceBatchLingerMs > TClientConstants.CFG_MAX_PRODUCE_BATCH_LINGER_MS) {
+            throw new IllegalArgumentException(new StringBuilder(256)
+                    .append("Illegal parameter: produceBatchLingerMs must be in [0, ")
+                    .append(TClientConstants.CFG_MAX_PRODUCE_BATCH_LINGER_MS)
+                    .append("]!").toString());
+        }
+        this.produceBatchLingerMs = produceBatchLingerMs;
+    }
+
+    public int getProduceBatchMaxBytes() {
+        return produceBatchMaxBytes;
+    }
+
+    public void setProduceBatchMaxBytes(int produceBatchMaxBytes) {
+        this.produceBatchMaxBytes = Math.max(produceBatchMaxBytes,
+                TClientConstants.CFG_MIN_PRODUCE_BATCH_MAX_BYTES);
+    }
+
     /**
      * Set authenticate information
      *
@@ -551,6 +588,12 @@ public class TubeClientConfig {
         if (sessionMaxAllowedDelayedMsgCount != that.sessionMaxAllowedDelayedMsgCount) {
             return false;
         }
+        if (produceBatchLingerMs != that.produceBatchLingerMs) {
+            return false;
+        }
+        if (produceBatchMaxBytes != that.produceBatchMaxBytes) {
+            return false;
+        }
         if (enableUserAuthentic != that.enableUserAuthentic) {
             return false;
         }
@@ -613,6 +656,8 @@ public class TubeClientConfig {
                 .append(",\"linkMaxAllowedDelayedMsgCount\":").append(this.linkMaxAllowedDelayedMsgCount)
                 .append(",\"sessionMaxAllowedDelayedMsgCount\":").append(this.sessionMaxAllowedDelayedMsgCount)
                 .append(",\"unAvailableFbdDurationMs\":").append(this.unAvailableFbdDurationMs)
+                .append(",\"produceBatchLingerMs\":").append(this.produceBatchLingerMs)
+                .append(",\"produceBatchMaxBytes\":").append(this.produceBatchMaxBytes)
                 .append(",\"enableUserAuthentic\":").append(this.enableUserAuthentic)
                 .append(",").append(this.statsConfig.toString())
                 .append(",\"usrName\":\"").append(this.usrName)
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatch the fetched messages to the message listeners.
+ *
+ * The fetch workers hand the fetched messages over to the listener threads and go on
+ * fetching the other partitions, so a slow listener no longer stalls the fetch workers.
+ * The fetched but not yet consumed batches are bounded by the prefetch permits: a fetch
+ * worker acquires a permit before selecting a partition and waits when all the permits
+ * are in use, and the permit is released after the listener returns.
+ */
+public class ListenerDispatcher {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(ListenerDispatcher.class);
+
+    private final int maxPrefetchCnt;
+    private final Semaphore prefetchPermits;
+    private final ThreadPoolExecutor listenerExecutor;
+
+    public ListenerDispatcher(String consumerGroup,
+            int listenerThreadCnt, int maxPrefetchCnt) {
+        this.maxPrefetchCnt = maxPrefetchCnt;
+        this.prefetchPermits = new Semaphore(maxPrefetchCnt);
+        final AtomicInteger threadIndex = new AtomicInteger(0);
+        this.listenerExecutor = new ThreadPoolExecutor(listenerThreadCnt,
+                listenerThreadCnt, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r);
+                    t.setName(new StringBuilder(256).append("Listener_Worker_")
+                            .append(consumerGroup).append("-")
+                            .append(threadIndex.getAndIncrement()).toString());
+                    return t;
+                });
+    }
+
+    /**
+     * Acquire a prefetch permit before fetching a partition
+     *
+     * @param waitTimeMs  the max wait time in milliseconds
+     * @return  true if acquired, false if all the permits are still in use
+     * @throws InterruptedException  if the waiting thread is interrupted
+     */
+    public boolean acquire(long waitTimeMs) throws InterruptedException {
+        return prefetchPermits.tryAcquire(waitTimeMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Release the prefetch permit when there are no messages to dispatch
+     */
+    public void release() {
+        prefetchPermits.release();
+    }
+
+    /**
+     * Dispatch a consume task holding an acquired permit,
+     * the permit is released after the task is finished or dropped
+     *
+     * @param consumeTask  the consume task
+     * @param dropTask     the task releasing the fetched partition if the consume task is dropped
+     */
+    public void dispatch(final Runnable consumeTask, final Runnable dropTask) {
+        try {
+            listenerExecutor.execute(new DispatchTask(consumeTask, dropTask));
+        } catch (Throwable e) {
+            prefetchPermits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the count of the dispatched or fetching batches not yet finished
+     *
+     * @return  the pending batch count
+     */
+    public int getPendingCnt() {
+        return maxPrefetchCnt - prefetchPermits.availablePermits();
+    }
+
+    /**
+     * Shutdown the listener threads, the running tasks are interrupted
+     * and the queued tasks are dropped if force is true, the partitions
+     * held by the dropped tasks are released
+     *
+     * @param force  whether to interrupt the running tasks
+     */
+    public void shutdown(boolean force) {
+        if (!force) {
+            listenerExecutor.shutdown();
+            return;
+        }
+        List<Runnable> droppedTasks = listenerExecutor.shutdownNow();
+        for (Runnable task : droppedTasks) {
+            ((DispatchTask) task).drop();
+        }
+    }
+
+    public boolean isShutdown() {
+        return listenerExecutor.isShutdown();
+    }
+
+    private class DispatchTask implements Runnable {
+
+        private final Runnable consumeTask;
+        private final Runnable dropTask;
+
+        private DispatchTask(Runnable consumeTask, Runnable dropTask) {
+            this.consumeTask = consumeTask;
+            this.dropTask = dropTask;
+        }
+
+        @Override
+        public void run() {
+            try {
+                consumeTask.run();
+            } finally {
+                prefetchPermits.release();
+            }
+        }
+
+        private void drop() {
+            try {
+                dropTask.run();
+            } catch (Throwable e) {
+                logger.warn("Release the partition of a dropped consume task failure", e);
+            } finally {
+                prefetchPermits.release();
+            }
+        }
+    }
+}
@@ -26,15 +26,24 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Fetch messages with multiple threads.
+ *
+ * If the listener threads are configured, the fetch workers only select and fetch the
+ * partitions, and the fetched messages are dispatched to the listener threads, so the
+ * fetches of the other partitions go on while the listeners are running. A partition is
+ * kept held until its fetched messages are consumed, so the messages of a partition are
+ * still consumed in order, and the count of the fetched but not consumed batches is
+ * bounded by the prefetch batch count.
  */
 public class MessageFetchManager {
 
     private static final Logger logger =
             LoggerFactory.getLogger(MessageFetchManager.class);
+    private static final long PREFETCH_PERMIT_WAIT_MS = 200L;
     private final ConcurrentHashMap<Long, Integer> fetchWorkerStatusMap =
             new ConcurrentHashMap<>();
     private final ConsumerConfig consumerConfig;
@@ -45,6 +54,7 @@ public class MessageFetchManager {
     // 1: Started
     private AtomicInteger managerStatus = new AtomicInteger(-1);
     private Thread[] fetchWorkerPool;
+    private ListenerDispatcher listenerDispatcher;
 
     public MessageFetchManager(final ConsumerConfig consumerConfig,
             final SimplePushMessageConsumer pushConsumer) {
@@ -74,6 +84,18 @@ public class MessageFetchManager {
                 .append("Prepare to start Fetch Worker Pool, total count:")
                 .append(fetchWorkerPool.length).toString());
         sBuilder.delete(0, sBuilder.length());
+        if (this.consumerConfig.getPushListenerThreadCnt() > 0) {
+            this.listenerDispatcher = new ListenerDispatcher(
+                    this.consumerConfig.getConsumerGroup(),
+                    this.consumerConfig.getPushListenerThreadCnt(),
+                    this.consumerConfig.getPushPrefetchBatchCnt());
+            logger.info(sBuilder
+                    .append("Prepare to start Listener Worker Pool, total count:")
+                    .append(this.consumerConfig.getPushListenerThreadCnt())
+                    .append(", max prefetch batch count:")
+                    .append(this.consumerConfig.getPushPrefetchBatchCnt()).toString());
+            sBuilder.delete(0, sBuilder.length());
+        }
         for (int i = 0; i < this.fetchWorkerPool.length; i++) {
             this.fetchWorkerPool[i] = new Thread(new FetchTaskWorker());
             this.fetchWorkerStatusMap.put(this.fetchWorkerPool[i].getId(), -1);
@@ -126,7 +148,12 @@ public class MessageFetchManager {
             MessageFetchManager.this.pushConsumer.resumeConsume();
         }
         logger.info("[STOP_FetchWorker] Wait all fetch workers exist:");
-        if (waitAllFetchRequestHolds(this.consumerConfig.getPushListenerWaitPeriodMs())) {
+        boolean haveProcessingTask =
+                waitAllFetchRequestHolds(this.consumerConfig.getPushListenerWaitPeriodMs());
+        if (this.listenerDispatcher != null) {
+            this.listenerDispatcher.shutdown(haveProcessingTask);
+        }
+        if (haveProcessingTask) {
             for (final Thread thread : this.fetchWorkerPool) {
                 if (thread != null) {
                     thread.interrupt();
@@ -151,7 +178,9 @@ public class MessageFetchManager {
         long startWaitTime = System.currentTimeMillis();
         do {
             haveProcessingThread =
-                    (!this.fetchWorkerStatusMap.isEmpty());
+                    (!this.fetchWorkerStatusMap.isEmpty()
+                            || (this.listenerDispatcher != null
+                                    && this.listenerDispatcher.getPendingCnt() > 0));
             if (haveProcessingThread) {
                 try {
                     Thread.sleep(150);
@@ -164,15 +193,49 @@ public class MessageFetchManager {
         return haveProcessingThread;
     }
 
+    /**
+     * Fetch the selected partition and dispatch the fetched messages to the listener threads.
+     * The caller holds a prefetch permit, which is released here if nothing is dispatched.
+     *
+     * @param partSelectResult partition select result
+     * @param sBuilder         a string builder
+     */
+    private void dispatchRequest(PartitionSelectResult partSelectResult,
+            final StringBuilder sBuilder) {
+        final long startTime = System.currentTimeMillis();
+        FetchContext taskContext = null;
+        try {
+            taskContext = this.pushConsumer.fetchRequest(partSelectResult, sBuilder);
+        } finally {
+            if (taskContext == null) {
+                this.listenerDispatcher.release();
+            }
+        }
+        if (taskContext == null) {
+            return;
+        }
+        final FetchContext fetchContext = taskContext;
+        try {
+            this.listenerDispatcher.dispatch(() -> MessageFetchManager.this.pushConsumer
+                    .consumeRequest(fetchContext, startTime, new StringBuilder(256)),
+                    () -> MessageFetchManager.this.pushConsumer.releaseRequest(fetchContext));
+        } catch (RejectedExecutionException e) {
+            // the listener threads are stopped, consume in the fetch worker
+            this.pushConsumer.consumeRequest(fetchContext, startTime, sBuilder);
+        }
+    }
+
     private class FetchTaskWorker implements Runnable {
 
         @Override
         public void run() {
             StringBuilder sBuilder = new StringBuilder(256);
             final Long curThreadId = Thread.currentThread().getId();
+            final ListenerDispatcher dispatcher = listenerDispatcher;
             fetchWorkerStatusMap.put(curThreadId, 0);
             while (!isShutdown()) {
                 PartitionSelectResult partSelectResult = null;
+                boolean permitAcquired = false;
                 fetchWorkerStatusMap.put(curThreadId, 0);
                 try {
                     if (isShutdown()) {
@@ -180,6 +243,13 @@ public class MessageFetchManager {
                     }
                     fetchWorkerStatusMap.put(curThreadId, 1);
                     MessageFetchManager.this.pushConsumer.allowConsumeWait();
+                    if (dispatcher != null) {
+                        // wait until the listeners catch up with the prefetched batches
+                        permitAcquired = dispatcher.acquire(PREFETCH_PERMIT_WAIT_MS);
+                        if (!permitAcquired) {
+                            continue;
+                        }
+                    }
                     partSelectResult =
                             MessageFetchManager.this.pushConsumer
                                     .getBaseConsumer().pushSelectPartition();
@@ -215,16 +285,25 @@ public class MessageFetchManager {
                                 .getBaseConsumer()
                                 .pushReqReleasePartition(partSelectResult.getPartition().getPartitionKey(),
                                         partSelectResult.getUsedToken(), false);
+                        partSelectResult = null;
                     }
                     sBuilder.delete(0, sBuilder.length());
                     logger.warn(sBuilder.append("Thread {} has been interrupted 3.")
                             .append(Thread.currentThread().getName()).toString());
                     sBuilder.delete(0, sBuilder.length());
+                } finally {
+                    if (permitAcquired && partSelectResult == null) {
+                        dispatcher.release();
+                    }
                 }
                 fetchWorkerStatusMap.put(curThreadId, 2);
                 if (partSelectResult != null) {
-                    MessageFetchManager.this.pushConsumer.processRequest(
-                            partSelectResult, sBuilder);
+                    if (dispatcher == null) {
+                        MessageFetchManager.this.pushConsumer.processRequest(
+                                partSelectResult, sBuilder);
+                    } else {
+                        dispatchRequest(partSelectResult, sBuilder);
+                    }
                 }
             }
             fetchWorkerStatusMap.remove(curThreadId);
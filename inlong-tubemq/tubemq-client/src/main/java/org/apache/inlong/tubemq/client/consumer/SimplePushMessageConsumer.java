@@ -180,6 +180,22 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
      */
     protected void processRequest(PartitionSelectResult partSelectResult, final StringBuilder sBuilder) {
         final long startTime = System.currentTimeMillis();
+        FetchContext taskContext = fetchRequest(partSelectResult, sBuilder);
+        if (taskContext != null) {
+            consumeRequest(taskContext, startTime, sBuilder);
+        }
+    }
+
+    /**
+     * Fetch the messages of the selected partition, the partition
+     * is kept held until the fetched messages are consumed.
+     *
+     * @param partSelectResult partition select result
+     * @param sBuilder         a string builder
+     * @return the fetch context, null if the fetch failed
+     */
+    protected FetchContext fetchRequest(PartitionSelectResult partSelectResult,
+            final StringBuilder sBuilder) {
         FetchContext taskContext =
                 baseConsumer.fetchMessage(partSelectResult, sBuilder);
         if (!taskContext.isSuccess()) {
@@ -189,8 +205,20 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
                         .append(taskContext.getErrMsg()).toString());
                 sBuilder.delete(0, sBuilder.length());
             }
-            return;
+            return null;
         }
+        return taskContext;
+    }
+
+    /**
+     * Notify the listener of the fetched messages and release the partition.
+     *
+     * @param taskContext the fetch context
+     * @param startTime   the start time of the request
+     * @param sBuilder    a string builder
+     */
+    protected void consumeRequest(FetchContext taskContext,
+            long startTime, final StringBuilder sBuilder) {
         boolean isConsumed = false;
         if (!isShutdown()) {
             if (taskContext.getMessageList() == null
@@ -224,12 +252,25 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
             logger.info(sBuilder.append("Consuming Partition; current processing thread ")
                     .append(Thread.currentThread().getName())
                     .append("-->Process[")
-                    .append(partSelectResult.getPartition().toString())
+                    .append(taskContext.getPartition().toString())
                     .append("] cost:").append(cost).append(" Ms").toString());
             sBuilder.delete(0, sBuilder.length());
         }
     }
 
+    /**
+     * Release the partition of a fetched request which is not consumed,
+     * the messages are fetched again from the current offset
+     *
+     * @param taskContext  the fetched request
+     */
+    protected void releaseRequest(FetchContext taskContext) {
+        baseConsumer.rmtDataCache.succRspRelease(taskContext.getPartition().getPartitionKey(),
+                taskContext.getPartition().getTopic(), taskContext.getUsedToken(),
+                false, isFilterConsume(taskContext.getPartition().getTopic()),
+                taskContext.getCurrOffset(), taskContext.getMaxOffset());
+    }
+
     private boolean notifyListener(final FetchContext request,
             final TopicProcessor topicProcessor,
             final StringBuilder sBuilder) throws Exception {
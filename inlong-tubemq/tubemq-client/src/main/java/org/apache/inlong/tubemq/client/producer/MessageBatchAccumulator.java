@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-partition accumulator of the asynchronously sent messages.
+ *
+ * The messages sent to the same partition are collected into one batch, the batch
+ * is handed to the sender when its payload reaches the max batch bytes, or when the
+ * linger time has passed since its first message was added. Each message keeps its
+ * own callback, so the sender completes the messages of a batch individually.
+ */
+public class MessageBatchAccumulator {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(MessageBatchAccumulator.class);
+    private final long lingerMs;
+    private final int maxBatchBytes;
+    private final BatchSender batchSender;
+    // partition key to the open batch
+    private final ConcurrentHashMap<String, PartitionBatch> openBatches =
+            new ConcurrentHashMap<>();
+    private final ScheduledExecutorService lingerTimer;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    public MessageBatchAccumulator(long lingerMs,
+            int maxBatchBytes, BatchSender batchSender) {
+        this.lingerMs = lingerMs;
+        this.maxBatchBytes = maxBatchBytes;
+        this.batchSender = batchSender;
+        this.lingerTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tube_producer_batch_linger");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Add a message to the batch of its partition.
+     *
+     * @param partition    the partition selected for the message
+     * @param message      the message to be sent
+     * @param payload      the encoded message payload
+     * @param callback     the callback of the message
+     * @return             false if the accumulator has been closed
+     */
+    public boolean append(Partition partition, Message message,
+            byte[] payload, MessageSentCallback callback) {
+        if (closed.get()) {
+            return false;
+        }
+        final String partitionKey = partition.getPartitionKey();
+        Partition readyPartition = null;
+        List<PendingMessage> readyMsgs = null;
+        boolean needSchedule = false;
+        PartitionBatch batch = openBatches.get(partitionKey);
+        if (batch == null) {
+            PartitionBatch tmpBatch = new PartitionBatch(partition);
+            batch = openBatches.putIfAbsent(partitionKey, tmpBatch);
+            if (batch == null) {
+                batch = tmpBatch;
+            }
+        }
+        synchronized (batch) {
+            // re-check under the batch lock, close() flushes each batch under
+            // the same lock after the flag is set, so an accepted message is
+            // either drained by close() or sent by this call
+            if (closed.get()) {
+                return false;
+            }
+            if (batch.pendingMsgs.isEmpty()) {
+                batch.generation++;
+                needSchedule = true;
+            }
+            batch.partition = partition;
+            batch.pendingMsgs.add(new PendingMessage(message, payload, callback));
+            batch.pendingBytes += payload.length;
+            if (batch.pendingBytes >= maxBatchBytes) {
+                readyPartition = batch.partition;
+                readyMsgs = batch.drain();
+                needSchedule = false;
+            }
+        }
+        if (needSchedule) {
+            final PartitionBatch lingerBatch = batch;
+            final long generation = batch.generation;
+            try {
+                lingerTimer.schedule(() -> flushBatch(lingerBatch, generation),
+                        lingerMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // closed after the message was added, close() sends the batch
+            }
+        }
+        if (readyMsgs != null) {
+            batchSender.sendBatch(readyPartition, readyMsgs);
+        }
+        return true;
+    }
+
+    /**
+     * Send all the pending batches and stop the linger timer.
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        lingerTimer.shutdownNow();
+        for (PartitionBatch batch : openBatches.values()) {
+            flushBatch(batch, -1);
+        }
+        openBatches.clear();
+    }
+
+    public int getPendingMsgCount() {
+        int count = 0;
+        for (PartitionBatch batch : openBatches.values()) {
+            synchronized (batch) {
+                count += batch.pendingMsgs.size();
+            }
+        }
+        return count;
+    }
+
+    private void flushBatch(PartitionBatch batch, long generation) {
+        List<PendingMessage> readyMsgs;
+        Partition partition;
+        synchronized (batch) {
+            // the batch has been sent by size since the timer was set
+            if (generation >= 0 && generation != batch.generation) {
+                return;
+            }
+            if (batch.pendingMsgs.isEmpty()) {
+                return;
+            }
+            partition = batch.partition;
+            readyMsgs = batch.drain();
+        }
+        try {
+            batchSender.sendBatch(partition, readyMsgs);
+        } catch (Throwable e) {
+            logger.error("[Producer] send batch of " + partition.getPartitionKey() + " failure", e);
+        }
+    }
+
+    /**
+     * The sender of the ready batches.
+     */
+    public interface BatchSender {
+
+        void sendBatch(Partition partition, List<PendingMessage> pendingMsgs);
+    }
+
+    /**
+     * A message waiting in a batch.
+     */
+    public static class PendingMessage {
+
+        private final Message message;
+        private final byte[] payload;
+        private final MessageSentCallback callback;
+
+        public PendingMessage(Message message, byte[] payload,
+                MessageSentCallback callback) {
+            this.message = message;
+            this.payload = payload;
+            this.callback = callback;
+        }
+
+        public Message getMessage() {
+            return message;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+
+        public MessageSentCallback getCallback() {
+            return callback;
+        }
+    }
+
+    private static class PartitionBatch {
+
+        private Partition partition;
+        private List<PendingMessage> pendingMsgs = new ArrayList<>();
+        private int pendingBytes = 0;
+        // increased when the batch is opened, to discard the stale linger timers
+        private long generation = 0;
+
+        public PartitionBatch(Partition partition) {
+            this.partition = partition;
+        }
+
+        private List<PendingMessage> drain() {
+            List<PendingMessage> readyMsgs = pendingMsgs;
+            pendingMsgs = new ArrayList<>();
+            pendingBytes = 0;
+            return readyMsgs;
+        }
+    }
+}
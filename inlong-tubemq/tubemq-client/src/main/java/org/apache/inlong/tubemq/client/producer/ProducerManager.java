@@ -381,6 +381,19 @@ public class ProducerManager {
         return builder;
     }
 
+    public ClientBroker.SendBatchMessageRequestP2B.Builder setAuthorizedTokenInfo(
+            ClientBroker.SendBatchMessageRequestP2B.Builder builder) {
+        ClientBroker.AuthorizedInfo.Builder authInfoBuilder =
+                ClientBroker.AuthorizedInfo.newBuilder();
+        authInfoBuilder.setVisitAuthorizedToken(this.visitToken.get());
+        String authAuthorizedToken = this.authAuthorizedTokenRef.get();
+        if (TStringUtils.isNotBlank(authAuthorizedToken)) {
+            authInfoBuilder.setAuthAuthorizedToken(authAuthorizedToken);
+        }
+        builder.setAuthInfo(authInfoBuilder.build());
+        return builder;
+    }
+
     /**
      * Remove published topics. We will ignore null topics or non-published topics.
      *
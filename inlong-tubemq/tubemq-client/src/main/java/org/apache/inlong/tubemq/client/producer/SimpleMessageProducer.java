@@ -34,6 +34,7 @@ import org.apache.inlong.tubemq.corerpc.RpcConfig;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.RpcServiceFactory;
 import org.apache.inlong.tubemq.corerpc.client.Callback;
+import org.apache.inlong.tubemq.corerpc.codec.PbEnDecoder;
 import org.apache.inlong.tubemq.corerpc.exception.LocalConnException;
 import org.apache.inlong.tubemq.corerpc.service.BrokerWriteService;
 
@@ -67,6 +68,11 @@ public class SimpleMessageProducer implements MessageProducer {
     private final DefaultBrokerRcvQltyStats brokerRcvQltyStats;
     private final RpcConfig rpcConfig = new RpcConfig();
     private final AtomicBoolean isShutDown = new AtomicBoolean(false);
+    // the accumulator of the async sent messages, null if the batching is disabled
+    private final MessageBatchAccumulator batchAccumulator;
+    // the brokers not supporting the batch send, such as the older brokers,
+    // the messages to them are sent one by one
+    private final Set<Integer> batchUnsupportedBrokers = ConcurrentHashMap.newKeySet();
 
     /**
      * Initial a producer object
@@ -104,6 +110,13 @@ public class SimpleMessageProducer implements MessageProducer {
                 tubeClientConfig.getRpcNettyWorkMemorySize());
         this.rpcConfig.put(RpcConstants.CALLBACK_WORKER_COUNT,
                 tubeClientConfig.getRpcRspCallBackThreadCnt());
+        if (tubeClientConfig.getProduceBatchLingerMs() > 0) {
+            this.batchAccumulator = new MessageBatchAccumulator(
+                    tubeClientConfig.getProduceBatchLingerMs(),
+                    tubeClientConfig.getProduceBatchMaxBytes(), this::sendBatchMessage);
+        } else {
+            this.batchAccumulator = null;
+        }
     }
 
     /**
@@ -200,6 +213,9 @@ public class SimpleMessageProducer implements MessageProducer {
             return;
         }
         if (this.isShutDown.compareAndSet(false, true)) {
+            if (this.batchAccumulator != null) {
+                this.batchAccumulator.close();
+            }
             this.producerManager.removeTopic(publishTopicMap.keySet());
             this.publishTopicMap.clear();
             this.sessionFactory.removeClient(this);
@@ -253,10 +269,23 @@ public class SimpleMessageProducer implements MessageProducer {
         }
         final Partition partition =
                 this.selectPartition(message, BrokerWriteService.AsyncService.class);
+        if (this.batchAccumulator != null
+                && !this.batchUnsupportedBrokers.contains(partition.getBrokerId())
+                && this.batchAccumulator.append(partition, message, encodePayload(message), cb)) {
+            return;
+        }
+        this.brokerRcvQltyStats.addSendStatistic(partition.getBrokerId());
+        sendSingleMessage(partition, message, cb);
+    }
+
+    /**
+     * Send a message asynchronously, the send statistic has been added by the caller
+     */
+    private void sendSingleMessage(final Partition partition,
+            final Message message, final MessageSentCallback cb) {
         final int brokerId = partition.getBrokerId();
-        long startTime = System.currentTimeMillis();
+        final long startTime = System.currentTimeMillis();
         try {
-            this.brokerRcvQltyStats.addSendStatistic(brokerId);
             getAsyncBrokerService(partition.getBroker()).sendMessageP2B(
                     createSendMessageRequest(partition, message),
                     AddressUtils.getLocalAddress(), producerConfig.isTlsEnable(),
@@ -304,6 +333,97 @@ public class SimpleMessageProducer implements MessageProducer {
         }
     }
 
+    private void sendBatchMessage(final Partition partition,
+            final List<MessageBatchAccumulator.PendingMessage> pendingMsgs) {
+        final int brokerId = partition.getBrokerId();
+        final long startTime = System.currentTimeMillis();
+        for (int i = 0; i < pendingMsgs.size(); i++) {
+            this.brokerRcvQltyStats.addSendStatistic(brokerId);
+        }
+        // accumulated before the broker was found not supporting the batch send
+        if (this.batchUnsupportedBrokers.contains(brokerId)) {
+            sendSingleMessages(partition, pendingMsgs);
+            return;
+        }
+        try {
+            getAsyncBrokerService(partition.getBroker()).sendBatchMessageP2B(
+                    createSendBatchMessageRequest(partition, pendingMsgs),
+                    AddressUtils.getLocalAddress(), producerConfig.isTlsEnable(),
+                    new Callback() {
+
+                        @Override
+                        public void handleResult(Object result) {
+                            if (!(result instanceof ClientBroker.SendBatchMessageResponseB2P)) {
+                                return;
+                            }
+                            final ClientBroker.SendBatchMessageResponseB2P responseB2P =
+                                    (ClientBroker.SendBatchMessageResponseB2P) result;
+                            final long dltTime = System.currentTimeMillis() - startTime;
+                            partition.resetRetries();
+                            if (!responseB2P.getSuccess()
+                                    && responseB2P.getErrCode() == TErrCodeConstants.SERVICE_UNAVAILABLE) {
+                                rpcServiceFactory.addUnavailableBroker(brokerId);
+                            }
+                            for (int i = 0; i < pendingMsgs.size(); i++) {
+                                MessageBatchAccumulator.PendingMessage pendingMsg = pendingMsgs.get(i);
+                                MessageSentResult rt;
+                                if (responseB2P.getSuccess() && i < responseB2P.getMsgResultsCount()) {
+                                    rt = buildBatchMsgSentResult(dltTime, pendingMsg.getMessage(),
+                                            partition, responseB2P.getMsgResults(i));
+                                } else {
+                                    producerManager.getClientMetrics()
+                                            .bookFailRpcCall(responseB2P.getErrCode());
+                                    rt = new MessageSentResult(false, responseB2P.getErrCode(),
+                                            responseB2P.getErrMsg(), pendingMsg.getMessage(),
+                                            TBaseConstants.META_VALUE_UNDEFINED, partition);
+                                }
+                                brokerRcvQltyStats.addReceiveStatistic(brokerId, rt.isSuccess());
+                                pendingMsg.getCallback().onMessageSent(rt);
+                            }
+                        }
+
+                        @Override
+                        public void handleError(Throwable error) {
+                            if (PbEnDecoder.isUnsupportedMethodError(error,
+                                    RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDBATCHMESSAGE)) {
+                                if (batchUnsupportedBrokers.add(brokerId)) {
+                                    logger.warn(new StringBuilder(512)
+                                            .append("[Producer] broker ").append(brokerId)
+                                            .append(" does not support the batch send,")
+                                            .append(" send the messages one by one").toString());
+                                }
+                                sendSingleMessages(partition, pendingMsgs);
+                                return;
+                            }
+                            producerManager.getClientMetrics().bookFailRpcCall(
+                                    TErrCodeConstants.UNSPECIFIED_ABNORMAL);
+                            partition.increRetries(1);
+                            for (MessageBatchAccumulator.PendingMessage pendingMsg : pendingMsgs) {
+                                brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+                                pendingMsg.getCallback().onException(error);
+                            }
+                        }
+                    });
+            rpcServiceFactory.resetRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+        } catch (final Throwable e) {
+            if (e instanceof LocalConnException) {
+                rpcServiceFactory.addRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+            }
+            partition.increRetries(1);
+            for (MessageBatchAccumulator.PendingMessage pendingMsg : pendingMsgs) {
+                this.brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+                pendingMsg.getCallback().onException(e);
+            }
+        }
+    }
+
+    private void sendSingleMessages(final Partition partition,
+            final List<MessageBatchAccumulator.PendingMessage> pendingMsgs) {
+        for (MessageBatchAccumulator.PendingMessage pendingMsg : pendingMsgs) {
+            sendSingleMessage(partition, pendingMsg.getMessage(), pendingMsg.getCallback());
+        }
+    }
+
     private MessageSentResult checkMessageAndStatus(final Message message) {
         if (message == null) {
             return new MessageSentResult(message, false,
@@ -371,6 +491,33 @@ public class SimpleMessageProducer implements MessageProducer {
         return builder.build();
     }
 
+    private ClientBroker.SendBatchMessageRequestP2B createSendBatchMessageRequest(
+            Partition partition, List<MessageBatchAccumulator.PendingMessage> pendingMsgs) {
+        ClientBroker.SendBatchMessageRequestP2B.Builder builder =
+                ClientBroker.SendBatchMessageRequestP2B.newBuilder();
+        builder.setClientId(this.producerManager.getProducerId());
+        builder.setTopicName(partition.getTopic());
+        builder.setPartitionId(partition.getPartitionId());
+        builder.setSentAddr(this.producerManager.getProducerAddrId());
+        for (MessageBatchAccumulator.PendingMessage pendingMsg : pendingMsgs) {
+            Message message = pendingMsg.getMessage();
+            ClientBroker.BatchMessageItemP2B.Builder itemBuilder =
+                    ClientBroker.BatchMessageItemP2B.newBuilder();
+            itemBuilder.setData(ByteString.copyFrom(pendingMsg.getPayload()));
+            itemBuilder.setFlag(MessageFlagUtils.getFlag(message));
+            itemBuilder.setCheckSum(-1);
+            if (TStringUtils.isNotBlank(message.getMsgType())) {
+                itemBuilder.setMsgType(message.getMsgType());
+            }
+            if (TStringUtils.isNotBlank(message.getMsgTime())) {
+                itemBuilder.setMsgTime(message.getMsgTime());
+            }
+            builder.addMsgItems(itemBuilder);
+        }
+        builder = this.producerManager.setAuthorizedTokenInfo(builder);
+        return builder.build();
+    }
+
     private byte[] encodePayload(final Message message) {
         final byte[] payload = message.getData();
         final String attribute = message.getAttribute();
@@ -410,6 +557,24 @@ public class SimpleMessageProducer implements MessageProducer {
         }
     }
 
+    private MessageSentResult buildBatchMsgSentResult(final long dltTime,
+            final Message message,
+            final Partition partition,
+            final ClientBroker.BatchMessageResultB2P msgResult) {
+        if (msgResult.getErrCode() == TErrCodeConstants.SUCCESS) {
+            producerManager.getClientMetrics().bookSuccSendMsg(dltTime,
+                    message.getTopic(), partition.getPartitionKey(), message.getData().length);
+            return new MessageSentResult(true,
+                    msgResult.getErrCode(), "Ok!",
+                    message, msgResult.getMessageId(), partition,
+                    msgResult.getAppendTime(), msgResult.getAppendOffset());
+        } else {
+            producerManager.getClientMetrics().bookFailRpcCall(msgResult.getErrCode());
+            return new MessageSentResult(false, msgResult.getErrCode(), msgResult.getErrMsg(),
+                    message, TBaseConstants.META_VALUE_UNDEFINED, partition);
+        }
+    }
+
     private Partition selectPartition(final Message message,
             Class clazz) throws TubeClientException {
         String topic = message.getTopic();
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.consumer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ListenerDispatcher test.
+ */
+public class ListenerDispatcherTest {
+
+    @Test
+    public void testPrefetchBackpressure() throws Exception {
+        ListenerDispatcher dispatcher = new ListenerDispatcher("test", 1, 2);
+        final CountDownLatch blockLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(2);
+        Assert.assertTrue(dispatcher.acquire(10L));
+        dispatcher.dispatch(() -> {
+            try {
+                blockLatch.await();
+            } catch (InterruptedException e) {
+                //
+            }
+            doneLatch.countDown();
+        }, () -> {
+        });
+        Assert.assertTrue(dispatcher.acquire(10L));
+        dispatcher.dispatch(doneLatch::countDown, () -> {
+        });
+        // the slow listener holds all the prefetch permits
+        Assert.assertEquals(2, dispatcher.getPendingCnt());
+        Assert.assertFalse(dispatcher.acquire(10L));
+        blockLatch.countDown();
+        Assert.assertTrue(doneLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(dispatcher.acquire(1000L));
+        dispatcher.release();
+        // the permits are released after the listeners return
+        long waitEndTime = System.currentTimeMillis() + 5000L;
+        while (dispatcher.getPendingCnt() > 0
+                && System.currentTimeMillis() < waitEndTime) {
+            Thread.sleep(10L);
+        }
+        Assert.assertEquals(0, dispatcher.getPendingCnt());
+        dispatcher.shutdown(false);
+        Assert.assertTrue(dispatcher.isShutdown());
+    }
+
+    @Test
+    public void testForceShutdownReleasesQueuedTasks() throws Exception {
+        ListenerDispatcher dispatcher = new ListenerDispatcher("test", 1, 3);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch blockLatch = new CountDownLatch(1);
+        final AtomicInteger consumedCnt = new AtomicInteger(0);
+        final AtomicInteger droppedCnt = new AtomicInteger(0);
+        Assert.assertTrue(dispatcher.acquire(10L));
+        dispatcher.dispatch(() -> {
+            startLatch.countDown();
+            try {
+                blockLatch.await();
+            } catch (InterruptedException e) {
+                //
+            }
+            consumedCnt.incrementAndGet();
+        }, droppedCnt::incrementAndGet);
+        Assert.assertTrue(startLatch.await(5, TimeUnit.SECONDS));
+        // the queued tasks behind the running one
+        for (int i = 0; i < 2; i++) {
+            Assert.assertTrue(dispatcher.acquire(10L));
+            dispatcher.dispatch(consumedCnt::incrementAndGet, droppedCnt::incrementAndGet);
+        }
+        Assert.assertEquals(3, dispatcher.getPendingCnt());
+        dispatcher.shutdown(true);
+        // the queued tasks are dropped and their partitions released
+        Assert.assertEquals(2, droppedCnt.get());
+        long waitEndTime = System.currentTimeMillis() + 5000L;
+        while (dispatcher.getPendingCnt() > 0
+                && System.currentTimeMillis() < waitEndTime) {
+            Thread.sleep(10L);
+        }
+        // the running task is interrupted and finishes by itself
+        Assert.assertEquals(0, dispatcher.getPendingCnt());
+        Assert.assertEquals(1, consumedCnt.get());
+    }
+}
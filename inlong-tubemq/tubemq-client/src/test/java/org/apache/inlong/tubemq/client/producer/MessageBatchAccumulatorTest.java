@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class MessageBatchAccumulatorTest {
+
+    private static final MessageSentCallback NOOP_CALLBACK = new MessageSentCallback() {
+
+        @Override
+        public void onMessageSent(MessageSentResult result) {
+        }
+
+        @Override
+        public void onException(Throwable e) {
+        }
+    };
+
+    @Test
+    public void testSendBySize() {
+        final List<List<MessageBatchAccumulator.PendingMessage>> sentBatches =
+                new CopyOnWriteArrayList<>();
+        MessageBatchAccumulator accumulator = new MessageBatchAccumulator(
+                1000L, 1024, (partition, pendingMsgs) -> sentBatches.add(pendingMsgs));
+        Partition partition = new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+        Message message = new Message("test", new byte[300]);
+        for (int i = 0; i < 7; i++) {
+            Assert.assertTrue(accumulator.append(partition, message, message.getData(), NOOP_CALLBACK));
+        }
+        // the batch is sent once its payload reaches the max batch bytes
+        Assert.assertEquals(1, sentBatches.size());
+        Assert.assertEquals(4, sentBatches.get(0).size());
+        Assert.assertEquals(3, accumulator.getPendingMsgCount());
+        // the pending messages are sent on close
+        accumulator.close();
+        Assert.assertEquals(2, sentBatches.size());
+        Assert.assertEquals(3, sentBatches.get(1).size());
+        Assert.assertFalse(accumulator.append(partition, message, message.getData(), NOOP_CALLBACK));
+    }
+
+    @Test
+    public void testSendByLinger() throws Exception {
+        final CountDownLatch sentLatch = new CountDownLatch(2);
+        final List<Partition> sentPartitions = new CopyOnWriteArrayList<>();
+        MessageBatchAccumulator accumulator = new MessageBatchAccumulator(
+                50L, 65536, (partition, pendingMsgs) -> {
+                    sentPartitions.add(partition);
+                    sentLatch.countDown();
+                });
+        BrokerInfo brokerInfo = new BrokerInfo("0:127.0.0.1:18080");
+        Partition partition0 = new Partition(brokerInfo, "test", 0);
+        Partition partition1 = new Partition(brokerInfo, "test", 1);
+        Message message = new Message("test", new byte[10]);
+        accumulator.append(partition0, message, message.getData(), NOOP_CALLBACK);
+        accumulator.append(partition1, message, message.getData(), NOOP_CALLBACK);
+        accumulator.append(partition0, message, message.getData(), NOOP_CALLBACK);
+        // each partition batch is sent after the linger time
+        Assert.assertTrue(sentLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, sentPartitions.size());
+        Assert.assertEquals(0, accumulator.getPendingMsgCount());
+        accumulator.close();
+    }
+
+    @Test
+    public void testConcurrentAppendAndClose() throws Exception {
+        final AtomicInteger sentCount = new AtomicInteger(0);
+        final AtomicInteger acceptedCount = new AtomicInteger(0);
+        final AtomicReference<Throwable> appendError = new AtomicReference<>();
+        final MessageBatchAccumulator accumulator = new MessageBatchAccumulator(
+                1L, 4096, (partition, pendingMsgs) -> sentCount.addAndGet(pendingMsgs.size()));
+        final BrokerInfo brokerInfo = new BrokerInfo("0:127.0.0.1:18080");
+        final Message message = new Message("test", new byte[100]);
+        final int threadCnt = 4;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(threadCnt);
+        for (int i = 0; i < threadCnt; i++) {
+            final Partition partition = new Partition(brokerInfo, "test", i % 2);
+            new Thread(() -> {
+                try {
+                    startLatch.await();
+                    while (accumulator.append(partition, message, message.getData(), NOOP_CALLBACK)) {
+                        acceptedCount.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    appendError.set(e);
+                } finally {
+                    doneLatch.countDown();
+                }
+            }).start();
+        }
+        startLatch.countDown();
+        Thread.sleep(50);
+        accumulator.close();
+        Assert.assertTrue(doneLatch.await(5, TimeUnit.SECONDS));
+        // every accepted message is sent, and no append fails after close
+        Assert.assertNull(appendError.get());
+        Assert.assertEquals(acceptedCount.get(), sentCount.get());
+        Assert.assertEquals(0, accumulator.getPendingMsgCount());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import org.apache.inlong.tubemq.client.common.ClientStatsInfo;
+import org.apache.inlong.tubemq.client.config.TubeClientConfig;
+import org.apache.inlong.tubemq.client.factory.InnerSessionFactory;
+import org.apache.inlong.tubemq.client.producer.qltystats.DefaultBrokerRcvQltyStats;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.corerpc.RpcConfig;
+import org.apache.inlong.tubemq.corerpc.RpcServiceFactory;
+import org.apache.inlong.tubemq.corerpc.client.Callback;
+import org.apache.inlong.tubemq.corerpc.service.BrokerWriteService;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SimpleMessageProducerTest {
+
+    @Test
+    public void testBatchFallbackOnOlderBroker() throws Throwable {
+        BrokerWriteService.AsyncService brokerService = mock(BrokerWriteService.AsyncService.class);
+        // an older broker rejects the batch method it does not know
+        doAnswer(invocation -> {
+            ((Callback) invocation.getArguments()[3]).handleError(new Exception(
+                    "IPC server handle request error :Unsupported method ID :23"));
+            return null;
+        }).when(brokerService).sendBatchMessageP2B(any(ClientBroker.SendBatchMessageRequestP2B.class),
+                anyString(), anyBoolean(), any(Callback.class));
+        doAnswer(invocation -> {
+            ((Callback) invocation.getArguments()[3]).handleResult(
+                    ClientBroker.SendMessageResponseB2P.newBuilder().setSuccess(true)
+                            .setErrCode(TErrCodeConstants.SUCCESS).setErrMsg("0").build());
+            return null;
+        }).when(brokerService).sendMessageP2B(any(ClientBroker.SendMessageRequestP2B.class),
+                anyString(), anyBoolean(), any(Callback.class));
+        SimpleMessageProducer producer = newProducer(brokerService);
+        Partition partition = new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+        AtomicInteger succCnt = new AtomicInteger(0);
+
+        Whitebox.invokeMethod(producer, "sendBatchMessage", partition, newPendingMsgs(3, succCnt));
+        Assert.assertEquals(3, succCnt.get());
+        verify(brokerService, times(1)).sendBatchMessageP2B(any(ClientBroker.SendBatchMessageRequestP2B.class),
+                anyString(), anyBoolean(), any(Callback.class));
+        verify(brokerService, times(3)).sendMessageP2B(any(ClientBroker.SendMessageRequestP2B.class),
+                anyString(), anyBoolean(), any(Callback.class));
+
+        // the later batches to the broker are sent one by one
+        Whitebox.invokeMethod(producer, "sendBatchMessage", partition, newPendingMsgs(2, succCnt));
+        Assert.assertEquals(5, succCnt.get());
+        verify(brokerService, times(1)).sendBatchMessageP2B(any(ClientBroker.SendBatchMessageRequestP2B.class),
+                anyString(), anyBoolean(), any(Callback.class));
+        verify(brokerService, times(5)).sendMessageP2B(any(ClientBroker.SendMessageRequestP2B.class),
+                anyString(), anyBoolean(), any(Callback.class));
+    }
+
+    @Test
+    public void testBatchOtherErrorNotFallback() throws Throwable {
+        BrokerWriteService.AsyncService brokerService = mock(BrokerWriteService.AsyncService.class);
+        doAnswer(invocation -> {
+            ((Callback) invocation.getArguments()[3]).handleError(new Exception("Request is timeout!"));
+            return null;
+        }).when(brokerService).sendBatchMessageP2B(any(ClientBroker.SendBatchMessageRequestP2B.class),
+                anyString(), anyBoolean(), any(Callback.class));
+        SimpleMessageProducer producer = newProducer(brokerService);
+        Partition partition = new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+        AtomicInteger errCnt = new AtomicInteger(0);
+        List<MessageBatchAccumulator.PendingMessage> pendingMsgs = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            pendingMsgs.add(new MessageBatchAccumulator.PendingMessage(
+                    new Message("test", new byte[]{1, 2, 3}), new byte[]{1, 2, 3},
+                    new MessageSentCallback() {
+
+                        @Override
+                        public void onMessageSent(MessageSentResult result) {
+                        }
+
+                        @Override
+                        public void onException(Throwable e) {
+                            errCnt.incrementAndGet();
+                        }
+                    }));
+        }
+        Whitebox.invokeMethod(producer, "sendBatchMessage", partition, pendingMsgs);
+        Assert.assertEquals(2, errCnt.get());
+        verify(brokerService, times(0)).sendMessageP2B(any(ClientBroker.SendMessageRequestP2B.class),
+                anyString(), anyBoolean(), any(Callback.class));
+    }
+
+    private SimpleMessageProducer newProducer(
+            BrokerWriteService.AsyncService brokerService) throws Exception {
+        ProducerManager producerManager = mock(ProducerManager.class);
+        when(producerManager.getClientMetrics()).thenReturn(mock(ClientStatsInfo.class));
+        when(producerManager.getProducerId()).thenReturn("producer");
+        when(producerManager.setAuthorizedTokenInfo(any(ClientBroker.SendMessageRequestP2B.Builder.class)))
+                .thenAnswer(invocation -> invocation.getArguments()[0]);
+        when(producerManager.setAuthorizedTokenInfo(any(ClientBroker.SendBatchMessageRequestP2B.Builder.class)))
+                .thenAnswer(invocation -> invocation.getArguments()[0]);
+        RpcServiceFactory rpcServiceFactory = mock(RpcServiceFactory.class);
+        when(rpcServiceFactory.getService(eq(BrokerWriteService.AsyncService.class),
+                any(BrokerInfo.class), any(RpcConfig.class))).thenReturn(brokerService);
+        InnerSessionFactory sessionFactory = mock(InnerSessionFactory.class);
+        when(sessionFactory.getRpcServiceFactory()).thenReturn(rpcServiceFactory);
+        when(sessionFactory.getProducerManager()).thenReturn(producerManager);
+        when(sessionFactory.getBrokerRcvQltyStats()).thenReturn(mock(DefaultBrokerRcvQltyStats.class));
+        TubeClientConfig clientConfig = new TubeClientConfig("127.0.0.1:18080");
+        clientConfig.setProduceBatchLingerMs(10);
+        return new SimpleMessageProducer(sessionFactory, clientConfig);
+    }
+
+    private List<MessageBatchAccumulator.PendingMessage> newPendingMsgs(
+            int msgCnt, AtomicInteger succCnt) {
+        List<MessageBatchAccumulator.PendingMessage> pendingMsgs = new ArrayList<>();
+        for (int i = 0; i < msgCnt; i++) {
+            pendingMsgs.add(new MessageBatchAccumulator.PendingMessage(
+                    new Message("test", new byte[]{1, 2, 3}), new byte[]{1, 2, 3},
+                    new MessageSentCallback() {
+
+                        @Override
+                        public void onMessageSent(MessageSentResult result) {
+                            if (result.isSuccess()) {
+                                succCnt.incrementAndGet();
+                            }
+                        }
+
+                        @Override
+                        public void onException(Throwable e) {
+                        }
+                    }));
+        }
+        return pendingMsgs;
+    }
+}
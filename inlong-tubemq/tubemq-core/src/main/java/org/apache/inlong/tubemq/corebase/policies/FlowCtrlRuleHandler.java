@@ -29,12 +29,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.TimeZone;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -43,7 +41,8 @@ import java.util.concurrent.locks.ReentrantLock;
 /**
  * Flow control rule processing logic, including parsing the flow control json string,
  * obtaining the largest and smallest flow control values of each type to improve
- * the processing speed
+ * the processing speed. The parsed rules are compiled into a lookup table once per update,
+ * the evaluations on the fetch path read the current table without lock.
  */
 public class FlowCtrlRuleHandler {
 
@@ -51,7 +50,6 @@ public class FlowCtrlRuleHandler {
     private final String flowCtrlName;
     private static final Logger logger =
             LoggerFactory.getLogger(FlowCtrlRuleHandler.class);
-    private final TimeZone timeZone = TimeZone.getTimeZone("GMT+8:00");
     private final ReentrantLock writeLock = new ReentrantLock();
     // Flow control ID and string information obtained from the server
     private AtomicLong flowCtrlId =
@@ -59,24 +57,11 @@ public class FlowCtrlRuleHandler {
     private AtomicInteger qryPriorityId =
             new AtomicInteger(TBaseConstants.META_VALUE_UNDEFINED);
     private String strFlowCtrlInfo;
-    // The maximum interval of the flow control extracts the set of values,
-    // improving the efficiency of the search return in the range
-    private AtomicInteger minZeroCnt =
-            new AtomicInteger(Integer.MAX_VALUE);
-    private AtomicLong minDataLimitDlt =
-            new AtomicLong(Long.MAX_VALUE);
-    private AtomicInteger dataLimitStartTime =
-            new AtomicInteger(2500);
-    private AtomicInteger dataLimitEndTime =
-            new AtomicInteger(TBaseConstants.META_VALUE_UNDEFINED);
-    private FlowCtrlItem filterCtrlItem =
-            new FlowCtrlItem(3, TBaseConstants.META_VALUE_UNDEFINED,
-                    TBaseConstants.META_VALUE_UNDEFINED, TBaseConstants.META_VALUE_UNDEFINED);
     private long lastUpdateTime =
             System.currentTimeMillis();
-    // Decoded flow control rules
-    private Map<Integer, List<FlowCtrlItem>> flowCtrlRuleSet =
-            new ConcurrentHashMap<>();
+    // Compiled flow control rules
+    private volatile FlowCtrlRuleTable ruleTable =
+            FlowCtrlRuleTable.EMPTY_TABLE;
 
     public FlowCtrlRuleHandler(boolean isDefault) {
         this.isDefaultHandler = isDefault;
@@ -112,13 +97,11 @@ public class FlowCtrlRuleHandler {
         try {
             befFlowCtrlId = this.flowCtrlId.getAndSet(flowCtrlId);
             this.strFlowCtrlInfo = flowCtrlInfo;
-            clearStatisData();
             if (flowCtrlItemsMap == null
                     || flowCtrlItemsMap.isEmpty()) {
-                this.flowCtrlRuleSet.clear();
+                this.ruleTable = FlowCtrlRuleTable.EMPTY_TABLE;
             } else {
-                flowCtrlRuleSet = flowCtrlItemsMap;
-                initialStatisData();
+                this.ruleTable = new FlowCtrlRuleTable(flowCtrlItemsMap);
             }
             if (qryPriorityId != TBaseConstants.META_VALUE_UNDEFINED
                     && qryPriorityId != this.qryPriorityId.get()) {
@@ -147,129 +130,23 @@ public class FlowCtrlRuleHandler {
      * @return FlowCtrlResult  current flow control policy
      */
     public FlowCtrlResult getCurDataLimit(long lastDataDlt) {
-        Calendar rightNow = Calendar.getInstance(timeZone);
-        int hour = rightNow.get(Calendar.HOUR_OF_DAY);
-        int minu = rightNow.get(Calendar.MINUTE);
-        int curTime = hour * 100 + minu;
-        if (lastDataDlt < this.minDataLimitDlt.get()
-                || curTime < this.dataLimitStartTime.get()
-                || curTime > this.dataLimitEndTime.get()) {
-            return null;
-        }
-        List<FlowCtrlItem> flowCtrlItemList =
-                flowCtrlRuleSet.get(0);
-        if (flowCtrlItemList == null
-                || flowCtrlItemList.isEmpty()) {
-            return null;
-        }
-        for (FlowCtrlItem flowCtrlItem : flowCtrlItemList) {
-            if (flowCtrlItem == null) {
-                continue;
-            }
-            FlowCtrlResult flowCtrlResult =
-                    flowCtrlItem.getDataLimit(lastDataDlt, hour, minu);
-            if (flowCtrlResult != null) {
-                return flowCtrlResult;
-            }
-        }
-        return null;
+        return this.ruleTable.getDataLimit(lastDataDlt, System.currentTimeMillis());
     }
 
     public int getNormFreqInMs() {
-        return this.filterCtrlItem.getFreqLtInMs();
+        return this.ruleTable.getFilterCtrlItem().getFreqLtInMs();
     }
 
     public int getMinDataFreqInMs() {
-        return this.filterCtrlItem.getZeroCnt();
+        return this.ruleTable.getFilterCtrlItem().getZeroCnt();
     }
 
     public FlowCtrlItem getFilterCtrlItem() {
-        return this.filterCtrlItem;
-    }
-
-    /**
-     * Initial data limit statistics
-     */
-    private void initialStatisData() {
-        initialDataLimitStatisInfo();
-        initialFreqLimitStatisInfo();
-        initialLowFetchLimitStatisInfo();
-    }
-
-    /**
-     * Initial data limit statistics
-     */
-    private void initialDataLimitStatisInfo() {
-        List<FlowCtrlItem> flowCtrlItemList = this.flowCtrlRuleSet.get(0);
-        if (flowCtrlItemList != null
-                && !flowCtrlItemList.isEmpty()) {
-            for (FlowCtrlItem flowCtrlItem : flowCtrlItemList) {
-                if (flowCtrlItem == null) {
-                    continue;
-                }
-                if (flowCtrlItem.getType() != 0) {
-                    continue;
-                }
-                if (flowCtrlItem.getDltInM() < this.minDataLimitDlt.get()) {
-                    this.minDataLimitDlt.set(flowCtrlItem.getDltInM());
-                }
-
-                if (flowCtrlItem.getStartTime() < this.dataLimitStartTime.get()) {
-                    this.dataLimitStartTime.set(flowCtrlItem.getStartTime());
-                }
-                if (flowCtrlItem.getEndTime() > this.dataLimitEndTime.get()) {
-                    this.dataLimitEndTime.set(flowCtrlItem.getEndTime());
-                }
-            }
-        }
-    }
-
-    private void initialFreqLimitStatisInfo() {
-        List<FlowCtrlItem> flowCtrlItemList = flowCtrlRuleSet.get(1);
-        if (flowCtrlItemList != null && !flowCtrlItemList.isEmpty()) {
-            for (FlowCtrlItem flowCtrlItem : flowCtrlItemList) {
-                if (flowCtrlItem == null) {
-                    continue;
-                }
-                if (flowCtrlItem.getType() != 1) {
-                    continue;
-                }
-                if (flowCtrlItem.getZeroCnt() < this.minZeroCnt.get()) {
-                    this.minZeroCnt.set(flowCtrlItem.getZeroCnt());
-                }
-            }
-        }
-    }
-
-    private void initialLowFetchLimitStatisInfo() {
-        List<FlowCtrlItem> flowCtrlItemList = flowCtrlRuleSet.get(3);
-        if (flowCtrlItemList != null && !flowCtrlItemList.isEmpty()) {
-            for (FlowCtrlItem flowCtrlItem : flowCtrlItemList) {
-                if (flowCtrlItem == null) {
-                    continue;
-                }
-                if (flowCtrlItem.getType() != 3) {
-                    continue;
-                }
-                this.filterCtrlItem = new FlowCtrlItem(3,
-                        (int) flowCtrlItem.getDataLtInSZ(),
-                        flowCtrlItem.getFreqLtInMs(),
-                        flowCtrlItem.getZeroCnt());
-            }
-        }
-    }
-
-    private void clearStatisData() {
-        this.minZeroCnt.set(Integer.MAX_VALUE);
-        this.minDataLimitDlt.set(Long.MAX_VALUE);
-        this.dataLimitStartTime.set(2500);
-        this.dataLimitEndTime.set(TBaseConstants.META_VALUE_UNDEFINED);
-        this.filterCtrlItem = new FlowCtrlItem(3, TBaseConstants.META_VALUE_UNDEFINED,
-                TBaseConstants.META_VALUE_UNDEFINED, TBaseConstants.META_VALUE_UNDEFINED);
+        return this.ruleTable.getFilterCtrlItem();
     }
 
     public int getMinZeroCnt() {
-        return minZeroCnt.get();
+        return this.ruleTable.getMinZeroCnt();
     }
 
     /**
@@ -280,25 +157,7 @@ public class FlowCtrlRuleHandler {
      * @return             the required frequency limit value
      */
     public int getCurFreqLimitTime(int msgZeroCnt, int rcmVal) {
-        if (msgZeroCnt < this.minZeroCnt.get()) {
-            return rcmVal;
-        }
-        List<FlowCtrlItem> flowCtrlItemList =
-                flowCtrlRuleSet.get(1);
-        if (flowCtrlItemList == null
-                || flowCtrlItemList.isEmpty()) {
-            return rcmVal;
-        }
-        for (FlowCtrlItem flowCtrlItem : flowCtrlItemList) {
-            if (flowCtrlItem == null) {
-                continue;
-            }
-            int ruleVal = flowCtrlItem.getFreLimit(msgZeroCnt);
-            if (ruleVal >= 0) {
-                return ruleVal;
-            }
-        }
-        return rcmVal;
+        return this.ruleTable.getFreqLimit(msgZeroCnt, rcmVal);
     }
 
     public int getQryPriorityId() {
@@ -321,7 +180,7 @@ public class FlowCtrlRuleHandler {
         writeLock.lock();
         try {
             this.strFlowCtrlInfo = "";
-            this.flowCtrlRuleSet.clear();
+            this.ruleTable = FlowCtrlRuleTable.EMPTY_TABLE;
             this.flowCtrlId.set(TBaseConstants.META_VALUE_UNDEFINED);
             this.qryPriorityId.set(TBaseConstants.META_VALUE_UNDEFINED);
         } finally {
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.policies;
+
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Compiled flow control rules.
+ *
+ * The data limit rules are expanded into a table indexed by the minute of the day, each
+ * entry keeps the rules covering that minute in the evaluation order, and the frequency
+ * limit rules into a table indexed by the continuous zero-fetch count. So the limits are
+ * looked up without building a Calendar or walking the whole rule lists on each fetch.
+ * The table is immutable and replaced as a whole when the rules are updated.
+ */
+final class FlowCtrlRuleTable {
+
+    private static final int MINUTES_OF_DAY = 1440;
+    private static final int MAX_FREQ_TABLE_SIZE = 1024;
+    // the rule times are in GMT+8 without daylight saving time, so a fixed offset
+    private static final long TIME_ZONE_OFFSET_MS =
+            TimeZone.getTimeZone("GMT+8:00").getRawOffset();
+    private static final FlowCtrlItem[] EMPTY_ITEMS = new FlowCtrlItem[0];
+    static final FlowCtrlRuleTable EMPTY_TABLE =
+            new FlowCtrlRuleTable(Collections.emptyMap());
+
+    private final int minZeroCnt;
+    private final int maxZeroCnt;
+    private final long minDataLimitDlt;
+    private final FlowCtrlItem filterCtrlItem;
+    // the data limit rules of each minute of the day
+    private final FlowCtrlItem[][] dataLimitItems = new FlowCtrlItem[MINUTES_OF_DAY][];
+    // the frequency limit rules sorted by zeroCnt in descending order
+    private final FlowCtrlItem[] freqLimitItems;
+    // the frequency limit of each zero-fetch count, -1 if no rule matched
+    private final int[] freqLimitTable;
+
+    FlowCtrlRuleTable(Map<Integer, List<FlowCtrlItem>> flowCtrlRuleSet) {
+        // data limit rules
+        long tmpMinDlt = Long.MAX_VALUE;
+        FlowCtrlItem[] dataItems = toItemArray(flowCtrlRuleSet.get(0), 0);
+        for (FlowCtrlItem item : dataItems) {
+            tmpMinDlt = Math.min(tmpMinDlt, item.getDltInM());
+        }
+        this.minDataLimitDlt = tmpMinDlt;
+        int curTime;
+        List<FlowCtrlItem> minuteItems = new ArrayList<>();
+        FlowCtrlItem[] lastItems = EMPTY_ITEMS;
+        for (int minute = 0; minute < MINUTES_OF_DAY; minute++) {
+            curTime = (minute / 60) * 100 + minute % 60;
+            minuteItems.clear();
+            for (FlowCtrlItem item : dataItems) {
+                if (curTime >= item.getStartTime() && curTime <= item.getEndTime()) {
+                    minuteItems.add(item);
+                }
+            }
+            // the adjacent minutes mostly share the same rules
+            if (!isSameItems(lastItems, minuteItems)) {
+                lastItems = minuteItems.toArray(EMPTY_ITEMS);
+            }
+            this.dataLimitItems[minute] = lastItems;
+        }
+        // frequency limit rules
+        this.freqLimitItems = toItemArray(flowCtrlRuleSet.get(1), 1);
+        int tmpMinZeroCnt = Integer.MAX_VALUE;
+        int tmpMaxZeroCnt = 0;
+        for (FlowCtrlItem item : freqLimitItems) {
+            tmpMinZeroCnt = Math.min(tmpMinZeroCnt, item.getZeroCnt());
+            tmpMaxZeroCnt = Math.max(tmpMaxZeroCnt, item.getZeroCnt());
+        }
+        this.minZeroCnt = tmpMinZeroCnt;
+        this.maxZeroCnt = tmpMaxZeroCnt;
+        this.freqLimitTable =
+                new int[Math.min(tmpMaxZeroCnt, MAX_FREQ_TABLE_SIZE - 1) + 1];
+        for (int zeroCnt = 0; zeroCnt < freqLimitTable.length; zeroCnt++) {
+            freqLimitTable[zeroCnt] = scanFreqLimit(zeroCnt);
+        }
+        // low fetch limit rules, the last rule takes effect
+        FlowCtrlItem tmpFilterItem =
+                new FlowCtrlItem(3, TBaseConstants.META_VALUE_UNDEFINED,
+                        TBaseConstants.META_VALUE_UNDEFINED, TBaseConstants.META_VALUE_UNDEFINED);
+        for (FlowCtrlItem item : toItemArray(flowCtrlRuleSet.get(3), 3)) {
+            tmpFilterItem = new FlowCtrlItem(3, (int) item.getDataLtInSZ(),
+                    item.getFreqLtInMs(), item.getZeroCnt());
+        }
+        this.filterCtrlItem = tmpFilterItem;
+    }
+
+    /**
+     * Get the data limit of the current time
+     *
+     * @param lastDataDlt   current consumption lag of data
+     * @param currTime      current time in milliseconds
+     * @return              the data limit, null if no rule matched
+     */
+    FlowCtrlResult getDataLimit(long lastDataDlt, long currTime) {
+        if (lastDataDlt < minDataLimitDlt) {
+            return null;
+        }
+        for (FlowCtrlItem item : dataLimitItems[getMinuteOfDay(currTime)]) {
+            if (lastDataDlt > item.getDltInM()) {
+                // a new result each time, the callers may update it
+                return new FlowCtrlResult(item.getDataLtInSZ(), item.getFreqLtInMs());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the frequency limit of the continuous zero-fetch count
+     *
+     * @param msgZeroCnt   the continuous consumption count without messages
+     * @param rcmVal       the default frequency limit value
+     * @return             the required frequency limit value
+     */
+    int getFreqLimit(int msgZeroCnt, int rcmVal) {
+        if (msgZeroCnt < minZeroCnt) {
+            return rcmVal;
+        }
+        int ruleVal;
+        if (msgZeroCnt < freqLimitTable.length) {
+            ruleVal = freqLimitTable[msgZeroCnt];
+        } else if (maxZeroCnt < freqLimitTable.length) {
+            ruleVal = freqLimitTable[freqLimitTable.length - 1];
+        } else {
+            ruleVal = scanFreqLimit(msgZeroCnt);
+        }
+        return ruleVal >= 0 ? ruleVal : rcmVal;
+    }
+
+    int getMinZeroCnt() {
+        return minZeroCnt;
+    }
+
+    FlowCtrlItem getFilterCtrlItem() {
+        return filterCtrlItem;
+    }
+
+    static int getMinuteOfDay(long currTime) {
+        return (int) (((currTime + TIME_ZONE_OFFSET_MS) / 60000L) % MINUTES_OF_DAY);
+    }
+
+    private int scanFreqLimit(int msgZeroCnt) {
+        int ruleVal;
+        for (FlowCtrlItem item : freqLimitItems) {
+            ruleVal = item.getFreLimit(msgZeroCnt);
+            if (ruleVal >= 0) {
+                return ruleVal;
+            }
+        }
+        return TBaseConstants.META_VALUE_UNDEFINED;
+    }
+
+    private static FlowCtrlItem[] toItemArray(List<FlowCtrlItem> flowCtrlItems, int type) {
+        if (flowCtrlItems == null || flowCtrlItems.isEmpty()) {
+            return EMPTY_ITEMS;
+        }
+        List<FlowCtrlItem> validItems = new ArrayList<>(flowCtrlItems.size());
+        for (FlowCtrlItem item : flowCtrlItems) {
+            if (item != null && item.getType() == type) {
+                validItems.add(item);
+            }
+        }
+        return validItems.toArray(EMPTY_ITEMS);
+    }
+
+    private static boolean isSameItems(FlowCtrlItem[] lastItems, List<FlowCtrlItem> curItems) {
+        if (lastItems.length != curItems.size()) {
+            return false;
+        }
+        for (int i = 0; i < lastItems.length; i++) {
+            if (lastItems[i] != curItems.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
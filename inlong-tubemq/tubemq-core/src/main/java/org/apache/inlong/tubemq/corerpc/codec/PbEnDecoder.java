@@ -54,6 +54,8 @@ public class PbEnDecoder {
         rpcMethodMap.put("getMessagesC2B", RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE);
         rpcMethodMap.put("consumerCommitC2B", RpcConstants.RPC_MSG_BROKER_CONSUMER_COMMIT);
         rpcMethodMap.put("sendMessageP2B", RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE);
+        rpcMethodMap.put("sendBatchMessageP2B",
+                RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDBATCHMESSAGE);
         rpcMethodMap.put("consumerRegisterC2MV2",
                 RpcConstants.RPC_MSG_MASTER_CONSUMER_REGISTER_V2);
         rpcMethodMap.put("consumerHeartbeatC2MV2",
@@ -130,6 +132,9 @@ public class PbEnDecoder {
                 case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE: {
                     return ClientBroker.SendMessageRequestP2B.parseFrom(bytes);
                 }
+                case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDBATCHMESSAGE: {
+                    return ClientBroker.SendBatchMessageRequestP2B.parseFrom(bytes);
+                }
                 case RpcConstants.RPC_MSG_BROKER_CONSUMER_REGISTER: {
                     return ClientBroker.RegisterRequestC2B.parseFrom(bytes);
                 }
@@ -193,6 +198,9 @@ public class PbEnDecoder {
                 case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE: {
                     return ClientBroker.SendMessageResponseB2P.parseFrom(bytes);
                 }
+                case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDBATCHMESSAGE: {
+                    return ClientBroker.SendBatchMessageResponseB2P.parseFrom(bytes);
+                }
                 case RpcConstants.RPC_MSG_BROKER_CONSUMER_REGISTER: {
                     return ClientBroker.RegisterResponseB2C.parseFrom(bytes);
                 }
@@ -306,6 +314,7 @@ public class PbEnDecoder {
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_REGISTER:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_HEARTBEAT:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE:
+                    case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDBATCHMESSAGE:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_CLOSE: {
                         return true;
                     }
@@ -327,4 +336,36 @@ public class PbEnDecoder {
             }
         }
     }
+
+    /**
+     * Check whether the error is returned by a server not supporting the method,
+     * such as an older broker receiving a method added in a later version
+     *
+     * @param error         the error returned by the server
+     * @param methodId      the method id
+     * @return              whether the method is unsupported by the server
+     */
+    public static boolean isUnsupportedMethodError(Throwable error, int methodId) {
+        if (error == null || error.getMessage() == null) {
+            return false;
+        }
+        String errMsg = error.getMessage();
+        return containsMethodId(errMsg, "Unsupported method ID :", methodId)
+                || containsMethodId(errMsg, "Unsupported method ", methodId)
+                || containsMethodId(errMsg, "No method ", methodId);
+    }
+
+    private static boolean containsMethodId(String errMsg, String prefix, int methodId) {
+        String target = prefix + methodId;
+        int index = errMsg.indexOf(target);
+        while (index >= 0) {
+            int end = index + target.length();
+            // not the prefix of a larger method id
+            if (end >= errMsg.length() || !Character.isDigit(errMsg.charAt(end))) {
+                return true;
+            }
+            index = errMsg.indexOf(target, end);
+        }
+        return false;
+    }
 }
@@ -22,11 +22,9 @@ import org.apache.inlong.tubemq.corerpc.RpcDataPack;
 import org.apache.inlong.tubemq.corerpc.exception.UnknownProtocolException;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToMessageDecoder;
-import io.netty.util.ReferenceCountUtil;
+import io.netty.handler.codec.ByteToMessageDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,7 +36,14 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import static org.apache.inlong.tubemq.corebase.utils.AddressUtils.getRemoteAddressIP;
 
-public class NettyProtocolDecoder extends MessageToMessageDecoder<ByteBuf> {
+/**
+ * Decode the frames into RpcDataPack.
+ *
+ * The incomplete bytes are accumulated in the pooled cumulation buffer of the
+ * decoder, and each data buffer is read out of it only once its length is
+ * completely received.
+ */
+public class NettyProtocolDecoder extends ByteToMessageDecoder {
 
     private static final Logger logger = LoggerFactory.getLogger(NettyProtocolDecoder.class);
 
@@ -50,17 +55,13 @@ public class NettyProtocolDecoder extends MessageToMessageDecoder<ByteBuf> {
     private static AtomicLong lastSizeTime = new AtomicLong(0);
     private boolean packHeaderRead = false;
     private int listSize;
-    private List<RpcDataPack> rpcDataPackList = new ArrayList<>();
     private RpcDataPack dataPack;
-    private ByteBuf lastByteBuf;
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf buffer, List<Object> out) throws Exception {
-        buffer = convertToNewBuf(buffer);
         while (buffer.readableBytes() > 0) {
             if (!packHeaderRead) {
                 if (buffer.readableBytes() < 12) {
-                    saveRemainedByteBuf(buffer);
                     break;
                 }
                 int frameToken = buffer.readInt();
@@ -75,52 +76,23 @@ public class NettyProtocolDecoder extends MessageToMessageDecoder<ByteBuf> {
             }
             // get PackBody
             if (buffer.readableBytes() < 4) {
-                saveRemainedByteBuf(buffer);
                 break;
             }
-            buffer.markReaderIndex();
-            int length = buffer.readInt();
-            if (buffer.readableBytes() < length) {
-                buffer.resetReaderIndex();
-                saveRemainedByteBuf(buffer);
+            int length = buffer.getInt(buffer.readerIndex());
+            if (buffer.readableBytes() < 4 + length) {
                 break;
             }
+            buffer.skipBytes(4);
             ByteBuffer bb = ByteBuffer.allocate(length);
             buffer.readBytes(bb);
             bb.flip();
             dataPack.getDataLst().add(bb);
             if (dataPack.getDataLst().size() == listSize) {
                 packHeaderRead = false;
-                rpcDataPackList.add(dataPack);
-            }
-        }
-        if (rpcDataPackList.size() > 0) {
-            out.addAll(rpcDataPackList);
-            rpcDataPackList.clear();
-        }
-    }
-
-    private void saveRemainedByteBuf(ByteBuf byteBuf) {
-        if (byteBuf != null && byteBuf.readableBytes() > 0) {
-            lastByteBuf = Unpooled.copiedBuffer(byteBuf);
-        }
-    }
-
-    private ByteBuf convertToNewBuf(ByteBuf byteBuf) {
-        ByteBuf newByteBuf = byteBuf;
-        int totalReadBytes = byteBuf.readableBytes();
-        if (lastByteBuf != null) {
-            try {
-                totalReadBytes += lastByteBuf.readableBytes();
-                newByteBuf = Unpooled.buffer(totalReadBytes);
-                newByteBuf.writeBytes(lastByteBuf);
-                newByteBuf.writeBytes(byteBuf);
-            } finally {
-                ReferenceCountUtil.release(lastByteBuf);
+                out.add(dataPack);
+                dataPack = null;
             }
-            lastByteBuf = null;
         }
-        return newByteBuf;
     }
 
     private void filterIllegalPkgToken(int inParamValue, int allowTokenVal,
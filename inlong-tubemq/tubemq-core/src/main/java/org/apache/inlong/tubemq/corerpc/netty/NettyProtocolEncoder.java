@@ -22,60 +22,52 @@ import org.apache.inlong.tubemq.corerpc.RpcDataPack;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 
+/**
+ * Encode the RpcDataPack into a frame.
+ *
+ * The frame is a composite buffer: the frame header and the length headers are
+ * written into one pooled direct buffer, and the data buffers are wrapped as they
+ * are, so the frame content is never copied before it is written to the socket.
+ */
 public class NettyProtocolEncoder extends MessageToMessageEncoder<RpcDataPack> {
 
-    private static final Logger logger = LoggerFactory.getLogger(NettyProtocolEncoder.class);
-
     @Override
     protected void encode(ChannelHandlerContext chx, RpcDataPack msg, List<Object> out) {
         RpcDataPack dataPack = msg;
-        try (ByteArrayOutputStream byteOut = new ByteArrayOutputStream()) {
-            byteOut.write(getPackHeader(dataPack).array());
-            List<ByteBuffer> origs = dataPack.getDataLst();
-            Iterator<ByteBuffer> iter = origs.iterator();
-            while (iter.hasNext()) {
-                ByteBuffer entry = iter.next();
-                byteOut.write(getLengthHeader(entry).array());
-                byteOut.write(getLengthBody(entry));
+        List<ByteBuffer> origs = dataPack.getDataLst();
+        ByteBufAllocator allocator =
+                (chx == null) ? ByteBufAllocator.DEFAULT : chx.alloc();
+        ByteBuf headers = allocator.directBuffer(12 + 4 * origs.size());
+        CompositeByteBuf frame = allocator.compositeDirectBuffer(2 * origs.size() + 1);
+        try {
+            headers.writeInt(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN);
+            headers.writeInt(dataPack.getSerialNo());
+            headers.writeInt(origs.size());
+            frame.addComponent(true, headers.retainedSlice(0, 12));
+            for (ByteBuffer entry : origs) {
+                // the data is framed from the buffer start to its limit
+                ByteBuffer body = entry.duplicate();
+                body.position(0);
+                int lengthPos = headers.writerIndex();
+                headers.writeInt(body.remaining());
+                frame.addComponent(true, headers.retainedSlice(lengthPos, 4));
+                frame.addComponent(true, Unpooled.wrappedBuffer(body));
+            }
+            out.add(frame);
+            frame = null;
+        } finally {
+            headers.release();
+            if (frame != null) {
+                frame.release();
             }
-            byte[] body = byteOut.toByteArray();
-            ByteBuf buf = ByteBufAllocator.DEFAULT.buffer(body.length);
-            buf.writeBytes(body);
-            out.add(buf);
-        } catch (IOException e) {
-            logger.error("encode has exception ", e);
         }
     }
-
-    private ByteBuffer getPackHeader(RpcDataPack dataPack) {
-        ByteBuffer header = ByteBuffer.allocate(12);
-        header.putInt(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN);
-        header.putInt(dataPack.getSerialNo());
-        header.putInt(dataPack.getDataLst().size());
-        header.flip();
-        return header;
-    }
-
-    private ByteBuffer getLengthHeader(ByteBuffer buf) {
-        ByteBuffer header = ByteBuffer.allocate(4);
-        header.putInt(buf.limit());
-        header.flip();
-        return header;
-    }
-
-    private byte[] getLengthBody(ByteBuffer buf) {
-        return Arrays.copyOf(buf.array(), buf.limit());
-    }
 }
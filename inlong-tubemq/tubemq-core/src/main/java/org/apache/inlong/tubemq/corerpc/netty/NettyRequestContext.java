@@ -24,7 +24,7 @@ import org.apache.inlong.tubemq.corerpc.RpcDataPack;
 import org.apache.inlong.tubemq.corerpc.codec.PbEnDecoder;
 import org.apache.inlong.tubemq.corerpc.server.RequestContext;
 
-import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
@@ -128,8 +128,9 @@ public class NettyRequestContext implements RequestContext {
                 dataBuilder.setMethod(response.getMethodId());
                 if (response.getResponseData() != null) {
                     try {
-                        dataBuilder.setData(ByteString
-                                .copyFrom(PbEnDecoder.pbEncode(response.getResponseData())));
+                        // the encoded array is owned by this response, wrap it without copying
+                        dataBuilder.setData(UnsafeByteOperations
+                                .unsafeWrap(PbEnDecoder.pbEncode(response.getResponseData())));
                     } catch (Throwable ee) {
                         if (logger.isDebugEnabled()) {
                             logger.debug(new StringBuilder(512)
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.policies;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * FlowCtrlRuleTable test.
+ */
+public class FlowCtrlRuleTableTest {
+
+    private static final String FLOW_CTRL_INFO =
+            "[{\"type\":0,\"rule\":[{\"start\":\"08:00\",\"end\":\"17:59\",\"dltInM\":1024,"
+                    + "\"limitInM\":20,\"freqInMs\":1000},{\"start\":\"08:00\",\"end\":\"22:00\","
+                    + "\"dltInM\":512,\"limitInM\":10,\"freqInMs\":5000}]},{\"type\":1,\"rule\":"
+                    + "[{\"zeroCnt\":3,\"freqInMs\":300},{\"zeroCnt\":2000,\"freqInMs\":1000}]}"
+                    + ",{\"type\":3,\"rule\":[{\"normFreqInMs\":0,\"filterFreqInMs\":100,"
+                    + "\"minDataFilterFreqInMs\":400}]}]";
+    // the epoch time is 08:00 in GMT+8
+    private static final long MINUTE_MS = 60000L;
+
+    @Test
+    public void testDataLimit() throws Exception {
+        FlowCtrlRuleHandler handler = new FlowCtrlRuleHandler(true);
+        FlowCtrlRuleTable ruleTable =
+                new FlowCtrlRuleTable(handler.parseFlowCtrlInfo(FLOW_CTRL_INFO));
+        Assert.assertEquals(510, FlowCtrlRuleTable.getMinuteOfDay(30 * MINUTE_MS));
+        // 08:30, both rules are in time
+        FlowCtrlResult result = ruleTable.getDataLimit(2000L, 30 * MINUTE_MS);
+        Assert.assertEquals(20 * 1024 * 1024L, result.dataLtInSize);
+        Assert.assertEquals(1000, result.freqLtInMs);
+        result = ruleTable.getDataLimit(1000L, 30 * MINUTE_MS);
+        Assert.assertEquals(10 * 1024 * 1024L, result.dataLtInSize);
+        Assert.assertEquals(5000, result.freqLtInMs);
+        Assert.assertNull(ruleTable.getDataLimit(500L, 30 * MINUTE_MS));
+        // 18:00 and 22:00, only the second rule is in time
+        result = ruleTable.getDataLimit(2000L, 600 * MINUTE_MS);
+        Assert.assertEquals(5000, result.freqLtInMs);
+        result = ruleTable.getDataLimit(2000L, 840 * MINUTE_MS);
+        Assert.assertEquals(5000, result.freqLtInMs);
+        // 22:01 and 07:59, no rule is in time
+        Assert.assertNull(ruleTable.getDataLimit(2000L, 841 * MINUTE_MS));
+        Assert.assertNull(ruleTable.getDataLimit(2000L, -MINUTE_MS + 24 * 60 * MINUTE_MS));
+        // the returned result is not shared
+        Assert.assertNotSame(ruleTable.getDataLimit(2000L, 30 * MINUTE_MS),
+                ruleTable.getDataLimit(2000L, 30 * MINUTE_MS));
+    }
+
+    @Test
+    public void testFreqLimit() throws Exception {
+        FlowCtrlRuleHandler handler = new FlowCtrlRuleHandler(true);
+        FlowCtrlRuleTable ruleTable =
+                new FlowCtrlRuleTable(handler.parseFlowCtrlInfo(FLOW_CTRL_INFO));
+        Assert.assertEquals(3, ruleTable.getMinZeroCnt());
+        Assert.assertEquals(-1, ruleTable.getFreqLimit(2, -1));
+        Assert.assertEquals(300, ruleTable.getFreqLimit(3, -1));
+        Assert.assertEquals(300, ruleTable.getFreqLimit(1999, -1));
+        Assert.assertEquals(1000, ruleTable.getFreqLimit(2000, -1));
+        Assert.assertEquals(1000, ruleTable.getFreqLimit(5000, -1));
+        Assert.assertEquals(100, ruleTable.getFilterCtrlItem().getFreqLtInMs());
+        Assert.assertEquals(400, ruleTable.getFilterCtrlItem().getZeroCnt());
+        // the empty rules
+        Assert.assertEquals(Integer.MAX_VALUE, FlowCtrlRuleTable.EMPTY_TABLE.getMinZeroCnt());
+        Assert.assertEquals(7, FlowCtrlRuleTable.EMPTY_TABLE.getFreqLimit(10, 7));
+        Assert.assertNull(FlowCtrlRuleTable.EMPTY_TABLE.getDataLimit(Long.MAX_VALUE, 0L));
+    }
+}
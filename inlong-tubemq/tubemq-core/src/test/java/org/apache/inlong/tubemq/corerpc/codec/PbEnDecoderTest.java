@@ -23,6 +23,9 @@ import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class PbEnDecoderTest {
 
@@ -46,4 +49,28 @@ public class PbEnDecoderTest {
         assertEquals(decodeObject.getHostName(), object.getHostName());
     }
 
+    @Test
+    public void testUnsupportedMethodError() throws Exception {
+        int methodId = RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDBATCHMESSAGE;
+        // the error of an older broker decoding a method it does not know
+        try {
+            PbEnDecoder.pbDecode(true, 999, new byte[0]);
+            fail("the unknown method is decoded");
+        } catch (Exception e) {
+            assertTrue(PbEnDecoder.isUnsupportedMethodError(e, 999));
+        }
+        assertTrue(PbEnDecoder.isUnsupportedMethodError(new Exception(
+                "IPC server handle request error :Unsupported method ID :" + methodId), methodId));
+        StringBuilder sBuilder = new StringBuilder(256);
+        assertFalse(PbEnDecoder.isValidServiceTypeAndMethod(
+                RpcConstants.RPC_SERVICE_TYPE_BROKER_READ_SERVICE, methodId, sBuilder));
+        assertTrue(PbEnDecoder.isUnsupportedMethodError(
+                new Exception(sBuilder.toString()), methodId));
+        // the other errors and the other methods
+        assertFalse(PbEnDecoder.isUnsupportedMethodError(
+                new Exception("Unsupported method ID :" + methodId + "0"), methodId));
+        assertFalse(PbEnDecoder.isUnsupportedMethodError(
+                new Exception("Request is timeout!"), methodId));
+        assertFalse(PbEnDecoder.isUnsupportedMethodError(new Exception(), methodId));
+    }
 }
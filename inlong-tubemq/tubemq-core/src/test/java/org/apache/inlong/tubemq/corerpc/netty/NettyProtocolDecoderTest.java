@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NettyProtocolDecoder test.
+ */
+public class NettyProtocolDecoderTest {
+
+    @Test
+    public void decodeSplitFrames() {
+        EmbeddedChannel encodeChannel = new EmbeddedChannel(new NettyProtocolEncoder());
+        List<ByteBuffer> dataList = new ArrayList<>();
+        dataList.add(ByteBuffer.wrap("abc".getBytes()));
+        dataList.add(ByteBuffer.wrap("defgh".getBytes()));
+        Assert.assertTrue(encodeChannel.writeOutbound(new RpcDataPack(123, dataList)));
+        ByteBuf frame = encodeChannel.readOutbound();
+        // the frame is received in pieces of 5 bytes
+        EmbeddedChannel decodeChannel = new EmbeddedChannel(new NettyProtocolDecoder());
+        while (frame.isReadable()) {
+            decodeChannel.writeInbound(frame.readRetainedSlice(Math.min(5, frame.readableBytes())));
+        }
+        frame.release();
+        RpcDataPack dataPack = decodeChannel.readInbound();
+        Assert.assertNotNull(dataPack);
+        Assert.assertEquals(123, dataPack.getSerialNo());
+        Assert.assertEquals(2, dataPack.getDataLst().size());
+        Assert.assertEquals("abc", new String(dataPack.getDataLst().get(0).array()));
+        Assert.assertEquals("defgh", new String(dataPack.getDataLst().get(1).array()));
+        Assert.assertNull(decodeChannel.readInbound());
+        decodeChannel.finish();
+        encodeChannel.finish();
+    }
+}
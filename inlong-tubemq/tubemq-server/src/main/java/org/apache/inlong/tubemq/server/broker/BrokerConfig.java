@@ -36,6 +36,8 @@ import org.ini4j.Profile.Section;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+
 import static java.lang.Math.abs;
 
 /**
@@ -129,6 +131,27 @@ public class BrokerConfig extends AbstractFileConfig {
             TServerConstants.CFG_DEFAULT_GROUP_OFFSET_SCAN_DUR;
     // whether to enable the memory cache storage, the default is true, open the memory cache
     private boolean enableMemStore = true;
+    // whether to read consecutive file messages in one pass and hand their
+    // payloads to the response without copying, the default is false
+    private boolean enableZeroCopyRead = false;
+    // whether to read sealed segment files through read-only memory mappings,
+    // the default is false
+    private boolean enableMmapRead = false;
+    // whether to force the file stores through the per-disk group commit flusher,
+    // the default is false
+    private boolean enableGroupCommitFlush = false;
+    // the round interval of the group commit flusher
+    private long groupCommitFlushDurMs = 100;
+    // whether to skip the index blocks without the filter keys in filtered fetches,
+    // the default is false
+    private boolean enableFilterKeyIndex = false;
+    // whether to commit consume offsets to a local offset journal instead of
+    // ZooKeeper, the default is false
+    private boolean enableFileOffsetStorage = false;
+    // the offset journal directory, the default is the offsets directory under primaryPath
+    private String offsetStoragePath;
+    // the journal record count to take an offset snapshot
+    private int offsetSnapshotRecords = 100000;
 
     public BrokerConfig() {
         super();
@@ -138,6 +161,38 @@ public class BrokerConfig extends AbstractFileConfig {
         return enableMemStore;
     }
 
+    public boolean isEnableZeroCopyRead() {
+        return enableZeroCopyRead;
+    }
+
+    public boolean isEnableMmapRead() {
+        return enableMmapRead;
+    }
+
+    public boolean isEnableGroupCommitFlush() {
+        return enableGroupCommitFlush;
+    }
+
+    public long getGroupCommitFlushDurMs() {
+        return groupCommitFlushDurMs;
+    }
+
+    public boolean isEnableFilterKeyIndex() {
+        return enableFilterKeyIndex;
+    }
+
+    public boolean isEnableFileOffsetStorage() {
+        return enableFileOffsetStorage;
+    }
+
+    public String getOffsetStoragePath() {
+        return offsetStoragePath;
+    }
+
+    public int getOffsetSnapshotRecords() {
+        return offsetSnapshotRecords;
+    }
+
     public boolean isUpdateConsumerOffsets() {
         return this.updateConsumerOffsets;
     }
@@ -403,6 +458,38 @@ public class BrokerConfig extends AbstractFileConfig {
         if (TStringUtils.isNotBlank(brokerSect.get("enableMemStore"))) {
             this.enableMemStore = this.getBoolean(brokerSect, "enableMemStore");
         }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableZeroCopyRead"))) {
+            this.enableZeroCopyRead = this.getBoolean(brokerSect, "enableZeroCopyRead");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableMmapRead"))) {
+            this.enableMmapRead = this.getBoolean(brokerSect, "enableMmapRead");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableGroupCommitFlush"))) {
+            this.enableGroupCommitFlush = this.getBoolean(brokerSect, "enableGroupCommitFlush");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableFilterKeyIndex"))) {
+            this.enableFilterKeyIndex = this.getBoolean(brokerSect, "enableFilterKeyIndex");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("groupCommitFlushDurMs"))) {
+            this.groupCommitFlushDurMs = getLong(brokerSect, "groupCommitFlushDurMs");
+            if (this.groupCommitFlushDurMs < 10) {
+                this.groupCommitFlushDurMs = 10;
+            }
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableFileOffsetStorage"))) {
+            this.enableFileOffsetStorage = this.getBoolean(brokerSect, "enableFileOffsetStorage");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("offsetStoragePath"))) {
+            this.offsetStoragePath = brokerSect.get("offsetStoragePath").trim();
+        } else {
+            this.offsetStoragePath = this.primaryPath + File.separator + "offsets";
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("offsetSnapshotRecords"))) {
+            this.offsetSnapshotRecords = getInt(brokerSect, "offsetSnapshotRecords");
+            if (this.offsetSnapshotRecords < 1000) {
+                this.offsetSnapshotRecords = 1000;
+            }
+        }
     }
 
     public long getLogClearupDurationMs() {
@@ -23,6 +23,8 @@ import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
 import org.apache.inlong.tubemq.corebase.TokenConstants;
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
 import org.apache.inlong.tubemq.corebase.config.TLSConfig;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.BatchMessageItemP2B;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.BatchMessageResultB2P;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.CommitOffsetRequestC2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.CommitOffsetResponseB2C;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.GetMessageRequestC2B;
@@ -31,6 +33,8 @@ import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.HeartBe
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.HeartBeatResponseB2C;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.RegisterRequestC2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.RegisterResponseB2C;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendBatchMessageRequestP2B;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendBatchMessageResponseB2P;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageRequestP2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageResponseB2P;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.TransferedMessage;
@@ -706,6 +710,178 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         }
     }
 
+    /**
+     * Handle producer's sendBatchMessage request.
+     *
+     * The messages of the batch are checked one by one, the accepted messages
+     * are appended to the partition store in one batch, and the result of
+     * each message is returned in the request order.
+     *
+     * @param request       the request
+     * @param rmtAddress    the remote ip
+     * @param overtls       whether transfer over TLS
+     * @return              the response
+     * @throws Throwable    the exception during processing
+     */
+    @Override
+    public SendBatchMessageResponseB2P sendBatchMessageP2B(SendBatchMessageRequestP2B request,
+            final String rmtAddress,
+            boolean overtls) throws Throwable {
+        ProcessResult result = new ProcessResult();
+        final long startTime = System.currentTimeMillis();
+        final StringBuilder strBuffer = new StringBuilder(512);
+        SendBatchMessageResponseB2P.Builder builder = SendBatchMessageResponseB2P.newBuilder();
+        builder.setSuccess(false);
+        if (!this.started.get()
+                || ServiceStatusHolder.isWriteServiceStop()) {
+            builder.setErrCode(TErrCodeConstants.SERVICE_UNAVAILABLE);
+            builder.setErrMsg("Write StoreService temporary unavailable!");
+            return builder.build();
+        }
+        if (!serverAuthHandler.identityValidUserInfo(request.getAuthInfo(), true, result)) {
+            builder.setErrCode(result.getErrCode());
+            builder.setErrMsg(result.getErrMsg());
+            return builder.build();
+        }
+        final CertifiedInfo certifiedInfo = (CertifiedInfo) result.getRetData();
+        // get and check clientId field
+        if (!PBParameterUtils.checkClientId(request.getClientId(), strBuffer, result)) {
+            builder.setErrCode(result.getErrCode());
+            builder.setErrMsg(result.getErrMsg());
+            return builder.build();
+        }
+        // get and check topicName and partitionId field
+        final int partitionId = request.getPartitionId();
+        if (!PBParameterUtils.getTopicNamePartIdInfo(true, request.getTopicName(),
+                partitionId, this.metadataManager, strBuffer, result)) {
+            builder.setErrCode(result.getErrCode());
+            builder.setErrMsg(result.getErrMsg());
+            return builder.build();
+        }
+        final TopicMetadata topicMetadata = (TopicMetadata) result.getRetData();
+        final String topicName = topicMetadata.getTopic();
+        final int itemCnt = request.getMsgItemsCount();
+        if (itemCnt <= 0) {
+            builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+            builder.setErrMsg("message items is empty!");
+            return builder.build();
+        }
+        // check the messages, the accepted ones are collected for the batch append
+        int msgCnt = 0;
+        int[] itemIndexes = new int[itemCnt];
+        byte[][] msgDatas = new byte[itemCnt][];
+        int[] checkSums = new int[itemCnt];
+        int[] msgTypeCodes = new int[itemCnt];
+        int[] msgFlags = new int[itemCnt];
+        BatchMessageResultB2P.Builder[] itemResults = new BatchMessageResultB2P.Builder[itemCnt];
+        for (int i = 0; i < itemCnt; i++) {
+            BatchMessageItemP2B msgItem = request.getMsgItems(i);
+            itemResults[i] = BatchMessageResultB2P.newBuilder();
+            itemResults[i].setSuccess(false);
+            String msgType = null;
+            int msgTypeCode = -1;
+            if (TStringUtils.isNotBlank(msgItem.getMsgType())) {
+                msgType = msgItem.getMsgType().trim();
+                msgTypeCode = msgType.hashCode();
+            }
+            final byte[] msgData = msgItem.getData().toByteArray();
+            final int dataLength = msgData.length;
+            strBuffer.delete(0, strBuffer.length());
+            if (dataLength <= 0) {
+                itemResults[i].setErrCode(TErrCodeConstants.BAD_REQUEST);
+                itemResults[i].setErrMsg("data length is zero!");
+                continue;
+            }
+            if (dataLength > topicMetadata.getMaxMsgSize()) {
+                itemResults[i].setErrCode(TErrCodeConstants.BAD_REQUEST);
+                itemResults[i].setErrMsg(strBuffer
+                        .append("data length over max length, allowed max length is ")
+                        .append(topicMetadata.getMaxMsgSize())
+                        .append(", data length is ").append(dataLength).toString());
+                continue;
+            }
+            int checkSum = CheckSum.crc32(msgData);
+            if (msgItem.getCheckSum() != -1 && checkSum != msgItem.getCheckSum()) {
+                itemResults[i].setErrCode(TErrCodeConstants.FORBIDDEN);
+                itemResults[i].setErrMsg(strBuffer.append("Checksum msg data failure: ")
+                        .append(msgItem.getCheckSum()).append(" of ").append(topicName)
+                        .append(" not equal to the data's checksum of ")
+                        .append(checkSum).toString());
+                continue;
+            }
+            if (!serverAuthHandler.validProduceAuthorizeInfo(
+                    certifiedInfo.getUserName(), topicName, msgType, rmtAddress, result)) {
+                itemResults[i].setErrCode(result.getErrCode());
+                itemResults[i].setErrMsg(result.getErrMsg());
+                continue;
+            }
+            itemIndexes[msgCnt] = i;
+            msgDatas[msgCnt] = msgData;
+            checkSums[msgCnt] = checkSum;
+            msgTypeCodes[msgCnt] = msgTypeCode;
+            msgFlags[msgCnt] = msgItem.getFlag();
+            msgCnt++;
+        }
+        strBuffer.delete(0, strBuffer.length());
+        try {
+            if (msgCnt > 0) {
+                final MessageStore store =
+                        this.storeManager.getOrCreateMessageStore(topicName, partitionId);
+                final AppendResult[] appendResults = new AppendResult[msgCnt];
+                for (int j = 0; j < msgCnt; j++) {
+                    appendResults[j] = new AppendResult();
+                }
+                store.appendMsgs(appendResults, msgCnt, checkSums, msgDatas,
+                        msgTypeCodes, msgFlags, partitionId, request.getSentAddr());
+                for (int j = 0; j < msgCnt; j++) {
+                    BatchMessageItemP2B msgItem = request.getMsgItems(itemIndexes[j]);
+                    BatchMessageResultB2P.Builder itemResult = itemResults[itemIndexes[j]];
+                    if (!appendResults[j].isSuccess()) {
+                        itemResult.setErrCode(TErrCodeConstants.SERVER_RECEIVE_OVERFLOW);
+                        itemResult.setErrMsg(strBuffer.append("Put message failed from ")
+                                .append(tubeConfig.getHostName())
+                                .append(", server receive message overflow!").toString());
+                        strBuffer.delete(0, strBuffer.length());
+                        continue;
+                    }
+                    String baseKey = strBuffer.append(topicName)
+                            .append("#").append(AddressUtils.intToIp(request.getSentAddr()))
+                            .append("#").append(tubeConfig.getHostName())
+                            .append("#").append(partitionId)
+                            .append("#").append(msgItem.getMsgTime()).toString();
+                    strBuffer.delete(0, strBuffer.length());
+                    putCounterGroup.add(baseKey, 1L, msgDatas[j].length);
+                    AuditUtils.addProduceRecord(topicName, msgItem.getMsgType(),
+                            msgItem.getMsgTime(), 1, msgDatas[j].length);
+                    itemResult.setSuccess(true);
+                    itemResult.setErrCode(TErrCodeConstants.SUCCESS);
+                    itemResult.setErrMsg("Ok");
+                    itemResult.setMessageId(appendResults[j].getMsgId());
+                    itemResult.setAppendTime(appendResults[j].getAppendTime());
+                    itemResult.setAppendOffset(appendResults[j].getAppendIndexOffset());
+                }
+            }
+            for (int i = 0; i < itemCnt; i++) {
+                builder.addMsgResults(itemResults[i]);
+            }
+            builder.setSuccess(true);
+            builder.setRequireAuth(certifiedInfo.isReAuth());
+            builder.setErrCode(TErrCodeConstants.SUCCESS);
+            builder.setErrMsg("Ok");
+            BrokerSrvStatsHolder.updSendMsgLatency(System.currentTimeMillis() - startTime);
+            return builder.build();
+        } catch (final Throwable ex) {
+            logger.error("Put batch message failed ", ex);
+            strBuffer.delete(0, strBuffer.length());
+            builder.setSuccess(false);
+            builder.setErrCode(TErrCodeConstants.INTERNAL_SERVER_ERROR);
+            builder.setErrMsg(strBuffer.append("Put batch message failed from ")
+                    .append(tubeConfig.getHostName()).append(" ")
+                    .append((ex.getMessage() != null ? ex.getMessage() : " ")).toString());
+            return builder.build();
+        }
+    }
+
     /**
      * append group current offset to storage
      *
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgFileStore;
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Broker-wide group commit flusher.
+ *
+ * File stores hand their flush requests to this flusher instead of forcing their
+ * segments by themselves. The requests are grouped by the disk the store is located
+ * on, and every disk has one flush thread which forces all pending stores of the
+ * disk in one round per flush period, so the concurrent fsync calls are bounded
+ * by the disk count no matter how many stores the broker holds.
+ */
+public class GroupCommitFlusher {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(GroupCommitFlusher.class);
+    private static final String DEFAULT_DISK_ID = "default";
+    // the round interval of each disk
+    private final long flushDurMs;
+    // the flush groups of each disk
+    private final ConcurrentHashMap<String, DiskFlushGroup> diskFlushGroups =
+            new ConcurrentHashMap<>();
+    // flusher status
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+
+    public GroupCommitFlusher(long flushDurMs) {
+        this.flushDurMs = flushDurMs;
+    }
+
+    /**
+     * Request a flush of the file store in the next round of its disk.
+     * A store is queued only once until its pending flush is done.
+     *
+     * @param fileStore    the file store to be flushed
+     */
+    public void requestFlush(MsgFileStore fileStore) {
+        if (!fileStore.markGroupFlushPending()) {
+            return;
+        }
+        if (this.stopped.get()) {
+            flushStore(fileStore);
+            return;
+        }
+        DiskFlushGroup flushGroup = diskFlushGroups.get(fileStore.getDiskId());
+        if (flushGroup == null) {
+            DiskFlushGroup tmpFlushGroup = new DiskFlushGroup(fileStore.getDiskId());
+            flushGroup = diskFlushGroups.putIfAbsent(fileStore.getDiskId(), tmpFlushGroup);
+            if (flushGroup == null) {
+                flushGroup = tmpFlushGroup;
+                flushGroup.start();
+            }
+        }
+        flushGroup.pendingStores.offer(fileStore);
+        // drain the request that raced with the closing
+        if (this.stopped.get()) {
+            flushGroup.flushPendingStores();
+        }
+    }
+
+    /**
+     * Stop the flush threads, and flush all the pending stores.
+     */
+    public void close() {
+        if (this.stopped.compareAndSet(false, true)) {
+            for (DiskFlushGroup flushGroup : diskFlushGroups.values()) {
+                flushGroup.flushScheduler.shutdownNow();
+                flushGroup.flushPendingStores();
+            }
+            diskFlushGroups.clear();
+            logger.info("[Group Flusher] Group commit flusher stopped!");
+        }
+    }
+
+    /**
+     * Get the identifier of the disk the directory located on.
+     *
+     * @param storeDir    the store directory
+     * @return            the disk identifier
+     */
+    public static String getDiskId(File storeDir) {
+        String diskId = null;
+        try {
+            FileStore fileStore = Files.getFileStore(storeDir.toPath());
+            diskId = fileStore.name().replaceAll("[^A-Za-z0-9]+", "_");
+            diskId = diskId.replaceAll("^_+|_+$", "");
+        } catch (IOException e) {
+            logger.warn(new StringBuilder(512)
+                    .append("[Group Flusher] failure to get disk of ")
+                    .append(storeDir.getAbsolutePath()).toString(), e);
+        }
+        return TStringUtils.isBlank(diskId) ? DEFAULT_DISK_ID : diskId;
+    }
+
+    private void flushStore(MsgFileStore fileStore) {
+        try {
+            fileStore.groupFlush();
+        } catch (Throwable e) {
+            logger.error(new StringBuilder(512)
+                    .append("[Group Flusher] Try to flush ")
+                    .append(fileStore.getStoreKey())
+                    .append("'s file-store failed : ").toString(), e);
+        }
+    }
+
+    private class DiskFlushGroup implements Runnable {
+
+        private final String diskId;
+        private final ConcurrentLinkedQueue<MsgFileStore> pendingStores =
+                new ConcurrentLinkedQueue<>();
+        private final ScheduledExecutorService flushScheduler;
+
+        public DiskFlushGroup(final String diskId) {
+            this.diskId = diskId;
+            this.flushScheduler = Executors.newSingleThreadScheduledExecutor(
+                    r -> new Thread(r, "Broker Group Flush Thread-" + diskId));
+        }
+
+        public void start() {
+            this.flushScheduler.scheduleWithFixedDelay(this,
+                    flushDurMs, flushDurMs, TimeUnit.MILLISECONDS);
+            logger.info(new StringBuilder(512)
+                    .append("[Group Flusher] Started flush thread of disk ")
+                    .append(this.diskId).toString());
+        }
+
+        @Override
+        public void run() {
+            flushPendingStores();
+        }
+
+        private void flushPendingStores() {
+            // only the stores queued before this round are flushed,
+            // the stores queued again are left to the next round
+            int roundCnt = pendingStores.size();
+            if (roundCnt == 0) {
+                return;
+            }
+            MsgFileStore fileStore;
+            long startTime = System.currentTimeMillis();
+            for (int i = 0; i < roundCnt; i++) {
+                fileStore = pendingStores.poll();
+                if (fileStore == null) {
+                    break;
+                }
+                flushStore(fileStore);
+            }
+            BrokerSrvStatsHolder.updDiskFlushDlt(this.diskId,
+                    System.currentTimeMillis() - startTime);
+        }
+    }
+}
@@ -223,7 +223,8 @@ public class MessageStore implements Closeable {
                                                     requestOffset, msgStoreMgr.getMaxMsgTransferSize(),
                                                     maxIndexReadLength, partitionId, false,
                                                     consumerNodeInfo.isFilterConsume(),
-                                                    consumerNodeInfo.getFilterCondCodeSet(), reqRcvTime);
+                                                    consumerNodeInfo.getFilterCondCodeSet(), reqRcvTime,
+                                                    tubeConfig.isEnableZeroCopyRead());
                                 }
                             } else {
                                 // read from backup memory.
@@ -232,7 +233,8 @@ public class MessageStore implements Closeable {
                                                 requestOffset, msgStoreMgr.getMaxMsgTransferSize(),
                                                 maxIndexReadLength, partitionId, true,
                                                 consumerNodeInfo.isFilterConsume(),
-                                                consumerNodeInfo.getFilterCondCodeSet(), reqRcvTime);
+                                                consumerNodeInfo.getFilterCondCodeSet(), reqRcvTime,
+                                                tubeConfig.isEnableZeroCopyRead());
                             }
                         }
                     } finally {
@@ -247,12 +249,12 @@ public class MessageStore implements Closeable {
                         List<ClientBroker.TransferedMessage> transferedMessageList =
                                 new ArrayList<>();
                         if (!memMsgRlt.cacheMsgList.isEmpty()) {
-                            final StringBuilder strBuffer = new StringBuilder(512);
+                            final StringBuilder strBuffer = MsgReadContext.get().getStrBuffer();
                             for (ByteBuffer dataBuffer : memMsgRlt.cacheMsgList) {
                                 ClientBroker.TransferedMessage transferedMessage =
                                         DataStoreUtils.getTransferMsg(dataBuffer,
-                                                dataBuffer.array().length,
-                                                countMap, statsKeyBase, strBuffer);
+                                                dataBuffer.remaining(), countMap, statsKeyBase,
+                                                strBuffer, tubeConfig.isEnableZeroCopyRead());
                                 if (transferedMessage != null) {
                                     transferedMessageList.add(transferedMessage);
                                 }
@@ -280,10 +282,22 @@ public class MessageStore implements Closeable {
         maxIndexReadLength = consumerNodeInfo.isFilterConsume()
                 ? fileMaxFilterIndexReadSize.get()
                 : fileMaxIndexReadSize.get();
-        final ByteBuffer indexBuffer = ByteBuffer.allocate(maxIndexReadLength);
+        // skip the index blocks which hold none of the filter keys
+        long indexReadOffset = reqNewOffset;
+        if (consumerNodeInfo.isFilterConsume() && tubeConfig.isEnableFilterKeyIndex()) {
+            indexReadOffset = this.msgFileStore.getFilterMatchOffset(reqNewOffset,
+                    consumerNodeInfo.getFilterCondCodeSet());
+        }
+        final int filterSkipSize = (int) (indexReadOffset - reqNewOffset);
+        final ByteBuffer indexBuffer =
+                MsgReadContext.get().getIndexBuffer(maxIndexReadLength);
         Segment indexRecordView =
-                this.msgFileStore.indexSlice(reqNewOffset, maxIndexReadLength);
+                this.msgFileStore.indexSlice(indexReadOffset, maxIndexReadLength);
         if (indexRecordView == null) {
+            if (filterSkipSize > 0) {
+                return new GetMessageResult(false, TErrCodeConstants.NOT_FOUND,
+                        reqNewOffset, filterSkipSize, "no filter matched message!");
+            }
             if (reqNewOffset < this.msgFileStore.getIndexMinOffset()) {
                 return new GetMessageResult(false, TErrCodeConstants.MOVED,
                         reqNewOffset, 0, "current offset is exceed min offset!");
@@ -292,9 +306,12 @@ public class MessageStore implements Closeable {
                         reqNewOffset, 0, "current offset is exceed max offset!");
             }
         }
-        indexRecordView.read(indexBuffer, reqNewOffset);
+        try {
+            indexRecordView.read(indexBuffer, indexReadOffset);
+        } finally {
+            indexRecordView.relViewRef();
+        }
         indexBuffer.flip();
-        indexRecordView.relViewRef();
         if ((msgFileStore.getDataHighMaxOffset() - consumerNodeInfo.getLastDataRdOffset() >= this.tubeConfig
                 .getDoubleDefaultDeduceReadSize())
                 && msgSizeLimit > this.maxAllowRdSize) {
@@ -306,6 +323,9 @@ public class MessageStore implements Closeable {
                         indexBuffer, consumerNodeInfo.isFilterConsume(),
                         consumerNodeInfo.getFilterCondCodeSet(),
                         statsKeyBase, msgSizeLimit, reqRcvTime);
+        if (filterSkipSize > 0) {
+            retResult.setLastReadOffset(retResult.getLastReadOffset() + filterSkipSize);
+        }
         if (reqSwitch <= 1) {
             retResult.setMaxOffset(getFileIndexMaxOffset());
         } else {
@@ -405,30 +425,11 @@ public class MessageStore implements Closeable {
                     .append(this.storeKey).toString());
         }
         long messageId = this.idWorker.nextId();
-        // build data buffer
         int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + dataLength;
-        final ByteBuffer dataBuffer = ByteBuffer.allocate(msgBufLen);
-        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + dataLength);
-        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
-        dataBuffer.putInt(dataCheckSum);
-        dataBuffer.putInt(partitionId);
-        dataBuffer.putLong(-1L);
-        dataBuffer.putLong(receivedTime);
-        dataBuffer.putInt(sentAddr);
-        dataBuffer.putInt(msgTypeCode);
-        dataBuffer.putLong(messageId);
-        dataBuffer.putInt(msgFlag);
-        dataBuffer.put(data);
-        dataBuffer.flip();
-        // build index buffer
+        final ByteBuffer dataBuffer = buildDataBuffer(messageId, dataLength,
+                dataCheckSum, data, msgTypeCode, msgFlag, partitionId, sentAddr, receivedTime);
         final ByteBuffer indexBuffer =
-                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
-        indexBuffer.putInt(partitionId);
-        indexBuffer.putLong(-1L);
-        indexBuffer.putInt(msgBufLen);
-        indexBuffer.putInt(msgTypeCode);
-        indexBuffer.putLong(receivedTime);
-        indexBuffer.flip();
+                buildIndexBuffer(msgBufLen, msgTypeCode, partitionId, receivedTime);
         appendResult.putReceivedInfo(messageId, receivedTime);
         boolean appendSuss = true;
         long startTime = System.currentTimeMillis();
@@ -475,6 +476,92 @@ public class MessageStore implements Closeable {
         }
     }
 
+    /**
+     * Append a batch of messages of one partition to store.
+     *
+     * With the memory cache enabled, the whole batch is appended under one
+     * acquisition of the write cache lock and one slot reservation of the
+     * memory cache, so the messages are kept together in the store.
+     *
+     * @param appendResults   the append results of the messages
+     * @param msgCnt          the message count of the batch
+     * @param dataCheckSums   the check sums of message data
+     * @param datas           the message data
+     * @param msgTypeCodes    the filter item hash codes
+     * @param msgFlags        the message flags
+     * @param partitionId     the partitionId for append messages
+     * @param sentAddr        the address to send the message to
+     *
+     * @return                whether all the messages are appended
+     * @throws IOException    the exception during processing
+     */
+    public boolean appendMsgs(AppendResult[] appendResults, int msgCnt,
+            int[] dataCheckSums, byte[][] datas,
+            int[] msgTypeCodes, int[] msgFlags,
+            int partitionId, int sentAddr) throws IOException {
+        if (this.closed.get()) {
+            throw new IllegalStateException(new StringBuilder(512)
+                    .append("[Data Store] Closed MessageStore for storeKey ")
+                    .append(this.storeKey).toString());
+        }
+        long receivedTime = System.currentTimeMillis();
+        int totalBufLen = 0;
+        for (int i = 0; i < msgCnt; i++) {
+            totalBufLen += DataStoreUtils.STORE_DATA_HEADER_LEN + datas[i].length;
+        }
+        boolean appendSuss = true;
+        // the batch too large for one memory cache is appended one by one
+        if (!this.tubeConfig.isEnableMemStore()
+                || totalBufLen > this.writeCacheMaxSize / 2
+                || msgCnt > this.writeCacheMaxCnt / 2) {
+            for (int i = 0; i < msgCnt; i++) {
+                if (!appendMsg2(appendResults[i], datas[i].length, dataCheckSums[i],
+                        datas[i], msgTypeCodes[i], msgFlags[i], partitionId,
+                        sentAddr, receivedTime, 3, 1)) {
+                    appendSuss = false;
+                }
+            }
+            return appendSuss;
+        }
+        int[] msgBufLens = new int[msgCnt];
+        ByteBuffer[] dataBuffers = new ByteBuffer[msgCnt];
+        ByteBuffer[] indexBuffers = new ByteBuffer[msgCnt];
+        for (int i = 0; i < msgCnt; i++) {
+            long messageId = this.idWorker.nextId();
+            msgBufLens[i] = DataStoreUtils.STORE_DATA_HEADER_LEN + datas[i].length;
+            dataBuffers[i] = buildDataBuffer(messageId, datas[i].length, dataCheckSums[i],
+                    datas[i], msgTypeCodes[i], msgFlags[i], partitionId, sentAddr, receivedTime);
+            indexBuffers[i] = buildIndexBuffer(msgBufLens[i],
+                    msgTypeCodes[i], partitionId, receivedTime);
+            appendResults[i].putReceivedInfo(messageId, receivedTime);
+        }
+        long startTime = System.currentTimeMillis();
+        int count = 3;
+        do {
+            this.writeCacheMutex.readLock().lock();
+            try {
+                appendSuss = this.msgMemStore.appendMsgs(msgStoreStatsHolder,
+                        partitionId, msgCnt, msgTypeCodes, receivedTime,
+                        indexBuffers, msgBufLens, dataBuffers, appendResults);
+            } finally {
+                this.writeCacheMutex.readLock().unlock();
+            }
+            if (appendSuss || triggerFlushAndAddMsgs(partitionId, msgCnt, msgTypeCodes,
+                    receivedTime, indexBuffers, msgBufLens, dataBuffers, appendResults)) {
+                long writeDlt = System.currentTimeMillis() - startTime;
+                for (int i = 0; i < msgCnt; i++) {
+                    msgStoreStatsHolder.addMsgWriteSuccess(msgBufLens[i], writeDlt);
+                }
+                return true;
+            }
+            ThreadUtils.sleep(1);
+        } while (count-- >= 0);
+        for (int i = 0; i < msgCnt; i++) {
+            msgStoreStatsHolder.addMsgWriteFailure();
+        }
+        return false;
+    }
+
     public void getMsgStoreStatsInfo(boolean needRefresh, StringBuilder strBuff) {
         msgStoreStatsHolder.getMsgStoreStatsInfo(needRefresh, strBuff);
     }
@@ -608,6 +695,15 @@ public class MessageStore implements Closeable {
         return this.primStorePath;
     }
 
+    /**
+     * Get the group commit flusher of the broker.
+     *
+     * @return the group commit flusher, null if the group commit flush is disabled
+     */
+    public GroupCommitFlusher getGroupCommitFlusher() {
+        return (msgStoreMgr == null) ? null : msgStoreMgr.getGroupCommitFlusher();
+    }
+
     public int getUnflushInterval() {
         return this.unflushInterval.get();
     }
@@ -785,40 +881,9 @@ public class MessageStore implements Closeable {
             long receivedTime, ByteBuffer indexEntry,
             int dataLength, ByteBuffer dataEntry,
             AppendResult appendResult) throws IOException {
-        long startTime;
         writeCacheMutex.writeLock().lock();
         try {
-            if (!isFlushOngoing.get() && hasFlushBeenTriggered.compareAndSet(false, true)) {
-                this.executor.execute(new Runnable() {
-
-                    @Override
-                    public void run() {
-                        try {
-                            final StringBuilder strBuffer = new StringBuilder(512);
-                            flush(strBuffer);
-                        } catch (Throwable e) {
-                            logger.error("[Data Store] Error during flush", e);
-                        } finally {
-                            if (isTimeTrigger) {
-                                msgStoreStatsHolder.addCacheTimeoutFlush();
-                            }
-                        }
-                    }
-                });
-            } else {
-                msgStoreStatsHolder.addCachePending();
-            }
-            startTime = System.currentTimeMillis();
-            while (hasFlushBeenTriggered.get()) {
-                flushWriteCacheCondition.awaitNanos(FLUSH_CONDITION_WAIT_DLT_NS);
-                if (System.currentTimeMillis() - startTime > 2000) {
-                    logger.warn(new StringBuilder(512)
-                            .append("[Data Store] StoreKey=").append(storeKey)
-                            .append(" Wait Cache flush write too long! wait time is ")
-                            .append(System.currentTimeMillis() - startTime).toString());
-                    break;
-                }
-            }
+            triggerFlushAndWait(isTimeTrigger);
             if (needAdd) {
                 return msgMemStore.appendMsg(msgStoreStatsHolder, partitionId, keyCode,
                         receivedTime, indexEntry, dataLength, dataEntry, appendResult);
@@ -835,6 +900,95 @@ public class MessageStore implements Closeable {
         return false;
     }
 
+    private boolean triggerFlushAndAddMsgs(int partitionId, int msgCnt,
+            int[] keyCodes, long receivedTime, ByteBuffer[] indexEntries,
+            int[] dataLengths, ByteBuffer[] dataEntries,
+            AppendResult[] appendResults) throws IOException {
+        writeCacheMutex.writeLock().lock();
+        try {
+            triggerFlushAndWait(false);
+            return msgMemStore.appendMsgs(msgStoreStatsHolder, partitionId, msgCnt,
+                    keyCodes, receivedTime, indexEntries, dataLengths, dataEntries, appendResults);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(new StringBuilder(512)
+                    .append("[Data Store] StoreKey=").append(storeKey)
+                    .append(" Interrupted when triggerFlushAndAddMsgs process for storekey ")
+                    .append(storeKey).toString());
+        } finally {
+            writeCacheMutex.writeLock().unlock();
+        }
+    }
+
+    // trigger the flush of the write cache and wait for its swap,
+    // called with the write lock of the write cache held
+    private void triggerFlushAndWait(boolean isTimeTrigger) throws InterruptedException {
+        if (!isFlushOngoing.get() && hasFlushBeenTriggered.compareAndSet(false, true)) {
+            this.executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        final StringBuilder strBuffer = new StringBuilder(512);
+                        flush(strBuffer);
+                    } catch (Throwable e) {
+                        logger.error("[Data Store] Error during flush", e);
+                    } finally {
+                        if (isTimeTrigger) {
+                            msgStoreStatsHolder.addCacheTimeoutFlush();
+                        }
+                    }
+                }
+            });
+        } else {
+            msgStoreStatsHolder.addCachePending();
+        }
+        long startTime = System.currentTimeMillis();
+        while (hasFlushBeenTriggered.get()) {
+            flushWriteCacheCondition.awaitNanos(FLUSH_CONDITION_WAIT_DLT_NS);
+            if (System.currentTimeMillis() - startTime > 2000) {
+                logger.warn(new StringBuilder(512)
+                        .append("[Data Store] StoreKey=").append(storeKey)
+                        .append(" Wait Cache flush write too long! wait time is ")
+                        .append(System.currentTimeMillis() - startTime).toString());
+                break;
+            }
+        }
+    }
+
+    private ByteBuffer buildDataBuffer(long messageId, int dataLength,
+            int dataCheckSum, byte[] data, int msgTypeCode, int msgFlag,
+            int partitionId, int sentAddr, long receivedTime) {
+        final ByteBuffer dataBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + dataLength);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + dataLength);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        dataBuffer.putInt(dataCheckSum);
+        dataBuffer.putInt(partitionId);
+        dataBuffer.putLong(-1L);
+        dataBuffer.putLong(receivedTime);
+        dataBuffer.putInt(sentAddr);
+        dataBuffer.putInt(msgTypeCode);
+        dataBuffer.putLong(messageId);
+        dataBuffer.putInt(msgFlag);
+        dataBuffer.put(data);
+        dataBuffer.flip();
+        return dataBuffer;
+    }
+
+    private ByteBuffer buildIndexBuffer(int msgBufLen, int msgTypeCode,
+            int partitionId, long receivedTime) {
+        final ByteBuffer indexBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        indexBuffer.putInt(partitionId);
+        indexBuffer.putLong(-1L);
+        indexBuffer.putInt(msgBufLen);
+        indexBuffer.putInt(msgTypeCode);
+        indexBuffer.putLong(receivedTime);
+        indexBuffer.flip();
+        return indexBuffer;
+    }
+
     private void flush(StringBuilder strBuffer) throws IOException {
         long startTime = System.currentTimeMillis();
         flushMutex.lock();
@@ -82,6 +82,8 @@ public class MessageStoreManager implements StoreService {
     private final ScheduledExecutorService unFlushDiskScheduler;
     // message on memory sink to disk operation scheduler.
     private final ScheduledExecutorService unFlushMemScheduler;
+    // per-disk group commit flusher, null if disabled
+    private final GroupCommitFlusher groupCommitFlusher;
     // max transfer size.
     private final int maxMsgTransferSize;
     // the status that is deleting topic.
@@ -137,6 +139,12 @@ public class MessageStoreManager implements StoreService {
                         return new Thread(r, "Broker Log Mem Flush Thread");
                     }
                 });
+        if (tubeConfig.isEnableGroupCommitFlush()) {
+            this.groupCommitFlusher =
+                    new GroupCommitFlusher(tubeConfig.getGroupCommitFlushDurMs());
+        } else {
+            this.groupCommitFlusher = null;
+        }
 
     }
 
@@ -177,6 +185,9 @@ public class MessageStoreManager implements StoreService {
             this.logClearScheduler.shutdownNow();
             this.unFlushDiskScheduler.shutdownNow();
             this.unFlushMemScheduler.shutdownNow();
+            if (this.groupCommitFlusher != null) {
+                this.groupCommitFlusher.close();
+            }
             for (Map.Entry<String, ConcurrentHashMap<Integer, MessageStore>> entry : this.dataStores.entrySet()) {
                 if (entry.getValue() != null) {
                     ConcurrentHashMap<Integer, MessageStore> subMap = entry.getValue();
@@ -397,6 +408,10 @@ public class MessageStoreManager implements StoreService {
         return maxMsgTransferSize;
     }
 
+    public GroupCommitFlusher getGroupCommitFlusher() {
+        return groupCommitFlusher;
+    }
+
     public Map<String, ConcurrentHashMap<Integer, MessageStore>> getMessageStores() {
         return Collections.unmodifiableMap(this.dataStores);
     }
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.apache.inlong.tubemq.server.common.TServerConstants;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Per-thread reusable buffers of the message read path.
+ *
+ * The buffers are only valid until the next call on the same thread,
+ * so nothing obtained here may be kept in a read result.
+ */
+public class MsgReadContext {
+
+    // buffers larger than this size are not kept after use
+    private static final int MAX_RETAINED_BUFFER_SIZE =
+            TServerConstants.CFG_STORE_DEFAULT_MSG_READ_UNIT * 4;
+    private static final ThreadLocal<MsgReadContext> CONTEXTS =
+            ThreadLocal.withInitial(MsgReadContext::new);
+
+    private ByteBuffer dataBuffer =
+            ByteBuffer.allocate(TServerConstants.CFG_STORE_DEFAULT_MSG_READ_UNIT);
+    private ByteBuffer indexBuffer = ByteBuffer.allocate(0);
+    private int[] posArray = new int[0];
+    private final StringBuilder strBuffer = new StringBuilder(512);
+
+    private MsgReadContext() {
+
+    }
+
+    public static MsgReadContext get() {
+        return CONTEXTS.get();
+    }
+
+    /**
+     * Get the cleared data read buffer with at least the required capacity.
+     *
+     * @param minSize    the required capacity
+     * @return           the data buffer
+     */
+    public ByteBuffer getDataBuffer(int minSize) {
+        if (dataBuffer.capacity() < minSize) {
+            ByteBuffer newBuffer = ByteBuffer.allocate(minSize);
+            if (minSize <= MAX_RETAINED_BUFFER_SIZE) {
+                dataBuffer = newBuffer;
+            }
+            return newBuffer;
+        }
+        dataBuffer.clear();
+        return dataBuffer;
+    }
+
+    /**
+     * Get the cleared index read buffer, its limit is set to the required size.
+     *
+     * @param size    the required size
+     * @return        the index buffer
+     */
+    public ByteBuffer getIndexBuffer(int size) {
+        if (indexBuffer.capacity() < size) {
+            ByteBuffer newBuffer = ByteBuffer.allocate(size);
+            if (size <= MAX_RETAINED_BUFFER_SIZE) {
+                indexBuffer = newBuffer;
+            }
+            return newBuffer;
+        }
+        indexBuffer.clear();
+        indexBuffer.limit(size);
+        return indexBuffer;
+    }
+
+    /**
+     * Get the position array with at least the required length.
+     *
+     * @param minSize    the required length
+     * @return           the position array
+     */
+    public int[] getPosArray(int minSize) {
+        if (posArray.length < minSize) {
+            int[] newArray = new int[minSize];
+            if (minSize <= MAX_RETAINED_BUFFER_SIZE / 4) {
+                posArray = newArray;
+            }
+            return newArray;
+        }
+        return posArray;
+    }
+
+    /**
+     * Get the emptied string buffer.
+     *
+     * @return   the string buffer
+     */
+    public StringBuilder getStrBuffer() {
+        strBuffer.delete(0, strBuffer.length());
+        return strBuffer;
+    }
+}
@@ -32,6 +32,7 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -53,9 +54,15 @@ public class FileSegment implements Segment {
     private long expiredTime = 0;
     private final AtomicBoolean expired = new AtomicBoolean(false);
     private final AtomicBoolean closed = new AtomicBoolean(false);
+    // the owner holds one reference until the segment is closed
+    private final AtomicInteger viewRefCnt = new AtomicInteger(1);
     // the first record append time
     private final AtomicLong leftAppendTime =
             new AtomicLong(TBaseConstants.META_VALUE_UNDEFINED);
+    // the sparse time index of index segment
+    private final SegmentTimeIndex timeIndex;
+    // the filter key index of index segment, created on demand
+    private volatile SegmentKeyIndex keyIndex;
     // the latest record append time
     private final AtomicLong rightAppendTime =
             new AtomicLong(TBaseConstants.META_VALUE_UNDEFINED);
@@ -81,6 +88,7 @@ public class FileSegment implements Segment {
         this.start = start;
         this.file = file;
         this.mutable = mutable;
+        this.timeIndex = (type == SegmentType.INDEX) ? new SegmentTimeIndex() : null;
         this.cachedSize = new AtomicLong(0);
         this.flushedSize = new AtomicLong(0);
         this.randFile = new RandomAccessFile(this.file, "rw");
@@ -150,29 +158,28 @@ public class FileSegment implements Segment {
     @Override
     public void close() {
         if (this.closed.compareAndSet(false, true)) {
-            try {
-                if (this.channel.isOpen()) {
-                    if (this.mutable) {
-                        flush(true);
-                    }
-                    this.channel.close();
-                }
-                this.randFile.close();
-            } catch (Throwable ee) {
-                if (ee instanceof IOException) {
-                    ServiceStatusHolder.addReadIOErrCnt();
-                    BrokerSrvStatsHolder.incDiskIOExcCnt();
-                }
-                logger.error(new StringBuilder(512).append("[File Store] Close ")
-                        .append(this.file.getAbsoluteFile().toString())
-                        .append("'s ").append(segmentType).append(" file failure").toString(), ee);
-            }
+            relViewRef();
         }
     }
 
     @Override
     public void deleteFile() {
-        this.closed.set(true);
+        close();
+        try {
+            logger.info(new StringBuilder(512)
+                    .append("[File Store] delete file ")
+                    .append(file.getAbsoluteFile()).toString());
+            this.file.delete();
+        } catch (Throwable ee) {
+            if (ee instanceof IOException) {
+                ServiceStatusHolder.addReadIOErrCnt();
+                BrokerSrvStatsHolder.incDiskIOExcCnt();
+            }
+            logger.error("[File Store] failure to delete file ", ee);
+        }
+    }
+
+    private void closeChannel() {
         try {
             if (this.channel.isOpen()) {
                 if (this.mutable) {
@@ -181,24 +188,14 @@ public class FileSegment implements Segment {
                 this.channel.close();
             }
             this.randFile.close();
-        } catch (Throwable e1) {
-            if (e1 instanceof IOException) {
-                ServiceStatusHolder.addReadIOErrCnt();
-                BrokerSrvStatsHolder.incDiskIOExcCnt();
-            }
-            logger.error("[File Store] failure to close channel ", e1);
-        }
-        try {
-            logger.info(new StringBuilder(512)
-                    .append("[File Store] delete file ")
-                    .append(file.getAbsoluteFile()).toString());
-            this.file.delete();
         } catch (Throwable ee) {
             if (ee instanceof IOException) {
                 ServiceStatusHolder.addReadIOErrCnt();
                 BrokerSrvStatsHolder.incDiskIOExcCnt();
             }
-            logger.error("[File Store] failure to delete file ", ee);
+            logger.error(new StringBuilder(512).append("[File Store] Close ")
+                    .append(this.file.getAbsoluteFile().toString())
+                    .append("'s ").append(segmentType).append(" file failure").toString(), ee);
         }
     }
 
@@ -226,12 +223,20 @@ public class FileSegment implements Segment {
             throw new UnsupportedOperationException("[File Store] Segment is closed!");
         }
         final long offset = this.cachedSize.get();
+        final int bufStartPos = buf.position();
         int sizeInBytes = 0;
         while (buf.hasRemaining()) {
             sizeInBytes += this.channel.write(buf);
         }
         this.cachedSize.addAndGet(sizeInBytes);
         if (segmentType == SegmentType.INDEX) {
+            this.timeIndex.addRecords(buf, bufStartPos,
+                    offset / DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            final SegmentKeyIndex curKeyIndex = this.keyIndex;
+            if (curKeyIndex != null) {
+                curKeyIndex.addRecords(buf, bufStartPos,
+                        offset / DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            }
             this.rightAppendTime.set(rightTime);
             if (offset == 0) {
                 this.leftAppendTime.set(leftTime);
@@ -279,13 +284,28 @@ public class FileSegment implements Segment {
                         && offset <= this.start + this.getCachedSize() - 1);
     }
 
+    @Override
+    public boolean acquireViewRef() {
+        while (true) {
+            int curRefCnt = this.viewRefCnt.get();
+            if (curRefCnt <= 0) {
+                return false;
+            }
+            if (this.viewRefCnt.compareAndSet(curRefCnt, curRefCnt + 1)) {
+                return true;
+            }
+        }
+    }
+
     /**
      * Release reference to this FileSegment.
      * File's channel will be closed when the reference decreased to 0.
      */
     @Override
     public void relViewRef() {
-
+        if (this.viewRefCnt.decrementAndGet() == 0) {
+            closeChannel();
+        }
     }
 
     @Override
@@ -586,4 +606,23 @@ public class FileSegment implements Segment {
         }
     }
 
+    @Override
+    public SegmentTimeIndex getTimeIndex() {
+        return timeIndex;
+    }
+
+    @Override
+    public SegmentKeyIndex getKeyIndex() {
+        if (this.segmentType != SegmentType.INDEX) {
+            return null;
+        }
+        if (this.keyIndex == null) {
+            synchronized (this) {
+                if (this.keyIndex == null) {
+                    this.keyIndex = new SegmentKeyIndex();
+                }
+            }
+        }
+        return this.keyIndex;
+    }
 }
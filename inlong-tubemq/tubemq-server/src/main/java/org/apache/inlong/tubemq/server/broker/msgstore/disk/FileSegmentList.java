@@ -59,7 +59,8 @@ public class FileSegmentList implements SegmentList {
     }
 
     /**
-     * Return segment by the given offset.
+     * Return segment by the given offset, the returned segment holds a view reference
+     * which must be released by the caller through relViewRef().
      *
      * @param offset     the position to search
      * @return           the segment included the position
@@ -68,7 +69,9 @@ public class FileSegmentList implements SegmentList {
     @Override
     public Segment getRecordSeg(final long offset) throws IOException {
         Segment tmpSeg = this.findSegment(offset);
-        if (tmpSeg != null && tmpSeg.isExpired()) {
+        if (tmpSeg == null
+                || tmpSeg.isExpired()
+                || !tmpSeg.acquireViewRef()) {
             return null;
         }
         return tmpSeg;
@@ -129,6 +132,37 @@ public class FileSegmentList implements SegmentList {
         }
     }
 
+    /**
+     * Replace the segment with the new one that covers the same range,
+     * the replaced segment is closed after the replacement.
+     *
+     * @param oldSegment   the segment to be replaced
+     * @param newSegment   the replacing segment
+     * @return             whether the segment was found and replaced
+     */
+    @Override
+    public boolean replace(final Segment oldSegment, final Segment newSegment) {
+        while (true) {
+            int index = -1;
+            final Segment[] curViews = segmentList.get();
+            for (int i = 0; i < curViews.length; i++) {
+                if (curViews[i] == oldSegment) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index == -1) {
+                return false;
+            }
+            final Segment[] update = curViews.clone();
+            update[index] = newSegment;
+            if (this.segmentList.compareAndSet(curViews, update)) {
+                oldSegment.close();
+                return true;
+            }
+        }
+    }
+
     @Override
     public void delete(final Segment segment) {
         while (true) {
@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sun.nio.ch.DirectBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read-only segment file backed by a memory mapping.
+ * Only sealed segments can be mapped, the reads become memory copies from the page cache
+ * instead of read system calls. The mapping is reference counted, it will be released
+ * when the segment is closed and the last view reference is returned.
+ */
+public class MmapFileSegment implements Segment {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(MmapFileSegment.class);
+    private final long start;
+    private final File file;
+    private final long size;
+    private final SegmentType segmentType;
+    private final MappedByteBuffer mappedBuffer;
+    private long expiredTime = 0;
+    private final AtomicBoolean expired = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    // the owner holds one reference until the segment is closed
+    private final AtomicInteger viewRefCnt = new AtomicInteger(1);
+    // the first record append time
+    private long leftAppendTime = TBaseConstants.META_VALUE_UNDEFINED;
+    // the sparse time index of index segment
+    private final SegmentTimeIndex timeIndex;
+    // the filter key index of index segment, created on demand
+    private volatile SegmentKeyIndex keyIndex;
+    // the latest record append time
+    private long rightAppendTime = TBaseConstants.META_VALUE_UNDEFINED;
+
+    public MmapFileSegment(long start, File file, SegmentType type) throws IOException {
+        this.start = start;
+        this.file = file;
+        this.segmentType = type;
+        this.timeIndex = (type == SegmentType.INDEX) ? new SegmentTimeIndex() : null;
+        try (RandomAccessFile randFile = new RandomAccessFile(this.file, "r");
+                FileChannel channel = randFile.getChannel()) {
+            this.size = channel.size();
+            if (this.size > Integer.MAX_VALUE) {
+                throw new IOException(new StringBuilder(512)
+                        .append("[File Store] Segment ").append(file.getAbsolutePath())
+                        .append(" is too large to be mapped, size=").append(this.size).toString());
+            }
+            this.mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, this.size);
+        }
+        if (this.segmentType == SegmentType.INDEX && this.size > 0) {
+            this.leftAppendTime = getRecordTime(this.start);
+            this.rightAppendTime = getRecordTime(this.start
+                    + this.size - DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.closed.compareAndSet(false, true)) {
+            relViewRef();
+        }
+    }
+
+    @Override
+    public void deleteFile() {
+        close();
+        try {
+            logger.info(new StringBuilder(512)
+                    .append("[File Store] delete file ")
+                    .append(file.getAbsoluteFile()).toString());
+            this.file.delete();
+        } catch (Throwable ee) {
+            if (ee instanceof IOException) {
+                ServiceStatusHolder.addReadIOErrCnt();
+                BrokerSrvStatsHolder.incDiskIOExcCnt();
+            }
+            logger.error("[File Store] failure to delete file ", ee);
+        }
+    }
+
+    @Override
+    public long append(ByteBuffer buf, long leftTime, long rightTime) throws IOException {
+        if (this.segmentType == SegmentType.DATA) {
+            throw new UnsupportedOperationException("[File Store] Data Segment is immutable!");
+        } else {
+            throw new UnsupportedOperationException(
+                    "[File Store] Index Segment is immutable!");
+        }
+    }
+
+    @Override
+    public long flush(boolean force) throws IOException {
+        return this.start + this.size;
+    }
+
+    @Override
+    public boolean isExpired() {
+        return expired.get();
+    }
+
+    @Override
+    public boolean needDelete() {
+        return (expired.get() && (System.currentTimeMillis() - expiredTime > 120000));
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    @Override
+    public boolean contains(long offset) {
+        return (this.size == 0
+                && offset == this.start
+                || this.size > 0
+                        && offset >= this.start
+                        && offset <= this.start + this.size - 1);
+    }
+
+    @Override
+    public boolean acquireViewRef() {
+        while (true) {
+            int curRefCnt = this.viewRefCnt.get();
+            if (curRefCnt <= 0) {
+                return false;
+            }
+            if (this.viewRefCnt.compareAndSet(curRefCnt, curRefCnt + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release reference to this segment.
+     * The mapping will be released when the reference decreased to 0.
+     */
+    @Override
+    public void relViewRef() {
+        if (this.viewRefCnt.decrementAndGet() == 0) {
+            try {
+                ((DirectBuffer) this.mappedBuffer).cleaner().clean();
+            } catch (Throwable ee) {
+                // the mapping will be released by GC if it cannot be unmapped directly
+                logger.debug("[File Store] unmap segment failure, left it to GC", ee);
+            }
+        }
+    }
+
+    @Override
+    public long getStart() {
+        return start;
+    }
+
+    @Override
+    public long getLast() {
+        return start + size;
+    }
+
+    @Override
+    public long getCommitLast() {
+        return start + size;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public void setMutable(boolean mutable) {
+        if (mutable) {
+            throw new UnsupportedOperationException(
+                    "[File Store] Mapped Segment cannot be set to mutable!");
+        }
+    }
+
+    @Override
+    public long getLeftAppendTime() {
+        return leftAppendTime;
+    }
+
+    @Override
+    public long getRightAppendTime() {
+        return rightAppendTime;
+    }
+
+    @Override
+    public boolean containTime(long timestamp) {
+        if (this.size == 0) {
+            return false;
+        }
+        return timestamp >= this.leftAppendTime
+                && timestamp <= this.rightAppendTime;
+    }
+
+    @Override
+    public long getCachedSize() {
+        return this.size;
+    }
+
+    @Override
+    public long getCommitSize() {
+        return this.size;
+    }
+
+    @Override
+    public final File getFile() {
+        return this.file;
+    }
+
+    @Override
+    public void read(ByteBuffer bf, long absOffset) throws IOException {
+        relRead(bf, absOffset - start);
+    }
+
+    @Override
+    public void relRead(final ByteBuffer bf, long relOffset) throws IOException {
+        if (relOffset < 0 || relOffset >= this.size) {
+            return;
+        }
+        ByteBuffer readView = this.mappedBuffer.duplicate();
+        readView.position((int) relOffset);
+        if (readView.remaining() > bf.remaining()) {
+            readView.limit((int) relOffset + bf.remaining());
+        }
+        bf.put(readView);
+    }
+
+    /**
+     * read index record's append time.
+     * @param reqOffset request offset.
+     * @return message append time.
+     */
+    @Override
+    public long getRecordTime(long reqOffset) throws IOException {
+        return this.mappedBuffer.getLong((int) (reqOffset - start)
+                + DataStoreUtils.INDEX_POS_TIME_RECV);
+    }
+
+    /**
+     * Check whether this segment is expired, and set expire status.
+     *
+     * @param checkTimestamp check timestamp.
+     * @param maxValidTimeMs the max expire interval in milliseconds.
+     * @return -1 means already expired, 0 means not expired, 1 means expired.
+     */
+    @Override
+    public int checkAndSetExpired(long checkTimestamp, long maxValidTimeMs) {
+        if (expired.get()) {
+            return -1;
+        }
+        if (closed.get()) {
+            return 0;
+        }
+        if (checkTimestamp - file.lastModified() > maxValidTimeMs) {
+            if (expired.compareAndSet(false, true)) {
+                expiredTime = System.currentTimeMillis();
+            }
+            return 1;
+        }
+        return 0;
+    }
+
+    @Override
+    public SegmentTimeIndex getTimeIndex() {
+        return timeIndex;
+    }
+
+    @Override
+    public SegmentKeyIndex getKeyIndex() {
+        if (this.segmentType != SegmentType.INDEX) {
+            return null;
+        }
+        if (this.keyIndex == null) {
+            synchronized (this) {
+                if (this.keyIndex == null) {
+                    this.keyIndex = new SegmentKeyIndex();
+                }
+            }
+        }
+        return this.keyIndex;
+    }
+}
@@ -22,7 +22,9 @@ import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
 import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
 import org.apache.inlong.tubemq.corebase.utils.Tuple3;
 import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.msgstore.GroupCommitFlusher;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.MsgReadContext;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
 import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
 import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
@@ -63,6 +65,10 @@ public class MsgFileStore implements Closeable {
     private final File dataDir;
     // index file storage directory
     private final File indexDir;
+    // the disk identifier of the storage directory
+    private final String diskId;
+    // whether a group commit flush is pending
+    private final AtomicBoolean groupFlushPending = new AtomicBoolean(false);
     // disk flush parameters: current unflushed message count
     private final AtomicInteger curUnflushed = new AtomicInteger(0);
     // current unflushed message size
@@ -113,6 +119,7 @@ public class MsgFileStore implements Closeable {
         sBuilder.delete(0, sBuilder.length());
         FileUtil.checkDir(this.dataDir);
         FileUtil.checkDir(this.indexDir);
+        this.diskId = GroupCommitFlusher.getDiskId(this.dataDir);
         loadSegments(SegmentType.DATA, offsetIfCreate, sBuilder);
         loadSegments(SegmentType.INDEX, offsetIfCreate, sBuilder);
         this.lastFlushTime.set(System.currentTimeMillis());
@@ -151,6 +158,8 @@ public class MsgFileStore implements Closeable {
         boolean pendingMsgSizeExceed = false;
         boolean pendingMsgTimeExceed = false;
         boolean isForceMetadata = false;
+        boolean needGroupFlush = false;
+        final GroupCommitFlusher groupFlusher = messageStore.getGroupCommitFlusher();
         // flushed message count and data size info
         long flushedMsgCnt = 0;
         long flushedDataSize = 0;
@@ -193,6 +202,7 @@ public class MsgFileStore implements Closeable {
                 curDataSeg.setMutable(false);
                 newDataFilePath = newDataFile.getAbsolutePath();
                 this.dataSegments.append(new FileSegment(newDataOffset, newDataFile, SegmentType.DATA));
+                mapSealedSegment(this.dataSegments, curDataSeg, SegmentType.DATA);
             }
             // filling index data.
             indexOffset = curIndexSeg.append(indexBuffer, leftTime, rightTime);
@@ -207,6 +217,7 @@ public class MsgFileStore implements Closeable {
                 newIndexFilePath = newIndexFile.getAbsolutePath();
                 this.indexSegments.append(new FileSegment(newIndexOffset,
                         newIndexFile, SegmentType.INDEX));
+                mapSealedSegment(this.indexSegments, curIndexSeg, SegmentType.INDEX);
             }
             // check whether we need to flush to disk.
             pendingMsgSizeExceed = (messageStore.getUnflushDataHold() > 0)
@@ -217,19 +228,24 @@ public class MsgFileStore implements Closeable {
                     (currTime - this.lastFlushTime.get() >= messageStore.getUnflushInterval());
             if (pendingMsgCntExceed || pendingMsgTimeExceed
                     || pendingMsgSizeExceed || isDataSegFlushed || isIndexSegFlushed) {
-                isForceMetadata = (isDataSegFlushed || isIndexSegFlushed
-                        || (currTime - this.lastMetaFlushTime.get() > MAX_META_REFRESH_DUR));
-                if (!isDataSegFlushed) {
-                    curDataSeg.flush(isForceMetadata);
-                }
-                if (!isIndexSegFlushed) {
-                    curIndexSeg.flush(isForceMetadata);
-                }
-                flushedMsgCnt = this.curUnflushed.getAndSet(0);
-                flushedDataSize = this.curUnflushSize.getAndSet(0);
-                this.lastFlushTime.set(currTime);
-                if (isForceMetadata) {
-                    this.lastMetaFlushTime.set(this.lastFlushTime.get());
+                if (groupFlusher != null && !isDataSegFlushed && !isIndexSegFlushed) {
+                    // leave the flush to the group commit round of the disk
+                    needGroupFlush = true;
+                } else {
+                    isForceMetadata = (isDataSegFlushed || isIndexSegFlushed
+                            || (currTime - this.lastMetaFlushTime.get() > MAX_META_REFRESH_DUR));
+                    if (!isDataSegFlushed) {
+                        curDataSeg.flush(isForceMetadata);
+                    }
+                    if (!isIndexSegFlushed) {
+                        curIndexSeg.flush(isForceMetadata);
+                    }
+                    flushedMsgCnt = this.curUnflushed.getAndSet(0);
+                    flushedDataSize = this.curUnflushSize.getAndSet(0);
+                    this.lastFlushTime.set(currTime);
+                    if (isForceMetadata) {
+                        this.lastMetaFlushTime.set(this.lastFlushTime.get());
+                    }
                 }
             }
             // print abnormal information
@@ -256,6 +272,9 @@ public class MsgFileStore implements Closeable {
             samplePrintCtrl.printExceptionCaught(e);
         } finally {
             this.writeLock.unlock();
+            if (needGroupFlush) {
+                groupFlusher.requestFlush(this);
+            }
             // add statistics.
             if (fileStoreOK) {
                 msgStoreStatsHolder.addFileFlushStatsInfo(msgCnt, indexSize, dataSize,
@@ -316,12 +335,19 @@ public class MsgFileStore implements Closeable {
         long recvTimeInMillsec = 0L;
         long maxDataLimitOffset = 0L;
         long lastRdDataOffset = 0L;
-        final StringBuilder sBuilder = new StringBuilder(512);
+        final MsgReadContext readContext = MsgReadContext.get();
+        final StringBuilder sBuilder = readContext.getStrBuffer();
         final long curDataMaxOffset = getDataMaxOffset();
         final long curDataMinOffset = getDataMinOffset();
         HashMap<String, TrafficInfo> countMap = new HashMap<>();
-        ByteBuffer dataBuffer =
-                ByteBuffer.allocate(TServerConstants.CFG_STORE_DEFAULT_MSG_READ_UNIT);
+        // in zero-copy read mode, the consecutive messages are read from the data
+        // segment in one pass into a chunk sized to the transfer budget, each message
+        // is a slice of the chunk, and the payloads are referenced by the reply
+        // instead of being copied again
+        final boolean zeroCopyRead = this.tubeConfig.isEnableZeroCopyRead();
+        ByteBuffer readChunk = null;
+        long chunkDataOffset = 0L;
+        ByteBuffer dataBuffer = null;
         List<ClientBroker.TransferedMessage> transferedMessageList =
                 new ArrayList<>();
         // read data file by index.
@@ -375,13 +401,32 @@ public class MsgFileStore implements Closeable {
                         throw new Exception("Read Service has closed!");
                     }
                 }
-                if (dataBuffer.capacity() < curIndexDataSize) {
-                    dataBuffer = ByteBuffer.allocate(curIndexDataSize);
+                if (zeroCopyRead) {
+                    if (readChunk == null
+                            || curIndexDataOffset < chunkDataOffset
+                            || maxDataLimitOffset > chunkDataOffset + readChunk.limit()) {
+                        // a new chunk each time, the slices of the former one are in the reply
+                        readChunk = ByteBuffer.allocate((int) Math.min(
+                                Math.max(curIndexDataSize, Math.min(maxMsgTransferSize - totalSize,
+                                        TServerConstants.CFG_STORE_DEFAULT_MSG_READ_UNIT)),
+                                Math.min(curDataMaxOffset,
+                                        recordSeg.getStart() + recordSeg.getCachedSize())
+                                        - curIndexDataOffset));
+                        recordSeg.read(readChunk, curIndexDataOffset);
+                        readChunk.flip();
+                        chunkDataOffset = curIndexDataOffset;
+                    }
+                    dataBuffer = readChunk.duplicate();
+                    dataBuffer.position((int) (curIndexDataOffset - chunkDataOffset));
+                    dataBuffer.limit(Math.min(readChunk.limit(),
+                            dataBuffer.position() + curIndexDataSize));
+                    dataBuffer = dataBuffer.slice();
+                } else {
+                    dataBuffer = readContext.getDataBuffer(curIndexDataSize);
+                    dataBuffer.limit(curIndexDataSize);
+                    recordSeg.read(dataBuffer, curIndexDataOffset);
+                    dataBuffer.flip();
                 }
-                dataBuffer.clear();
-                dataBuffer.limit(curIndexDataSize);
-                recordSeg.read(dataBuffer, curIndexDataOffset);
-                dataBuffer.flip();
                 dataRealLimit = dataBuffer.limit();
                 if (dataRealLimit < curIndexDataSize) {
                     lastRdDataOffset = curIndexDataOffset;
@@ -407,8 +452,8 @@ public class MsgFileStore implements Closeable {
             readedOffset = curIndexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN;
             lastRdDataOffset = maxDataLimitOffset;
             ClientBroker.TransferedMessage transferedMessage =
-                    DataStoreUtils.getTransferMsg(dataBuffer,
-                            curIndexDataSize, countMap, statsKeyBase, sBuilder);
+                    DataStoreUtils.getTransferMsg(dataBuffer, curIndexDataSize,
+                            countMap, statsKeyBase, sBuilder, zeroCopyRead);
             if (transferedMessage == null) {
                 continue;
             }
@@ -450,36 +495,56 @@ public class MsgFileStore implements Closeable {
         if (recordSeg == null || this.closed.get()) {
             return -1;
         }
+        if (!recordSeg.acquireViewRef()) {
+            return -1;
+        }
+        try {
+            return getStartOffsetByTimeStamp(recordSeg, timestamp);
+        } finally {
+            recordSeg.relViewRef();
+        }
+    }
+
+    private long getStartOffsetByTimeStamp(Segment recordSeg, long timestamp) {
         long endPos = (recordSeg.getCommitLast() - recordSeg.getStart())
                 / DataStoreUtils.STORE_INDEX_HEAD_LEN - 1;
         final long curDataMinOffset = getDataMinOffset();
-        final ByteBuffer readBuffer =
-                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
         // check boundaries
         if (endPos <= 0) {
             return recordSeg.getStart();
         }
-        long foundTime = getTimeStamp(recordSeg,
-                0, curDataMinOffset, readBuffer);
-        if (timestamp < foundTime) {
+        // narrow the search to the records between two time samples,
+        // and read them in one go
+        long startPos;
+        ByteBuffer readBuffer;
+        try {
+            long[] slotRange = recordSeg.getTimeIndex().findSlotRange(recordSeg, timestamp, endPos);
+            startPos = slotRange[0];
+            endPos = slotRange[1];
+            readBuffer = MsgReadContext.get().getIndexBuffer(
+                    (int) (endPos - startPos + 1) * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            recordSeg.relRead(readBuffer, startPos * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            readBuffer.flip();
+        } catch (Throwable ex) {
+            samplePrintCtrl.printExceptionCaught(ex);
             return recordSeg.getStart();
         }
-        foundTime = getTimeStamp(recordSeg,
-                endPos * DataStoreUtils.STORE_INDEX_HEAD_LEN,
-                curDataMinOffset, readBuffer);
+        final long basePos = startPos;
+        long foundTime = getTimeStamp(readBuffer, 0, curDataMinOffset);
+        if (timestamp < foundTime) {
+            return recordSeg.getStart() + startPos * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        }
+        foundTime = getTimeStamp(readBuffer, endPos - basePos, curDataMinOffset);
         if (timestamp > foundTime) {
             return recordSeg.getStart() + endPos * DataStoreUtils.STORE_INDEX_HEAD_LEN;
         }
         long midPos = 0;
-        long startPos = 0;
-        long firstLowPos = 0;
+        long firstLowPos = startPos;
         long firstEqualPos = -1;
         // Dichotomy finds the first offset position less than the specified time
         while (startPos <= endPos) {
             midPos = endPos + startPos >>> 1;
-            foundTime = getTimeStamp(recordSeg,
-                    midPos * DataStoreUtils.STORE_INDEX_HEAD_LEN,
-                    curDataMinOffset, readBuffer);
+            foundTime = getTimeStamp(readBuffer, midPos - basePos, curDataMinOffset);
             if (foundTime < timestamp) {
                 firstLowPos = midPos;
                 startPos = midPos + 1;
@@ -542,7 +607,13 @@ public class MsgFileStore implements Closeable {
      */
     public void flushDiskFile() throws IOException {
         long checkTimestamp = System.currentTimeMillis();
-        if ((curUnflushed.get() > 0)
+        final GroupCommitFlusher groupFlusher = messageStore.getGroupCommitFlusher();
+        if (groupFlusher != null) {
+            if ((curUnflushed.get() > 0)
+                    && (checkTimestamp - lastFlushTime.get() >= messageStore.getUnflushInterval())) {
+                groupFlusher.requestFlush(this);
+            }
+        } else if ((curUnflushed.get() > 0)
                 && (checkTimestamp - lastFlushTime.get() >= messageStore.getUnflushInterval())) {
             long flushedMsgCnt = 0L;
             long flushedDataSize = 0L;
@@ -572,6 +643,61 @@ public class MsgFileStore implements Closeable {
         msgStoreStatsHolder.chkStatsExpired(checkTimestamp);
     }
 
+    /**
+     * Mark the group commit flush pending.
+     *
+     * @return   whether the mark succeeded, false if a flush is already pending
+     */
+    public boolean markGroupFlushPending() {
+        return groupFlushPending.compareAndSet(false, true);
+    }
+
+    /**
+     * Flush the unflushed data to disk in a group commit round.
+     *
+     * @return whether any data was flushed
+     * @throws IOException the exception during processing
+     */
+    public boolean groupFlush() throws IOException {
+        groupFlushPending.set(false);
+        if (this.closed.get() || curUnflushed.get() <= 0) {
+            return false;
+        }
+        long flushedMsgCnt;
+        long flushedDataSize;
+        boolean forceMetadata;
+        this.writeLock.lock();
+        try {
+            if (this.closed.get() || curUnflushed.get() <= 0) {
+                return false;
+            }
+            long checkTimestamp = System.currentTimeMillis();
+            forceMetadata =
+                    (checkTimestamp - lastMetaFlushTime.get()) > MAX_META_REFRESH_DUR;
+            dataSegments.flushLast(forceMetadata);
+            indexSegments.flushLast(forceMetadata);
+            if (forceMetadata) {
+                this.lastMetaFlushTime.set(checkTimestamp);
+            }
+            flushedMsgCnt = curUnflushed.getAndSet(0);
+            flushedDataSize = curUnflushSize.getAndSet(0);
+            lastFlushTime.set(checkTimestamp);
+        } finally {
+            this.writeLock.unlock();
+        }
+        msgStoreStatsHolder.addFileGroupFlushStats(flushedMsgCnt,
+                flushedDataSize, forceMetadata);
+        return true;
+    }
+
+    public String getStoreKey() {
+        return storeKey;
+    }
+
+    public String getDiskId() {
+        return diskId;
+    }
+
     public long getDataSizeInBytes() {
         return dataSegments.getSizeInBytes();
     }
@@ -608,6 +734,43 @@ public class MsgFileStore implements Closeable {
         return this.indexSegments.getMinOffset();
     }
 
+    /**
+     * Get the offset from which the index records may match the filter keys,
+     * the records skipped over hold none of the filter keys.
+     *
+     * @param reqOffset       the request index offset
+     * @param filterKeySet    the filter key codes
+     * @return                the index offset to read from
+     */
+    public long getFilterMatchOffset(long reqOffset, Set<Integer> filterKeySet) {
+        if (filterKeySet == null || filterKeySet.isEmpty()) {
+            return reqOffset;
+        }
+        Segment recordSeg = null;
+        try {
+            recordSeg = indexSegments.getRecordSeg(reqOffset);
+            if (recordSeg == null || this.closed.get()) {
+                return reqOffset;
+            }
+            long relOffset = reqOffset - recordSeg.getStart();
+            if (relOffset % DataStoreUtils.STORE_INDEX_HEAD_LEN != 0) {
+                return reqOffset;
+            }
+            long matchSlot = recordSeg.getKeyIndex().findMatchSlot(recordSeg,
+                    relOffset / DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                    SegmentKeyIndex.getKeyMask(filterKeySet));
+            return Math.min(recordSeg.getStart()
+                    + matchSlot * DataStoreUtils.STORE_INDEX_HEAD_LEN, getIndexMaxOffset());
+        } catch (Throwable ex) {
+            samplePrintCtrl.printExceptionCaught(ex);
+            return reqOffset;
+        } finally {
+            if (recordSeg != null) {
+                recordSeg.relViewRef();
+            }
+        }
+    }
+
     public Segment indexSlice(final long offset, final int maxSize) throws IOException {
         return indexSegments.getRecordSeg(offset);
     }
@@ -642,7 +805,11 @@ public class MsgFileStore implements Closeable {
                     final String filename = file.getName();
                     final long start =
                             Long.parseLong(filename.substring(0, filename.length() - fileSuffix.length()));
-                    accum.add(new FileSegment(start, file, false, segType));
+                    if (this.tubeConfig.isEnableMmapRead()) {
+                        accum.add(new MmapFileSegment(start, file, segType));
+                    } else {
+                        accum.add(new FileSegment(start, file, false, segType));
+                    }
                 }
             }
         }
@@ -701,6 +868,29 @@ public class MsgFileStore implements Closeable {
         sBuilder.delete(0, sBuilder.length());
     }
 
+    /**
+     * Replace the sealed segment with a memory mapped one if mmap read is enabled.
+     *
+     * @param segments      the segment list that contains the sealed segment
+     * @param sealedSeg     the sealed segment
+     * @param segType       the segment type
+     */
+    private void mapSealedSegment(SegmentList segments,
+            Segment sealedSeg, SegmentType segType) {
+        if (!this.tubeConfig.isEnableMmapRead()) {
+            return;
+        }
+        try {
+            segments.replace(sealedSeg,
+                    new MmapFileSegment(sealedSeg.getStart(), sealedSeg.getFile(), segType));
+        } catch (Throwable e) {
+            logger.warn(new StringBuilder(512)
+                    .append("[File Store] Map sealed ").append(segType)
+                    .append(" segment ").append(sealedSeg.getFile().getAbsolutePath())
+                    .append(" failure, keep file read!").toString(), e);
+        }
+    }
+
     private void validateSegments(String segTypeStr, final List<Segment> segments) {
         // valid segments, continuous
         for (int i = 0; i < segments.size() - 1; i++) {
@@ -716,33 +906,23 @@ public class MsgFileStore implements Closeable {
         }
     }
 
-    private long getTimeStamp(Segment recordSeg, long relReadPos,
-            long curDataMinOffset, ByteBuffer readBuffer) {
-        int curIndexPartitionId = 0;
-        long curIndexDataOffset = 0L;
-        int curIndexDataSize = 0;
-        int curIndexKeyCode = 0;
-        long recvTimeInMillsec = 0L;
-        try {
-            readBuffer.clear();
-            recordSeg.relRead(readBuffer, relReadPos);
-            readBuffer.flip();
-            curIndexPartitionId = readBuffer.getInt();
-            curIndexDataOffset = readBuffer.getLong();
-            curIndexDataSize = readBuffer.getInt();
-            curIndexKeyCode = readBuffer.getInt();
-            recvTimeInMillsec = readBuffer.getLong();
-            // skip when mismatch condition
-            if (curIndexDataOffset < 0
-                    || curIndexDataSize <= 0
-                    || curIndexDataSize > DataStoreUtils.STORE_MAX_MESSAGE_STORE_LEN
-                    || curIndexDataOffset < curDataMinOffset) {
-                return -1;
-            }
-            return recvTimeInMillsec;
-        } catch (Throwable ex) {
-            samplePrintCtrl.printExceptionCaught(ex);
+    private long getTimeStamp(ByteBuffer readBuffer,
+            long recordPos, long curDataMinOffset) {
+        int readPos = (int) recordPos * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        if (readPos + DataStoreUtils.STORE_INDEX_HEAD_LEN > readBuffer.limit()) {
+            return -1;
+        }
+        long curIndexDataOffset =
+                readBuffer.getLong(readPos + DataStoreUtils.INDEX_POS_DATAOFFSET);
+        int curIndexDataSize =
+                readBuffer.getInt(readPos + DataStoreUtils.INDEX_POS_MSG_SIZE);
+        // skip when mismatch condition
+        if (curIndexDataOffset < 0
+                || curIndexDataSize <= 0
+                || curIndexDataSize > DataStoreUtils.STORE_MAX_MESSAGE_STORE_LEN
+                || curIndexDataOffset < curDataMinOffset) {
             return -1;
         }
+        return readBuffer.getLong(readPos + DataStoreUtils.INDEX_POS_TIME_RECV);
     }
 }
@@ -70,6 +70,14 @@ public interface Segment {
 
     void setMutable(boolean mutable);
 
+    /**
+     * Acquire a view reference before reading this segment.
+     * Each successful acquisition must be paired with a {@link #relViewRef()} call.
+     *
+     * @return  false if the segment has been released and cannot be read
+     */
+    boolean acquireViewRef();
+
     void relViewRef();
 
     /**
@@ -95,4 +103,18 @@ public interface Segment {
     boolean containTime(long timestamp);
 
     long getRecordTime(long reqOffset) throws IOException;
+
+    /**
+     * Get the sparse time index of this segment.
+     *
+     * @return  the time index, null if this is not an index segment
+     */
+    SegmentTimeIndex getTimeIndex();
+
+    /**
+     * Get the filter key index of this segment, it is created on first call.
+     *
+     * @return  the key index, null if this is not an index segment
+     */
+    SegmentKeyIndex getKeyIndex();
 }
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+/**
+ * Filter key index of an index segment.
+ *
+ * The index records are divided into blocks of BLOCK_RECORDS records, and each
+ * block keeps a small bitmap of the hashed key codes of its records. A filtered
+ * fetch can skip the blocks whose bitmap has none of the filter keys, only the
+ * completed blocks are skipped. The bitmaps are kept up by the appended buffers,
+ * and the missing blocks are read back from the segment on lookup.
+ */
+public class SegmentKeyIndex {
+
+    // the record count of each block
+    public static final int BLOCK_RECORDS = 1024;
+    // the bitmap size of each block in longs, 256 bits
+    private static final int BLOCK_WORDS = 4;
+    private volatile long[] blockBits = new long[16 * BLOCK_WORDS];
+    private volatile int blockCnt = 0;
+    // the record count covered by the published blocks and the pending block
+    private long coveredSlots = 0;
+    private final long[] pendingBits = new long[BLOCK_WORDS];
+
+    /**
+     * Build the bitmap mask of the filter keys.
+     *
+     * @param filterKeySet    the filter key codes
+     * @return                the key mask
+     */
+    public static long[] getKeyMask(Set<Integer> filterKeySet) {
+        long[] keyMask = new long[BLOCK_WORDS];
+        for (Integer keyCode : filterKeySet) {
+            if (keyCode == null) {
+                continue;
+            }
+            int bitIndex = getBitIndex(keyCode);
+            keyMask[bitIndex >>> 6] |= 1L << (bitIndex & 63);
+        }
+        return keyMask;
+    }
+
+    /**
+     * Add key codes from the index records appended to the segment.
+     *
+     * @param buf          the appended index buffer
+     * @param startPos     the position of the first record in the buffer
+     * @param firstSlot    the record slot of the first record in the segment
+     */
+    public synchronized void addRecords(ByteBuffer buf, int startPos, long firstSlot) {
+        // records not following the covered ones are left to the lookup
+        if (firstSlot != coveredSlots) {
+            return;
+        }
+        int recordCnt = (buf.limit() - startPos) / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        for (int i = 0; i < recordCnt; i++) {
+            addKey(buf.getInt(startPos + i * DataStoreUtils.STORE_INDEX_HEAD_LEN
+                    + DataStoreUtils.INDEX_POS_KEY_CODE));
+        }
+    }
+
+    /**
+     * Find the first record slot from which the records may match the filter keys.
+     *
+     * @param segment      the segment this index belongs to
+     * @param fromSlot     the record slot to start from
+     * @param keyMask      the key mask of the filter keys
+     * @return             the record slot to read from
+     * @throws IOException the exception while reading missing blocks
+     */
+    public long findMatchSlot(Segment segment,
+            long fromSlot, long[] keyMask) throws IOException {
+        long recordCnt = segment.getCachedSize() / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        if ((long) (blockCnt + 1) * BLOCK_RECORDS <= recordCnt) {
+            loadBlocks(segment, recordCnt);
+        }
+        final int curCnt = blockCnt;
+        final long[] curBits = blockBits;
+        int fromBlock = (int) (fromSlot / BLOCK_RECORDS);
+        int block = fromBlock;
+        while (block < curCnt && !isBlockMatched(curBits, block, keyMask)) {
+            block++;
+        }
+        return (block == fromBlock) ? fromSlot : (long) block * BLOCK_RECORDS;
+    }
+
+    public int getBlockCount() {
+        return blockCnt;
+    }
+
+    private synchronized void loadBlocks(Segment segment, long recordCnt) throws IOException {
+        // rebuild from the first unpublished block
+        coveredSlots = (long) blockCnt * BLOCK_RECORDS;
+        for (int i = 0; i < BLOCK_WORDS; i++) {
+            pendingBits[i] = 0L;
+        }
+        ByteBuffer readBuffer =
+                ByteBuffer.allocate(BLOCK_RECORDS * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        while (coveredSlots < recordCnt) {
+            readBuffer.clear();
+            readBuffer.limit((int) Math.min(BLOCK_RECORDS, recordCnt - coveredSlots)
+                    * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            segment.relRead(readBuffer, coveredSlots * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            readBuffer.flip();
+            int readCnt = readBuffer.limit() / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            if (readCnt == 0) {
+                break;
+            }
+            for (int i = 0; i < readCnt; i++) {
+                addKey(readBuffer.getInt(i * DataStoreUtils.STORE_INDEX_HEAD_LEN
+                        + DataStoreUtils.INDEX_POS_KEY_CODE));
+            }
+        }
+    }
+
+    private void addKey(int keyCode) {
+        int bitIndex = getBitIndex(keyCode);
+        pendingBits[bitIndex >>> 6] |= 1L << (bitIndex & 63);
+        if (++coveredSlots % BLOCK_RECORDS != 0) {
+            return;
+        }
+        // publish the completed block
+        long[] curBits = blockBits;
+        int curCnt = blockCnt;
+        if ((curCnt + 1) * BLOCK_WORDS > curBits.length) {
+            long[] newBits = new long[curBits.length * 2];
+            System.arraycopy(curBits, 0, newBits, 0, curCnt * BLOCK_WORDS);
+            // publish the new array before the count
+            blockBits = newBits;
+            curBits = newBits;
+        }
+        for (int i = 0; i < BLOCK_WORDS; i++) {
+            curBits[curCnt * BLOCK_WORDS + i] = pendingBits[i];
+            pendingBits[i] = 0L;
+        }
+        blockCnt = curCnt + 1;
+    }
+
+    private static boolean isBlockMatched(long[] bits, int block, long[] keyMask) {
+        for (int i = 0; i < BLOCK_WORDS; i++) {
+            if ((bits[block * BLOCK_WORDS + i] & keyMask[i]) != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int getBitIndex(int keyCode) {
+        // spread the key code, then take the top 8 bits
+        return (keyCode * 0x9E3779B9) >>> 24;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Sparse time index of an index segment.
+ *
+ * The append time of every SAMPLE_RECORDS-th index record is kept in memory,
+ * sample i holds the time of record i * SAMPLE_RECORDS. The samples are taken
+ * from the appended buffers, and the samples missing after a restart are read
+ * back from the segment on the first lookup, so a timestamp seek only needs to
+ * search the records between two neighbouring samples.
+ */
+public class SegmentTimeIndex {
+
+    // the record count between two samples
+    public static final int SAMPLE_RECORDS = 1024;
+    private volatile long[] sampleTimes = new long[16];
+    private volatile int sampleCnt = 0;
+
+    /**
+     * Add samples from the index records appended to the segment.
+     *
+     * @param buf          the appended index buffer
+     * @param startPos     the position of the first record in the buffer
+     * @param firstSlot    the record slot of the first record in the segment
+     */
+    public synchronized void addRecords(ByteBuffer buf, int startPos, long firstSlot) {
+        int recordCnt = (buf.limit() - startPos) / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        long nextSlot = (long) sampleCnt * SAMPLE_RECORDS;
+        if (nextSlot < firstSlot || nextSlot >= firstSlot + recordCnt) {
+            return;
+        }
+        for (long slot = nextSlot; slot < firstSlot + recordCnt; slot += SAMPLE_RECORDS) {
+            addSample(buf.getLong(startPos
+                    + (int) (slot - firstSlot) * DataStoreUtils.STORE_INDEX_HEAD_LEN
+                    + DataStoreUtils.INDEX_POS_TIME_RECV));
+        }
+    }
+
+    /**
+     * Find the record slot range which contains the first record
+     * not earlier than the timestamp.
+     *
+     * @param segment      the segment this index belongs to
+     * @param timestamp    the timestamp to seek
+     * @param lastSlot     the last committed record slot
+     * @return             the start and end record slots to search
+     * @throws IOException the exception while reading missing samples
+     */
+    public long[] findSlotRange(Segment segment,
+            long timestamp, long lastSlot) throws IOException {
+        if ((long) sampleCnt * SAMPLE_RECORDS <= lastSlot) {
+            loadSamples(segment, lastSlot);
+        }
+        final int curCnt = sampleCnt;
+        final long[] curTimes = sampleTimes;
+        // find the last sample earlier than the timestamp
+        int low = 0;
+        int high = curCnt - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (curTimes[mid] < timestamp) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        long startSlot = (found < 0) ? 0 : Math.min((long) found * SAMPLE_RECORDS, lastSlot);
+        return new long[]{startSlot, Math.min(startSlot + SAMPLE_RECORDS, lastSlot)};
+    }
+
+    public int getSampleCount() {
+        return sampleCnt;
+    }
+
+    private synchronized void loadSamples(Segment segment, long lastSlot) throws IOException {
+        for (long slot = (long) sampleCnt * SAMPLE_RECORDS; slot <= lastSlot; slot += SAMPLE_RECORDS) {
+            addSample(segment.getRecordTime(segment.getStart()
+                    + slot * DataStoreUtils.STORE_INDEX_HEAD_LEN));
+        }
+    }
+
+    private void addSample(long recordTime) {
+        long[] curTimes = sampleTimes;
+        if (sampleCnt >= curTimes.length) {
+            long[] newTimes = new long[curTimes.length * 2];
+            System.arraycopy(curTimes, 0, newTimes, 0, sampleCnt);
+            // publish the new array before the count
+            sampleTimes = newTimes;
+            curTimes = newTimes;
+        }
+        curTimes[sampleCnt] = recordTime;
+        sampleCnt = sampleCnt + 1;
+    }
+}
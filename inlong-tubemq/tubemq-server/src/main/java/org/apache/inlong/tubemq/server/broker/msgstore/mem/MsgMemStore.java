@@ -19,7 +19,9 @@ package org.apache.inlong.tubemq.server.broker.msgstore.mem;
 
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
+import org.apache.inlong.tubemq.corebase.utils.CheckSum;
 import org.apache.inlong.tubemq.server.broker.metadata.ClusterConfigHolder;
+import org.apache.inlong.tubemq.server.broker.msgstore.MsgReadContext;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgFileStore;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
 import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
@@ -34,31 +36,42 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Message's memory storage. It use direct memory store messages that received but not have been flushed to disk.
+ *
+ * Writers append without locking: each writer reserves its data and index slots with a CAS on the
+ * reserved position, fills the slots, then advances the published position in reservation order.
+ * Readers only scan the published range. The slots whose filling failed are overwritten with filler
+ * entries, which keep the stored data and index recoverable and are skipped by the readers.
  */
 public class MsgMemStore implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(MsgMemStore.class);
-    // statistics of memory store
-    private final AtomicInteger cacheDataOffset = new AtomicInteger(0);
-    private final AtomicInteger cacheIndexOffset = new AtomicInteger(0);
-    private final AtomicInteger curMessageCount = new AtomicInteger(0);
-    private final ReentrantLock writeLock = new ReentrantLock();
+    // the data offset is kept in the high 32 bits, the index offset in the low 32 bits
+    private static final int DATA_POS_SHIFT = 32;
+    private static final long INDEX_POS_MASK = 0xFFFFFFFFL;
+    // the spin count of a writer waiting for the former writers to publish, before it blocks
+    private static final int MAX_PUBLISH_SPIN_CNT = 64;
+    // the positions reserved by writers
+    private final AtomicLong reservedPos = new AtomicLong(0);
+    // the positions whose content has been completely written
+    private final AtomicLong publishedPos = new AtomicLong(0);
+    // the writers blocked on the publish lock
+    private final AtomicInteger publishWaiters = new AtomicInteger(0);
+    private final Object publishLock = new Object();
     // partitionId to index position, accelerate query
-    private final Map<Integer, Integer> queuesMap =
-            new HashMap<>(20);
+    private final ConcurrentHashMap<Integer, Integer> queuesMap =
+            new ConcurrentHashMap<>(20);
     // key to index position, used for filter consume
-    private final Map<Integer, Integer> keysMap =
-            new HashMap<>(100);
+    private final ConcurrentHashMap<Integer, Integer> keysMap =
+            new ConcurrentHashMap<>(100);
     // where messages in memory will sink to disk
     private final int maxDataCacheSize;
     private long writeDataStartPos = -1;
@@ -102,9 +115,8 @@ public class MsgMemStore implements Closeable {
     public void resetMemStoreStatus(long writeDataStartPos, long writeIndexStartPos) {
         this.keysMap.clear();
         this.queuesMap.clear();
-        this.cacheDataOffset.set(0);
-        this.cacheIndexOffset.set(0);
-        this.curMessageCount.set(0);
+        this.reservedPos.set(0);
+        this.publishedPos.set(0);
         this.cacheDataSegment.rewind();
         this.cachedIndexSegment.rewind();
         this.writeDataStartPos = writeDataStartPos;
@@ -131,50 +143,242 @@ public class MsgMemStore implements Closeable {
             int partitionId, int keyCode, long timeRecv,
             ByteBuffer indexEntry, int dataEntryLength,
             ByteBuffer dataEntry, AppendResult appendResult) {
-        long dataOffset;
-        long indexOffset;
-        int indexSizePos;
-        boolean isAppended = true;
-        boolean fullDataSize = false;
-        boolean fullIndexSize = false;
-        boolean fullCount = false;
-        this.writeLock.lock();
+        long curPos = reserveSlots(memStatsHolder, dataEntryLength, 1);
+        if (curPos < 0) {
+            return false;
+        }
+        int dataSizePos = getDataPos(curPos);
+        int indexSizePos = getIndexPos(curPos);
+        // conduct message with filling process
+        long indexOffset = this.writeIndexStartPos + indexSizePos;
+        long dataOffset = this.writeDataStartPos + dataSizePos;
+        boolean filled = false;
+        try {
+            indexEntry.putLong(DataStoreUtils.INDEX_POS_DATAOFFSET, dataOffset);
+            dataEntry.putLong(DataStoreUtils.STORE_HEADER_POS_QUEUE_LOGICOFF, indexOffset);
+            ByteBuffer dataSlot = this.cacheDataSegment.duplicate();
+            dataSlot.position(dataSizePos);
+            dataSlot.put(dataEntry.array(), 0, dataEntryLength);
+            ByteBuffer indexSlot = this.cachedIndexSegment.duplicate();
+            indexSlot.position(indexSizePos);
+            indexSlot.put(indexEntry.array(), 0, DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            filled = true;
+        } finally {
+            if (!filled) {
+                putFillerSlot(dataSizePos, indexSizePos, dataEntryLength, timeRecv);
+            }
+            publishSlots(curPos, dataEntryLength, 1);
+        }
+        this.queuesMap.merge(partitionId, indexSizePos, Math::max);
+        this.keysMap.merge(keyCode, indexSizePos, Math::max);
+        updAppendTime(indexSizePos, timeRecv);
+        appendResult.putAppendResult(indexOffset, dataOffset);
+        return true;
+    }
+
+    /**
+     * Append a batch of messages of one partition to memory cache,
+     * the slots of all the messages are reserved at once.
+     *
+     * @param memStatsHolder    statistical information object
+     * @param partitionId       the partitionId for append messages
+     * @param msgCnt            the message count of the batch
+     * @param keyCodes          the filter item hash codes
+     * @param timeRecv          the received timestamp
+     * @param indexEntries      the stored index entries
+     * @param dataEntryLengths  the stored data entry lengths
+     * @param dataEntries       the stored data entries
+     * @param appendResults     the append results
+     *
+     * @return    the process result
+     */
+    public boolean appendMsgs(MsgStoreStatsHolder memStatsHolder,
+            int partitionId, int msgCnt, int[] keyCodes, long timeRecv,
+            ByteBuffer[] indexEntries, int[] dataEntryLengths,
+            ByteBuffer[] dataEntries, AppendResult[] appendResults) {
+        int totalDataLength = 0;
+        for (int i = 0; i < msgCnt; i++) {
+            totalDataLength += dataEntryLengths[i];
+        }
+        // reserve the data and index slots of the whole batch.
+        long curPos = reserveSlots(memStatsHolder, totalDataLength, msgCnt);
+        if (curPos < 0) {
+            return false;
+        }
+        int indexSizePos = getIndexPos(curPos);
+        // fill the messages one after another in the reserved slots
+        int dataPos = getDataPos(curPos);
+        int indexPos = indexSizePos;
+        boolean filled = false;
         try {
+            ByteBuffer dataSlot = this.cacheDataSegment.duplicate();
+            ByteBuffer indexSlot = this.cachedIndexSegment.duplicate();
+            for (int i = 0; i < msgCnt; i++) {
+                long indexOffset = this.writeIndexStartPos + indexPos;
+                long dataOffset = this.writeDataStartPos + dataPos;
+                indexEntries[i].putLong(DataStoreUtils.INDEX_POS_DATAOFFSET, dataOffset);
+                dataEntries[i].putLong(DataStoreUtils.STORE_HEADER_POS_QUEUE_LOGICOFF, indexOffset);
+                dataSlot.position(dataPos);
+                dataSlot.put(dataEntries[i].array(), 0, dataEntryLengths[i]);
+                indexSlot.position(indexPos);
+                indexSlot.put(indexEntries[i].array(), 0, DataStoreUtils.STORE_INDEX_HEAD_LEN);
+                appendResults[i].putAppendResult(indexOffset, dataOffset);
+                dataPos += dataEntryLengths[i];
+                indexPos += DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            }
+            filled = true;
+        } finally {
+            if (!filled) {
+                dataPos = getDataPos(curPos);
+                indexPos = indexSizePos;
+                for (int i = 0; i < msgCnt; i++) {
+                    putFillerSlot(dataPos, indexPos, dataEntryLengths[i], timeRecv);
+                    dataPos += dataEntryLengths[i];
+                    indexPos += DataStoreUtils.STORE_INDEX_HEAD_LEN;
+                }
+            }
+            publishSlots(curPos, totalDataLength, msgCnt);
+        }
+        this.queuesMap.merge(partitionId,
+                indexPos - DataStoreUtils.STORE_INDEX_HEAD_LEN, Math::max);
+        for (int i = 0; i < msgCnt; i++) {
+            this.keysMap.merge(keyCodes[i],
+                    indexSizePos + i * DataStoreUtils.STORE_INDEX_HEAD_LEN, Math::max);
+        }
+        updAppendTime(indexSizePos, timeRecv);
+        return true;
+    }
+
+    /**
+     * Reserve the data and index slots of the messages with a CAS on the reserved position.
+     *
+     * @param memStatsHolder    statistical information object
+     * @param dataLength        the total data length of the messages
+     * @param msgCnt            the message count
+     *
+     * @return    the position before the reserved slots, or -1 if the cache is full
+     */
+    private long reserveSlots(MsgStoreStatsHolder memStatsHolder, int dataLength, int msgCnt) {
+        long curPos;
+        int dataSizePos;
+        int indexSizePos;
+        boolean fullDataSize;
+        boolean fullIndexSize;
+        boolean fullCount;
+        int indexLength = msgCnt * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        do {
+            curPos = this.reservedPos.get();
+            dataSizePos = getDataPos(curPos);
+            indexSizePos = getIndexPos(curPos);
             // judge whether can write to memory or not.
             fullDataSize =
-                    (this.cacheDataOffset.get() + dataEntryLength > this.maxDataCacheSize);
+                    (dataSizePos + dataLength > this.maxDataCacheSize);
             fullCount =
-                    (this.curMessageCount.get() + 1 > maxAllowedMsgCount);
+                    (indexSizePos / DataStoreUtils.STORE_INDEX_HEAD_LEN + msgCnt > maxAllowedMsgCount);
             fullIndexSize =
-                    (this.cacheIndexOffset.get() + DataStoreUtils.STORE_INDEX_HEAD_LEN > this.maxIndexCacheSize);
+                    (indexSizePos + indexLength > this.maxIndexCacheSize);
             if (fullDataSize || fullCount || fullIndexSize) {
-                isAppended = false;
-                return false;
+                memStatsHolder.addCacheFullType(fullDataSize, fullIndexSize, fullCount);
+                return -1L;
             }
-            // conduct message with filling process
-            indexOffset = this.writeIndexStartPos + this.cacheIndexOffset.get();
-            dataOffset = this.writeDataStartPos + this.cacheDataOffset.get();
-            indexEntry.putLong(DataStoreUtils.INDEX_POS_DATAOFFSET, dataOffset);
-            dataEntry.putLong(DataStoreUtils.STORE_HEADER_POS_QUEUE_LOGICOFF, indexOffset);
-            this.cacheDataSegment.put(dataEntry.array());
-            this.cachedIndexSegment.put(indexEntry.array());
-            this.cacheDataOffset.getAndAdd(dataEntryLength);
-            indexSizePos = cacheIndexOffset.getAndAdd(DataStoreUtils.STORE_INDEX_HEAD_LEN);
-            this.queuesMap.put(partitionId, indexSizePos);
-            this.keysMap.put(keyCode, indexSizePos);
-            this.curMessageCount.getAndIncrement();
-            this.rightAppendTime.set(timeRecv);
-            if (indexSizePos == 0) {
-                this.leftAppendTime.set(timeRecv);
+        } while (!this.reservedPos.compareAndSet(curPos,
+                toPosition(dataSizePos + dataLength, indexSizePos + indexLength)));
+        return curPos;
+    }
+
+    /**
+     * Publish the reserved slots in reservation order, wait for the writers reserved before.
+     * The slots are always published, otherwise the later writers wait forever. The writer
+     * spins a few times, then blocks until the former writer publishes its slots, so a stalled
+     * writer does not keep the later ones busy.
+     *
+     * @param curPos        the position before the reserved slots
+     * @param dataLength    the total data length of the slots
+     * @param msgCnt        the message count of the slots
+     */
+    private void publishSlots(long curPos, int dataLength, int msgCnt) {
+        int spinCnt = 0;
+        while (this.publishedPos.get() != curPos) {
+            if (++spinCnt < MAX_PUBLISH_SPIN_CNT) {
+                Thread.yield();
+                continue;
+            }
+            waitPublished(curPos);
+            break;
+        }
+        this.publishedPos.set(toPosition(getDataPos(curPos) + dataLength,
+                getIndexPos(curPos) + msgCnt * DataStoreUtils.STORE_INDEX_HEAD_LEN));
+        if (this.publishWaiters.get() > 0) {
+            synchronized (this.publishLock) {
+                this.publishLock.notifyAll();
+            }
+        }
+    }
+
+    private void waitPublished(long curPos) {
+        boolean interrupted = false;
+        this.publishWaiters.incrementAndGet();
+        try {
+            synchronized (this.publishLock) {
+                while (this.publishedPos.get() != curPos) {
+                    try {
+                        this.publishLock.wait();
+                    } catch (InterruptedException e) {
+                        // the slots must be published, keep waiting
+                        interrupted = true;
+                    }
+                }
             }
         } finally {
-            this.writeLock.unlock();
-            if (!isAppended) {
-                memStatsHolder.addCacheFullType(fullDataSize, fullIndexSize, fullCount);
+            this.publishWaiters.decrementAndGet();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
             }
         }
-        appendResult.putAppendResult(indexOffset, dataOffset);
-        return true;
+    }
+
+    /**
+     * Overwrite a slot whose filling failed with a filler entry. The data entry is a valid
+     * stored record with an empty payload, so the file recovery goes on after it, and the
+     * index entry points to it with the filler partition id, so the readers skip it.
+     *
+     * @param dataPos       the data position of the slot
+     * @param indexPos      the index position of the slot
+     * @param dataLength    the data length of the slot
+     * @param timeRecv      the received timestamp
+     */
+    private void putFillerSlot(int dataPos, int indexPos, int dataLength, long timeRecv) {
+        int payLoadLen = dataLength - DataStoreUtils.STORE_DATA_HEADER_LEN;
+        ByteBuffer dataSlot = this.cacheDataSegment.duplicate();
+        dataSlot.position(dataPos);
+        // a slot shorter than the header cannot hold a record, it is only cleared
+        if (payLoadLen > 0) {
+            dataSlot.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + payLoadLen);
+            dataSlot.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+            dataSlot.putInt(CheckSum.crc32(new byte[payLoadLen]));
+            dataSlot.putInt(DataStoreUtils.STORE_FILLER_PARTITION_ID);
+            dataSlot.putLong(this.writeIndexStartPos + indexPos);
+        }
+        while (dataSlot.position() < dataPos + dataLength) {
+            dataSlot.put((byte) 0);
+        }
+        ByteBuffer indexSlot = this.cachedIndexSegment.duplicate();
+        indexSlot.position(indexPos);
+        indexSlot.putInt(DataStoreUtils.STORE_FILLER_PARTITION_ID);
+        indexSlot.putLong(this.writeDataStartPos + dataPos);
+        indexSlot.putInt(dataLength);
+        indexSlot.putInt(0);
+        indexSlot.putLong(timeRecv);
+    }
+
+    /**
+     * Update the append time range, the later writers may have updated the right time.
+     */
+    private void updAppendTime(int indexSizePos, long timeRecv) {
+        if (indexSizePos == 0) {
+            this.leftAppendTime.set(timeRecv);
+        }
+        this.rightAppendTime.accumulateAndGet(timeRecv, Math::max);
     }
 
     /**
@@ -189,6 +393,9 @@ public class MsgMemStore implements Closeable {
      * @param isFilterConsume       whether to filter consumption
      * @param filterKeySet          filter item set
      * @param reqRcvTime            the timestamp of the record to be checked
+     * @param zeroCopyRead          whether the read messages are wrapped without copying,
+     *                              if false they are placed in the per-thread read buffer
+     *                              and must be consumed before the next read on this thread
      *
      * @return                      read result
      */
@@ -196,17 +403,17 @@ public class MsgMemStore implements Closeable {
             int maxReadSize, int maxReadCount,
             int partitionId, boolean isSecond,
             boolean isFilterConsume, Set<Integer> filterKeySet,
-            long reqRcvTime) {
+            long reqRcvTime, boolean zeroCopyRead) {
         // #lizard forgives
         Integer lastWritePos = 0;
         boolean hasMsg = false;
         // judge memory contains the given offset or not.
-        List<ByteBuffer> cacheMsgList = new ArrayList<>();
+        List<ByteBuffer> cacheMsgList = Collections.emptyList();
         if (lstRdIndexOffset < this.writeIndexStartPos) {
             return new GetCacheMsgResult(false, TErrCodeConstants.MOVED,
                     lstRdIndexOffset, "Request offset lower than cache minOffset");
         }
-        if (lstRdIndexOffset >= this.writeIndexStartPos + this.cacheIndexOffset.get()) {
+        if (lstRdIndexOffset >= this.writeIndexStartPos + getIndexCacheSize()) {
             return new GetCacheMsgResult(false, TErrCodeConstants.NOT_FOUND,
                     lstRdIndexOffset, "Request offset reached cache maxOffset");
         }
@@ -215,32 +422,30 @@ public class MsgMemStore implements Closeable {
         int currDataOffset;
         long lastDataRdOff = lstRdDataOffset;
         int startReadOff = (int) (lstRdIndexOffset - this.writeIndexStartPos);
-        this.writeLock.lock();
-        try {
-            if (isFilterConsume) {
-                // filter conduct. accelerate by keysMap.
-                for (Integer keyCode : filterKeySet) {
-                    if (keyCode != null) {
-                        lastWritePos = this.keysMap.get(keyCode);
-                        if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
-                            hasMsg = true;
-                            break;
-                        }
+        if (isFilterConsume) {
+            // filter conduct. accelerate by keysMap.
+            for (Integer keyCode : filterKeySet) {
+                if (keyCode != null) {
+                    lastWritePos = this.keysMap.get(keyCode);
+                    if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
+                        hasMsg = true;
+                        break;
                     }
                 }
-            } else {
-                // orderly consume by partition id.
-                lastWritePos = this.queuesMap.get(partitionId);
-                if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
-                    hasMsg = true;
-                }
             }
-            currDataOffset = this.cacheDataOffset.get();
-            currIndexOffset = this.cacheIndexOffset.get();
-            lastDataRdOff = this.writeDataStartPos + currDataOffset;
-        } finally {
-            this.writeLock.unlock();
+        } else {
+            // orderly consume by partition id.
+            lastWritePos = this.queuesMap.get(partitionId);
+            if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
+                hasMsg = true;
+            }
         }
+        // the positions in maps are updated after publishing,
+        // so the published range read here covers them.
+        long curPublishedPos = this.publishedPos.get();
+        currDataOffset = getDataPos(curPublishedPos);
+        currIndexOffset = getIndexPos(curPublishedPos);
+        lastDataRdOff = this.writeDataStartPos + currDataOffset;
         int limitReadSize = currIndexOffset - startReadOff;
         // cannot find message, return not found
         if (!hasMsg) {
@@ -261,8 +466,13 @@ public class MsgMemStore implements Closeable {
         int cKeyCode = 0;
         long cTimeRecv = 0L;
         int cDataOffset = 0;
+        int msgCount = 0;
         ByteBuffer tmpIndexRdBuf = this.cachedIndexSegment.asReadOnlyBuffer();
         ByteBuffer tmpDataRdBuf = this.cacheDataSegment.asReadOnlyBuffer();
+        final MsgReadContext readContext = MsgReadContext.get();
+        // the data offset and size of each matched message
+        final int[] msgPositions = readContext.getPosArray(2 * Math.min(maxReadCount,
+                Math.max(0, limitReadSize) / DataStoreUtils.STORE_INDEX_HEAD_LEN + 1));
         // loop read by index
         for (int count = 0; count < maxReadCount; count++, startReadOff += DataStoreUtils.STORE_INDEX_HEAD_LEN) {
             // cannot find matched message, return
@@ -295,13 +505,9 @@ public class MsgMemStore implements Closeable {
             if (reqRcvTime != 0 && cTimeRecv < reqRcvTime) {
                 continue;
             }
-            // read data file.
-            byte[] tmpArray = new byte[cDataSize];
-            final ByteBuffer buffer = ByteBuffer.wrap(tmpArray);
-            tmpDataRdBuf.position(cDataOffset);
-            tmpDataRdBuf.get(tmpArray);
-            buffer.rewind();
-            cacheMsgList.add(buffer);
+            msgPositions[2 * msgCount] = cDataOffset;
+            msgPositions[2 * msgCount + 1] = cDataSize;
+            msgCount++;
             lastDataRdOff = cDataPos + cDataSize;
             readedSize += DataStoreUtils.STORE_INDEX_HEAD_LEN;
             totalReadSize += cDataSize;
@@ -310,6 +516,23 @@ public class MsgMemStore implements Closeable {
                 break;
             }
         }
+        // copy the matched messages into one buffer, each message is a slice of it.
+        // a fresh buffer is used for the zero-copy read as the reply keeps its slices.
+        if (msgCount > 0) {
+            final ByteBuffer readBuffer = zeroCopyRead
+                    ? ByteBuffer.allocate(totalReadSize)
+                    : readContext.getDataBuffer(totalReadSize);
+            final byte[] readArray = readBuffer.array();
+            int readPos = readBuffer.arrayOffset();
+            cacheMsgList = new ArrayList<>(msgCount);
+            for (int i = 0; i < msgCount; i++) {
+                cDataSize = msgPositions[2 * i + 1];
+                tmpDataRdBuf.position(msgPositions[2 * i]);
+                tmpDataRdBuf.get(readArray, readPos, cDataSize);
+                cacheMsgList.add(ByteBuffer.wrap(readArray, readPos, cDataSize).slice());
+                readPos += cDataSize;
+            }
+        }
         // return result
         return new GetCacheMsgResult(true, 0, "Ok1",
                 lstRdIndexOffset, readedSize, lastDataRdOff, totalReadSize, cacheMsgList);
@@ -324,30 +547,36 @@ public class MsgMemStore implements Closeable {
      */
     public void batchFlush(MsgFileStore msgFileStore,
             StringBuilder strBuffer) throws Throwable {
-        if (this.curMessageCount.get() == 0) {
+        final long curPublishedPos = this.publishedPos.get();
+        final int indexCacheSize = getIndexPos(curPublishedPos);
+        final int dataCacheSize = getDataPos(curPublishedPos);
+        if (indexCacheSize == 0) {
             return;
         }
         ByteBuffer tmpIndexBuffer = this.cachedIndexSegment.asReadOnlyBuffer();
         final ByteBuffer tmpDataReadBuf = this.cacheDataSegment.asReadOnlyBuffer();
-        tmpIndexBuffer.flip();
-        tmpDataReadBuf.flip();
+        tmpIndexBuffer.position(0);
+        tmpIndexBuffer.limit(indexCacheSize);
+        tmpDataReadBuf.position(0);
+        tmpDataReadBuf.limit(dataCacheSize);
         long startTime = System.currentTimeMillis();
-        msgFileStore.appendMsg(true, startTime, strBuffer, curMessageCount.get(),
-                cacheIndexOffset.get(), tmpIndexBuffer, cacheDataOffset.get(),
+        msgFileStore.appendMsg(true, startTime, strBuffer,
+                indexCacheSize / DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                indexCacheSize, tmpIndexBuffer, dataCacheSize,
                 tmpDataReadBuf, leftAppendTime.get(), rightAppendTime.get());
         BrokerSrvStatsHolder.updDiskSyncDataDlt(System.currentTimeMillis() - startTime);
     }
 
     public int getCurMsgCount() {
-        return this.curMessageCount.get();
+        return getIndexCacheSize() / DataStoreUtils.STORE_INDEX_HEAD_LEN;
     }
 
     public int getCurDataCacheSize() {
-        return this.cacheDataOffset.get();
+        return getDataPos(this.publishedPos.get());
     }
 
     public int getIndexCacheSize() {
-        return this.cacheIndexOffset.get();
+        return getIndexPos(this.publishedPos.get());
     }
 
     public int getMaxDataCacheSize() {
@@ -361,18 +590,18 @@ public class MsgMemStore implements Closeable {
     public int isOffsetInHold(long requestOffset) {
         if (requestOffset < this.writeIndexStartPos) {
             return -1;
-        } else if (requestOffset >= this.writeIndexStartPos + this.cacheIndexOffset.get()) {
+        } else if (requestOffset >= this.writeIndexStartPos + getIndexCacheSize()) {
             return 1;
         }
         return 0;
     }
 
     public long getDataLastWritePos() {
-        return this.writeDataStartPos + this.cacheDataOffset.get();
+        return this.writeDataStartPos + getCurDataCacheSize();
     }
 
     public long getIndexLastWritePos() {
-        return this.writeIndexStartPos + this.cacheIndexOffset.get();
+        return this.writeIndexStartPos + getIndexCacheSize();
     }
 
     public long getIndexStartWritePos() {
@@ -399,9 +628,8 @@ public class MsgMemStore implements Closeable {
     public void clear() {
         this.writeDataStartPos = -1;
         this.writeIndexStartPos = -1;
-        this.cacheDataOffset.set(0);
-        this.cacheIndexOffset.set(0);
-        this.curMessageCount.set(0);
+        this.reservedPos.set(0);
+        this.publishedPos.set(0);
         this.queuesMap.clear();
         this.keysMap.clear();
         this.cacheDataSegment.rewind();
@@ -410,6 +638,18 @@ public class MsgMemStore implements Closeable {
         this.rightAppendTime.set(System.currentTimeMillis());
     }
 
+    private static long toPosition(int dataPos, int indexPos) {
+        return ((long) dataPos << DATA_POS_SHIFT) | (indexPos & INDEX_POS_MASK);
+    }
+
+    private static int getDataPos(long position) {
+        return (int) (position >>> DATA_POS_SHIFT);
+    }
+
+    private static int getIndexPos(long position) {
+        return (int) (position & INDEX_POS_MASK);
+    }
+
     @Override
     public void close() {
         ((DirectBuffer) this.cacheDataSegment).cleaner().clean();
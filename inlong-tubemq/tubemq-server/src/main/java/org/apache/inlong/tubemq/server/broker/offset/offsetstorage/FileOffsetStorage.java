@@ -0,0 +1,581 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.offset.offsetstorage;
+
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+import org.apache.inlong.tubemq.server.common.TServerConstants;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * A offset storage implementation with a local offset journal
+ *
+ * Every commit round appends the modified offsets of all groups to the journal
+ * file as one batch with one fsync, instead of updating one ZooKeeper node per
+ * group and partition. The journal is replayed over the latest snapshot at
+ * startup, and once it holds snapshotRecords records, the current offsets are
+ * written into a new snapshot and the journal is truncated.
+ *
+ * Each batch is stored as: magic(int), body length(int), body, crc32 of body(long),
+ * and each record of the body as: type(byte), group(utf), topic(utf),
+ * partitionId(int), offset(long), messageId(long). A torn batch at the journal
+ * tail is dropped at startup.
+ *
+ * With a fallback storage, the deleted offsets are kept as tombstones, also in the
+ * snapshots, so they are not loaded from the fallback storage again, and the queries
+ * merge the fallback storage's offsets not found in the journal.
+ */
+public class FileOffsetStorage implements OffsetStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileOffsetStorage.class);
+    private static final String SNAPSHOT_FILE_NAME = "offsets.snapshot";
+    private static final String JOURNAL_FILE_NAME = "offsets.journal";
+    private static final int BATCH_MAGIC = 0x0FF5E7B1;
+    private static final int BATCH_HEAD_LEN = 8;
+    private static final int BATCH_TAIL_LEN = 8;
+    private static final byte RECORD_TYPE_PUT = 1;
+    private static final byte RECORD_TYPE_DELETE = 2;
+    // the tombstone of a deleted offset, compared by reference
+    private static final long[] DELETED_OFFSET = new long[0];
+
+    private final int brokerId;
+    private final int snapshotRecords;
+    private final File snapshotFile;
+    private final File journalFile;
+    // the storage to load the offsets not found in the journal from
+    private final OffsetStorage fallbackStorage;
+    // group -- topic -- partitionId -- {offset, messageId}
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<Integer, long[]>>> offsetMap =
+            new ConcurrentHashMap<>();
+    private final ByteArrayOutputStream batchBuffer = new ByteArrayOutputStream(64 * 1024);
+    private FileChannel journalChannel;
+    private long journalRecordCnt = 0;
+
+    /**
+     * Initial file offset storage object
+     *
+     * @param storePath          the journal directory
+     * @param brokerId           the broker id
+     * @param snapshotRecords    the journal record count to take a snapshot
+     * @param fallbackStorage    the storage to load missing offsets from, may be null
+     */
+    public FileOffsetStorage(String storePath, int brokerId,
+            int snapshotRecords, OffsetStorage fallbackStorage) {
+        this.brokerId = brokerId;
+        this.snapshotRecords = snapshotRecords;
+        this.fallbackStorage = fallbackStorage;
+        File storeDir = new File(storePath);
+        this.snapshotFile = new File(storeDir, SNAPSHOT_FILE_NAME);
+        this.journalFile = new File(storeDir, JOURNAL_FILE_NAME);
+        try {
+            FileUtil.checkDir(storeDir);
+            if (this.snapshotFile.exists()) {
+                replayFile(this.snapshotFile);
+            }
+            this.journalChannel =
+                    new RandomAccessFile(this.journalFile, "rw").getChannel();
+            long validSize = replayFile(this.journalFile);
+            if (validSize < this.journalChannel.size()) {
+                logger.warn(new StringBuilder(256)
+                        .append("[FileOffsetStorage] Truncate torn journal tail from ")
+                        .append(this.journalChannel.size()).append(" to ")
+                        .append(validSize).toString());
+                this.journalChannel.truncate(validSize);
+            }
+            this.journalChannel.position(validSize);
+        } catch (Throwable e) {
+            BrokerSrvStatsHolder.incDiskIOExcCnt();
+            logger.error(new StringBuilder(256)
+                    .append("[FileOffsetStorage] Failed to load offset journal in ")
+                    .append(storeDir.getAbsolutePath()).append(" !").toString(), e);
+            System.exit(1);
+        }
+        logger.info("[FileOffsetStorage] File Offset Storage initiated!");
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.journalChannel != null) {
+            logger.info("File Offset Storage closing .......");
+            try {
+                this.journalChannel.close();
+            } catch (IOException e) {
+                logger.error("[FileOffsetStorage] Close offset journal failure", e);
+            }
+            this.journalChannel = null;
+            logger.info("File Offset Storage closed!");
+        }
+        if (this.fallbackStorage != null) {
+            this.fallbackStorage.close();
+        }
+    }
+
+    @Override
+    public OffsetStorageInfo loadOffset(String group, String topic, int partitionId) {
+        long[] offsetInfo = getOffsetInfo(group, topic, partitionId);
+        if (offsetInfo == DELETED_OFFSET) {
+            return null;
+        }
+        if (offsetInfo == null) {
+            return (this.fallbackStorage == null)
+                    ? null
+                    : this.fallbackStorage.loadOffset(group, topic, partitionId);
+        }
+        return new OffsetStorageInfo(topic, brokerId, partitionId,
+                offsetInfo[0], offsetInfo[1], false);
+    }
+
+    @Override
+    public void commitOffset(String group,
+            Collection<OffsetStorageInfo> offsetInfoList,
+            boolean isFailRetry) {
+        if (group == null
+                || offsetInfoList == null
+                || offsetInfoList.isEmpty()) {
+            return;
+        }
+        commitOffsets(Collections.singletonMap(group, offsetInfoList), isFailRetry);
+    }
+
+    @Override
+    public synchronized void commitOffsets(Map<String, Collection<OffsetStorageInfo>> groupOffsetMap,
+            boolean isFailRetry) {
+        if (this.journalChannel == null
+                || groupOffsetMap == null
+                || groupOffsetMap.isEmpty()) {
+            return;
+        }
+        // take the modified offsets of all groups
+        List<String> groups = new ArrayList<>();
+        List<OffsetStorageInfo> infos = new ArrayList<>();
+        List<long[]> offsetInfos = new ArrayList<>();
+        for (Map.Entry<String, Collection<OffsetStorageInfo>> entry : groupOffsetMap.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                continue;
+            }
+            for (OffsetStorageInfo info : entry.getValue()) {
+                synchronized (info) {
+                    if (!info.isModified()) {
+                        continue;
+                    }
+                    offsetInfos.add(new long[]{info.getOffset(), info.getMessageId()});
+                    info.setModified(false);
+                }
+                groups.add(entry.getKey());
+                infos.add(info);
+            }
+        }
+        if (infos.isEmpty()) {
+            return;
+        }
+        boolean isSuccess = false;
+        int maxTimes = isFailRetry ? TServerConstants.CFG_ZK_COMMIT_DEFAULT_RETRIES : 1;
+        for (int i = 0; i < maxTimes && !isSuccess; i++) {
+            try {
+                startBatch();
+                for (int j = 0; j < infos.size(); j++) {
+                    addRecord(RECORD_TYPE_PUT, groups.get(j), infos.get(j).getTopic(),
+                            infos.get(j).getPartitionId(), offsetInfos.get(j));
+                }
+                appendBatch(infos.size());
+                isSuccess = true;
+            } catch (IOException e) {
+                BrokerSrvStatsHolder.incDiskIOExcCnt();
+                logger.error("Error found when commit offsets to journal with retry " + i, e);
+            }
+        }
+        if (!isSuccess) {
+            // leave the offsets to the next commit round
+            for (OffsetStorageInfo info : infos) {
+                synchronized (info) {
+                    info.setModified(true);
+                }
+            }
+            return;
+        }
+        for (int j = 0; j < infos.size(); j++) {
+            putOffsetInfo(groups.get(j), infos.get(j).getTopic(),
+                    infos.get(j).getPartitionId(), offsetInfos.get(j));
+        }
+        checkAndTakeSnapshot();
+    }
+
+    @Override
+    public Map<String, Set<String>> queryZkAllGroupTopicInfos() {
+        Map<String, Set<String>> groupTopicMap = (this.fallbackStorage == null)
+                ? new HashMap<>()
+                : copyGroupTopicInfo(this.fallbackStorage.queryZkAllGroupTopicInfos());
+        mergeGroupTopicInfo(groupTopicMap, offsetMap.keySet());
+        return groupTopicMap;
+    }
+
+    @Override
+    public Map<String, Set<String>> queryZKGroupTopicInfo(List<String> groupSet) {
+        if (groupSet == null || groupSet.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<String, Set<String>> groupTopicMap = (this.fallbackStorage == null)
+                ? new HashMap<>()
+                : copyGroupTopicInfo(this.fallbackStorage.queryZKGroupTopicInfo(groupSet));
+        mergeGroupTopicInfo(groupTopicMap, groupSet);
+        return groupTopicMap;
+    }
+
+    @Override
+    public Map<Integer, Long> queryGroupOffsetInfo(String group, String topic,
+            Set<Integer> partitionIds) {
+        Map<Integer, Long> offsetInfoMap = new HashMap<>(partitionIds.size());
+        Set<Integer> missingPartIds = new HashSet<>();
+        for (Integer partitionId : partitionIds) {
+            long[] offsetInfo = getOffsetInfo(group, topic, partitionId);
+            if (offsetInfo == null) {
+                missingPartIds.add(partitionId);
+            }
+            offsetInfoMap.put(partitionId,
+                    (offsetInfo == null || offsetInfo == DELETED_OFFSET) ? null : offsetInfo[0]);
+        }
+        if (this.fallbackStorage != null && !missingPartIds.isEmpty()) {
+            offsetInfoMap.putAll(this.fallbackStorage.queryGroupOffsetInfo(group, topic, missingPartIds));
+        }
+        return offsetInfoMap;
+    }
+
+    @Override
+    public synchronized void deleteGroupOffsetInfo(
+            Map<String, Map<String, Set<Integer>>> groupTopicPartMap) {
+        if (this.journalChannel == null) {
+            return;
+        }
+        int recordCnt = 0;
+        try {
+            startBatch();
+            for (Map.Entry<String, Map<String, Set<Integer>>> entry : groupTopicPartMap.entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) {
+                    continue;
+                }
+                for (Map.Entry<String, Set<Integer>> topicEntry : entry.getValue().entrySet()) {
+                    if (topicEntry.getKey() == null || topicEntry.getValue() == null) {
+                        continue;
+                    }
+                    for (Integer partitionId : topicEntry.getValue()) {
+                        addRecord(RECORD_TYPE_DELETE, entry.getKey(),
+                                topicEntry.getKey(), partitionId, null);
+                        recordCnt++;
+                    }
+                }
+            }
+            if (recordCnt == 0) {
+                return;
+            }
+            appendBatch(recordCnt);
+        } catch (IOException e) {
+            BrokerSrvStatsHolder.incDiskIOExcCnt();
+            logger.error("Error found when delete offsets from journal", e);
+            return;
+        }
+        for (Map.Entry<String, Map<String, Set<Integer>>> entry : groupTopicPartMap.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                continue;
+            }
+            for (Map.Entry<String, Set<Integer>> topicEntry : entry.getValue().entrySet()) {
+                if (topicEntry.getKey() == null || topicEntry.getValue() == null) {
+                    continue;
+                }
+                for (Integer partitionId : topicEntry.getValue()) {
+                    delOffsetInfo(entry.getKey(), topicEntry.getKey(), partitionId);
+                }
+            }
+        }
+        checkAndTakeSnapshot();
+    }
+
+    private long[] getOffsetInfo(String group, String topic, int partitionId) {
+        ConcurrentHashMap<String, ConcurrentHashMap<Integer, long[]>> topicMap =
+                offsetMap.get(group);
+        if (topicMap == null) {
+            return null;
+        }
+        ConcurrentHashMap<Integer, long[]> partMap = topicMap.get(topic);
+        if (partMap == null) {
+            return null;
+        }
+        return partMap.get(partitionId);
+    }
+
+    /**
+     * Merge the topics in the journal into the group-topic map of the fallback storage,
+     * a topic with only deleted offsets in the journal is removed from the map.
+     *
+     * @param groupTopicMap    the group-topic map to merge into
+     * @param groups           the groups to merge
+     */
+    private void mergeGroupTopicInfo(Map<String, Set<String>> groupTopicMap,
+            Collection<String> groups) {
+        for (String group : groups) {
+            if (group == null) {
+                continue;
+            }
+            ConcurrentHashMap<String, ConcurrentHashMap<Integer, long[]>> topicMap =
+                    offsetMap.get(group);
+            if (topicMap == null) {
+                continue;
+            }
+            Set<String> topicSet = groupTopicMap.computeIfAbsent(group, k -> new HashSet<>());
+            for (Map.Entry<String, ConcurrentHashMap<Integer, long[]>> topicEntry : topicMap.entrySet()) {
+                if (hasLiveOffset(topicEntry.getValue())) {
+                    topicSet.add(topicEntry.getKey());
+                } else {
+                    topicSet.remove(topicEntry.getKey());
+                }
+            }
+            if (topicSet.isEmpty()) {
+                groupTopicMap.remove(group);
+            }
+        }
+    }
+
+    private Map<String, Set<String>> copyGroupTopicInfo(Map<String, Set<String>> groupTopicMap) {
+        Map<String, Set<String>> result = new HashMap<>();
+        if (groupTopicMap != null) {
+            for (Map.Entry<String, Set<String>> entry : groupTopicMap.entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null) {
+                    result.put(entry.getKey(), new HashSet<>(entry.getValue()));
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean hasLiveOffset(ConcurrentHashMap<Integer, long[]> partMap) {
+        for (long[] offsetInfo : partMap.values()) {
+            if (offsetInfo != DELETED_OFFSET) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void delOffsetInfo(String group, String topic, int partitionId) {
+        if (this.fallbackStorage == null) {
+            rmvOffsetInfo(group, topic, partitionId);
+        } else {
+            // keep the tombstone, so the offset is not loaded from the fallback storage
+            putOffsetInfo(group, topic, partitionId, DELETED_OFFSET);
+        }
+    }
+
+    private void putOffsetInfo(String group, String topic,
+            int partitionId, long[] offsetInfo) {
+        offsetMap.computeIfAbsent(group, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(topic, k -> new ConcurrentHashMap<>())
+                .put(partitionId, offsetInfo);
+    }
+
+    private void rmvOffsetInfo(String group, String topic, int partitionId) {
+        ConcurrentHashMap<String, ConcurrentHashMap<Integer, long[]>> topicMap =
+                offsetMap.get(group);
+        if (topicMap == null) {
+            return;
+        }
+        ConcurrentHashMap<Integer, long[]> partMap = topicMap.get(topic);
+        if (partMap != null) {
+            partMap.remove(partitionId);
+            if (partMap.isEmpty()) {
+                topicMap.remove(topic);
+            }
+        }
+        if (topicMap.isEmpty()) {
+            offsetMap.remove(group);
+        }
+    }
+
+    private void startBatch() throws IOException {
+        batchBuffer.reset();
+        // reserve the batch head
+        batchBuffer.write(new byte[BATCH_HEAD_LEN]);
+    }
+
+    private void addRecord(byte recordType, String group, String topic,
+            int partitionId, long[] offsetInfo) throws IOException {
+        DataOutputStream output = new DataOutputStream(batchBuffer);
+        output.writeByte(recordType);
+        output.writeUTF(group);
+        output.writeUTF(topic);
+        output.writeInt(partitionId);
+        output.writeLong((offsetInfo == null) ? 0L : offsetInfo[0]);
+        output.writeLong((offsetInfo == null) ? 0L : offsetInfo[1]);
+        output.flush();
+    }
+
+    private ByteBuffer finishBatch() {
+        byte[] batchBytes = batchBuffer.toByteArray();
+        int bodyLen = batchBytes.length - BATCH_HEAD_LEN;
+        CRC32 crc32 = new CRC32();
+        crc32.update(batchBytes, BATCH_HEAD_LEN, bodyLen);
+        ByteBuffer batch = ByteBuffer.allocate(batchBytes.length + BATCH_TAIL_LEN);
+        batch.put(batchBytes);
+        batch.putInt(0, BATCH_MAGIC);
+        batch.putInt(4, bodyLen);
+        batch.putLong(crc32.getValue());
+        batch.flip();
+        return batch;
+    }
+
+    private void appendBatch(int recordCnt) throws IOException {
+        ByteBuffer batch = finishBatch();
+        long startPos = journalChannel.position();
+        try {
+            while (batch.hasRemaining()) {
+                journalChannel.write(batch);
+            }
+            journalChannel.force(false);
+        } catch (IOException e) {
+            // drop the partial batch, so the later batches stay readable
+            journalChannel.truncate(startPos);
+            journalChannel.position(startPos);
+            throw e;
+        }
+        journalRecordCnt += recordCnt;
+    }
+
+    private void checkAndTakeSnapshot() {
+        if (journalRecordCnt < snapshotRecords) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        File tmpFile = new File(snapshotFile.getParentFile(), SNAPSHOT_FILE_NAME + ".tmp");
+        int recordCnt = 0;
+        try {
+            startBatch();
+            for (Map.Entry<String, ConcurrentHashMap<String, ConcurrentHashMap<Integer, long[]>>> entry : offsetMap
+                    .entrySet()) {
+                for (Map.Entry<String, ConcurrentHashMap<Integer, long[]>> topicEntry : entry.getValue()
+                        .entrySet()) {
+                    for (Map.Entry<Integer, long[]> partEntry : topicEntry.getValue().entrySet()) {
+                        if (partEntry.getValue() == DELETED_OFFSET) {
+                            addRecord(RECORD_TYPE_DELETE, entry.getKey(), topicEntry.getKey(),
+                                    partEntry.getKey(), null);
+                        } else {
+                            addRecord(RECORD_TYPE_PUT, entry.getKey(), topicEntry.getKey(),
+                                    partEntry.getKey(), partEntry.getValue());
+                        }
+                        recordCnt++;
+                    }
+                }
+            }
+            ByteBuffer batch = finishBatch();
+            try (FileChannel channel = new RandomAccessFile(tmpFile, "rw").getChannel()) {
+                channel.truncate(0);
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(true);
+            }
+            Files.move(tmpFile.toPath(), snapshotFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // the journal replays over the new snapshot the same if truncation fails
+            journalChannel.truncate(0);
+            journalChannel.position(0);
+            journalChannel.force(true);
+            journalRecordCnt = 0;
+        } catch (IOException e) {
+            BrokerSrvStatsHolder.incDiskIOExcCnt();
+            logger.error("[FileOffsetStorage] Take offset snapshot failure", e);
+            return;
+        }
+        logger.info(new StringBuilder(256)
+                .append("[FileOffsetStorage] Took offset snapshot of ").append(recordCnt)
+                .append(" records, cost ").append(System.currentTimeMillis() - startTime)
+                .append(" ms").toString());
+    }
+
+    /**
+     * Replay the batches of the file into the offset map.
+     *
+     * @param file          the snapshot or journal file
+     * @return              the size of the complete batches
+     * @throws IOException  the exception while reading the file
+     */
+    private long replayFile(File file) throws IOException {
+        byte[] fileBytes = Files.readAllBytes(file.toPath());
+        ByteBuffer fileBuffer = ByteBuffer.wrap(fileBytes);
+        long recordCnt = 0;
+        int validSize = 0;
+        while (fileBuffer.remaining() >= BATCH_HEAD_LEN + BATCH_TAIL_LEN) {
+            int batchPos = fileBuffer.position();
+            int magic = fileBuffer.getInt();
+            int bodyLen = fileBuffer.getInt();
+            if (magic != BATCH_MAGIC
+                    || bodyLen < 0
+                    || bodyLen + BATCH_TAIL_LEN > fileBuffer.remaining()) {
+                break;
+            }
+            CRC32 crc32 = new CRC32();
+            crc32.update(fileBytes, batchPos + BATCH_HEAD_LEN, bodyLen);
+            if (crc32.getValue() != fileBuffer.getLong(batchPos + BATCH_HEAD_LEN + bodyLen)) {
+                break;
+            }
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+                    fileBytes, batchPos + BATCH_HEAD_LEN, bodyLen));
+            while (input.available() > 0) {
+                byte recordType = input.readByte();
+                String group = input.readUTF();
+                String topic = input.readUTF();
+                int partitionId = input.readInt();
+                long offset = input.readLong();
+                long messageId = input.readLong();
+                if (recordType == RECORD_TYPE_PUT) {
+                    putOffsetInfo(group, topic, partitionId, new long[]{offset, messageId});
+                } else {
+                    delOffsetInfo(group, topic, partitionId);
+                }
+                recordCnt++;
+            }
+            validSize = batchPos + BATCH_HEAD_LEN + bodyLen + BATCH_TAIL_LEN;
+            fileBuffer.position(validSize);
+        }
+        if (file.equals(journalFile)) {
+            journalRecordCnt = recordCnt;
+        }
+        return validSize;
+    }
+}
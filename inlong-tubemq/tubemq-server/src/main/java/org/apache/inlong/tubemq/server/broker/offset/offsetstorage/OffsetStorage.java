@@ -32,6 +32,20 @@ public interface OffsetStorage {
             Collection<OffsetStorageInfo> offsetInfoList,
             boolean isFailRetry);
 
+    /**
+     * Commit the offsets of multiple groups, the storages able to
+     * write them in one batch should override this method.
+     *
+     * @param groupOffsetMap    the offsets of each group
+     * @param isFailRetry       whether to retry on failure
+     */
+    default void commitOffsets(Map<String, Collection<OffsetStorageInfo>> groupOffsetMap,
+            boolean isFailRetry) {
+        for (Map.Entry<String, Collection<OffsetStorageInfo>> entry : groupOffsetMap.entrySet()) {
+            commitOffset(entry.getKey(), entry.getValue(), isFailRetry);
+        }
+    }
+
     Map<String, Set<String>> queryZkAllGroupTopicInfos();
 
     Map<String, Set<String>> queryZKGroupTopicInfo(List<String> groupSet);
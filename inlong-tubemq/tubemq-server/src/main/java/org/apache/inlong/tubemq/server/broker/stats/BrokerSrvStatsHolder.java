@@ -24,6 +24,7 @@ import org.apache.inlong.tubemq.corebase.metric.impl.LongStatsCounter;
 import org.apache.inlong.tubemq.corebase.metric.impl.SinceTime;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -134,6 +135,22 @@ public class BrokerSrvStatsHolder {
         switchableSets[getIndex()].fileSyncDltStats.update(dltTime);
     }
 
+    public static void updDiskFlushDlt(String diskId, long dltTime) {
+        if (detailStatsClosed) {
+            return;
+        }
+        ServiceStatsSet statsSet = switchableSets[getIndex()];
+        ESTHistogram curDiskStats = statsSet.diskFlushDltStats.get(diskId);
+        if (curDiskStats == null) {
+            ESTHistogram tmpDiskStats = new ESTHistogram(diskId, "disk_flush_dlt");
+            curDiskStats = statsSet.diskFlushDltStats.putIfAbsent(diskId, tmpDiskStats);
+            if (curDiskStats == null) {
+                curDiskStats = tmpDiskStats;
+            }
+        }
+        curDiskStats.update(dltTime);
+    }
+
     public static void updZKSyncDataDlt(long dltTime) {
         switchableSets[getIndex()].zkSyncDltStats.update(dltTime);
     }
@@ -228,6 +245,7 @@ public class BrokerSrvStatsHolder {
             statsSet.msgSubLatencyStats.getValue(statsMap, false);
             statsSet.msgConfirmLatencyStats.getValue(statsMap, false);
         }
+        statsSet.getDiskFlushStatsInfo(statsMap, resetValue);
     }
 
     private static void getStatsValue(ServiceStatsSet statsSet,
@@ -261,6 +279,8 @@ public class BrokerSrvStatsHolder {
             statsSet.msgSubLatencyStats.snapShort(strBuff, false);
             strBuff.append(",");
             statsSet.msgConfirmLatencyStats.snapShort(strBuff, false);
+            strBuff.append(",");
+            statsSet.getDiskFlushStatsInfo(strBuff, true);
             strBuff.append("}");
         } else {
             strBuff.append(",\"").append(statsSet.fileIOExcStats.getFullName())
@@ -287,6 +307,8 @@ public class BrokerSrvStatsHolder {
             statsSet.msgSubLatencyStats.getValue(strBuff, false);
             strBuff.append(",");
             statsSet.msgConfirmLatencyStats.getValue(strBuff, false);
+            strBuff.append(",");
+            statsSet.getDiskFlushStatsInfo(strBuff, false);
             strBuff.append("}");
         }
     }
@@ -351,6 +373,9 @@ public class BrokerSrvStatsHolder {
         // confirm process latency statistics
         protected final ESTHistogram msgConfirmLatencyStats =
                 new ESTHistogram("msg_confirm_dlt", null);
+        // group commit flush latency statistics of each disk
+        protected final ConcurrentHashMap<String, ESTHistogram> diskFlushDltStats =
+                new ConcurrentHashMap<>();
 
         public ServiceStatsSet() {
             resetSinceTime();
@@ -359,5 +384,44 @@ public class BrokerSrvStatsHolder {
         public void resetSinceTime() {
             this.lstResetTime.reset();
         }
+
+        /**
+         * Gets the disk flush statistics information
+         *
+         * @param statsMap    the statistics content contain
+         * @param resetValue  whether reset value
+         */
+        public void getDiskFlushStatsInfo(Map<String, Long> statsMap, boolean resetValue) {
+            for (ESTHistogram itemStats : diskFlushDltStats.values()) {
+                itemStats.getValue(statsMap, false);
+            }
+            if (resetValue) {
+                diskFlushDltStats.clear();
+            }
+        }
+
+        /**
+         * Gets the disk flush statistics information
+         *
+         * @param strBuff     the statistics content contain
+         * @param resetValue  whether reset value
+         */
+        public void getDiskFlushStatsInfo(StringBuilder strBuff, boolean resetValue) {
+            int totalCnt = 0;
+            strBuff.append("\"").append("disk_flush_dlt\":{");
+            for (ESTHistogram itemStats : diskFlushDltStats.values()) {
+                if (itemStats == null) {
+                    continue;
+                }
+                if (totalCnt++ > 0) {
+                    strBuff.append(",");
+                }
+                itemStats.getValue(strBuff, false);
+            }
+            strBuff.append("}");
+            if (resetValue) {
+                diskFlushDltStats.clear();
+            }
+        }
     }
 }
@@ -227,6 +227,31 @@ public class MsgStoreStatsHolder {
         }
     }
 
+    /**
+     * Add group commit flush statistic.
+     *
+     * @param flushedMsgCnt      the flushed message count
+     * @param flushedDataSize    the flushed message size
+     * @param isForceMetadata    whether force push metadata
+     */
+    public void addFileGroupFlushStats(long flushedMsgCnt,
+            long flushedDataSize,
+            boolean isForceMetadata) {
+        if (isClosed) {
+            return;
+        }
+        MsgStoreStatsItemSet tmStatsSet = msgStoreStatsSets[getIndex()];
+        if (flushedDataSize > 0) {
+            tmStatsSet.fileFlushedDataSize.update(flushedDataSize);
+        }
+        if (flushedMsgCnt > 0) {
+            tmStatsSet.fileFlushedMsgCnt.update(flushedMsgCnt);
+        }
+        if (isForceMetadata) {
+            tmStatsSet.fileMetaFlushCnt.incValue();
+        }
+    }
+
     /**
      * Check whether has exceeded the maximum self-statistics period.
      *
@@ -25,6 +25,7 @@ import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
@@ -83,6 +84,9 @@ public class DataStoreUtils {
     public static final int INDEX_POS_MSG_SIZE = 12;
     public static final int INDEX_POS_KEY_CODE = 16;
     public static final int INDEX_POS_TIME_RECV = 20;
+    // partition id of the filler entries written in the slots whose append failed,
+    // no partition uses it, so the readers skip these entries
+    public static final int STORE_FILLER_PARTITION_ID = Integer.MAX_VALUE;
 
     public static final int MAX_MSG_DATA_STORE_SIZE =
             TBaseConstants.META_MAX_MESSAGE_DATA_SIZE_UPPER_LIMIT
@@ -118,9 +122,36 @@ public class DataStoreUtils {
             HashMap<String, TrafficInfo> countMap,
             String statisKeyBase,
             StringBuilder sBuilder) {
-        if (dataBuffer.array().length < dataTotalSize) {
+        return getTransferMsg(dataBuffer, dataTotalSize,
+                countMap, statisKeyBase, sBuilder, false);
+    }
+
+    /**
+     * Convert inner message to protobuf format, then reply to client.
+     *
+     * If wrapPayload is true, the payload is referenced from the data buffer
+     * instead of being copied, so the caller must hand over a buffer that is
+     * exclusively owned by the returned message and never reused afterwards.
+     * The data buffer may be a slice of a larger array, the message starts at
+     * its array offset.
+     *
+     * @param dataBuffer      the raw stored data
+     * @param dataTotalSize   the data size
+     * @param countMap        the statistics map
+     * @param statisKeyBase   the statistics key prefix
+     * @param sBuilder        the string buffer
+     * @param wrapPayload     whether to wrap the payload without copying
+     * @return                the converted messages
+     */
+    public static ClientBroker.TransferedMessage getTransferMsg(ByteBuffer dataBuffer, int dataTotalSize,
+            HashMap<String, TrafficInfo> countMap,
+            String statisKeyBase,
+            StringBuilder sBuilder,
+            boolean wrapPayload) {
+        if (dataBuffer.capacity() < dataTotalSize) {
             return null;
         }
+        final int arrayOffset = dataBuffer.arrayOffset();
         final int msgLen =
                 dataBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_LENGTH);
         final int msgToken =
@@ -137,14 +168,18 @@ public class DataStoreUtils {
         final long msgId = dataBuffer.getLong(DataStoreUtils.STORE_HEADER_POS_MSGID);
         final int flag = dataBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_MSGFLAG);
         final int payLoadLen2 = payLoadLen;
-        final byte[] payLoadData = new byte[payLoadLen];
-        System.arraycopy(dataBuffer.array(), payLoadOffset, payLoadData, 0, payLoadLen);
         ClientBroker.TransferedMessage.Builder dataBuilder =
                 ClientBroker.TransferedMessage.newBuilder();
         dataBuilder.setMessageId(msgId);
         dataBuilder.setCheckSum(checkSum);
         dataBuilder.setFlag(flag);
-        dataBuilder.setPayLoadData(ByteString.copyFrom(payLoadData));
+        if (wrapPayload) {
+            dataBuilder.setPayLoadData(UnsafeByteOperations.unsafeWrap(
+                    dataBuffer.array(), arrayOffset + payLoadOffset, payLoadLen));
+        } else {
+            dataBuilder.setPayLoadData(ByteString.copyFrom(
+                    dataBuffer.array(), arrayOffset + payLoadOffset, payLoadLen));
+        }
         // get statistic data
         int attrLen = 0;
         String attribute = null;
@@ -160,7 +195,7 @@ public class DataStoreUtils {
             }
             if (attrLen > 0) {
                 final byte[] attrData = new byte[attrLen];
-                System.arraycopy(dataBuffer.array(), payLoadOffset, attrData, 0, attrLen);
+                System.arraycopy(dataBuffer.array(), arrayOffset + payLoadOffset, attrData, 0, attrLen);
                 try {
                     attribute = new String(attrData, TBaseConstants.META_DEFAULT_CHARSET_NAME);
                 } catch (final UnsupportedEncodingException e) {
@@ -19,22 +19,24 @@ package org.apache.inlong.tubemq.server.common.heartbeat;
 
 import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
 import org.apache.inlong.tubemq.corebase.rv.ProcessResult;
-import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.apache.inlong.tubemq.server.common.exception.HeartbeatException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.LongConsumer;
 
 public class HeartbeatManager {
 
     private static final Logger logger = LoggerFactory.getLogger(HeartbeatManager.class);
+    // the tick and slot count of the timeout wheels
+    private static final long WHEEL_TICK_MS = 1000L;
+    private static final int WHEEL_SIZE = 64;
 
     private final ConcurrentHashMap<String, TimeoutInfo> brokerRegMap =
             new ConcurrentHashMap<>();
@@ -42,14 +44,32 @@ public class HeartbeatManager {
             new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, TimeoutInfo> consumerRegMap =
             new ConcurrentHashMap<>();
+    private final TimeoutWheel brokerWheel =
+            new TimeoutWheel(brokerRegMap, WHEEL_TICK_MS, WHEEL_SIZE);
+    private final TimeoutWheel producerWheel =
+            new TimeoutWheel(producerRegMap, WHEEL_TICK_MS, WHEEL_SIZE);
+    private final TimeoutWheel consumerWheel =
+            new TimeoutWheel(consumerRegMap, WHEEL_TICK_MS, WHEEL_SIZE);
     private final ExecutorService timeoutScanService = Executors.newCachedThreadPool();
+    // the recorder of the sweep durations
+    private final LongConsumer sweepDurationRecorder;
     private long brokerTimeoutDlt = 0;
     private long producerTimeoutDlt = 0;
     private long consumerTimeoutDlt = 0;
     private boolean isStopped = false;
 
     public HeartbeatManager() {
+        this(dltTime -> {
+        });
+    }
 
+    /**
+     * Initial heartbeat manager with the recorder of the sweep durations
+     *
+     * @param sweepDurationRecorder  the recorder called with the cost of each sweep
+     */
+    public HeartbeatManager(LongConsumer sweepDurationRecorder) {
+        this.sweepDurationRecorder = sweepDurationRecorder;
     }
 
     /**
@@ -96,7 +116,7 @@ public class HeartbeatManager {
      */
     public void regBrokerCheckBusiness(final long timeout, final TimeoutListener listener) {
         this.brokerTimeoutDlt = timeout;
-        this.registerCheckBusiness("Broker Node", this.brokerRegMap, listener);
+        this.registerCheckBusiness("Broker Node", this.brokerWheel, listener);
     }
 
     /**
@@ -107,7 +127,7 @@ public class HeartbeatManager {
      */
     public void regProducerCheckBusiness(final long timeout, final TimeoutListener listener) {
         this.producerTimeoutDlt = timeout;
-        this.registerCheckBusiness("Producer Node", this.producerRegMap, listener);
+        this.registerCheckBusiness("Producer Node", this.producerWheel, listener);
     }
 
     /**
@@ -118,11 +138,11 @@ public class HeartbeatManager {
      */
     public void regConsumerCheckBusiness(final long timeout, final TimeoutListener listener) {
         this.consumerTimeoutDlt = timeout;
-        this.registerCheckBusiness("Consumer Node", this.consumerRegMap, listener);
+        this.registerCheckBusiness("Consumer Node", this.consumerWheel, listener);
     }
 
     private void registerCheckBusiness(final String businessType,
-            final Map<String, TimeoutInfo> nodeMap,
+            final TimeoutWheel timeoutWheel,
             final TimeoutListener listener) {
 
         timeoutScanService.submit(new Runnable() {
@@ -132,28 +152,23 @@ public class HeartbeatManager {
                 while (!isStopped) {
                     try {
                         long currentTime = System.currentTimeMillis();
-                        Set<String> removedNodeKey = new HashSet<>();
-                        for (Map.Entry<String, TimeoutInfo> entry : nodeMap.entrySet()) {
-                            if (TStringUtils.isBlank(entry.getKey()) || entry.getValue() == null) {
-                                continue;
-                            }
-                            if (currentTime >= entry.getValue().getTimeoutTime()) {
-                                removedNodeKey.add(entry.getKey());
-                            }
-                        }
-                        if (!removedNodeKey.isEmpty()) {
-                            for (String nodeKey : removedNodeKey) {
-                                TimeoutInfo timeoutInfo = nodeMap.get(nodeKey);
-                                if (timeoutInfo == null) {
-                                    continue;
-                                }
-                                if (currentTime >= timeoutInfo.getTimeoutTime()) {
-                                    nodeMap.remove(nodeKey);
-                                    listener.onTimeout(nodeKey, timeoutInfo);
-                                }
+                        List<Tuple2<String, TimeoutInfo>> timeoutNodes =
+                                timeoutWheel.sweep(currentTime);
+                        sweepDurationRecorder.accept(System.currentTimeMillis() - currentTime);
+                        // dispatch the timeout nodes of this sweep
+                        for (Tuple2<String, TimeoutInfo> timeoutNode : timeoutNodes) {
+                            try {
+                                listener.onTimeout(timeoutNode.getF0(), timeoutNode.getF1());
+                            } catch (Throwable t) {
+                                logger.error(new StringBuilder(256).append(businessType)
+                                        .append(" ").append(timeoutNode.getF0())
+                                        .append(" timeout process error!").toString(), t);
                             }
                         }
-                        Thread.sleep(1000 * 1);
+                        // wait for the next tick
+                        currentTime = System.currentTimeMillis();
+                        Thread.sleep(timeoutWheel.getTickMs()
+                                - currentTime % timeoutWheel.getTickMs());
                     } catch (Throwable t) {
                         logger.error(new StringBuilder(256)
                                 .append(businessType).append(" heartbeat scan error!").toString(), t);
@@ -171,7 +186,7 @@ public class HeartbeatManager {
      * @return the timeout info for the registered node
      */
     public TimeoutInfo regBrokerNode(String nodeId, String createId) {
-        return this.brokerRegMap.put(nodeId,
+        return regNode(brokerRegMap, brokerWheel, nodeId,
                 new TimeoutInfo(createId, this.brokerTimeoutDlt));
     }
 
@@ -182,7 +197,8 @@ public class HeartbeatManager {
      * @return the timeout info of the registered node
      */
     public TimeoutInfo regProducerNode(final String nodeId) {
-        return this.producerRegMap.put(nodeId, new TimeoutInfo(this.producerTimeoutDlt));
+        return regNode(producerRegMap, producerWheel, nodeId,
+                new TimeoutInfo(this.producerTimeoutDlt));
     }
 
     /**
@@ -192,7 +208,8 @@ public class HeartbeatManager {
      * @return the timeout info of the registered node
      */
     public TimeoutInfo regConsumerNode(final String nodeId) {
-        return this.consumerRegMap.put(nodeId, new TimeoutInfo(this.consumerTimeoutDlt));
+        return regNode(consumerRegMap, consumerWheel, nodeId,
+                new TimeoutInfo(this.consumerTimeoutDlt));
     }
 
     /**
@@ -206,7 +223,7 @@ public class HeartbeatManager {
     public TimeoutInfo regConsumerNode(final String nodeId,
             final String consumerId,
             final String partStr) {
-        return this.consumerRegMap.put(nodeId,
+        return regNode(consumerRegMap, consumerWheel, nodeId,
                 new TimeoutInfo(consumerId, partStr, this.consumerTimeoutDlt));
     }
 
@@ -308,6 +325,13 @@ public class HeartbeatManager {
         timeoutInfo.updTimeoutTime(this.consumerTimeoutDlt);
     }
 
+    private TimeoutInfo regNode(ConcurrentHashMap<String, TimeoutInfo> nodeMap,
+            TimeoutWheel timeoutWheel, String nodeId, TimeoutInfo timeoutInfo) {
+        TimeoutInfo oldInfo = nodeMap.put(nodeId, timeoutInfo);
+        timeoutWheel.add(nodeId, timeoutInfo);
+        return oldInfo;
+    }
+
     /**
      * Stop the heartbeat.
      */
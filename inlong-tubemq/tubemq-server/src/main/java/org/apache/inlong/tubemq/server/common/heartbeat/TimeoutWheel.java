@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.common.heartbeat;
+
+import org.apache.inlong.tubemq.corebase.utils.Tuple2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hashed timing wheel of the node timeouts.
+ *
+ * Each node key is kept in the slot of the tick following its timeout time. A heartbeat
+ * only updates the timeout time of the node, and the node key is moved to its new slot
+ * when the old slot is swept, so the refresh costs O(1) and a sweep only visits the
+ * node keys of the passed ticks instead of all the registered nodes.
+ */
+public class TimeoutWheel {
+
+    private final long tickMs;
+    private final Set<String>[] slots;
+    private final Map<String, TimeoutInfo> nodeMap;
+    // the last swept tick, only advanced by the sweep thread
+    private volatile long sweptTick;
+
+    @SuppressWarnings("unchecked")
+    public TimeoutWheel(Map<String, TimeoutInfo> nodeMap, long tickMs, int wheelSize) {
+        this.nodeMap = nodeMap;
+        this.tickMs = tickMs;
+        this.slots = new Set[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            this.slots[i] = ConcurrentHashMap.newKeySet();
+        }
+        this.sweptTick = System.currentTimeMillis() / tickMs;
+    }
+
+    /**
+     * Add a registered node to the wheel
+     *
+     * @param nodeKey      the node key in the node map
+     * @param timeoutInfo  the timeout info of the node
+     */
+    public void add(String nodeKey, TimeoutInfo timeoutInfo) {
+        slots[getSlot(getTick(timeoutInfo.getTimeoutTime()))].add(nodeKey);
+    }
+
+    /**
+     * Sweep the ticks passed since the last sweep, the timeout nodes are
+     * removed from the node map and returned in one batch
+     *
+     * @param currentTime  the current time
+     * @return             the timeout nodes
+     */
+    public List<Tuple2<String, TimeoutInfo>> sweep(long currentTime) {
+        List<Tuple2<String, TimeoutInfo>> timeoutNodes = new ArrayList<>();
+        long curTick = currentTime / tickMs;
+        long fromTick = Math.max(sweptTick + 1, curTick - slots.length + 1);
+        for (long tick = fromTick; tick <= curTick; tick++) {
+            sweepSlot(getSlot(tick), currentTime, timeoutNodes);
+        }
+        sweptTick = Math.max(sweptTick, curTick);
+        return timeoutNodes;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    private void sweepSlot(int slot, long currentTime,
+            List<Tuple2<String, TimeoutInfo>> timeoutNodes) {
+        int newSlot;
+        TimeoutInfo timeoutInfo;
+        Set<String> slotKeys = slots[slot];
+        for (String nodeKey : slotKeys) {
+            timeoutInfo = nodeMap.get(nodeKey);
+            if (timeoutInfo == null) {
+                // unregistered node
+                slotKeys.remove(nodeKey);
+                continue;
+            }
+            if (currentTime >= timeoutInfo.getTimeoutTime()) {
+                slotKeys.remove(nodeKey);
+                if (nodeMap.remove(nodeKey, timeoutInfo)) {
+                    timeoutNodes.add(new Tuple2<>(nodeKey, timeoutInfo));
+                }
+                continue;
+            }
+            // refreshed node, or node timeout after a full wheel round
+            newSlot = getSlot(getTick(timeoutInfo.getTimeoutTime()));
+            if (newSlot != slot) {
+                slotKeys.remove(nodeKey);
+                slots[newSlot].add(nodeKey);
+            }
+        }
+    }
+
+    private long getTick(long timeoutTime) {
+        // the nodes in a slot are all timeout once its tick starts,
+        // and the passed ticks are swept in the next round
+        return Math.max(timeoutTime / tickMs + 1, sweptTick + 1);
+    }
+
+    private int getSlot(long tick) {
+        return (int) (tick % slots.length);
+    }
+}
@@ -85,6 +85,7 @@ import org.apache.inlong.tubemq.server.common.utils.HasThread;
 import org.apache.inlong.tubemq.server.common.utils.RowLock;
 import org.apache.inlong.tubemq.server.common.utils.Sleeper;
 import org.apache.inlong.tubemq.server.master.balance.DefaultLoadBalancer;
+import org.apache.inlong.tubemq.server.master.balance.GroupBalanceTracker;
 import org.apache.inlong.tubemq.server.master.balance.LoadBalancer;
 import org.apache.inlong.tubemq.server.master.metamanage.DefaultMetaDataService;
 import org.apache.inlong.tubemq.server.master.metamanage.MetaDataService;
@@ -135,6 +136,8 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
 
     private static final Logger logger = LoggerFactory.getLogger(TMaster.class);
     private static final int MAX_BALANCE_DELAY_TIME = 10;
+    // the max group count balanced by one server-balance task
+    private static final int MAX_GROUPS_PER_BALANCE_TASK = 100;
 
     private final ConcurrentHashMap<String/* consumerId */, Map<String/* topic */, Map<String, Partition>>> currentSubInfo =
             new ConcurrentHashMap<>();
@@ -151,6 +154,7 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
     private final RowLock masterRowLock; // lock
     private final WebServer webServer; // web server
     private final LoadBalancer loadBalancer; // load balance
+    private final GroupBalanceTracker balanceTracker; // stable balance group tracker
     private final MasterConfig masterConfig; // master config
     private final NodeAddrInfo masterAddInfo; // master address info
     private final HeartbeatManager heartbeatManager; // heartbeat manager
@@ -196,12 +200,14 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         this.cltExecutor = Executors.newFixedThreadPool(this.masterConfig.getRebalanceParallel());
         this.visitTokenManager = new SimpleVisitTokenManager(this.masterConfig);
         this.serverAuthHandler = new SimpleCertificateMasterHandler(this.masterConfig);
-        this.heartbeatManager = new HeartbeatManager();
+        this.heartbeatManager = new HeartbeatManager(MasterSrvStatsHolder::updHeartbeatSweepDurations);
         this.producerHolder = new ProducerInfoHolder();
         this.consumerHolder = new ConsumerInfoHolder(this);
         this.consumerEventManager = new ConsumerEventManager(consumerHolder);
         this.topicPSInfoManager = new TopicPSInfoManager(this);
         this.loadBalancer = new DefaultLoadBalancer();
+        this.balanceTracker =
+                new GroupBalanceTracker(this.masterConfig.getRebalanceFullRoundInterval());
         heartbeatManager.regConsumerCheckBusiness(masterConfig.getConsumerHeartbeatTimeoutMs(),
                 new TimeoutListener() {
 
@@ -1649,48 +1655,48 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
             return;
         }
         final boolean isStartBalance = startupBalance;
-        List<String> groupsNeedToBalance = isStartBalance
+        final boolean isFullRound = balanceTracker.startRound(isStartBalance);
+        List<String> candidateGroups = isStartBalance
                 ? consumerHolder.getAllServerBalanceGroups()
                 : getNeedToBalanceGroups(sBuffer);
         sBuffer.delete(0, sBuffer.length());
+        // skip the groups without consumer or partition changes since their stable round
+        final Map<String, Long> groupSignatures = new HashMap<>();
+        final Map<String, Long> topicSignatures = new HashMap<>();
+        List<String> groupsNeedToBalance = balanceTracker.selectGroups(candidateGroups,
+                isFullRound, group -> getGroupBalanceSignature(group, topicSignatures),
+                groupSignatures);
         int balanceTaskCnt = groupsNeedToBalance.size();
+        MasterSrvStatsHolder.updSvrBalanceGroupCnt(balanceTaskCnt,
+                candidateGroups.size() - balanceTaskCnt);
         if (balanceTaskCnt > 0) {
-            // calculate process count
+            // split the groups into small tasks, so that the
+            // slow groups do not hold up the rest of the round
             int unitNum = (balanceTaskCnt + masterConfig.getRebalanceParallel() - 1)
                     / masterConfig.getRebalanceParallel();
-            // start processor to do balance;
-            int startIndex = 0;
-            int endIndex = 0;
+            unitNum = Math.min(unitNum, MAX_GROUPS_PER_BALANCE_TASK);
+            int taskCnt = (balanceTaskCnt + unitNum - 1) / unitNum;
             // set parallel balance signal
             final long startBalanceTime = System.currentTimeMillis();
-            curSvrBalanceParal.set(masterConfig.getRebalanceParallel());
-            for (int i = 0; i < masterConfig.getRebalanceParallel(); i++) {
+            curSvrBalanceParal.set(taskCnt);
+            for (int i = 0; i < taskCnt; i++) {
                 // get groups need to balance
-                startIndex = Math.min((i) * unitNum, balanceTaskCnt);
-                endIndex = Math.min((i + 1) * unitNum, balanceTaskCnt);
-                final List<String> subGroups = groupsNeedToBalance.subList(startIndex, endIndex);
-                if (subGroups.isEmpty()) {
-                    if (curSvrBalanceParal.decrementAndGet() == 0) {
-                        MasterSrvStatsHolder.updSvrBalanceDurations(
-                                System.currentTimeMillis() - startBalanceTime);
-                    }
-                    continue;
-                }
+                final List<String> subGroups = groupsNeedToBalance.subList(
+                        i * unitNum, Math.min((i + 1) * unitNum, balanceTaskCnt));
                 // execute balance
                 this.svrExecutor.execute(new Runnable() {
 
                     @Override
                     public void run() {
+                        Set<String> eventGroups = new HashSet<>();
                         try {
-                            if (subGroups.isEmpty()) {
-                                return;
-                            }
                             final StringBuilder strBuffer = new StringBuilder(512);
                             // first process reset rebalance task;
                             try {
-                                tMaster.processResetbalance(balanceId,
-                                        isStartBalance, subGroups, strBuffer);
+                                eventGroups.addAll(tMaster.processResetbalance(balanceId,
+                                        isStartBalance, subGroups, strBuffer));
                             } catch (Throwable e) {
+                                eventGroups.addAll(subGroups);
                                 logger.warn(new StringBuilder(1024)
                                         .append("[Svr-Balance Status] Error during reset-reb,")
                                         .append("the groups that may be affected are ")
@@ -1702,16 +1708,28 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
                             }
                             // second process normal balance task;
                             try {
-                                tMaster.processRebalance(balanceId,
-                                        isStartBalance, subGroups, strBuffer);
+                                eventGroups.addAll(tMaster.processRebalance(balanceId,
+                                        isStartBalance, subGroups, strBuffer));
                             } catch (Throwable e) {
+                                eventGroups.addAll(subGroups);
                                 logger.warn(new StringBuilder(1024)
                                         .append("[Svr-Balance Status] Error during normal-reb,")
                                         .append("the groups that may be affected are ")
                                         .append(subGroups).append(",error is ")
                                         .append(e).toString());
                             }
+                            // record the groups balanced without any event as stable
+                            Long groupSig;
+                            for (String group : subGroups) {
+                                groupSig = groupSignatures.get(group);
+                                if (groupSig == null || eventGroups.contains(group)) {
+                                    balanceTracker.setUnstable(group);
+                                } else {
+                                    balanceTracker.setStable(group, groupSig);
+                                }
+                            }
                         } catch (Throwable e) {
+                            balanceTracker.setUnstable(subGroups);
                             logger.warn("[Svr-Balance Status] Error during process", e);
                         } finally {
                             if (curSvrBalanceParal.decrementAndGet() == 0) {
@@ -1726,6 +1744,60 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         startupBalance = false;
     }
 
+    /**
+     * Get the signature of the server-balance inputs of a group
+     *
+     * @param group             the group name
+     * @param topicSignatures   the partition signatures of the topics in this round
+     * @return                  the signature, or null if the group must be balanced
+     */
+    private Long getGroupBalanceSignature(String group,
+            Map<String, Long> topicSignatures) {
+        ConsumeGroupInfo consumeGroupInfo = consumerHolder.getConsumeGroupInfo(group);
+        if (consumeGroupInfo == null
+                || !consumeGroupInfo.isBalanceMapEmpty()
+                || !consumeGroupInfo.isNotNeedBoundBalance()
+                || consumeGroupInfo.needResourceCheck()) {
+            return null;
+        }
+        long signature = 0L;
+        long keysSig;
+        Long topicSig;
+        Map<String, Map<String, Partition>> topicSubInfoMap;
+        for (String consumerId : consumeGroupInfo.getConsumerIdList()) {
+            keysSig = GroupBalanceTracker.addKey(0L, consumerId);
+            topicSubInfoMap = currentSubInfo.get(consumerId);
+            if (topicSubInfoMap != null) {
+                for (Map<String, Partition> partMap : topicSubInfoMap.values()) {
+                    if (partMap == null) {
+                        continue;
+                    }
+                    for (String partKey : partMap.keySet()) {
+                        keysSig = GroupBalanceTracker.addKey(keysSig, partKey);
+                    }
+                }
+            }
+            signature += GroupBalanceTracker.chain(0L, keysSig);
+        }
+        for (String topic : consumeGroupInfo.getTopicSet()) {
+            topicSig = topicSignatures.get(topic);
+            if (topicSig == null) {
+                keysSig = GroupBalanceTracker.addKey(0L, topic);
+                for (Partition partition : brokerRunManager.getSubBrokerAcceptSubParts(topic)) {
+                    keysSig = GroupBalanceTracker.addKey(keysSig, partition.getPartitionKey());
+                }
+                topicSig = GroupBalanceTracker.chain(1L, keysSig);
+                topicSignatures.put(topic, topicSig);
+            }
+            signature += topicSig;
+        }
+        keysSig = 0L;
+        for (String topic : defMetaDataService.getDisableTopicByGroupName(group)) {
+            keysSig = GroupBalanceTracker.addKey(keysSig, topic);
+        }
+        return GroupBalanceTracker.chain(signature, keysSig);
+    }
+
     private void processClientBalanceMetaInfo(long balanceId, StringBuilder sBuffer) {
         int curDoingTasks = this.curCltBalanceParal.get();
         if (curDoingTasks > 0) {
@@ -1848,8 +1920,9 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
      * @param isFirstReb    whether is first re-balance
      * @param groups        the need re-balance group set
      * @param strBuffer     string buffer
+     * @return              the groups with consumer events generated
      */
-    public void processRebalance(long rebalanceId, boolean isFirstReb,
+    public Set<String> processRebalance(long rebalanceId, boolean isFirstReb,
             List<String> groups, StringBuilder strBuffer) {
         // #lizard forgives
         Map<String, Map<String, List<Partition>>> finalSubInfoMap;
@@ -1867,6 +1940,7 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         boolean isAddEmtpy;
         ConsumerInfo consumerInfo;
         Set<String> blackTopicSet;
+        Set<String> eventGroups = new HashSet<>();
         List<SubscribeInfo> deletedSubInfoList;
         List<SubscribeInfo> addedSubInfoList;
         Map<String, Partition> currentPartMap;
@@ -1931,6 +2005,9 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
             }
             isDelEmpty = deletedSubInfoList.isEmpty();
             isAddEmtpy = addedSubInfoList.isEmpty();
+            if (!isDelEmpty || !isAddEmtpy) {
+                eventGroups.add(consumerInfo.getGroupName());
+            }
             if (!isDelEmpty) {
                 consumerEventManager.addDisconnectEvent(consumerId,
                         new ConsumerEvent(rebalanceId,
@@ -1948,12 +2025,19 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
                         "Connect", addedSubInfoList, strBuffer);
             }
         }
+        return eventGroups;
     }
 
     /**
      * process Reset balance
+     *
+     * @param rebalanceId   the re-balance id
+     * @param isFirstReb    whether is first re-balance
+     * @param groups        the need re-balance group set
+     * @param strBuffer     string buffer
+     * @return              the groups with consumer events generated
      */
-    public void processResetbalance(long rebalanceId, boolean isFirstReb,
+    public Set<String> processResetbalance(long rebalanceId, boolean isFirstReb,
             List<String> groups, StringBuilder strBuffer) {
         // #lizard forgives
         Map<String, Map<String, Map<String, Partition>>> finalSubInfoMap;
@@ -1970,6 +2054,7 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         boolean isDelEmpty;
         ConsumerInfo consumerInfo;
         Set<String> blackTopicSet;
+        Set<String> eventGroups = new HashSet<>();
         List<SubscribeInfo> addedSubInfoList;
         List<SubscribeInfo> deletedSubInfoList;
         Map<String, Partition> finalPartMap;
@@ -2028,6 +2113,9 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
             // generate consumer event
             isDelEmpty = deletedSubInfoList.isEmpty();
             isAddEmtpy = addedSubInfoList.isEmpty();
+            if (!isDelEmpty || !isAddEmtpy) {
+                eventGroups.add(consumerInfo.getGroupName());
+            }
             if (!isDelEmpty) {
                 consumerEventManager.addDisconnectEvent(consumerId,
                         new ConsumerEvent(rebalanceId,
@@ -2045,6 +2133,7 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
                         "ResetConnect", addedSubInfoList, strBuffer);
             }
         }
+        return eventGroups;
     }
 
     /**
@@ -18,6 +18,7 @@
 package org.apache.inlong.tubemq.server.master.balance;
 
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.apache.inlong.tubemq.server.master.metamanage.MetaDataService;
 import org.apache.inlong.tubemq.server.master.metamanage.metastore.dao.entity.GroupResCtrlEntity;
 import org.apache.inlong.tubemq.server.master.nodemanage.nodebroker.BrokerRunManager;
@@ -39,6 +40,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
@@ -190,11 +192,11 @@ public class DefaultLoadBalancer implements LoadBalancer {
                     }
                 }
             }
-            // random allocate
+            // allocate the orphan partitions to the least loaded consumers
             if (!partMap.isEmpty()) {
                 onlineOfflineGroupSet.add(group);
                 if (!newConsumerList2.isEmpty()) {
-                    this.randomAssign(partMap, newConsumerList2,
+                    this.leastLoadedAssign(partMap, newConsumerList2,
                             finalSubInfoMap, clusterState, rebProcessInfo.needProcessList);
                 }
             }
@@ -365,7 +367,11 @@ public class DefaultLoadBalancer implements LoadBalancer {
     }
 
     /**
-     * Random assign partition
+     * Assign partitions to the least loaded consumers
+     *
+     * The consumers keep their current partitions, each partition to assign goes to
+     * the consumer with the fewest partitions, so the following balance rounds have
+     * few partitions to move between the consumers.
      *
      * @param partitionToAssignMap
      * @param consumerList
@@ -373,47 +379,59 @@ public class DefaultLoadBalancer implements LoadBalancer {
      * @param oldClusterState
      * @param filterList
      */
-    private void randomAssign(Map<String, Partition> partitionToAssignMap,
+    private void leastLoadedAssign(Map<String, Partition> partitionToAssignMap,
             List<ConsumerInfo> consumerList,
             Map<String, Map<String, List<Partition>>> clusterState,
             Map<String, Map<String, Map<String, Partition>>> oldClusterState,
             List<String> filterList) {
-        int searched = 1;
-        int consumerSize = consumerList.size();
-        for (Partition partition : partitionToAssignMap.values()) {
-            ConsumerInfo consumer = null;
-            int indeId = RANDOM.nextInt(consumerSize);
-            do {
-                searched = 1;
-                consumer = consumerList.get(indeId);
-                if (filterList.contains(consumer.getConsumerId())) {
-                    if (consumerList.size() == 1) {
-                        searched = 0;
-                        break;
-                    }
-                    Map<String, Map<String, Partition>> oldPartitionMap =
-                            oldClusterState.get(consumer.getConsumerId());
-                    if (oldPartitionMap != null) {
-                        Map<String, Partition> oldPartitions =
-                                oldPartitionMap.get(partition.getTopic());
-                        if (oldPartitions != null) {
-                            if (oldPartitions.get(partition.getPartitionKey()) != null) {
-                                searched = 2;
-                                indeId = (indeId + 1) % consumerSize;
-                            }
-                        }
-                    }
+        // consumer load in partition count, ordered by load then consumer id
+        PriorityQueue<Tuple2<String, Integer>> consumerLoads =
+                new PriorityQueue<>(consumerList.size(), (o1, o2) -> {
+                    int result = Integer.compare(o1.getF1(), o2.getF1());
+                    return result != 0 ? result : o1.getF0().compareTo(o2.getF0());
+                });
+        for (ConsumerInfo consumer : consumerList) {
+            int load = 0;
+            Map<String, List<Partition>> partitions = clusterState.get(consumer.getConsumerId());
+            if (partitions != null) {
+                for (List<Partition> ps : partitions.values()) {
+                    load += ps.size();
+                }
+            }
+            consumerLoads.add(new Tuple2<>(consumer.getConsumerId(), load));
+        }
+        List<Tuple2<String, Integer>> skippedLoads = new ArrayList<>();
+        for (Partition partition : new TreeMap<>(partitionToAssignMap).values()) {
+            Tuple2<String, Integer> selected = null;
+            while (!consumerLoads.isEmpty()) {
+                Tuple2<String, Integer> candidate = consumerLoads.poll();
+                // the filtered consumer does not take back the partition it held
+                if (filterList.contains(candidate.getF0())
+                        && isHeldBefore(oldClusterState, candidate.getF0(), partition)) {
+                    skippedLoads.add(candidate);
+                    continue;
                 }
-            } while (searched >= 2);
-            if (searched == 0) {
-                return;
-            }
-            Map<String, List<Partition>> partitions =
-                    clusterState.computeIfAbsent(consumer.getConsumerId(), k -> new HashMap<>());
-            List<Partition> ps = partitions.computeIfAbsent(
-                    partition.getTopic(), k -> new ArrayList<>());
-            ps.add(partition);
+                selected = candidate;
+                break;
+            }
+            consumerLoads.addAll(skippedLoads);
+            skippedLoads.clear();
+            if (selected == null) {
+                continue;
+            }
+            assign(partition, clusterState, selected.getF0());
+            consumerLoads.add(new Tuple2<>(selected.getF0(), selected.getF1() + 1));
+        }
+    }
+
+    private boolean isHeldBefore(Map<String, Map<String, Map<String, Partition>>> oldClusterState,
+            String consumerId, Partition partition) {
+        Map<String, Map<String, Partition>> oldPartitionMap = oldClusterState.get(consumerId);
+        if (oldPartitionMap == null) {
+            return false;
         }
+        Map<String, Partition> oldPartitions = oldPartitionMap.get(partition.getTopic());
+        return oldPartitions != null && oldPartitions.get(partition.getPartitionKey()) != null;
     }
 
     /**
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Tracker of the server-balance groups whose assignment is stable.
+ *
+ * A group is recorded with the signature of its balance inputs (consumers, subscribed
+ * topics, accepted partitions and current assignment) after a round produced no event
+ * for it. While the signature stays unchanged, the following rounds skip the group,
+ * and every fullRoundInterval rounds all the groups are balanced again.
+ */
+public class GroupBalanceTracker {
+
+    private final int fullRoundInterval;
+    private final AtomicLong roundCnt = new AtomicLong(0);
+    // group name to the signature of its last stable round
+    private final ConcurrentHashMap<String, Long> stableGroups =
+            new ConcurrentHashMap<>();
+
+    public GroupBalanceTracker(int fullRoundInterval) {
+        this.fullRoundInterval = Math.max(1, fullRoundInterval);
+    }
+
+    /**
+     * Start a new balance round.
+     *
+     * @param forceFull    whether the round must balance all the groups
+     * @return             whether the round is a full round
+     */
+    public boolean startRound(boolean forceFull) {
+        long curRound = roundCnt.getAndIncrement();
+        if (forceFull || curRound % fullRoundInterval == 0) {
+            stableGroups.clear();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Select the groups to balance in the current round.
+     *
+     * The group without signature is always balanced and recorded as unstable,
+     * the stable group with an unchanged signature is skipped out of the full round.
+     *
+     * @param candidateGroups    the candidate groups
+     * @param isFullRound        whether the current round is a full round
+     * @param signatureFunc      the signature of a group, null if it must be balanced
+     * @param groupSignatures    the signatures of the selected groups
+     * @return                   the groups to balance
+     */
+    public List<String> selectGroups(List<String> candidateGroups, boolean isFullRound,
+            Function<String, Long> signatureFunc, Map<String, Long> groupSignatures) {
+        Long signature;
+        List<String> groupsNeedToBalance = new ArrayList<>();
+        for (String group : candidateGroups) {
+            signature = signatureFunc.apply(group);
+            if (signature == null) {
+                setUnstable(group);
+            } else {
+                if (!isFullRound && isStable(group, signature)) {
+                    continue;
+                }
+                groupSignatures.put(group, signature);
+            }
+            groupsNeedToBalance.add(group);
+        }
+        return groupsNeedToBalance;
+    }
+
+    public boolean isStable(String group, long signature) {
+        Long stableSig = stableGroups.get(group);
+        return stableSig != null && stableSig == signature;
+    }
+
+    public void setStable(String group, long signature) {
+        stableGroups.put(group, signature);
+    }
+
+    public void setUnstable(String group) {
+        stableGroups.remove(group);
+    }
+
+    public void setUnstable(Collection<String> groups) {
+        for (String group : groups) {
+            stableGroups.remove(group);
+        }
+    }
+
+    public int getStableGroupCnt() {
+        return stableGroups.size();
+    }
+
+    /**
+     * Combine a key into an order independent signature.
+     *
+     * @param signature    the signature to combine into
+     * @param key          the key to combine
+     * @return             the combined signature
+     */
+    public static long addKey(long signature, String key) {
+        return signature + mix(key == null ? 0 : key.hashCode());
+    }
+
+    /**
+     * Chain a value into an order dependent signature.
+     *
+     * @param signature    the signature to chain into
+     * @param value        the value to chain
+     * @return             the chained signature
+     */
+    public static long chain(long signature, long value) {
+        return mix(signature * 31 + value);
+    }
+
+    private static long mix(long value) {
+        // the finalizer of the 64-bit murmur hash
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
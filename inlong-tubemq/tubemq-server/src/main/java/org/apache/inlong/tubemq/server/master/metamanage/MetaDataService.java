@@ -268,7 +268,7 @@ public interface MetaDataService extends Server {
     /**
      * Get deployed topic set
      *
-     * @return  the deployed topic set
+     * @return  the deployed topic set, read-only
      */
     Set<String> getDeployedTopicSet();
 
@@ -722,7 +722,7 @@ public interface MetaDataService extends Server {
      * Get all disable consumed topic for a specific group
      *
      * @param groupName  the queried group name
-     * @return  the disable consumed topic list
+     * @return  the disable consumed topic set, read-only
      */
     Set<String> getDisableTopicByGroupName(String groupName);
 
@@ -51,6 +51,8 @@ public interface ConsumeCtrlMapper extends AbstractMapper {
 
     Map<String, List<GroupConsumeCtrlEntity>> getConsumeCtrlByGroupName(Set<String> groupSet);
 
+    Set<String> getDisableTopicByGroupName(String groupName);
+
     GroupConsumeCtrlEntity getConsumeCtrlByGroupAndTopic(String groupName, String topicName);
 
     Map<String/* group */, List<GroupConsumeCtrlEntity>> getConsumeCtrlInfoMap(
@@ -379,7 +379,7 @@ public interface MetaConfigMapper extends KeepAliveService {
     /**
      * Get deployed topic set
      *
-     * @return  the deployed topic set
+     * @return  the deployed topic set, read-only
      */
     Set<String> getDeployedTopicSet();
 
@@ -558,7 +558,7 @@ public interface MetaConfigMapper extends KeepAliveService {
      * Get all disable consumed topic for a specific group
      *
      * @param groupName  the queried group name
-     * @return  the disable consumed topic list
+     * @return  the disable consumed topic set, read-only
      */
     Set<String> getDisableTopicByGroupName(String groupName);
 
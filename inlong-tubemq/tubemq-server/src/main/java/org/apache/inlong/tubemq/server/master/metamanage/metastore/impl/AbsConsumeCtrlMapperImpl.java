@@ -20,6 +20,7 @@ package org.apache.inlong.tubemq.server.master.metamanage.metastore.impl;
 import org.apache.inlong.tubemq.corebase.rv.ProcessResult;
 import org.apache.inlong.tubemq.corebase.utils.ConcurrentHashSet;
 import org.apache.inlong.tubemq.corebase.utils.KeyBuilderUtils;
+import org.apache.inlong.tubemq.server.common.statusdef.EnableStatus;
 import org.apache.inlong.tubemq.server.master.metamanage.DataOpErrCode;
 import org.apache.inlong.tubemq.server.master.metamanage.metastore.dao.entity.GroupConsumeCtrlEntity;
 import org.apache.inlong.tubemq.server.master.metamanage.metastore.dao.mapper.ConsumeCtrlMapper;
@@ -47,6 +48,13 @@ public abstract class AbsConsumeCtrlMapperImpl implements ConsumeCtrlMapper {
             new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String/* groupName */, ConcurrentHashSet<String>> group2RecordCache =
             new ConcurrentHashMap<>();
+    // read-only snapshot views for the frequent queries
+    private final SnapshotIndex<String/* groupName */, List<GroupConsumeCtrlEntity>> groupCtrlView =
+            new SnapshotIndex<>(() -> new HashSet<>(group2RecordCache.keySet()),
+                    this::buildGroupCtrlList);
+    private final SnapshotIndex<String/* groupName */, Set<String>> groupDisableTopicView =
+            new SnapshotIndex<>(() -> new HashSet<>(group2RecordCache.keySet()),
+                    this::buildDisableTopicSet);
 
     public AbsConsumeCtrlMapperImpl() {
         // Initial instant
@@ -224,20 +232,8 @@ public abstract class AbsConsumeCtrlMapperImpl implements ConsumeCtrlMapper {
 
     @Override
     public List<GroupConsumeCtrlEntity> getConsumeCtrlByGroupName(String groupName) {
-        ConcurrentHashSet<String> keySet =
-                group2RecordCache.get(groupName);
-        if (keySet == null || keySet.isEmpty()) {
-            return Collections.emptyList();
-        }
-        GroupConsumeCtrlEntity entity;
-        List<GroupConsumeCtrlEntity> result = new ArrayList<>();
-        for (String recordKey : keySet) {
-            entity = consumeCtrlCache.get(recordKey);
-            if (entity != null) {
-                result.add(entity);
-            }
-        }
-        return result;
+        List<GroupConsumeCtrlEntity> ctrlList = groupCtrlView.get(groupName);
+        return (ctrlList == null) ? Collections.emptyList() : ctrlList;
     }
 
     @Override
@@ -246,31 +242,22 @@ public abstract class AbsConsumeCtrlMapperImpl implements ConsumeCtrlMapper {
         if (groupSet == null || groupSet.isEmpty()) {
             return Collections.emptyMap();
         }
-        GroupConsumeCtrlEntity entity;
-        ConcurrentHashSet<String> keySet;
-        List<GroupConsumeCtrlEntity> itemRet;
+        List<GroupConsumeCtrlEntity> ctrlList;
         Map<String, List<GroupConsumeCtrlEntity>> result = new HashMap<>();
+        Map<String, List<GroupConsumeCtrlEntity>> groupCtrlMap = groupCtrlView.getSnapshot();
         for (String groupName : groupSet) {
-            keySet = group2RecordCache.get(groupName);
-            if (keySet == null || keySet.isEmpty()) {
-                result.put(groupName, Collections.emptyList());
-                continue;
-            }
-            itemRet = new ArrayList<>();
-            for (String recordKey : keySet) {
-                if (recordKey == null) {
-                    continue;
-                }
-                entity = consumeCtrlCache.get(recordKey);
-                if (entity != null) {
-                    itemRet.add(entity);
-                }
-            }
-            result.put(groupName, itemRet);
+            ctrlList = groupCtrlMap.get(groupName);
+            result.put(groupName, (ctrlList == null) ? Collections.emptyList() : ctrlList);
         }
         return result;
     }
 
+    @Override
+    public Set<String> getDisableTopicByGroupName(String groupName) {
+        Set<String> disTopicSet = groupDisableTopicView.get(groupName);
+        return (disTopicSet == null) ? Collections.emptySet() : disTopicSet;
+    }
+
     @Override
     public GroupConsumeCtrlEntity getConsumeCtrlByGroupAndTopic(
             String groupName, String topicName) {
@@ -384,6 +371,8 @@ public abstract class AbsConsumeCtrlMapperImpl implements ConsumeCtrlMapper {
         topic2RecordCache.clear();
         group2RecordCache.clear();
         consumeCtrlCache.clear();
+        groupCtrlView.markAllChanged();
+        groupDisableTopicView.markAllChanged();
     }
 
     /**
@@ -414,6 +403,9 @@ public abstract class AbsConsumeCtrlMapperImpl implements ConsumeCtrlMapper {
             }
         }
         keySet.add(entity.getRecordKey());
+        // refresh snapshot views
+        groupCtrlView.markChanged(entity.getGroupName());
+        groupDisableTopicView.markChanged(entity.getGroupName());
     }
 
     /**
@@ -464,5 +456,41 @@ public abstract class AbsConsumeCtrlMapperImpl implements ConsumeCtrlMapper {
                 group2RecordCache.remove(curEntity.getGroupName(), new ConcurrentHashSet<>());
             }
         }
+        // refresh snapshot views
+        groupCtrlView.markChanged(curEntity.getGroupName());
+        groupDisableTopicView.markChanged(curEntity.getGroupName());
+    }
+
+    private List<GroupConsumeCtrlEntity> buildGroupCtrlList(String groupName) {
+        ConcurrentHashSet<String> keySet = group2RecordCache.get(groupName);
+        if (keySet == null || keySet.isEmpty()) {
+            return null;
+        }
+        GroupConsumeCtrlEntity entity;
+        List<GroupConsumeCtrlEntity> ctrlList = new ArrayList<>();
+        for (String recordKey : keySet) {
+            entity = consumeCtrlCache.get(recordKey);
+            if (entity != null) {
+                ctrlList.add(entity);
+            }
+        }
+        return ctrlList.isEmpty() ? null : Collections.unmodifiableList(ctrlList);
+    }
+
+    private Set<String> buildDisableTopicSet(String groupName) {
+        ConcurrentHashSet<String> keySet = group2RecordCache.get(groupName);
+        if (keySet == null || keySet.isEmpty()) {
+            return null;
+        }
+        GroupConsumeCtrlEntity entity;
+        Set<String> disTopicSet = new HashSet<>();
+        for (String recordKey : keySet) {
+            entity = consumeCtrlCache.get(recordKey);
+            if (entity != null
+                    && entity.getConsumeEnable() == EnableStatus.STATUS_DISABLE) {
+                disTopicSet.add(entity.getTopicName());
+            }
+        }
+        return disTopicSet.isEmpty() ? null : Collections.unmodifiableSet(disTopicSet);
     }
 }
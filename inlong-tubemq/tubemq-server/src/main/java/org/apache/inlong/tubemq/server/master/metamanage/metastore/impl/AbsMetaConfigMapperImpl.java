@@ -51,7 +51,6 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -1232,19 +1231,7 @@ public abstract class AbsMetaConfigMapperImpl implements MetaConfigMapper {
 
     @Override
     public Set<String> getDisableTopicByGroupName(String groupName) {
-        Set<String> disTopicSet = new HashSet<>();
-        List<GroupConsumeCtrlEntity> qryResult =
-                consumeCtrlMapper.getConsumeCtrlByGroupName(groupName);
-        if (qryResult.isEmpty()) {
-            return disTopicSet;
-        }
-        for (GroupConsumeCtrlEntity ctrlEntity : qryResult) {
-            if (ctrlEntity != null
-                    && ctrlEntity.getConsumeEnable() == EnableStatus.STATUS_DISABLE) {
-                disTopicSet.add(ctrlEntity.getTopicName());
-            }
-        }
-        return disTopicSet;
+        return consumeCtrlMapper.getDisableTopicByGroupName(groupName);
     }
 
     @Override
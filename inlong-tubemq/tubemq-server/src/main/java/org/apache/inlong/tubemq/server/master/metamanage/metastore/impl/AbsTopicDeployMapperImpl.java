@@ -53,6 +53,13 @@ public abstract class AbsTopicDeployMapperImpl implements TopicDeployMapper {
             new ConcurrentHashMap<>();
     private final ConcurrentHashMap<Integer/* brokerId */, ConcurrentHashSet<String>> brokerId2TopicNameCache =
             new ConcurrentHashMap<>();
+    // read-only snapshot views for the frequent queries
+    private final SnapshotIndex<String/* topicName */, Map<Integer, TopicDeployEntity>> topicDeployView =
+            new SnapshotIndex<>(() -> new HashSet<>(topicName2RecordCache.keySet()),
+                    this::buildTopicDeployMap);
+    private final SnapshotIndex<Integer/* brokerId */, Map<String, TopicDeployEntity>> brokerDeployView =
+            new SnapshotIndex<>(() -> new HashSet<>(brokerId2RecordCache.keySet()),
+                    this::buildBrokerDeployMap);
 
     public AbsTopicDeployMapperImpl() {
         // Initial instant
@@ -366,49 +373,29 @@ public abstract class AbsTopicDeployMapperImpl implements TopicDeployMapper {
 
     @Override
     public Map<String, TopicDeployEntity> getConfiguredTopicInfo(int brokerId) {
-        TopicDeployEntity tmpEntity;
-        Map<String, TopicDeployEntity> retEntityMap = new HashMap<>();
-        ConcurrentHashSet<String> records = brokerId2RecordCache.get(brokerId);
-        if (records == null || records.isEmpty()) {
-            return retEntityMap;
-        }
-        for (String key : records) {
-            tmpEntity = topicDeployCache.get(key);
-            if (tmpEntity == null) {
-                continue;
-            }
-            retEntityMap.put(tmpEntity.getTopicName(), tmpEntity);
-        }
-        return retEntityMap;
+        Map<String, TopicDeployEntity> deployMap = brokerDeployView.get(brokerId);
+        return (deployMap == null) ? Collections.emptyMap() : deployMap;
     }
 
     @Override
     public Map<Integer, Set<String>> getConfiguredTopicInfo(Set<Integer> brokerIdSet) {
-        Set<String> topicSet;
-        ConcurrentHashSet<String> deploySet;
+        Map<String, TopicDeployEntity> deployMap;
         Map<Integer, Set<String>> retEntityMap = new HashMap<>();
+        Map<Integer, Map<String, TopicDeployEntity>> brokerDeployMap =
+                brokerDeployView.getSnapshot();
         if (brokerIdSet == null || brokerIdSet.isEmpty()) {
-            for (Map.Entry<Integer, ConcurrentHashSet<String>> entry : brokerId2TopicNameCache.entrySet()) {
-                if (entry.getKey() == null) {
-                    continue;
-                }
-                topicSet = new HashSet<>();
-                if (entry.getValue() != null) {
-                    topicSet.addAll(entry.getValue());
-                }
-                retEntityMap.put(entry.getKey(), topicSet);
+            for (Map.Entry<Integer, Map<String, TopicDeployEntity>> entry : brokerDeployMap.entrySet()) {
+                retEntityMap.put(entry.getKey(), new HashSet<>(entry.getValue().keySet()));
             }
         } else {
             for (Integer brokerId : brokerIdSet) {
                 if (brokerId == null) {
                     continue;
                 }
-                topicSet = new HashSet<>();
-                deploySet = brokerId2TopicNameCache.get(brokerId);
-                if (deploySet != null) {
-                    topicSet.addAll(deploySet);
-                }
-                retEntityMap.put(brokerId, topicSet);
+                deployMap = brokerDeployMap.get(brokerId);
+                retEntityMap.put(brokerId, (deployMap == null)
+                        ? new HashSet<>()
+                        : new HashSet<>(deployMap.keySet()));
             }
         }
         return retEntityMap;
@@ -416,33 +403,26 @@ public abstract class AbsTopicDeployMapperImpl implements TopicDeployMapper {
 
     @Override
     public Map<String, Map<Integer, String>> getTopicBrokerInfo(Set<String> topicNameSet) {
-        ConcurrentHashSet<String> keySet;
         Map<Integer, String> brokerInfoMap;
+        Map<Integer, TopicDeployEntity> deployMap;
         Map<String, Map<Integer, String>> retEntityMap = new HashMap<>();
-        if (topicNameSet == null || topicNameSet.isEmpty()) {
-            for (TopicDeployEntity entry : topicDeployCache.values()) {
-                if (entry == null) {
-                    continue;
-                }
-                brokerInfoMap = retEntityMap.computeIfAbsent(
-                        entry.getTopicName(), k -> new HashMap<>());
-                brokerInfoMap.put(entry.getBrokerId(), entry.getBrokerIp());
+        Map<String, Map<Integer, TopicDeployEntity>> topicDeployMap =
+                topicDeployView.getSnapshot();
+        Set<String> qryTopicSet = (topicNameSet == null || topicNameSet.isEmpty())
+                ? topicDeployMap.keySet()
+                : topicNameSet;
+        for (String topicName : qryTopicSet) {
+            if (topicName == null) {
+                continue;
             }
-        } else {
-            for (String topicName : topicNameSet) {
-                if (topicName == null) {
-                    continue;
-                }
-                brokerInfoMap = retEntityMap.computeIfAbsent(topicName, k -> new HashMap<>());
-                keySet = topicName2RecordCache.get(topicName);
-                if (keySet != null) {
-                    for (String key : keySet) {
-                        TopicDeployEntity entry = topicDeployCache.get(key);
-                        if (entry != null) {
-                            brokerInfoMap.put(entry.getBrokerId(), entry.getBrokerIp());
-                        }
-                    }
-                }
+            brokerInfoMap = new HashMap<>();
+            retEntityMap.put(topicName, brokerInfoMap);
+            deployMap = topicDeployMap.get(topicName);
+            if (deployMap == null) {
+                continue;
+            }
+            for (TopicDeployEntity entry : deployMap.values()) {
+                brokerInfoMap.put(entry.getBrokerId(), entry.getBrokerIp());
             }
         }
         return retEntityMap;
@@ -450,23 +430,20 @@ public abstract class AbsTopicDeployMapperImpl implements TopicDeployMapper {
 
     @Override
     public Set<Integer> getDeployedBrokerIdByTopic(Set<String> topicNameSet) {
-        ConcurrentHashSet<String> keySet;
+        Map<Integer, TopicDeployEntity> deployMap;
         Set<Integer> retSet = new HashSet<>();
         if (topicNameSet == null || topicNameSet.isEmpty()) {
             return retSet;
         }
+        Map<String, Map<Integer, TopicDeployEntity>> topicDeployMap =
+                topicDeployView.getSnapshot();
         for (String topicName : topicNameSet) {
             if (topicName == null) {
                 continue;
             }
-            keySet = topicName2RecordCache.get(topicName);
-            if (keySet != null) {
-                for (String key : keySet) {
-                    TopicDeployEntity entry = topicDeployCache.get(key);
-                    if (entry != null) {
-                        retSet.add(entry.getBrokerId());
-                    }
-                }
+            deployMap = topicDeployMap.get(topicName);
+            if (deployMap != null) {
+                retSet.addAll(deployMap.keySet());
             }
         }
         return retSet;
@@ -474,7 +451,7 @@ public abstract class AbsTopicDeployMapperImpl implements TopicDeployMapper {
 
     @Override
     public Set<String> getDeployedTopicSet() {
-        return new HashSet<>(topicName2RecordCache.keySet());
+        return topicDeployView.getSnapshot().keySet();
     }
 
     /**
@@ -485,6 +462,8 @@ public abstract class AbsTopicDeployMapperImpl implements TopicDeployMapper {
         brokerId2RecordCache.clear();
         brokerId2TopicNameCache.clear();
         topicDeployCache.clear();
+        topicDeployView.markAllChanged();
+        brokerDeployView.markAllChanged();
     }
 
     /**
@@ -525,6 +504,9 @@ public abstract class AbsTopicDeployMapperImpl implements TopicDeployMapper {
             }
         }
         keySet.add(entity.getTopicName());
+        // refresh snapshot views
+        topicDeployView.markChanged(entity.getTopicName());
+        brokerDeployView.markChanged(entity.getBrokerId());
     }
 
     /**
@@ -578,6 +560,41 @@ public abstract class AbsTopicDeployMapperImpl implements TopicDeployMapper {
                 brokerId2TopicNameCache.remove(curEntity.getBrokerId(), new ConcurrentHashSet<>());
             }
         }
+        // refresh snapshot views
+        topicDeployView.markChanged(curEntity.getTopicName());
+        brokerDeployView.markChanged(curEntity.getBrokerId());
+    }
+
+    private Map<Integer, TopicDeployEntity> buildTopicDeployMap(String topicName) {
+        ConcurrentHashSet<String> keySet = topicName2RecordCache.get(topicName);
+        if (keySet == null || keySet.isEmpty()) {
+            return null;
+        }
+        TopicDeployEntity entity;
+        Map<Integer, TopicDeployEntity> deployMap = new HashMap<>();
+        for (String recordKey : keySet) {
+            entity = topicDeployCache.get(recordKey);
+            if (entity != null) {
+                deployMap.put(entity.getBrokerId(), entity);
+            }
+        }
+        return deployMap.isEmpty() ? null : Collections.unmodifiableMap(deployMap);
+    }
+
+    private Map<String, TopicDeployEntity> buildBrokerDeployMap(Integer brokerId) {
+        ConcurrentHashSet<String> keySet = brokerId2RecordCache.get(brokerId);
+        if (keySet == null || keySet.isEmpty()) {
+            return null;
+        }
+        TopicDeployEntity entity;
+        Map<String, TopicDeployEntity> deployMap = new HashMap<>();
+        for (String recordKey : keySet) {
+            entity = topicDeployCache.get(recordKey);
+            if (entity != null) {
+                deployMap.put(entity.getTopicName(), entity);
+            }
+        }
+        return deployMap.isEmpty() ? null : Collections.unmodifiableMap(deployMap);
     }
 
     private Set<String> getMatchedRecords(Set<String> topicNameSet,
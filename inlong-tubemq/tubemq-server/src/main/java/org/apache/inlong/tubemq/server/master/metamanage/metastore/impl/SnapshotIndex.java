@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.metamanage.metastore.impl;
+
+import org.apache.inlong.tubemq.corebase.utils.ConcurrentHashSet;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Versioned read-only snapshot of a cache index.
+ *
+ * The cache writers mark the changed index keys after updating the caches, and the
+ * first read after a change rebuilds the values of the marked keys only, the other
+ * values are shared with the previous snapshot. The reads without change return the
+ * current snapshot without any lock or copy, so the returned maps and their values
+ * must not be modified by the callers.
+ *
+ * @param <K>  the index key type
+ * @param <V>  the index value type, an unmodifiable value built from the caches
+ */
+public class SnapshotIndex<K, V> {
+
+    // the index keys in the caches, used by the full rebuild
+    private final Supplier<Set<K>> keyLoader;
+    // build the value of an index key from the caches, null if the key is absent
+    private final Function<K, V> valueLoader;
+    private final ConcurrentHashSet<K> dirtyKeys = new ConcurrentHashSet<>();
+    private final AtomicLong dataVersion = new AtomicLong(0);
+    private volatile boolean fullRebuild = false;
+    private volatile Snapshot<K, V> snapshot =
+            new Snapshot<>(0L, Collections.emptyMap());
+
+    public SnapshotIndex(Supplier<Set<K>> keyLoader, Function<K, V> valueLoader) {
+        this.keyLoader = keyLoader;
+        this.valueLoader = valueLoader;
+    }
+
+    /**
+     * Mark an index key changed, called after the caches are updated
+     *
+     * @param key  the changed index key
+     */
+    public void markChanged(K key) {
+        dirtyKeys.add(key);
+        dataVersion.incrementAndGet();
+    }
+
+    /**
+     * Mark all the index keys changed, called after the caches are reloaded
+     */
+    public void markAllChanged() {
+        fullRebuild = true;
+        dataVersion.incrementAndGet();
+    }
+
+    /**
+     * Get the current snapshot of the index
+     *
+     * @return  the unmodifiable index map
+     */
+    public Map<K, V> getSnapshot() {
+        Snapshot<K, V> curSnapshot = snapshot;
+        if (curSnapshot.version == dataVersion.get()) {
+            return curSnapshot.indexMap;
+        }
+        return rebuildSnapshot();
+    }
+
+    public V get(K key) {
+        return getSnapshot().get(key);
+    }
+
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    private synchronized Map<K, V> rebuildSnapshot() {
+        Snapshot<K, V> curSnapshot = snapshot;
+        // read the version before the dirty keys, the later changes trigger another rebuild
+        long newVersion = dataVersion.get();
+        if (curSnapshot.version == newVersion) {
+            return curSnapshot.indexMap;
+        }
+        V value;
+        Map<K, V> newIndexMap;
+        if (fullRebuild) {
+            fullRebuild = false;
+            dirtyKeys.clear();
+            newIndexMap = new HashMap<>();
+            for (K key : keyLoader.get()) {
+                value = valueLoader.apply(key);
+                if (value != null) {
+                    newIndexMap.put(key, value);
+                }
+            }
+        } else {
+            newIndexMap = new HashMap<>(curSnapshot.indexMap);
+            for (K key : dirtyKeys) {
+                dirtyKeys.remove(key);
+                value = valueLoader.apply(key);
+                if (value == null) {
+                    newIndexMap.remove(key);
+                } else {
+                    newIndexMap.put(key, value);
+                }
+            }
+        }
+        Map<K, V> indexMap = Collections.unmodifiableMap(newIndexMap);
+        snapshot = new Snapshot<>(newVersion, indexMap);
+        return indexMap;
+    }
+
+    private static class Snapshot<K, V> {
+
+        private final long version;
+        private final Map<K, V> indexMap;
+
+        Snapshot(long version, Map<K, V> indexMap) {
+            this.version = version;
+            this.indexMap = indexMap;
+        }
+    }
+}
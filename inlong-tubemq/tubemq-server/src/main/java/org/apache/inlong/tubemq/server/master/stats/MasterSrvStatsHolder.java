@@ -212,6 +212,15 @@ public class MasterSrvStatsHolder {
     public static void updSvrBalResetDurations(long dltTime) {
         switchableSets[getIndex()].svrResetBalanceStats.update(dltTime);
     }
+
+    public static void updHeartbeatSweepDurations(long dltTime) {
+        switchableSets[getIndex()].heartbeatSweepStats.update(dltTime);
+    }
+
+    public static void updSvrBalanceGroupCnt(long balancedCnt, long skippedCnt) {
+        switchableSets[getIndex()].svrBalanceGroupCnt.addValue(balancedCnt);
+        switchableSets[getIndex()].svrBalanceSkippedCnt.addValue(skippedCnt);
+    }
     // metric set operate APIs end
 
     // private functions
@@ -244,6 +253,11 @@ public class MasterSrvStatsHolder {
                     statsSet.cltBalGroupTmototCnt.getAndResetValue());
             statsSet.svrNormalBalanceStats.snapShort(statsMap, false);
             statsSet.svrResetBalanceStats.snapShort(statsMap, false);
+            statsSet.heartbeatSweepStats.snapShort(statsMap, false);
+            statsMap.put(statsSet.svrBalanceGroupCnt.getFullName(),
+                    statsSet.svrBalanceGroupCnt.getAndResetValue());
+            statsMap.put(statsSet.svrBalanceSkippedCnt.getFullName(),
+                    statsSet.svrBalanceSkippedCnt.getAndResetValue());
             // for consumer
             statsMap.put(consumerOnlineCnt.getFullName(),
                     consumerOnlineCnt.getAndResetValue());
@@ -281,6 +295,11 @@ public class MasterSrvStatsHolder {
                     statsSet.cltBalGroupTmototCnt.getValue());
             statsSet.svrNormalBalanceStats.getValue(statsMap, false);
             statsSet.svrResetBalanceStats.getValue(statsMap, false);
+            statsSet.heartbeatSweepStats.getValue(statsMap, false);
+            statsMap.put(statsSet.svrBalanceGroupCnt.getFullName(),
+                    statsSet.svrBalanceGroupCnt.getValue());
+            statsMap.put(statsSet.svrBalanceSkippedCnt.getFullName(),
+                    statsSet.svrBalanceSkippedCnt.getValue());
             // for consumer
             statsMap.put(consumerOnlineCnt.getFullName(),
                     consumerOnlineCnt.getValue());
@@ -329,6 +348,12 @@ public class MasterSrvStatsHolder {
             statsSet.svrNormalBalanceStats.snapShort(strBuff, false);
             strBuff.append(",");
             statsSet.svrResetBalanceStats.snapShort(strBuff, false);
+            strBuff.append(",");
+            statsSet.heartbeatSweepStats.snapShort(strBuff, false);
+            strBuff.append(",\"").append(statsSet.svrBalanceGroupCnt.getFullName())
+                    .append("\":").append(statsSet.svrBalanceGroupCnt.getAndResetValue())
+                    .append(",\"").append(statsSet.svrBalanceSkippedCnt.getFullName())
+                    .append("\":").append(statsSet.svrBalanceSkippedCnt.getAndResetValue());
             // for consumer
             strBuff.append(",\"").append(consumerOnlineCnt.getFullName())
                     .append("\":").append(consumerOnlineCnt.getAndResetValue())
@@ -369,6 +394,12 @@ public class MasterSrvStatsHolder {
             statsSet.svrNormalBalanceStats.getValue(strBuff, false);
             strBuff.append(",");
             statsSet.svrResetBalanceStats.getValue(strBuff, false);
+            strBuff.append(",");
+            statsSet.heartbeatSweepStats.getValue(strBuff, false);
+            strBuff.append(",\"").append(statsSet.svrBalanceGroupCnt.getFullName())
+                    .append("\":").append(statsSet.svrBalanceGroupCnt.getValue())
+                    .append(",\"").append(statsSet.svrBalanceSkippedCnt.getFullName())
+                    .append("\":").append(statsSet.svrBalanceSkippedCnt.getValue());
             // for consumer
             strBuff.append(",\"").append(consumerOnlineCnt.getFullName())
                     .append("\":").append(consumerOnlineCnt.getValue())
@@ -447,6 +478,15 @@ public class MasterSrvStatsHolder {
         // reset server balance delta time statistics
         protected final ESTHistogram svrResetBalanceStats =
                 new ESTHistogram("server_balance_reset", null);
+        // heartbeat timeout sweep delta time statistics
+        protected final ESTHistogram heartbeatSweepStats =
+                new ESTHistogram("heartbeat_sweep", null);
+        // balanced server balance group statistics
+        protected final LongStatsCounter svrBalanceGroupCnt =
+                new LongStatsCounter("server_balance_group_cnt", null);
+        // skipped unchanged server balance group statistics
+        protected final LongStatsCounter svrBalanceSkippedCnt =
+                new LongStatsCounter("server_balance_skipped_cnt", null);
 
         public ServiceStatsSet() {
             resetSinceTime();
@@ -342,7 +342,7 @@ public class StoreRepairAdmin {
             final ByteBuffer indexBuffer =
                     ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
             for (Segment curSegment : segments) {
-                if (curSegment == null) {
+                if (curSegment == null || !curSegment.acquireViewRef()) {
                     continue;
                 }
                 try {
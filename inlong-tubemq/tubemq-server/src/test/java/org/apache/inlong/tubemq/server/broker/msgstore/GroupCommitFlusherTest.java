@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgFileStore;
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * GroupCommitFlusher test.
+ */
+public class GroupCommitFlusherTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void getDiskId() throws Exception {
+        File dir1 = tempFolder.newFolder("testflush1");
+        File dir2 = tempFolder.newFolder("testflush2");
+        // the directories on the same disk share the disk id
+        String diskId = GroupCommitFlusher.getDiskId(dir1);
+        Assert.assertFalse(diskId.isEmpty());
+        Assert.assertTrue(diskId.matches("[A-Za-z0-9_]+"));
+        Assert.assertEquals(diskId, GroupCommitFlusher.getDiskId(dir2));
+        // unknown directory falls back to the default disk
+        Assert.assertEquals("default",
+                GroupCommitFlusher.getDiskId(new File(dir1, "not_exists")));
+    }
+
+    @Test
+    public void requestFlushOnceWhilePending() throws Exception {
+        AtomicInteger flushCnt = new AtomicInteger(0);
+        MsgFileStore fileStore =
+                mockFileStore("test_pending_disk", "test-0", flushCnt, null, null);
+        // the rounds are left to the closing
+        GroupCommitFlusher flusher = new GroupCommitFlusher(60000L);
+        flusher.requestFlush(fileStore);
+        flusher.requestFlush(fileStore);
+        flusher.requestFlush(fileStore);
+        flusher.close();
+        Assert.assertEquals(1, flushCnt.get());
+        // the store is accepted again once its flush is done
+        flusher.requestFlush(fileStore);
+        Assert.assertEquals(2, flushCnt.get());
+    }
+
+    @Test
+    public void flushPendingStoresInOneRound() throws Exception {
+        final String diskId = "test_round_disk";
+        final int storeCnt = 3;
+        AtomicInteger flushCnt = new AtomicInteger(0);
+        CountDownLatch flushLatch = new CountDownLatch(storeCnt);
+        List<String> flushThreads = new CopyOnWriteArrayList<>();
+        GroupCommitFlusher flusher = new GroupCommitFlusher(500L);
+        try {
+            for (int i = 0; i < storeCnt; i++) {
+                flusher.requestFlush(mockFileStore(diskId,
+                        "test-" + i, flushCnt, flushLatch, flushThreads));
+            }
+            Assert.assertTrue(flushLatch.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(storeCnt, flushCnt.get());
+            // all the stores are forced by the flush thread of the disk
+            for (String threadName : flushThreads) {
+                Assert.assertEquals("Broker Group Flush Thread-" + diskId, threadName);
+            }
+            // the flush round of the disk is sampled once
+            Map<String, Long> statsMap = new LinkedHashMap<>();
+            BrokerSrvStatsHolder.getValue(statsMap);
+            Assert.assertEquals(1L,
+                    statsMap.get("disk_flush_dlt_" + diskId + "_count").longValue());
+        } finally {
+            flusher.close();
+        }
+    }
+
+    private MsgFileStore mockFileStore(String diskId, String storeKey,
+            AtomicInteger flushCnt, CountDownLatch flushLatch,
+            List<String> flushThreads) throws Exception {
+        final AtomicBoolean flushPending = new AtomicBoolean(false);
+        MsgFileStore fileStore = mock(MsgFileStore.class);
+        when(fileStore.getDiskId()).thenReturn(diskId);
+        when(fileStore.getStoreKey()).thenReturn(storeKey);
+        when(fileStore.markGroupFlushPending())
+                .thenAnswer(invocation -> flushPending.compareAndSet(false, true));
+        when(fileStore.groupFlush()).thenAnswer(invocation -> {
+            flushPending.set(false);
+            flushCnt.incrementAndGet();
+            if (flushThreads != null) {
+                flushThreads.add(Thread.currentThread().getName());
+            }
+            if (flushLatch != null) {
+                flushLatch.countDown();
+            }
+            return true;
+        });
+        return fileStore;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.apache.inlong.tubemq.server.common.TServerConstants;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+/**
+ * MsgReadContext test.
+ */
+public class MsgReadContextTest {
+
+    @Test
+    public void reuseBuffers() {
+        MsgReadContext readContext = MsgReadContext.get();
+        Assert.assertSame(readContext, MsgReadContext.get());
+        // data buffer is reused and cleared
+        ByteBuffer dataBuffer = readContext.getDataBuffer(100);
+        dataBuffer.put((byte) 1);
+        ByteBuffer dataBuffer2 = readContext.getDataBuffer(200);
+        Assert.assertSame(dataBuffer, dataBuffer2);
+        Assert.assertEquals(0, dataBuffer2.position());
+        // oversize data buffer is not retained
+        int overSize = TServerConstants.CFG_STORE_DEFAULT_MSG_READ_UNIT * 5;
+        ByteBuffer bigBuffer = readContext.getDataBuffer(overSize);
+        Assert.assertEquals(overSize, bigBuffer.capacity());
+        Assert.assertSame(dataBuffer, readContext.getDataBuffer(100));
+        // index buffer limit follows the required size
+        ByteBuffer indexBuffer = readContext.getIndexBuffer(280);
+        Assert.assertEquals(280, indexBuffer.limit());
+        ByteBuffer indexBuffer2 = readContext.getIndexBuffer(28);
+        Assert.assertSame(indexBuffer, indexBuffer2);
+        Assert.assertEquals(28, indexBuffer2.limit());
+        // string buffer is emptied
+        readContext.getStrBuffer().append("test");
+        Assert.assertEquals(0, readContext.getStrBuffer().length());
+    }
+}
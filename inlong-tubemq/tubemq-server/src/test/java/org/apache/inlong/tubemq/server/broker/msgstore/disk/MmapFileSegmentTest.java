@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * MmapFileSegment test.
+ */
+public class MmapFileSegmentTest {
+
+    @Test
+    public void readSealedSegment() throws Exception {
+        File file = File.createTempFile("testmmap", null);
+        file.deleteOnExit();
+        long start = 100L;
+        String data = "abcdefghij";
+        // write and seal the segment.
+        FileSegment fileSegment = new FileSegment(start, file, true, SegmentType.DATA);
+        long appendTime = System.currentTimeMillis();
+        fileSegment.append(ByteBuffer.wrap(data.getBytes()), appendTime, appendTime);
+        fileSegment.flush(true);
+        fileSegment.setMutable(false);
+        fileSegment.close();
+        // map the sealed segment.
+        MmapFileSegment mmapSegment = new MmapFileSegment(start, file, SegmentType.DATA);
+        Assert.assertEquals(data.length(), mmapSegment.getCachedSize());
+        Assert.assertEquals(start + data.length(), mmapSegment.getCommitLast());
+        Assert.assertTrue(mmapSegment.contains(start + 3));
+        Assert.assertFalse(mmapSegment.contains(start + data.length()));
+        ByteBuffer readBuffer = ByteBuffer.allocate(4);
+        mmapSegment.read(readBuffer, start + 3);
+        readBuffer.flip();
+        Assert.assertEquals("defg", new String(readBuffer.array(), 0, readBuffer.limit()));
+        // read over the segment end.
+        readBuffer = ByteBuffer.allocate(20);
+        mmapSegment.relRead(readBuffer, 8);
+        readBuffer.flip();
+        Assert.assertEquals("ij", new String(readBuffer.array(), 0, readBuffer.limit()));
+        // view reference keeps mapping until released.
+        Assert.assertTrue(mmapSegment.acquireViewRef());
+        mmapSegment.close();
+        Assert.assertTrue(mmapSegment.isClosed());
+        readBuffer = ByteBuffer.allocate(2);
+        mmapSegment.relRead(readBuffer, 0);
+        readBuffer.flip();
+        Assert.assertEquals("ab", new String(readBuffer.array(), 0, readBuffer.limit()));
+        mmapSegment.relViewRef();
+        Assert.assertFalse(mmapSegment.acquireViewRef());
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStore;
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+/**
+ * MsgFileStore test.
+ */
+public class MsgFileStoreTest {
+
+    private static final int MSG_COUNT = 1000;
+    private File storeDir;
+    private BrokerConfig brokerConfig;
+    private MessageStore messageStore;
+    private MsgFileStore msgFileStore;
+    private ByteBuffer storedIndex;
+    private boolean detailStatsEnabled;
+
+    @Before
+    public void setUp() throws Throwable {
+        // keep the flushes out of the shared broker statistics
+        detailStatsEnabled = !BrokerSrvStatsHolder.isDetailStatsClosed();
+        BrokerSrvStatsHolder.setDetailStatsStatus(false);
+        storeDir = Files.createTempDirectory("tubemq-file-store").toFile();
+        brokerConfig = spy(new BrokerConfig());
+        // small segments, so the reads go across several segments
+        doReturn(64 * 1024).when(brokerConfig).getMaxSegmentSize();
+        doReturn(100 * DataStoreUtils.STORE_INDEX_HEAD_LEN).when(brokerConfig).getMaxIndexSegmentSize();
+        messageStore = mock(MessageStore.class);
+        when(messageStore.getStoreKey()).thenReturn("test-0");
+        when(messageStore.getMsgStoreStatsHolder()).thenReturn(new MsgStoreStatsHolder());
+        when(messageStore.getUnflushThreshold()).thenReturn(Integer.MAX_VALUE);
+        when(messageStore.getUnflushInterval()).thenReturn(Integer.MAX_VALUE);
+        msgFileStore = new MsgFileStore(messageStore,
+                brokerConfig, storeDir.getAbsolutePath(), 0L);
+        // the messages of two partitions are interleaved in the data files
+        storedIndex = ByteBuffer.allocate(MSG_COUNT * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        MsgStoreStatsHolder statsHolder = new MsgStoreStatsHolder();
+        AppendResult appendResult = new AppendResult();
+        StringBuilder strBuffer = new StringBuilder(512);
+        MsgMemStore msgMemStore = new MsgMemStore(32 * 1024, 1000, 0L, 0L);
+        for (int i = 0; i < MSG_COUNT; i++) {
+            ByteBuffer dataEntry = buildDataBuffer(i % 2, i);
+            ByteBuffer indexEntry = buildIndexBuffer(i % 2, dataEntry.limit());
+            if (!msgMemStore.appendMsg(statsHolder, i % 2, 11, System.currentTimeMillis(),
+                    indexEntry, dataEntry.limit(), dataEntry, appendResult)) {
+                msgMemStore.batchFlush(msgFileStore, strBuffer);
+                msgMemStore.resetMemStoreStatus(msgFileStore.getDataMaxOffset(),
+                        msgFileStore.getIndexMaxOffset());
+                Assert.assertTrue(msgMemStore.appendMsg(statsHolder, i % 2, 11,
+                        System.currentTimeMillis(), indexEntry, dataEntry.limit(),
+                        dataEntry, appendResult));
+            }
+            storedIndex.put(indexEntry.array());
+        }
+        msgMemStore.batchFlush(msgFileStore, strBuffer);
+        msgFileStore.flushDiskFile();
+        storedIndex.flip();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        msgFileStore.close();
+        FileUtil.fullyDelete(storeDir);
+        BrokerSrvStatsHolder.setDetailStatsStatus(detailStatsEnabled);
+    }
+
+    @Test
+    public void getMessagesZeroCopyRead() {
+        doReturn(false).when(brokerConfig).isEnableZeroCopyRead();
+        List<byte[]> copiedPayloads = readPayloads(1);
+        doReturn(true).when(brokerConfig).isEnableZeroCopyRead();
+        List<byte[]> wrappedPayloads = readPayloads(1);
+        Assert.assertEquals(MSG_COUNT / 2, copiedPayloads.size());
+        Assert.assertEquals(copiedPayloads.size(), wrappedPayloads.size());
+        for (int i = 0; i < copiedPayloads.size(); i++) {
+            Assert.assertArrayEquals(buildPayload(2 * i + 1), copiedPayloads.get(i));
+            Assert.assertArrayEquals(copiedPayloads.get(i), wrappedPayloads.get(i));
+        }
+    }
+
+    @Test
+    public void recoverFailedAppendSlots() throws Throwable {
+        MsgStoreStatsHolder statsHolder = new MsgStoreStatsHolder();
+        MsgMemStore msgMemStore = new MsgMemStore(32 * 1024, 1000,
+                msgFileStore.getDataMaxOffset(), msgFileStore.getIndexMaxOffset());
+        ByteBuffer dataEntry = buildDataBuffer(1, MSG_COUNT);
+        try {
+            // the data entry is shorter than the given length
+            msgMemStore.appendMsg(statsHolder, 1, 11, System.currentTimeMillis(),
+                    buildIndexBuffer(1, dataEntry.limit() + 1), dataEntry.limit() + 1,
+                    dataEntry, new AppendResult());
+            Assert.fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        dataEntry = buildDataBuffer(1, MSG_COUNT + 1);
+        ByteBuffer indexEntry = buildIndexBuffer(1, dataEntry.limit());
+        Assert.assertTrue(msgMemStore.appendMsg(statsHolder, 1, 11, System.currentTimeMillis(),
+                indexEntry, dataEntry.limit(), dataEntry, new AppendResult()));
+        msgMemStore.batchFlush(msgFileStore, new StringBuilder(512));
+        msgFileStore.flushDiskFile();
+        final long indexMaxOffset = msgFileStore.getIndexMaxOffset();
+        final long dataMaxOffset = msgFileStore.getDataMaxOffset();
+        // the filler entries of the failed slot are kept by the recovery
+        msgFileStore.close();
+        msgFileStore = new MsgFileStore(messageStore,
+                brokerConfig, storeDir.getAbsolutePath(), 0L);
+        Assert.assertEquals(indexMaxOffset, msgFileStore.getIndexMaxOffset());
+        Assert.assertEquals(dataMaxOffset, msgFileStore.getDataMaxOffset());
+        // the filler entries are skipped by the readers
+        ByteBuffer fillerIndex = ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        fillerIndex.putInt(DataStoreUtils.STORE_FILLER_PARTITION_ID);
+        fillerIndex.putLong(indexEntry.getLong(DataStoreUtils.INDEX_POS_DATAOFFSET)
+                - dataEntry.limit() - 1);
+        fillerIndex.putInt(dataEntry.limit() + 1);
+        fillerIndex.putInt(0);
+        fillerIndex.putLong(System.currentTimeMillis());
+        fillerIndex.flip();
+        GetMessageResult result = msgFileStore.getMessages(1, 0L,
+                indexMaxOffset - 2 * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                fillerIndex, false, null, "test", 8 * 1024, 0L);
+        Assert.assertTrue(result.transferedMessageList.isEmpty());
+        Assert.assertEquals(DataStoreUtils.STORE_INDEX_HEAD_LEN, result.lastReadOffset);
+        result = msgFileStore.getMessages(1, 0L,
+                indexMaxOffset - DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                ByteBuffer.wrap(indexEntry.array()), false, null, "test", 8 * 1024, 0L);
+        Assert.assertTrue(result.isSuccess);
+        Assert.assertEquals(1, result.transferedMessageList.size());
+        Assert.assertArrayEquals(buildPayload(MSG_COUNT + 1),
+                result.transferedMessageList.get(0).getPayLoadData().toByteArray());
+    }
+
+    private List<byte[]> readPayloads(int partitionId) {
+        List<byte[]> payloads = new ArrayList<>();
+        int readPos = 0;
+        while (readPos < storedIndex.limit()) {
+            ByteBuffer indexBuffer = storedIndex.duplicate();
+            indexBuffer.position(readPos);
+            GetMessageResult result = msgFileStore.getMessages(partitionId, 0L,
+                    readPos, indexBuffer.slice(), false, null, "test", 8 * 1024, 0L);
+            Assert.assertTrue(result.isSuccess);
+            for (ClientBroker.TransferedMessage message : result.transferedMessageList) {
+                payloads.add(message.getPayLoadData().toByteArray());
+            }
+            Assert.assertTrue(result.lastReadOffset > 0);
+            readPos += result.lastReadOffset;
+        }
+        return payloads;
+    }
+
+    private byte[] buildPayload(int msgIndex) {
+        byte[] payLoad = new byte[10 + (msgIndex * 37) % 500];
+        Arrays.fill(payLoad, (byte) msgIndex);
+        return payLoad;
+    }
+
+    private ByteBuffer buildDataBuffer(int partitionId, int msgIndex) {
+        byte[] payLoad = buildPayload(msgIndex);
+        ByteBuffer dataBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + payLoad.length);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + payLoad.length);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        dataBuffer.putInt(0);
+        dataBuffer.putInt(partitionId);
+        dataBuffer.putLong(-1L);
+        dataBuffer.putLong(System.currentTimeMillis());
+        dataBuffer.putInt(0);
+        dataBuffer.putInt(11);
+        dataBuffer.putLong(msgIndex);
+        dataBuffer.putInt(0);
+        dataBuffer.put(payLoad);
+        dataBuffer.flip();
+        return dataBuffer;
+    }
+
+    private ByteBuffer buildIndexBuffer(int partitionId, int dataSize) {
+        ByteBuffer indexBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        indexBuffer.putInt(partitionId);
+        indexBuffer.putLong(-1L);
+        indexBuffer.putInt(dataSize);
+        indexBuffer.putInt(11);
+        indexBuffer.putLong(System.currentTimeMillis());
+        indexBuffer.flip();
+        return indexBuffer;
+    }
+}
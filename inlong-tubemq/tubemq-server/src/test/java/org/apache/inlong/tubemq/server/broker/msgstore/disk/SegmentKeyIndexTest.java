@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+/**
+ * SegmentKeyIndex test.
+ */
+public class SegmentKeyIndexTest {
+
+    @Test
+    public void findMatchSlot() throws Exception {
+        File file = File.createTempFile("testkeyindex", null);
+        file.deleteOnExit();
+        final int recordCnt = 3000;
+        final int commonKey = 100;
+        final int rareKey = 300;
+        final int rareSlot = 2500;
+        FileSegment fileSegment = new FileSegment(0L, file, SegmentType.INDEX);
+        SegmentKeyIndex keyIndex = fileSegment.getKeyIndex();
+        Assert.assertSame(keyIndex, fileSegment.getKeyIndex());
+        // append index records in batches, only one record holds the rare key
+        int batchSize = 100;
+        for (int i = 0; i < recordCnt; i += batchSize) {
+            ByteBuffer indexBuffer =
+                    ByteBuffer.allocate(batchSize * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            for (int j = i; j < i + batchSize; j++) {
+                indexBuffer.putInt(1);
+                indexBuffer.putLong(j * 10L);
+                indexBuffer.putInt(10);
+                indexBuffer.putInt(j == rareSlot ? rareKey : commonKey);
+                indexBuffer.putLong(System.currentTimeMillis());
+            }
+            indexBuffer.flip();
+            fileSegment.append(indexBuffer, 0L, 0L);
+        }
+        fileSegment.flush(true);
+        Assert.assertEquals(2, keyIndex.getBlockCount());
+        long[] rareMask = SegmentKeyIndex.getKeyMask(Collections.singleton(rareKey));
+        long[] commonMask = SegmentKeyIndex.getKeyMask(Collections.singleton(commonKey));
+        // the completed blocks without the rare key are skipped
+        Assert.assertEquals(2048, keyIndex.findMatchSlot(fileSegment, 10, rareMask));
+        Assert.assertEquals(2100, keyIndex.findMatchSlot(fileSegment, 2100, rareMask));
+        Assert.assertEquals(10, keyIndex.findMatchSlot(fileSegment, 10, commonMask));
+        fileSegment.setMutable(false);
+        fileSegment.close();
+        // the reloaded segment reads the blocks back on lookup
+        FileSegment reloadSegment = new FileSegment(0L, file, false, SegmentType.INDEX);
+        SegmentKeyIndex reloadIndex = reloadSegment.getKeyIndex();
+        Assert.assertEquals(0, reloadIndex.getBlockCount());
+        Assert.assertEquals(2048, reloadIndex.findMatchSlot(reloadSegment, 1000, rareMask));
+        Assert.assertEquals(2, reloadIndex.getBlockCount());
+        reloadSegment.close();
+    }
+}
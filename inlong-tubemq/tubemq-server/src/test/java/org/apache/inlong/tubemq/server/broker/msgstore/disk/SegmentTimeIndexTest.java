@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * SegmentTimeIndex test.
+ */
+public class SegmentTimeIndexTest {
+
+    @Test
+    public void findSlotRange() throws Exception {
+        File file = File.createTempFile("testtimeindex", null);
+        file.deleteOnExit();
+        final long baseTime = 1000000L;
+        final int recordCnt = 3000;
+        // append index records in batches, record i is appended at baseTime + i
+        FileSegment fileSegment = new FileSegment(0L, file, SegmentType.INDEX);
+        int batchSize = 100;
+        for (int i = 0; i < recordCnt; i += batchSize) {
+            ByteBuffer indexBuffer =
+                    ByteBuffer.allocate(batchSize * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            for (int j = i; j < i + batchSize; j++) {
+                indexBuffer.putInt(1);
+                indexBuffer.putLong(j * 10L);
+                indexBuffer.putInt(10);
+                indexBuffer.putInt(0);
+                indexBuffer.putLong(baseTime + j);
+            }
+            indexBuffer.flip();
+            fileSegment.append(indexBuffer, baseTime + i, baseTime + i + batchSize - 1);
+        }
+        fileSegment.flush(true);
+        SegmentTimeIndex timeIndex = fileSegment.getTimeIndex();
+        Assert.assertEquals(3, timeIndex.getSampleCount());
+        long lastSlot = recordCnt - 1;
+        long[] slotRange = timeIndex.findSlotRange(fileSegment, baseTime + 1500, lastSlot);
+        Assert.assertEquals(1024, slotRange[0]);
+        Assert.assertEquals(2048, slotRange[1]);
+        slotRange = timeIndex.findSlotRange(fileSegment, baseTime, lastSlot);
+        Assert.assertEquals(0, slotRange[0]);
+        Assert.assertEquals(1024, slotRange[1]);
+        slotRange = timeIndex.findSlotRange(fileSegment, baseTime + 5000, lastSlot);
+        Assert.assertEquals(2048, slotRange[0]);
+        Assert.assertEquals(lastSlot, slotRange[1]);
+        fileSegment.setMutable(false);
+        fileSegment.close();
+        // the reloaded segment reads the samples back on the first lookup
+        FileSegment reloadSegment = new FileSegment(0L, file, false, SegmentType.INDEX);
+        Assert.assertEquals(0, reloadSegment.getTimeIndex().getSampleCount());
+        slotRange = reloadSegment.getTimeIndex()
+                .findSlotRange(reloadSegment, baseTime + 2100, lastSlot);
+        Assert.assertEquals(3, reloadSegment.getTimeIndex().getSampleCount());
+        Assert.assertEquals(2048, slotRange[0]);
+        Assert.assertEquals(lastSlot, slotRange[1]);
+        reloadSegment.close();
+    }
+}
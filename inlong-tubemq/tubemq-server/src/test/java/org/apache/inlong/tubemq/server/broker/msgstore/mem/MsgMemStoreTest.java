@@ -21,9 +21,13 @@ import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.common.utils.AppendResult;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * MsgMemStore test.
@@ -103,6 +107,266 @@ public class MsgMemStoreTest {
         msgMemStore.appendMsg(memStatsHolder, 0, 0,
                 System.currentTimeMillis(), indexBuffer, 3, dataBuffer, appendResult);
         // get messages
-        GetCacheMsgResult getCacheMsgResult = msgMemStore.getMessages(0, 2, 1024, 1000, 0, false, false, null, 0);
+        GetCacheMsgResult getCacheMsgResult = msgMemStore.getMessages(0, 2, 1024, 1000, 0, false, false, null, 0, false);
+    }
+
+    @Test
+    public void concurrentAppendMsg() throws Exception {
+        final int threadCnt = 4;
+        final int msgCntPerThread = 500;
+        final byte[] testData = "abcabdcdsdsdasdfasdfasdfsadfasdf".getBytes();
+        final int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + testData.length;
+        final MsgMemStore msgMemStore = new MsgMemStore(2 * 1024 * 1024, 10000, 0, 0);
+        final MsgStoreStatsHolder memStatsHolder = new MsgStoreStatsHolder();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < threadCnt; i++) {
+            final int partitionId = i;
+            Thread writer = new Thread(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < msgCntPerThread; j++) {
+                    ByteBuffer dataBuffer = ByteBuffer.allocate(msgBufLen);
+                    dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + testData.length);
+                    dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+                    dataBuffer.putInt(33);
+                    dataBuffer.putInt(partitionId);
+                    dataBuffer.putLong(-1L);
+                    dataBuffer.putLong(2222L);
+                    dataBuffer.putInt(255555);
+                    dataBuffer.putInt(11);
+                    dataBuffer.putLong(j);
+                    dataBuffer.putInt(1);
+                    dataBuffer.put(testData);
+                    dataBuffer.flip();
+                    ByteBuffer indexBuffer =
+                            ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+                    indexBuffer.putInt(partitionId);
+                    indexBuffer.putLong(-1L);
+                    indexBuffer.putInt(msgBufLen);
+                    indexBuffer.putInt(11);
+                    indexBuffer.putLong(System.currentTimeMillis());
+                    indexBuffer.flip();
+                    msgMemStore.appendMsg(memStatsHolder, partitionId, 11,
+                            System.currentTimeMillis(), indexBuffer, msgBufLen,
+                            dataBuffer, new AppendResult());
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        startLatch.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        Assert.assertEquals(threadCnt * msgCntPerThread, msgMemStore.getCurMsgCount());
+        Assert.assertEquals(threadCnt * msgCntPerThread * msgBufLen,
+                msgMemStore.getCurDataCacheSize());
+        // each partition reads back all of its messages
+        for (int i = 0; i < threadCnt; i++) {
+            GetCacheMsgResult result = msgMemStore.getMessages(0, 0,
+                    Integer.MAX_VALUE, threadCnt * msgCntPerThread, i,
+                    false, false, null, 0, false);
+            Assert.assertTrue(result.isSuccess);
+            Assert.assertEquals(msgCntPerThread, result.cacheMsgList.size());
+            for (ByteBuffer msgBuffer : result.cacheMsgList) {
+                Assert.assertEquals(i,
+                        msgBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_QUEUEID));
+            }
+        }
+    }
+
+    @Test
+    public void appendMsgs() {
+        final int msgCnt = 10;
+        final byte[] testData = "abcabdcdsdsdasdfasdfasdfsadfasdf".getBytes();
+        final int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + testData.length;
+        int[] keyCodes = new int[msgCnt];
+        int[] dataLengths = new int[msgCnt];
+        ByteBuffer[] indexBuffers = new ByteBuffer[msgCnt];
+        ByteBuffer[] dataBuffers = new ByteBuffer[msgCnt];
+        AppendResult[] appendResults = new AppendResult[msgCnt];
+        for (int i = 0; i < msgCnt; i++) {
+            ByteBuffer dataBuffer = ByteBuffer.allocate(msgBufLen);
+            dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + testData.length);
+            dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+            dataBuffer.putInt(33);
+            dataBuffer.putInt(1);
+            dataBuffer.putLong(-1L);
+            dataBuffer.putLong(2222L);
+            dataBuffer.putInt(255555);
+            dataBuffer.putInt(i);
+            dataBuffer.putLong(i);
+            dataBuffer.putInt(1);
+            dataBuffer.put(testData);
+            dataBuffer.flip();
+            ByteBuffer indexBuffer =
+                    ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            indexBuffer.putInt(1);
+            indexBuffer.putLong(-1L);
+            indexBuffer.putInt(msgBufLen);
+            indexBuffer.putInt(i);
+            indexBuffer.putLong(System.currentTimeMillis());
+            indexBuffer.flip();
+            keyCodes[i] = i;
+            dataLengths[i] = msgBufLen;
+            indexBuffers[i] = indexBuffer;
+            dataBuffers[i] = dataBuffer;
+            appendResults[i] = new AppendResult();
+        }
+        MsgMemStore msgMemStore = new MsgMemStore(2 * 1024 * 1024, 10000, 0, 0);
+        MsgStoreStatsHolder memStatsHolder = new MsgStoreStatsHolder();
+        Assert.assertTrue(msgMemStore.appendMsgs(memStatsHolder, 1, msgCnt, keyCodes,
+                System.currentTimeMillis(), indexBuffers, dataLengths, dataBuffers, appendResults));
+        Assert.assertEquals(msgCnt, msgMemStore.getCurMsgCount());
+        Assert.assertEquals(msgCnt * msgBufLen, msgMemStore.getCurDataCacheSize());
+        // the messages are placed one after another in the batch order
+        for (int i = 0; i < msgCnt; i++) {
+            Assert.assertTrue(appendResults[i].isSuccess());
+            Assert.assertEquals((long) i * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                    appendResults[i].getAppendIndexOffset());
+            Assert.assertEquals((long) i * msgBufLen, appendResults[i].getAppendDataOffset());
+        }
+        GetCacheMsgResult result = msgMemStore.getMessages(0, 0,
+                Integer.MAX_VALUE, msgCnt, 1, false, false, null, 0, false);
+        Assert.assertTrue(result.isSuccess);
+        Assert.assertEquals(msgCnt, result.cacheMsgList.size());
+        // the batch over the cache limit is rejected as a whole
+        MsgMemStore smallMemStore = new MsgMemStore(msgBufLen * (msgCnt - 1), 10000, 0, 0);
+        Assert.assertFalse(smallMemStore.appendMsgs(memStatsHolder, 1, msgCnt, keyCodes,
+                System.currentTimeMillis(), indexBuffers, dataLengths, dataBuffers,
+                new AppendResult[msgCnt]));
+        Assert.assertEquals(0, smallMemStore.getCurMsgCount());
+    }
+
+    @Test(timeout = 10000)
+    public void appendMsgFailure() {
+        final byte[] testData = "abcabdcdsdsdasdfasdfasdfsadfasdf".getBytes();
+        final int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + testData.length;
+        MsgMemStore msgMemStore = new MsgMemStore(2 * 1024 * 1024, 10000, 0, 0);
+        MsgStoreStatsHolder memStatsHolder = new MsgStoreStatsHolder();
+        long timeRecv = System.currentTimeMillis();
+        Assert.assertTrue(msgMemStore.appendMsg(memStatsHolder, 1, 11, timeRecv + 1000L,
+                buildIndexBuffer(1, msgBufLen), msgBufLen,
+                buildDataBuffer(1, testData), new AppendResult()));
+        // the data entry is shorter than the given length
+        try {
+            msgMemStore.appendMsg(memStatsHolder, 1, 11, timeRecv,
+                    buildIndexBuffer(1, msgBufLen), msgBufLen + 1,
+                    buildDataBuffer(1, testData), new AppendResult());
+            Assert.fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            msgMemStore.appendMsgs(memStatsHolder, 1, 2, new int[]{11, 11}, timeRecv,
+                    new ByteBuffer[]{buildIndexBuffer(1, msgBufLen), buildIndexBuffer(1, msgBufLen)},
+                    new int[]{msgBufLen, msgBufLen + 1},
+                    new ByteBuffer[]{buildDataBuffer(1, testData), buildDataBuffer(1, testData)},
+                    new AppendResult[]{new AppendResult(), new AppendResult()});
+            Assert.fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        // the failed slots are published, so the later writers go on
+        Assert.assertTrue(msgMemStore.appendMsg(memStatsHolder, 1, 11, timeRecv,
+                buildIndexBuffer(1, msgBufLen), msgBufLen,
+                buildDataBuffer(1, testData), new AppendResult()));
+        Assert.assertEquals(5, msgMemStore.getCurMsgCount());
+        // the failed slots are skipped by the readers
+        GetCacheMsgResult result = msgMemStore.getMessages(0, 0,
+                Integer.MAX_VALUE, 10, 1, false, false, null, 0, false);
+        Assert.assertTrue(result.isSuccess);
+        Assert.assertEquals(2, result.cacheMsgList.size());
+        // the earlier receive time does not move the right append time back
+        Assert.assertEquals(timeRecv + 1000L, msgMemStore.getRightAppendTime());
+    }
+
+    @Test
+    public void getMessagesIntoReadBuffer() {
+        final int msgCnt = 6;
+        MsgMemStore msgMemStore = new MsgMemStore(2 * 1024 * 1024, 10000, 0, 0);
+        MsgStoreStatsHolder memStatsHolder = new MsgStoreStatsHolder();
+        // the messages of two partitions are interleaved in the cache
+        for (int i = 0; i < msgCnt; i++) {
+            byte[] testData = ("message-" + i).getBytes();
+            int partitionId = i % 2;
+            int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + testData.length;
+            Assert.assertTrue(msgMemStore.appendMsg(memStatsHolder, partitionId, 11,
+                    System.currentTimeMillis(), buildIndexBuffer(partitionId, msgBufLen),
+                    msgBufLen, buildDataBuffer(partitionId, testData), new AppendResult()));
+        }
+        // the zero-copy reads get their own buffer
+        GetCacheMsgResult result1 = msgMemStore.getMessages(0, 0,
+                Integer.MAX_VALUE, msgCnt, 1, false, false, null, 0, true);
+        assertReadMessages(result1, 1, msgCnt);
+        GetCacheMsgResult result2 = msgMemStore.getMessages(0, 0,
+                Integer.MAX_VALUE, msgCnt, 1, false, false, null, 0, true);
+        assertReadMessages(result2, 1, msgCnt);
+        Assert.assertNotSame(result1.cacheMsgList.get(0).array(),
+                result2.cacheMsgList.get(0).array());
+        // the copying reads share the per-thread read buffer
+        result1 = msgMemStore.getMessages(0, 0,
+                Integer.MAX_VALUE, msgCnt, 0, false, false, null, 0, false);
+        assertReadMessages(result1, 0, msgCnt);
+        byte[] readArray = result1.cacheMsgList.get(0).array();
+        Assert.assertSame(readArray, result1.cacheMsgList.get(msgCnt / 2 - 1).array());
+        result2 = msgMemStore.getMessages(0, 0,
+                Integer.MAX_VALUE, msgCnt, 1, false, false, null, 0, false);
+        assertReadMessages(result2, 1, msgCnt);
+        Assert.assertSame(readArray, result2.cacheMsgList.get(0).array());
+    }
+
+    private void assertReadMessages(GetCacheMsgResult result, int partitionId, int msgCnt) {
+        Assert.assertTrue(result.isSuccess);
+        Assert.assertEquals(msgCnt / 2, result.cacheMsgList.size());
+        int totalMsgSize = 0;
+        for (int i = 0; i < result.cacheMsgList.size(); i++) {
+            ByteBuffer msgBuffer = result.cacheMsgList.get(i);
+            byte[] testData = ("message-" + (2 * i + partitionId)).getBytes();
+            Assert.assertEquals(DataStoreUtils.STORE_DATA_HEADER_LEN + testData.length,
+                    msgBuffer.remaining());
+            Assert.assertEquals(partitionId,
+                    msgBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_QUEUEID));
+            byte[] readData = new byte[testData.length];
+            msgBuffer.position(DataStoreUtils.STORE_DATA_HEADER_LEN);
+            msgBuffer.get(readData);
+            Assert.assertArrayEquals(testData, readData);
+            totalMsgSize += testData.length + DataStoreUtils.STORE_DATA_HEADER_LEN;
+        }
+        Assert.assertEquals(totalMsgSize, result.totalMsgSize);
+    }
+
+    private ByteBuffer buildDataBuffer(int partitionId, byte[] testData) {
+        ByteBuffer dataBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + testData.length);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + testData.length);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        dataBuffer.putInt(33);
+        dataBuffer.putInt(partitionId);
+        dataBuffer.putLong(-1L);
+        dataBuffer.putLong(2222L);
+        dataBuffer.putInt(255555);
+        dataBuffer.putInt(11);
+        dataBuffer.putLong(0L);
+        dataBuffer.putInt(1);
+        dataBuffer.put(testData);
+        dataBuffer.flip();
+        return dataBuffer;
+    }
+
+    private ByteBuffer buildIndexBuffer(int partitionId, int msgBufLen) {
+        ByteBuffer indexBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        indexBuffer.putInt(partitionId);
+        indexBuffer.putLong(-1L);
+        indexBuffer.putInt(msgBufLen);
+        indexBuffer.putInt(11);
+        indexBuffer.putLong(System.currentTimeMillis());
+        indexBuffer.flip();
+        return indexBuffer;
     }
 }
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.offset.offsetstorage;
+
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * FileOffsetStorage test.
+ */
+public class FileOffsetStorageTest {
+
+    @Test
+    public void commitAndReload() throws Exception {
+        File storeDir = Files.createTempDirectory("testoffsetjournal").toFile();
+        try {
+            FileOffsetStorage offsetStorage = new FileOffsetStorage(
+                    storeDir.getAbsolutePath(), 1, 1000, null);
+            // commit the offsets of two groups in one round
+            Map<String, Collection<OffsetStorageInfo>> groupOffsetMap = new HashMap<>();
+            List<OffsetStorageInfo> offsetInfos1 = new ArrayList<>();
+            offsetInfos1.add(new OffsetStorageInfo("topic1", 1, 0, 280L, 1L));
+            offsetInfos1.add(new OffsetStorageInfo("topic1", 1, 1, 560L, 2L));
+            groupOffsetMap.put("group1", offsetInfos1);
+            List<OffsetStorageInfo> offsetInfos2 = new ArrayList<>();
+            offsetInfos2.add(new OffsetStorageInfo("topic2", 1, 0, 28L, 3L));
+            groupOffsetMap.put("group2", offsetInfos2);
+            offsetStorage.commitOffsets(groupOffsetMap, false);
+            Assert.assertFalse(offsetInfos1.get(0).isModified());
+            // the unmodified offsets are not written again
+            long journalSize = new File(storeDir, "offsets.journal").length();
+            offsetStorage.commitOffsets(groupOffsetMap, false);
+            Assert.assertEquals(journalSize, new File(storeDir, "offsets.journal").length());
+            offsetInfos1.get(0).getAndSetOffset(840L);
+            offsetStorage.commitOffsets(groupOffsetMap, false);
+            Map<String, Set<String>> groupTopicMap = offsetStorage.queryZkAllGroupTopicInfos();
+            Assert.assertEquals(2, groupTopicMap.size());
+            Assert.assertTrue(groupTopicMap.get("group2").contains("topic2"));
+            // delete the offset of group2
+            Map<String, Set<Integer>> topicPartMap = new HashMap<>();
+            topicPartMap.put("topic2", new HashSet<>(Collections.singleton(0)));
+            Map<String, Map<String, Set<Integer>>> groupTopicPartMap = new HashMap<>();
+            groupTopicPartMap.put("group2", topicPartMap);
+            offsetStorage.deleteGroupOffsetInfo(groupTopicPartMap);
+            offsetStorage.close();
+            // append a torn batch at the journal tail
+            try (RandomAccessFile journal =
+                    new RandomAccessFile(new File(storeDir, "offsets.journal"), "rw")) {
+                journal.seek(journal.length());
+                journal.write(new byte[]{0x0F, (byte) 0xF5, 0x00});
+            }
+            // reload from the journal
+            offsetStorage = new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 1000, null);
+            OffsetStorageInfo offsetInfo = offsetStorage.loadOffset("group1", "topic1", 0);
+            Assert.assertEquals(840L, offsetInfo.getOffset());
+            Assert.assertEquals(1L, offsetInfo.getMessageId());
+            Assert.assertFalse(offsetInfo.isModified());
+            Assert.assertEquals(560L, offsetStorage.loadOffset("group1", "topic1", 1).getOffset());
+            Assert.assertNull(offsetStorage.loadOffset("group2", "topic2", 0));
+            Assert.assertEquals(1, offsetStorage.queryZkAllGroupTopicInfos().size());
+            offsetStorage.close();
+        } finally {
+            FileUtil.fullyDelete(storeDir);
+        }
+    }
+
+    @Test
+    public void takeSnapshot() throws Exception {
+        File storeDir = Files.createTempDirectory("testoffsetsnapshot").toFile();
+        try {
+            FileOffsetStorage offsetStorage = new FileOffsetStorage(
+                    storeDir.getAbsolutePath(), 1, 1000, null);
+            List<OffsetStorageInfo> offsetInfos = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                offsetInfos.add(new OffsetStorageInfo("topic", 1, i, 0L, 0L));
+            }
+            // 12 rounds of 100 records exceed the snapshot threshold once
+            for (int round = 1; round <= 12; round++) {
+                for (OffsetStorageInfo offsetInfo : offsetInfos) {
+                    offsetInfo.getAndSetOffset(round * 28L);
+                }
+                offsetStorage.commitOffset("group", offsetInfos, false);
+            }
+            offsetStorage.close();
+            Assert.assertTrue(new File(storeDir, "offsets.snapshot").exists());
+            // the snapshot holds the 10th round, and the journal the 2 rounds after it
+            Assert.assertEquals(2 * new File(storeDir, "offsets.snapshot").length(),
+                    new File(storeDir, "offsets.journal").length());
+            offsetStorage = new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 1000, null);
+            for (int i = 0; i < 100; i++) {
+                Assert.assertEquals(12 * 28L,
+                        offsetStorage.loadOffset("group", "topic", i).getOffset());
+            }
+            offsetStorage.close();
+        } finally {
+            FileUtil.fullyDelete(storeDir);
+        }
+    }
+
+    @Test
+    public void fallbackStorage() throws Exception {
+        File storeDir = Files.createTempDirectory("testoffsetfallback").toFile();
+        try {
+            MemOffsetStorage fallbackStorage = new MemOffsetStorage();
+            fallbackStorage.offsetMap.put("group3#topic3#0", 280L);
+            fallbackStorage.offsetMap.put("group3#topic3#1", 560L);
+            // take a snapshot in each round, so the tombstones are also kept in the snapshot
+            FileOffsetStorage offsetStorage = new FileOffsetStorage(
+                    storeDir.getAbsolutePath(), 1, 1, fallbackStorage);
+            offsetStorage.commitOffset("group1", Collections.singletonList(
+                    new OffsetStorageInfo("topic1", 1, 0, 280L, 1L)), false);
+            // the groups only in the fallback storage are queried
+            Assert.assertEquals(280L, offsetStorage.loadOffset("group3", "topic3", 0).getOffset());
+            Map<String, Set<String>> groupTopicMap = offsetStorage.queryZkAllGroupTopicInfos();
+            Assert.assertEquals(2, groupTopicMap.size());
+            Assert.assertTrue(groupTopicMap.get("group3").contains("topic3"));
+            Assert.assertTrue(offsetStorage.queryZKGroupTopicInfo(
+                    Collections.singletonList("group3")).get("group3").contains("topic3"));
+            Set<Integer> partitionIds = new HashSet<>();
+            partitionIds.add(0);
+            partitionIds.add(1);
+            offsetStorage.commitOffset("group3", Collections.singletonList(
+                    new OffsetStorageInfo("topic3", 1, 0, 840L, 1L)), false);
+            Map<Integer, Long> offsetMap =
+                    offsetStorage.queryGroupOffsetInfo("group3", "topic3", partitionIds);
+            Assert.assertEquals(Long.valueOf(840L), offsetMap.get(0));
+            Assert.assertEquals(Long.valueOf(560L), offsetMap.get(1));
+            // the deleted offsets are not loaded from the fallback storage again
+            Map<String, Map<String, Set<Integer>>> groupTopicPartMap = new HashMap<>();
+            groupTopicPartMap.put("group3",
+                    Collections.singletonMap("topic3", new HashSet<>(partitionIds)));
+            offsetStorage.deleteGroupOffsetInfo(groupTopicPartMap);
+            Assert.assertNull(offsetStorage.loadOffset("group3", "topic3", 0));
+            Assert.assertNull(offsetStorage.loadOffset("group3", "topic3", 1));
+            offsetMap = offsetStorage.queryGroupOffsetInfo("group3", "topic3", partitionIds);
+            Assert.assertNull(offsetMap.get(0));
+            Assert.assertNull(offsetMap.get(1));
+            Assert.assertFalse(offsetStorage.queryZkAllGroupTopicInfos().containsKey("group3"));
+            Assert.assertTrue(offsetStorage.queryZKGroupTopicInfo(
+                    Collections.singletonList("group3")).isEmpty());
+            offsetStorage.close();
+            // the tombstones survive the reload
+            offsetStorage = new FileOffsetStorage(
+                    storeDir.getAbsolutePath(), 1, 1, fallbackStorage);
+            Assert.assertTrue(new File(storeDir, "offsets.snapshot").exists());
+            Assert.assertNull(offsetStorage.loadOffset("group3", "topic3", 1));
+            Assert.assertFalse(offsetStorage.queryZkAllGroupTopicInfos().containsKey("group3"));
+            // reset the offset after deletion
+            offsetStorage.commitOffset("group3", Collections.singletonList(
+                    new OffsetStorageInfo("topic3", 1, 1, 28L, 1L)), false);
+            Assert.assertEquals(28L, offsetStorage.loadOffset("group3", "topic3", 1).getOffset());
+            Assert.assertNull(offsetStorage.loadOffset("group3", "topic3", 0));
+            Assert.assertTrue(offsetStorage.queryZkAllGroupTopicInfos().get("group3").contains("topic3"));
+            offsetStorage.close();
+        } finally {
+            FileUtil.fullyDelete(storeDir);
+        }
+    }
+
+    /**
+     * An offset storage kept in memory, as the ZooKeeper storage not written any more.
+     */
+    private static class MemOffsetStorage implements OffsetStorage {
+
+        // group#topic#partitionId -- offset
+        private final Map<String, Long> offsetMap = new HashMap<>();
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public OffsetStorageInfo loadOffset(String group, String topic, int partitionId) {
+            Long offset = offsetMap.get(group + "#" + topic + "#" + partitionId);
+            return (offset == null) ? null : new OffsetStorageInfo(topic, 1, partitionId, offset, 0L, false);
+        }
+
+        @Override
+        public void commitOffset(String group, Collection<OffsetStorageInfo> offsetInfoList,
+                boolean isFailRetry) {
+            Assert.fail();
+        }
+
+        @Override
+        public Map<String, Set<String>> queryZkAllGroupTopicInfos() {
+            Set<String> groups = new HashSet<>();
+            for (String key : offsetMap.keySet()) {
+                groups.add(key.split("#")[0]);
+            }
+            return queryZKGroupTopicInfo(new ArrayList<>(groups));
+        }
+
+        @Override
+        public Map<String, Set<String>> queryZKGroupTopicInfo(List<String> groupSet) {
+            Map<String, Set<String>> groupTopicMap = new HashMap<>();
+            for (String key : offsetMap.keySet()) {
+                String[] items = key.split("#");
+                if (groupSet.contains(items[0])) {
+                    groupTopicMap.computeIfAbsent(items[0], k -> new HashSet<>()).add(items[1]);
+                }
+            }
+            return groupTopicMap;
+        }
+
+        @Override
+        public Map<Integer, Long> queryGroupOffsetInfo(String group, String topic,
+                Set<Integer> partitionIds) {
+            Map<Integer, Long> result = new HashMap<>();
+            for (Integer partitionId : partitionIds) {
+                result.put(partitionId, offsetMap.get(group + "#" + topic + "#" + partitionId));
+            }
+            return result;
+        }
+
+        @Override
+        public void deleteGroupOffsetInfo(Map<String, Map<String, Set<Integer>>> groupTopicPartMap) {
+            Assert.fail();
+        }
+    }
+}
@@ -57,6 +57,10 @@ public class BrokerSrvStatsHolderTest {
         // add IO exception, add 2
         BrokerSrvStatsHolder.incDiskIOExcCnt();
         BrokerSrvStatsHolder.incDiskIOExcCnt();
+        // add disk flush dlt time, add 2 for sda and 1 for sdb
+        BrokerSrvStatsHolder.updDiskFlushDlt("sda", 20);
+        BrokerSrvStatsHolder.updDiskFlushDlt("sda", 5);
+        BrokerSrvStatsHolder.updDiskFlushDlt("sdb", 3);
         // check result
         Map<String, Long> retMap = new LinkedHashMap<>();
         BrokerSrvStatsHolder.getValue(retMap);
@@ -77,6 +81,10 @@ public class BrokerSrvStatsHolderTest {
         Assert.assertEquals(10, retMap.get("file_sync_dlt_min").longValue());
         Assert.assertEquals(1, retMap.get("file_sync_dlt_cell_8t16").longValue());
         Assert.assertEquals(1, retMap.get("file_sync_dlt_cell_64t128").longValue());
+        Assert.assertEquals(2, retMap.get("disk_flush_dlt_sda_count").longValue());
+        Assert.assertEquals(20, retMap.get("disk_flush_dlt_sda_max").longValue());
+        Assert.assertEquals(5, retMap.get("disk_flush_dlt_sda_min").longValue());
+        Assert.assertEquals(1, retMap.get("disk_flush_dlt_sdb_count").longValue());
         final long sinceTime1 = retMap.get("reset_time");
         // verify snapshot
         BrokerSrvStatsHolder.snapShort(retMap);
@@ -99,6 +107,7 @@ public class BrokerSrvStatsHolderTest {
         Assert.assertEquals(999, retMap.get("file_sync_dlt_max").longValue());
         Assert.assertEquals(999, retMap.get("file_sync_dlt_min").longValue());
         Assert.assertEquals(1, retMap.get("file_sync_dlt_cell_512t1024").longValue());
+        Assert.assertNull(retMap.get("disk_flush_dlt_sda_count"));
         // get content by StringBuilder
         StringBuilder strBuff = new StringBuilder(TBaseConstants.BUILDER_DEFAULT_SIZE);
         BrokerSrvStatsHolder.getValue(strBuff);
@@ -17,10 +17,14 @@
 
 package org.apache.inlong.tubemq.server.broker.utils;
 
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.HashMap;
 
 /**
  * DataStoreUtils test.
@@ -37,4 +41,43 @@ public class DataStoreUtilsTest {
         // get int by DataStoreUtils
         Assert.assertEquals(val, 123);
     }
+
+    @Test
+    public void getTransferMsg() {
+        byte[] payLoad = "test-payload".getBytes();
+        int dataSize = DataStoreUtils.STORE_DATA_HEADER_LEN + payLoad.length;
+        ByteBuffer dataBuffer = ByteBuffer.allocate(dataSize);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + payLoad.length);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        dataBuffer.putInt(0);
+        dataBuffer.putLong(DataStoreUtils.STORE_HEADER_POS_MSGID, 100L);
+        dataBuffer.putInt(DataStoreUtils.STORE_HEADER_POS_MSGFLAG, 0);
+        dataBuffer.position(DataStoreUtils.STORE_HEADER_POS_MSGDATA);
+        dataBuffer.put(payLoad);
+        dataBuffer.flip();
+        HashMap<String, TrafficInfo> countMap = new HashMap<>();
+        StringBuilder sBuilder = new StringBuilder(512);
+        // copied payload
+        ClientBroker.TransferedMessage copiedMsg = DataStoreUtils.getTransferMsg(
+                dataBuffer, dataSize, countMap, "test", sBuilder, false);
+        Assert.assertNotNull(copiedMsg);
+        Assert.assertEquals(100L, copiedMsg.getMessageId());
+        Assert.assertArrayEquals(payLoad, copiedMsg.getPayLoadData().toByteArray());
+        // wrapped payload
+        ClientBroker.TransferedMessage wrappedMsg = DataStoreUtils.getTransferMsg(
+                dataBuffer, dataSize, countMap, "test", sBuilder, true);
+        Assert.assertNotNull(wrappedMsg);
+        Assert.assertArrayEquals(payLoad, wrappedMsg.getPayLoadData().toByteArray());
+        // wrapped payload of a message sliced from a shared chunk
+        ByteBuffer readChunk = ByteBuffer.allocate(dataSize * 2);
+        readChunk.position(dataSize);
+        readChunk.put(dataBuffer.duplicate());
+        readChunk.position(dataSize);
+        ClientBroker.TransferedMessage slicedMsg = DataStoreUtils.getTransferMsg(
+                readChunk.slice(), dataSize, countMap, "test", sBuilder, true);
+        Assert.assertNotNull(slicedMsg);
+        Assert.assertEquals(100L, slicedMsg.getMessageId());
+        Assert.assertArrayEquals(payLoad, slicedMsg.getPayLoadData().toByteArray());
+        Assert.assertEquals(3L, countMap.get("test#").getMsgCount());
+    }
 }
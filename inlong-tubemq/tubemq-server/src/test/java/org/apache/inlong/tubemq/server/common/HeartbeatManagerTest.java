@@ -28,6 +28,8 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class HeartbeatManagerTest {
 
     private static final Logger logger = LoggerFactory.getLogger(HeartbeatManager.class);
@@ -90,4 +92,24 @@ public class HeartbeatManagerTest {
         Assert.assertTrue(
                 heartbeatManager.getProducerRegMap().get("node1").getTimeoutTime() > System.currentTimeMillis());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSweepDurationRecorder() throws Exception {
+        final AtomicInteger sweepCnt = new AtomicInteger(0);
+        HeartbeatManager recordedManager = new HeartbeatManager(dltTime -> {
+            Assert.assertTrue(dltTime >= 0);
+            sweepCnt.incrementAndGet();
+        });
+        try {
+            recordedManager.regBrokerCheckBusiness(1000, (nodeId, nodeInfo) -> {
+            });
+            long deadline = System.currentTimeMillis() + 5000L;
+            while (sweepCnt.get() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            Assert.assertTrue(sweepCnt.get() > 0);
+        } finally {
+            recordedManager.stop();
+        }
+    }
+}
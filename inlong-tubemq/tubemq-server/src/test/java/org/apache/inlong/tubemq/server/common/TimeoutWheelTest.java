@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.common;
+
+import org.apache.inlong.tubemq.corebase.utils.Tuple2;
+import org.apache.inlong.tubemq.server.common.heartbeat.TimeoutInfo;
+import org.apache.inlong.tubemq.server.common.heartbeat.TimeoutWheel;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TimeoutWheel test.
+ */
+public class TimeoutWheelTest {
+
+    @Test
+    public void testSweep() {
+        ConcurrentHashMap<String, TimeoutInfo> nodeMap = new ConcurrentHashMap<>();
+        TimeoutWheel timeoutWheel = new TimeoutWheel(nodeMap, 100L, 8);
+        long startTime = System.currentTimeMillis();
+        TimeoutInfo node1Info = new TimeoutInfo(300L);
+        TimeoutInfo node2Info = new TimeoutInfo(300L);
+        TimeoutInfo node3Info = new TimeoutInfo(2000L);
+        nodeMap.put("node1", node1Info);
+        nodeMap.put("node2", node2Info);
+        nodeMap.put("node3", node3Info);
+        timeoutWheel.add("node1", node1Info);
+        timeoutWheel.add("node2", node2Info);
+        timeoutWheel.add("node3", node3Info);
+        // node2 is refreshed, node3 is unregistered
+        node2Info.updTimeoutTime(1000L);
+        nodeMap.remove("node3");
+        List<Tuple2<String, TimeoutInfo>> timeoutNodes =
+                timeoutWheel.sweep(startTime + 100L);
+        Assert.assertTrue(timeoutNodes.isEmpty());
+        timeoutNodes = timeoutWheel.sweep(startTime + 600L);
+        Assert.assertEquals(1, timeoutNodes.size());
+        Assert.assertEquals("node1", timeoutNodes.get(0).getF0());
+        Assert.assertFalse(nodeMap.containsKey("node1"));
+        // the refreshed node is moved to its new slot
+        Assert.assertTrue(timeoutWheel.sweep(startTime + 900L).isEmpty());
+        timeoutNodes = timeoutWheel.sweep(startTime + 1300L);
+        Assert.assertEquals(1, timeoutNodes.size());
+        Assert.assertEquals("node2", timeoutNodes.get(0).getF0());
+        // the unregistered node is never reported
+        Assert.assertTrue(timeoutWheel.sweep(startTime + 3000L).isEmpty());
+        Assert.assertTrue(nodeMap.isEmpty());
+    }
+}
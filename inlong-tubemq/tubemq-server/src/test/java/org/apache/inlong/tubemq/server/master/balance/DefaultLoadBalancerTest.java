@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.server.master.metamanage.MetaDataService;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodebroker.BrokerRunManager;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumeGroupInfo;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumerInfo;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumerInfoHolder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * DefaultLoadBalancer test.
+ */
+public class DefaultLoadBalancerTest {
+
+    private static final String GROUP = "test_group";
+    private static final String TOPIC = "test_topic";
+
+    @Test
+    public void testAssignToIdleConsumers() {
+        Map<String, Partition> partitions = buildPartitions(10);
+        Map<String, Map<String, List<Partition>>> result =
+                balance(partitions, new TreeMap<>(), "consumer-1", "consumer-2", "consumer-3");
+        assertAssignedOnce(partitions, result);
+        Assert.assertEquals(4, getLoad(result, "consumer-1"));
+        Assert.assertEquals(3, getLoad(result, "consumer-2"));
+        Assert.assertEquals(3, getLoad(result, "consumer-3"));
+    }
+
+    @Test
+    public void testLevelUnevenLoads() {
+        Map<String, Partition> partitions = buildPartitions(10);
+        List<Partition> partList = new ArrayList<>(partitions.values());
+        // consumer-1 holds 4 partitions, consumer-2 holds 1, consumer-3 holds none
+        Map<String, List<Partition>> curAssignment = new TreeMap<>();
+        curAssignment.put("consumer-1", partList.subList(0, 4));
+        curAssignment.put("consumer-2", partList.subList(4, 5));
+        Map<String, Map<String, List<Partition>>> result = balance(partitions,
+                curAssignment, "consumer-1", "consumer-2", "consumer-3");
+        assertAssignedOnce(partitions, result);
+        // the held partitions stay, the orphan partitions go to the least loaded consumers
+        Assert.assertTrue(result.get("consumer-1").get(TOPIC).containsAll(partList.subList(0, 4)));
+        Assert.assertTrue(result.get("consumer-2").get(TOPIC).containsAll(partList.subList(4, 5)));
+        Assert.assertEquals(4, getLoad(result, "consumer-1"));
+        Assert.assertEquals(3, getLoad(result, "consumer-2"));
+        Assert.assertEquals(3, getLoad(result, "consumer-3"));
+    }
+
+    private Map<String, Map<String, List<Partition>>> balance(Map<String, Partition> partitions,
+            Map<String, List<Partition>> curAssignment, String... consumerIds) {
+        List<ConsumerInfo> consumerList = new ArrayList<>();
+        for (String consumerId : consumerIds) {
+            ConsumerInfo consumer = mock(ConsumerInfo.class);
+            when(consumer.getConsumerId()).thenReturn(consumerId);
+            consumerList.add(consumer);
+        }
+        ConsumeGroupInfo groupInfo = mock(ConsumeGroupInfo.class);
+        when(groupInfo.getConsumerInfoList()).thenReturn(consumerList);
+        when(groupInfo.getTopicSet()).thenReturn(Collections.singleton(TOPIC));
+        when(groupInfo.isBalanceMapEmpty()).thenReturn(true);
+        ConsumerInfoHolder consumerHolder = mock(ConsumerInfoHolder.class);
+        when(consumerHolder.getConsumeGroupInfo(GROUP)).thenReturn(groupInfo);
+        BrokerRunManager brokerRunManager = mock(BrokerRunManager.class);
+        when(brokerRunManager.getSubBrokerAcceptSubParts(anySet()))
+                .thenAnswer(invocation -> new HashMap<>(partitions));
+        // the current subscription of each consumer
+        Map<String, Map<String, Map<String, Partition>>> clusterState = new HashMap<>();
+        for (String consumerId : consumerIds) {
+            Map<String, Partition> partMap = new HashMap<>();
+            List<Partition> curParts = curAssignment.get(consumerId);
+            if (curParts != null) {
+                for (Partition partition : curParts) {
+                    partMap.put(partition.getPartitionKey(), partition);
+                }
+            }
+            clusterState.put(consumerId, Collections.singletonMap(TOPIC, partMap));
+        }
+        return new DefaultLoadBalancer().balanceCluster(clusterState, consumerHolder,
+                brokerRunManager, Collections.singletonList(GROUP),
+                mock(MetaDataService.class), new StringBuilder(512));
+    }
+
+    private Map<String, Partition> buildPartitions(int partCnt) {
+        BrokerInfo brokerInfo = new BrokerInfo(1, "127.0.0.1", 8123);
+        Map<String, Partition> partitions = new TreeMap<>();
+        for (int i = 0; i < partCnt; i++) {
+            Partition partition = new Partition(brokerInfo, TOPIC, i);
+            partitions.put(partition.getPartitionKey(), partition);
+        }
+        return partitions;
+    }
+
+    private void assertAssignedOnce(Map<String, Partition> partitions,
+            Map<String, Map<String, List<Partition>>> result) {
+        Set<String> assignedKeys = new HashSet<>();
+        for (Map<String, List<Partition>> topicParts : result.values()) {
+            for (List<Partition> partList : topicParts.values()) {
+                for (Partition partition : partList) {
+                    Assert.assertTrue(assignedKeys.add(partition.getPartitionKey()));
+                }
+            }
+        }
+        Assert.assertEquals(partitions.keySet(), assignedKeys);
+    }
+
+    private int getLoad(Map<String, Map<String, List<Partition>>> result, String consumerId) {
+        int load = 0;
+        for (List<Partition> partList : result.get(consumerId).values()) {
+            load += partList.size();
+        }
+        return load;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GroupBalanceTracker test.
+ */
+public class GroupBalanceTrackerTest {
+
+    @Test
+    public void testStableGroups() {
+        GroupBalanceTracker tracker = new GroupBalanceTracker(3);
+        // the first round is always a full round
+        Assert.assertTrue(tracker.startRound(false));
+        long signature = GroupBalanceTracker.addKey(0L, "consumer-1");
+        signature = GroupBalanceTracker.addKey(signature, "1:test:0");
+        tracker.setStable("group-1", signature);
+        Assert.assertFalse(tracker.startRound(false));
+        Assert.assertTrue(tracker.isStable("group-1", signature));
+        // the changed signature needs to be balanced again
+        long changedSig = GroupBalanceTracker.addKey(signature, "1:test:1");
+        Assert.assertFalse(tracker.isStable("group-1", changedSig));
+        tracker.setUnstable(Collections.singletonList("group-1"));
+        Assert.assertFalse(tracker.isStable("group-1", signature));
+        // the full round clears the stable groups
+        tracker.setStable("group-1", signature);
+        Assert.assertFalse(tracker.startRound(false));
+        Assert.assertTrue(tracker.startRound(false));
+        Assert.assertEquals(0, tracker.getStableGroupCnt());
+        tracker.setStable("group-1", signature);
+        Assert.assertTrue(tracker.startRound(true));
+        Assert.assertEquals(0, tracker.getStableGroupCnt());
+    }
+
+    @Test
+    public void testSelectGroups() {
+        GroupBalanceTracker tracker = new GroupBalanceTracker(3);
+        List<String> candidateGroups = Arrays.asList("group-1", "group-2", "group-3");
+        // group-3 has no signature, it is balanced in every round
+        Map<String, Long> signatures = new HashMap<>();
+        signatures.put("group-1", 1L);
+        signatures.put("group-2", 2L);
+        Map<String, Long> groupSignatures = new HashMap<>();
+        Assert.assertTrue(tracker.startRound(false));
+        Assert.assertEquals(candidateGroups, tracker.selectGroups(candidateGroups,
+                true, signatures::get, groupSignatures));
+        Assert.assertEquals(signatures, groupSignatures);
+        // the groups balanced without event are stable
+        tracker.setStable("group-1", 1L);
+        tracker.setStable("group-2", 2L);
+        // the unchanged groups are skipped
+        groupSignatures.clear();
+        Assert.assertFalse(tracker.startRound(false));
+        Assert.assertEquals(Collections.singletonList("group-3"),
+                tracker.selectGroups(candidateGroups, false, signatures::get, groupSignatures));
+        Assert.assertTrue(groupSignatures.isEmpty());
+        // the changed group is balanced again
+        signatures.put("group-2", 3L);
+        Assert.assertFalse(tracker.startRound(false));
+        Assert.assertEquals(Arrays.asList("group-2", "group-3"),
+                tracker.selectGroups(candidateGroups, false, signatures::get, groupSignatures));
+        Assert.assertEquals(Long.valueOf(3L), groupSignatures.get("group-2"));
+        // every fullRoundInterval rounds all the groups are balanced
+        groupSignatures.clear();
+        tracker.setStable("group-2", 3L);
+        Assert.assertTrue(tracker.startRound(false));
+        Assert.assertEquals(candidateGroups, tracker.selectGroups(candidateGroups,
+                true, signatures::get, groupSignatures));
+        Assert.assertEquals(signatures, groupSignatures);
+    }
+
+    @Test
+    public void testSignature() {
+        // the added keys are order independent
+        long signature1 = GroupBalanceTracker.addKey(
+                GroupBalanceTracker.addKey(0L, "1:test:0"), "1:test:1");
+        long signature2 = GroupBalanceTracker.addKey(
+                GroupBalanceTracker.addKey(0L, "1:test:1"), "1:test:0");
+        Assert.assertEquals(signature1, signature2);
+        Assert.assertNotEquals(signature1, GroupBalanceTracker.addKey(0L, "1:test:0"));
+        // the chained values are order dependent
+        Assert.assertNotEquals(GroupBalanceTracker.chain(GroupBalanceTracker.chain(0L, 1L), 2L),
+                GroupBalanceTracker.chain(GroupBalanceTracker.chain(0L, 2L), 1L));
+    }
+}
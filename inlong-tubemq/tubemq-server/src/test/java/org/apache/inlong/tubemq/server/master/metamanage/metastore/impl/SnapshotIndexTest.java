@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.metamanage.metastore.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SnapshotIndex test.
+ */
+public class SnapshotIndexTest {
+
+    @Test
+    public void testSnapshotIndex() {
+        final AtomicInteger loadCnt = new AtomicInteger(0);
+        final ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<>();
+        SnapshotIndex<String, String> index = new SnapshotIndex<>(
+                () -> new HashSet<>(cache.keySet()), key -> {
+                    loadCnt.incrementAndGet();
+                    return cache.get(key);
+                });
+        cache.put("group-1", "topic-1");
+        cache.put("group-2", "topic-2");
+        index.markChanged("group-1");
+        index.markChanged("group-2");
+        Map<String, String> snapshot = index.getSnapshot();
+        Assert.assertEquals(2, snapshot.size());
+        Assert.assertEquals(2, loadCnt.get());
+        // the unchanged index returns the same snapshot
+        Assert.assertSame(snapshot, index.getSnapshot());
+        Assert.assertEquals(2, loadCnt.get());
+        // only the changed key is rebuilt
+        cache.put("group-1", "topic-3");
+        cache.remove("group-2");
+        index.markChanged("group-1");
+        index.markChanged("group-2");
+        Assert.assertEquals("topic-3", index.get("group-1"));
+        Assert.assertNull(index.get("group-2"));
+        Assert.assertEquals(4, loadCnt.get());
+        Assert.assertEquals("topic-1", snapshot.get("group-1"));
+        // the full rebuild reloads all the keys
+        cache.clear();
+        cache.put("group-4", "topic-4");
+        index.markAllChanged();
+        Assert.assertEquals(1, index.getSnapshot().size());
+        Assert.assertEquals("topic-4", index.get("group-4"));
+        Assert.assertEquals(5, loadCnt.get());
+    }
+}